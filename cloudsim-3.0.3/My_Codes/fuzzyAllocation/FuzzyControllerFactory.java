@@ -0,0 +1,404 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package fuzzyAllocation;
+
+import examples.SimpleT1FLS;
+import generalType2zSlices.sets.GenT2zMF_Trapezoidal;
+import generalType2zSlices.system.GenT2zEngine_Defuzzification;
+import generalType2zSlices.system.GenT2z_Antecedent;
+import generalType2zSlices.system.GenT2z_CompiledRulebase;
+import generalType2zSlices.system.GenT2z_Consequent;
+import generalType2zSlices.system.GenT2z_Rule;
+import generalType2zSlices.system.GenT2z_Rulebase;
+import generic.Input;
+import generic.Output;
+import generic.Tuple;
+import intervalType2.sets.IntervalT2MF_Trapezoidal;
+import intervalType2.system.IT2_Antecedent;
+import intervalType2.system.IT2_CompiledRulebase;
+import intervalType2.system.IT2_Consequent;
+import intervalType2.system.IT2_Rule;
+import intervalType2.system.IT2_Rulebase;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.power.PowerVmAllocationPolicyMigrationFuzzy;
+
+import type1.sets.T1MF_Interface;
+import type1.sets.T1MF_Trapezoidal;
+import type1.system.T1_Antecedent;
+import type1.system.T1_CompiledRulebase;
+import type1.system.T1_Consequent;
+import type1.system.T1_Rule;
+import type1.system.T1_Rulebase;
+
+/**
+ * Creates the controllers of {@link PowerVmAllocationPolicyMigrationFuzzy} from juzzy rulebases,
+ * without plotting or printing anything.
+ *
+ * The rulebases are compiled when the controller is created, so later changes to them are not
+ * reflected. The value of each feature, in [0, 1], is mapped linearly onto the domain of the
+ * corresponding input, and the output is mapped from its domain back to [0, 1].
+ *
+ * The create*Controller() methods build the CPU and memory usage rulebase of SimpleT1FLS, either as
+ * it is or with interval type-2 or zSlices based general type-2 sets around its type-1 sets. Their
+ * controllers take the CPU and RAM utilization features, in this order.
+ */
+public class FuzzyControllerFactory {
+
+	/**
+	 * Instantiates a new fuzzy controller factory.
+	 */
+	private FuzzyControllerFactory() {
+	}
+
+	/**
+	 * Maps the features onto the inputs of a compiled rulebase and its output back to [0, 1].
+	 */
+	private abstract static class RulebaseController implements PowerVmAllocationPolicyMigrationFuzzy.Controller {
+
+		/** The position of each input in the input values of the rulebase. */
+		private final int[] inputIndexes;
+
+		/** The domain of each input. */
+		private final Tuple[] domains;
+
+		/** The number of inputs of the rulebase. */
+		private final int numberOfInputs;
+
+		/** The position of the output in the results of the rulebase. */
+		private final int outputIndex;
+
+		/** The number of outputs of the rulebase. */
+		private final int numberOfOutputs;
+
+		/** The domain of the output. */
+		private final Tuple outputDomain;
+
+		/** The input values and results of the rulebase, per thread as the rulebases are evaluated. */
+		private final ThreadLocal<double[][]> buffers = new ThreadLocal<double[][]>() {
+
+			@Override
+			protected double[][] initialValue() {
+				return new double[][] { new double[numberOfInputs], new double[numberOfOutputs] };
+			}
+
+		};
+
+		/**
+		 * Instantiates a new rulebase controller.
+		 *
+		 * @param inputs the inputs, in the order of the features
+		 * @param rulebaseInputs the inputs of the rulebase
+		 * @param output the output
+		 * @param rulebaseOutputs the outputs of the rulebase
+		 */
+		public RulebaseController(Input[] inputs, Input[] rulebaseInputs, Output output, Output[] rulebaseOutputs) {
+			inputIndexes = new int[inputs.length];
+			domains = new Tuple[inputs.length];
+			for (int i = 0; i < inputs.length; i++) {
+				inputIndexes[i] = indexOf(rulebaseInputs, inputs[i]);
+				if (inputIndexes[i] < 0) {
+					throw new IllegalArgumentException("The rulebase does not use the input " + inputs[i].getName());
+				}
+				domains[i] = inputs[i].getDomain();
+			}
+			numberOfInputs = rulebaseInputs.length;
+			outputIndex = indexOf(rulebaseOutputs, output);
+			if (outputIndex < 0) {
+				throw new IllegalArgumentException("The rulebase does not have the output " + output.getName());
+			}
+			numberOfOutputs = rulebaseOutputs.length;
+			outputDomain = output.getDomain();
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see
+		 * org.cloudbus.cloudsim.power.PowerVmAllocationPolicyMigrationFuzzy.Controller#getOverloadDegree
+		 * (double[])
+		 */
+		@Override
+		public double getOverloadDegree(double[] features) {
+			if (features.length != inputIndexes.length) {
+				throw new IllegalArgumentException("The controller has " + inputIndexes.length
+						+ " inputs, not " + features.length);
+			}
+			double[][] buffers = this.buffers.get();
+			double[] inputValues = buffers[0];
+			for (int i = 0; i < features.length; i++) {
+				inputValues[inputIndexes[i]] = domains[i].getLeft() + features[i] * domains[i].getSize();
+			}
+			double[] results = buffers[1];
+			evaluate(inputValues, results);
+			return (results[outputIndex] - outputDomain.getLeft()) / outputDomain.getSize();
+		}
+
+		/**
+		 * Evaluates the rulebase.
+		 *
+		 * @param inputValues the value of each input of the rulebase
+		 * @param results the array receiving the value of each output of the rulebase
+		 */
+		protected abstract void evaluate(double[] inputValues, double[] results);
+
+		/**
+		 * Gets the position of an object in an array.
+		 *
+		 * @param array the array
+		 * @param object the object
+		 * @return the position, or -1
+		 */
+		private static int indexOf(Object[] array, Object object) {
+			for (int i = 0; i < array.length; i++) {
+				if (array[i] == object) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+	}
+
+	/**
+	 * Creates a controller evaluating a type-1 rulebase.
+	 *
+	 * @param rulebase the rulebase, whose inputs must all be singletons
+	 * @param inputs the inputs receiving the features, in the order of the features
+	 * @param output the output giving the overload degree
+	 * @param defuzzificationType 0: height defuzzification, 1: centroid defuzzification
+	 * @return the controller
+	 */
+	public static PowerVmAllocationPolicyMigrationFuzzy.Controller createController(
+			T1_Rulebase rulebase,
+			Input[] inputs,
+			Output output,
+			final int defuzzificationType) {
+		final T1_CompiledRulebase compiledRulebase = new T1_CompiledRulebase(rulebase);
+		return new RulebaseController(inputs, compiledRulebase.getInputs(), output, compiledRulebase.getOutputs()) {
+
+			@Override
+			protected void evaluate(double[] inputValues, double[] results) {
+				compiledRulebase.evaluate(inputValues, defuzzificationType, results);
+			}
+
+		};
+	}
+
+	/**
+	 * Creates a controller evaluating an interval type-2 rulebase.
+	 *
+	 * @param rulebase the rulebase, whose inputs must all be singletons
+	 * @param inputs the inputs receiving the features, in the order of the features
+	 * @param output the output giving the overload degree
+	 * @param typeReductionType 0: center of sets, 1: centroid
+	 * @return the controller
+	 */
+	public static PowerVmAllocationPolicyMigrationFuzzy.Controller createController(
+			IT2_Rulebase rulebase,
+			Input[] inputs,
+			Output output,
+			final int typeReductionType) {
+		final IT2_CompiledRulebase compiledRulebase = new IT2_CompiledRulebase(rulebase);
+		return new RulebaseController(inputs, compiledRulebase.getInputs(), output, compiledRulebase.getOutputs()) {
+
+			@Override
+			protected void evaluate(double[] inputValues, double[] results) {
+				compiledRulebase.evaluate(inputValues, typeReductionType, results);
+			}
+
+		};
+	}
+
+	/**
+	 * Creates a controller evaluating a zSlices based general type-2 rulebase.
+	 *
+	 * @param rulebase the rulebase, whose inputs must all be singletons
+	 * @param inputs the inputs receiving the features, in the order of the features
+	 * @param output the output giving the overload degree
+	 * @param typeReductionType 0: center of sets, 1: centroid
+	 * @return the controller
+	 */
+	public static PowerVmAllocationPolicyMigrationFuzzy.Controller createController(
+			GenT2z_Rulebase rulebase,
+			Input[] inputs,
+			Output output,
+			final int typeReductionType) {
+		final GenT2z_CompiledRulebase compiledRulebase = new GenT2z_CompiledRulebase(rulebase);
+		return new RulebaseController(inputs, compiledRulebase.getInputs(), output, compiledRulebase.getOutputs()) {
+
+			@Override
+			protected void evaluate(double[] inputValues, double[] results) {
+				compiledRulebase.evaluate(inputValues, typeReductionType, results);
+			}
+
+		};
+	}
+
+	/**
+	 * Creates the controller of the type-1 CPU and memory usage rulebase of SimpleT1FLS, giving the
+	 * same priorities as SimpleT1FLS.getPriority() divided by 10.
+	 *
+	 * @return the controller
+	 */
+	public static PowerVmAllocationPolicyMigrationFuzzy.Controller createType1Controller() {
+		SimpleT1FLS fls = new SimpleT1FLS();
+		return createController(
+				fls.getRulebase(),
+				new Input[] { fls.getCpuInput(), fls.getMemoryInput() },
+				fls.getPriorityOutput(),
+				0);
+	}
+
+	/**
+	 * Creates the controller of the interval type-2 CPU and memory usage rulebase. It has the rules of
+	 * SimpleT1FLS; the lower membership function of each set is the corresponding type-1 set, and the
+	 * upper one widens it by the footprint of uncertainty on both sides.
+	 *
+	 * @param footprint the footprint of uncertainty, in units of the domains (0 to 10)
+	 * @param typeReductionType 0: center of sets, 1: centroid
+	 * @return the controller
+	 */
+	public static PowerVmAllocationPolicyMigrationFuzzy.Controller createIntervalType2Controller(
+			double footprint,
+			int typeReductionType) {
+		SimpleT1FLS fls = new SimpleT1FLS();
+		T1_Rulebase type1Rulebase = fls.getRulebase();
+		Map<T1_Antecedent, IT2_Antecedent> antecedents = new IdentityHashMap<T1_Antecedent, IT2_Antecedent>();
+		Map<T1_Consequent, IT2_Consequent> consequents = new IdentityHashMap<T1_Consequent, IT2_Consequent>();
+
+		IT2_Rulebase rulebase = new IT2_Rulebase(type1Rulebase.getNumberOfRules());
+		for (int r = 0; r < type1Rulebase.getNumberOfRules(); r++) {
+			T1_Rule type1Rule = type1Rulebase.getRule(r);
+			T1_Antecedent[] type1Antecedents = type1Rule.getAntecedents();
+			IT2_Antecedent[] ruleAntecedents = new IT2_Antecedent[type1Antecedents.length];
+			for (int i = 0; i < type1Antecedents.length; i++) {
+				T1_Antecedent type1Antecedent = type1Antecedents[i];
+				ruleAntecedents[i] = antecedents.get(type1Antecedent);
+				if (ruleAntecedents[i] == null) {
+					ruleAntecedents[i] = new IT2_Antecedent(
+							type1Antecedent.getName(),
+							getIntervalType2Set(type1Antecedent.getMF(), footprint),
+							type1Antecedent.getInput());
+					antecedents.put(type1Antecedent, ruleAntecedents[i]);
+				}
+			}
+			T1_Consequent[] type1Consequents = type1Rule.getConsequents();
+			IT2_Consequent[] ruleConsequents = new IT2_Consequent[type1Consequents.length];
+			for (int i = 0; i < type1Consequents.length; i++) {
+				T1_Consequent type1Consequent = type1Consequents[i];
+				ruleConsequents[i] = consequents.get(type1Consequent);
+				if (ruleConsequents[i] == null) {
+					ruleConsequents[i] = new IT2_Consequent(
+							type1Consequent.getName(),
+							getIntervalType2Set(type1Consequent.getMF(), footprint),
+							type1Consequent.getOutput());
+					consequents.put(type1Consequent, ruleConsequents[i]);
+				}
+			}
+			rulebase.addRule(new IT2_Rule(ruleAntecedents, ruleConsequents));
+		}
+		return createController(
+				rulebase,
+				new Input[] { fls.getCpuInput(), fls.getMemoryInput() },
+				fls.getPriorityOutput(),
+				typeReductionType);
+	}
+
+	/**
+	 * Creates the controller of the zSlices based general type-2 CPU and memory usage rulebase. It has
+	 * the rules of SimpleT1FLS, and each set is built from the interval type-2 set of
+	 * createIntervalType2Controller(), which is its zSlice 0.
+	 *
+	 * @param footprint the footprint of uncertainty, in units of the domains (0 to 10)
+	 * @param numberOfZLevels the number of zLevels
+	 * @param typeReductionType 0: center of sets, 1: centroid
+	 * @return the controller
+	 */
+	public static PowerVmAllocationPolicyMigrationFuzzy.Controller createZSlicesController(
+			double footprint,
+			int numberOfZLevels,
+			int typeReductionType) {
+		SimpleT1FLS fls = new SimpleT1FLS();
+		T1_Rulebase type1Rulebase = fls.getRulebase();
+		Map<T1_Antecedent, GenT2z_Antecedent> antecedents = new IdentityHashMap<T1_Antecedent, GenT2z_Antecedent>();
+		Map<T1_Consequent, GenT2z_Consequent> consequents = new IdentityHashMap<T1_Consequent, GenT2z_Consequent>();
+		GenT2zEngine_Defuzzification defuzzification = new GenT2zEngine_Defuzzification(100);
+
+		GenT2z_Rulebase rulebase = new GenT2z_Rulebase(type1Rulebase.getNumberOfRules());
+		for (int r = 0; r < type1Rulebase.getNumberOfRules(); r++) {
+			T1_Rule type1Rule = type1Rulebase.getRule(r);
+			T1_Antecedent[] type1Antecedents = type1Rule.getAntecedents();
+			GenT2z_Antecedent[] ruleAntecedents = new GenT2z_Antecedent[type1Antecedents.length];
+			for (int i = 0; i < type1Antecedents.length; i++) {
+				T1_Antecedent type1Antecedent = type1Antecedents[i];
+				ruleAntecedents[i] = antecedents.get(type1Antecedent);
+				if (ruleAntecedents[i] == null) {
+					ruleAntecedents[i] = new GenT2z_Antecedent(
+							type1Antecedent.getName(),
+							new GenT2zMF_Trapezoidal(
+									type1Antecedent.getMF().getName(),
+									getIntervalType2Set(type1Antecedent.getMF(), footprint),
+									numberOfZLevels),
+							type1Antecedent.getInput());
+					antecedents.put(type1Antecedent, ruleAntecedents[i]);
+				}
+			}
+			T1_Consequent[] type1Consequents = type1Rule.getConsequents();
+			GenT2z_Consequent[] ruleConsequents = new GenT2z_Consequent[type1Consequents.length];
+			for (int i = 0; i < type1Consequents.length; i++) {
+				T1_Consequent type1Consequent = type1Consequents[i];
+				ruleConsequents[i] = consequents.get(type1Consequent);
+				if (ruleConsequents[i] == null) {
+					ruleConsequents[i] = new GenT2z_Consequent(
+							type1Consequent.getName(),
+							new GenT2zMF_Trapezoidal(
+									type1Consequent.getMF().getName(),
+									getIntervalType2Set(type1Consequent.getMF(), footprint),
+									numberOfZLevels),
+							type1Consequent.getOutput(),
+							defuzzification);
+					consequents.put(type1Consequent, ruleConsequents[i]);
+				}
+			}
+			rulebase.addRule(new GenT2z_Rule(ruleAntecedents, ruleConsequents));
+		}
+		return createController(
+				rulebase,
+				new Input[] { fls.getCpuInput(), fls.getMemoryInput() },
+				fls.getPriorityOutput(),
+				typeReductionType);
+	}
+
+	/**
+	 * Gets an interval type-2 trapezoidal set whose lower membership function is a type-1 trapezoidal
+	 * set and whose upper one widens it by the footprint of uncertainty on both sides.
+	 *
+	 * @param set the type-1 set
+	 * @param footprint the footprint of uncertainty
+	 * @return the set
+	 */
+	private static IntervalT2MF_Trapezoidal getIntervalType2Set(T1MF_Interface set, double footprint) {
+		if (!(set instanceof T1MF_Trapezoidal)) {
+			throw new IllegalArgumentException("The set " + set.getName() + " is not trapezoidal");
+		}
+		double[] parameters = ((T1MF_Trapezoidal) set).getParameters();
+		double[] upperParameters = {
+				parameters[0] - footprint,
+				parameters[1] - footprint,
+				parameters[2] + footprint,
+				parameters[3] + footprint };
+		return new IntervalT2MF_Trapezoidal(
+				set.getName(),
+				new T1MF_Trapezoidal("Upper " + set.getName(), upperParameters),
+				new T1MF_Trapezoidal("Lower " + set.getName(), parameters));
+	}
+
+}
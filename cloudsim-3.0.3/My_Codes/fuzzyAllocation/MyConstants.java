@@ -21,6 +21,12 @@ public class MyConstants {
 	public final static boolean ENABLE_OUTPUT = true;
 	public final static boolean OUTPUT_CSV    = false;
 
+	/*
+	 * The SLA metrics are accumulated as the states of the hosts and VMs are added, so the states
+	 * themselves are only kept when they are needed for other purposes.
+	 */
+	public final static boolean KEEP_STATE_HISTORY = false;
+
 	public final static double SCHEDULING_INTERVAL = 300;
 	public final static double SIMULATION_LIMIT = 24 * 60 * 60;
 
@@ -19,14 +19,14 @@ import org.cloudbus.cloudsim.DatacenterBroker;
 import org.cloudbus.cloudsim.DatacenterCharacteristics;
 import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.HostDynamicWorkload;
-import org.cloudbus.cloudsim.HostStateHistoryEntry;
+import org.cloudbus.cloudsim.HostStateHistory;
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.Pe;
 import org.cloudbus.cloudsim.Storage;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.VmAllocationPolicy;
 import org.cloudbus.cloudsim.VmSchedulerTimeSharedOverSubscription;
-import org.cloudbus.cloudsim.VmStateHistoryEntry;
+import org.cloudbus.cloudsim.VmStateHistory;
 import org.cloudbus.cloudsim.power.PowerDatacenter;
 import org.cloudbus.cloudsim.power.PowerDatacenterBroker;
 import org.cloudbus.cloudsim.power.PowerHost;
@@ -65,7 +65,7 @@ public class MyHelper {
 		List<Vm> vms = new ArrayList<Vm>();
 		for (int i = 0; i < vmsNumber; i++) {
 			int vmType = i / (int) Math.ceil((double) vmsNumber / MyConstants.VM_TYPES);
-			vms.add(new PowerVm(
+			PowerVm vm = new PowerVm(
 					i,
 					brokerId,
 					MyConstants.VM_MIPS[vmType],
@@ -76,7 +76,9 @@ public class MyHelper {
 					1,
 					"Xen",
 					new CloudletSchedulerDynamicWorkload(MyConstants.VM_MIPS[vmType], MyConstants.VM_PES[vmType]),
-					MyConstants.SCHEDULING_INTERVAL));
+					MyConstants.SCHEDULING_INTERVAL);
+			vm.getStateHistoryStore().setEntriesKept(MyConstants.KEEP_STATE_HISTORY);
+			vms.add(vm);
 		}
 		return vms;
 	}
@@ -98,14 +100,16 @@ public class MyHelper {
 				peList.add(new Pe(j, new PeProvisionerSimple(MyConstants.HOST_MIPS[hostType])));
 			}
 
-			hostList.add(new PowerHostUtilizationHistory(
+			PowerHost host = new PowerHostUtilizationHistory(
 					i,
 					new RamProvisionerSimple(MyConstants.HOST_RAM[hostType]),
 					new BwProvisionerSimple(MyConstants.HOST_BW),
 					MyConstants.HOST_STORAGE,
 					peList,
 					new VmSchedulerTimeSharedOverSubscription(peList),
-					MyConstants.HOST_POWER[hostType]));
+					MyConstants.HOST_POWER[hostType]);
+			host.getStateHistoryStore().setEntriesKept(MyConstants.KEEP_STATE_HISTORY);
+			hostList.add(host);
 		}
 		return hostList;
 	}
@@ -114,16 +118,14 @@ public class MyHelper {
 	 * Creates the broker.
 	 * 
 	 * @return the datacenter broker
+	 * @throws IllegalStateException if the broker cannot be created
 	 */
 	public static DatacenterBroker createBroker() {
-		DatacenterBroker broker = null;
 		try {
-			broker = new PowerDatacenterBroker("Broker");
+			return new PowerDatacenterBroker("Broker");
 		} catch (Exception e) {
-			e.printStackTrace();
-			System.exit(0);
+			throw new IllegalStateException("Cannot create the broker", e);
 		}
-		return broker;
 	}
 
 	/**
@@ -164,9 +166,8 @@ public class MyHelper {
 				costPerStorage,
 				costPerBw);
 
-		Datacenter datacenter = null;
 		try {
-			datacenter = datacenterClass.getConstructor(
+			return datacenterClass.getConstructor(
 					String.class,
 					DatacenterCharacteristics.class,
 					VmAllocationPolicy.class,
@@ -178,11 +179,8 @@ public class MyHelper {
 					new LinkedList<Storage>(),
 					MyConstants.SCHEDULING_INTERVAL);
 		} catch (Exception e) {
-			e.printStackTrace();
-			System.exit(0);
+			throw new IllegalStateException("Cannot create the datacenter " + name, e);
 		}
-
-		return datacenter;
 	}
 
 	/**
@@ -194,17 +192,8 @@ public class MyHelper {
 	public static List<Double> getTimesBeforeHostShutdown(List<Host> hosts) {
 		List<Double> timeBeforeShutdown = new LinkedList<Double>();
 		for (Host host : hosts) {
-			boolean previousIsActive = true;
-			double lastTimeSwitchedOn = 0;
-			for (HostStateHistoryEntry entry : ((HostDynamicWorkload) host).getStateHistory()) {
-				if (previousIsActive == true && entry.isActive() == false) {
-					timeBeforeShutdown.add(entry.getTime() - lastTimeSwitchedOn);
-				}
-				if (previousIsActive == false && entry.isActive() == true) {
-					lastTimeSwitchedOn = entry.getTime();
-				}
-				previousIsActive = entry.isActive();
-			}
+			timeBeforeShutdown.addAll(((HostDynamicWorkload) host).getStateHistoryStore()
+					.getTimesBeforeShutdown());
 		}
 		return timeBeforeShutdown;
 	}
@@ -218,17 +207,7 @@ public class MyHelper {
 	public static List<Double> getTimesBeforeVmMigration(List<Vm> vms) {
 		List<Double> timeBeforeVmMigration = new LinkedList<Double>();
 		for (Vm vm : vms) {
-			boolean previousIsInMigration = false;
-			double lastTimeMigrationFinished = 0;
-			for (VmStateHistoryEntry entry : vm.getStateHistory()) {
-				if (previousIsInMigration == true && entry.isInMigration() == false) {
-					timeBeforeVmMigration.add(entry.getTime() - lastTimeMigrationFinished);
-				}
-				if (previousIsInMigration == false && entry.isInMigration() == true) {
-					lastTimeMigrationFinished = entry.getTime();
-				}
-				previousIsInMigration = entry.isInMigration();
-			}
+			timeBeforeVmMigration.addAll(vm.getStateHistoryStore().getTimesBeforeMigration());
 		}
 		return timeBeforeVmMigration;
 	}
@@ -373,11 +352,12 @@ public class MyHelper {
 
 			data.append("\n");
 
-			writeDataRow(data.toString(), outputFolder + "/stats/" + experimentName + "_stats.csv");
 			writeDataColumn(timeBeforeHostShutdown, outputFolder + "/time_before_host_shutdown/"
 					+ experimentName + "_time_before_host_shutdown.csv");
 			writeDataColumn(timeBeforeVmMigration, outputFolder + "/time_before_vm_migration/"
 					+ experimentName + "_time_before_vm_migration.csv");
+			// written last: MySweepRunner takes a complete stats row as a finished experiment
+			writeDataRow(data.toString(), outputFolder + "/stats/" + experimentName + "_stats.csv");
 
 		} else {
 			Log.setDisabled(false);
@@ -494,27 +474,10 @@ public class MyHelper {
 		double slaViolationTimePerHost = 0;
 		double totalTime = 0;
 
-		for (Host _host : hosts) {
-			HostDynamicWorkload host = (HostDynamicWorkload) _host;
-			double previousTime = -1;
-			double previousAllocated = 0;
-			double previousRequested = 0;
-			boolean previousIsActive = true;
-
-			for (HostStateHistoryEntry entry : host.getStateHistory()) {
-				if (previousTime != -1 && previousIsActive) {
-					double timeDiff = entry.getTime() - previousTime;
-					totalTime += timeDiff;
-					if (previousAllocated < previousRequested) {
-						slaViolationTimePerHost += timeDiff;
-					}
-				}
-
-				previousAllocated = entry.getAllocatedMips();
-				previousRequested = entry.getRequestedMips();
-				previousTime = entry.getTime();
-				previousIsActive = entry.isActive();
-			}
+		for (Host host : hosts) {
+			HostStateHistory stateHistory = ((HostDynamicWorkload) host).getStateHistoryStore();
+			totalTime += stateHistory.getActiveTime();
+			slaViolationTimePerHost += stateHistory.getActiveSlaViolationTime();
 		}
 
 		return slaViolationTimePerHost / totalTime;
@@ -530,25 +493,10 @@ public class MyHelper {
 		double slaViolationTimePerHost = 0;
 		double totalTime = 0;
 
-		for (Host _host : hosts) {
-			HostDynamicWorkload host = (HostDynamicWorkload) _host;
-			double previousTime = -1;
-			double previousAllocated = 0;
-			double previousRequested = 0;
-
-			for (HostStateHistoryEntry entry : host.getStateHistory()) {
-				if (previousTime != -1) {
-					double timeDiff = entry.getTime() - previousTime;
-					totalTime += timeDiff;
-					if (previousAllocated < previousRequested) {
-						slaViolationTimePerHost += timeDiff;
-					}
-				}
-
-				previousAllocated = entry.getAllocatedMips();
-				previousRequested = entry.getRequestedMips();
-				previousTime = entry.getTime();
-			}
+		for (Host host : hosts) {
+			HostStateHistory stateHistory = ((HostDynamicWorkload) host).getStateHistoryStore();
+			totalTime += stateHistory.getTotalTime();
+			slaViolationTimePerHost += stateHistory.getSlaViolationTime();
 		}
 
 		return slaViolationTimePerHost / totalTime;
@@ -562,51 +510,26 @@ public class MyHelper {
 	 */
 	protected static Map<String, Double> getSlaMetrics(List<Vm> vms) {
 		Map<String, Double> metrics = new HashMap<String, Double>();
-		List<Double> slaViolation = new LinkedList<Double>();
+		double slaViolationSum = 0;
+		int slaViolationCount = 0;
 		double totalAllocated = 0;
 		double totalRequested = 0;
 		double totalUnderAllocatedDueToMigration = 0;
 
 		for (Vm vm : vms) {
-			double vmTotalAllocated = 0;
-			double vmTotalRequested = 0;
-			double vmUnderAllocatedDueToMigration = 0;
-			double previousTime = -1;
-			double previousAllocated = 0;
-			double previousRequested = 0;
-			boolean previousIsInMigration = false;
-
-			for (VmStateHistoryEntry entry : vm.getStateHistory()) {
-				if (previousTime != -1) {
-					double timeDiff = entry.getTime() - previousTime;
-					vmTotalAllocated += previousAllocated * timeDiff;
-					vmTotalRequested += previousRequested * timeDiff;
-
-					if (previousAllocated < previousRequested) {
-						slaViolation.add((previousRequested - previousAllocated) / previousRequested);
-						if (previousIsInMigration) {
-							vmUnderAllocatedDueToMigration += (previousRequested - previousAllocated)
-									* timeDiff;
-						}
-					}
-				}
-
-				previousAllocated = entry.getAllocatedMips();
-				previousRequested = entry.getRequestedMips();
-				previousTime = entry.getTime();
-				previousIsInMigration = entry.isInMigration();
-			}
-
-			totalAllocated += vmTotalAllocated;
-			totalRequested += vmTotalRequested;
-			totalUnderAllocatedDueToMigration += vmUnderAllocatedDueToMigration;
+			VmStateHistory stateHistory = vm.getStateHistoryStore();
+			slaViolationSum += stateHistory.getSlaViolationSum();
+			slaViolationCount += stateHistory.getSlaViolationCount();
+			totalAllocated += stateHistory.getTotalAllocatedMips();
+			totalRequested += stateHistory.getTotalRequestedMips();
+			totalUnderAllocatedDueToMigration += stateHistory.getUnderAllocatedMipsDueToMigration();
 		}
 
 		metrics.put("overall", (totalRequested - totalAllocated) / totalRequested);
-		if (slaViolation.isEmpty()) {
+		if (slaViolationCount == 0) {
 			metrics.put("average", 0.);
 		} else {
-			metrics.put("average", MathUtil.mean(slaViolation));
+			metrics.put("average", slaViolationSum / slaViolationCount);
 		}
 		metrics.put("underallocated_migration", totalUnderAllocatedDueToMigration / totalRequested);
 		// metrics.put("sla_time_per_vm_with_migration", slaViolationTimePerVmWithMigration /
@@ -622,24 +545,19 @@ public class MyHelper {
 	 * 
 	 * @param data the data
 	 * @param outputPath the output path
+	 * @throws IllegalStateException if the file cannot be written
 	 */
 	public static void writeDataColumn(List<? extends Number> data, String outputPath) {
 		File file = new File(outputPath);
 		try {
 			file.createNewFile();
-		} catch (IOException e1) {
-			e1.printStackTrace();
-			System.exit(0);
-		}
-		try {
 			BufferedWriter writer = new BufferedWriter(new FileWriter(file));
 			for (Number value : data) {
 				writer.write(value.toString() + "\n");
 			}
 			writer.close();
 		} catch (IOException e) {
-			e.printStackTrace();
-			System.exit(0);
+			throw new IllegalStateException("Cannot write " + outputPath, e);
 		}
 	}
 
@@ -648,22 +566,17 @@ public class MyHelper {
 	 * 
 	 * @param data the data
 	 * @param outputPath the output path
+	 * @throws IllegalStateException if the file cannot be written
 	 */
 	public static void writeDataRow(String data, String outputPath) {
 		File file = new File(outputPath);
 		try {
 			file.createNewFile();
-		} catch (IOException e1) {
-			e1.printStackTrace();
-			System.exit(0);
-		}
-		try {
 			BufferedWriter writer = new BufferedWriter(new FileWriter(file));
 			writer.write(data);
 			writer.close();
 		} catch (IOException e) {
-			e.printStackTrace();
-			System.exit(0);
+			throw new IllegalStateException("Cannot write " + outputPath, e);
 		}
 	}
 
@@ -673,6 +586,7 @@ public class MyHelper {
 	 * @param hosts the hosts
 	 * @param vmAllocationPolicy the vm allocation policy
 	 * @param outputPath the output path
+	 * @throws IllegalStateException if a file cannot be written
 	 */
 	public static void writeMetricHistory(
 			List<? extends Host> hosts,
@@ -688,11 +602,6 @@ public class MyHelper {
 			File file = new File(outputPath + "_" + host.getId() + ".csv");
 			try {
 				file.createNewFile();
-			} catch (IOException e1) {
-				e1.printStackTrace();
-				System.exit(0);
-			}
-			try {
 				BufferedWriter writer = new BufferedWriter(new FileWriter(file));
 				List<Double> timeData = vmAllocationPolicy.getTimeHistory().get(host.getId());
 				List<Double> utilizationData = vmAllocationPolicy.getUtilizationHistory().get(host.getId());
@@ -707,8 +616,7 @@ public class MyHelper {
 				}
 				writer.close();
 			} catch (IOException e) {
-				e.printStackTrace();
-				System.exit(0);
+				throw new IllegalStateException("Cannot write " + file.getPath(), e);
 			}
 		}
 	}
@@ -43,7 +43,7 @@ public class MyPlanetLabRunner extends MyRunnerAbstract{
 		} catch (Exception e) {
 			e.printStackTrace();
 			Log.printLine("The simulation has been terminated due to an unexpected error");
-			System.exit(0);
+			terminate(e);
 		}
 	}
 	
@@ -17,6 +17,7 @@ import org.cloudbus.cloudsim.power.PowerVmAllocationPolicyMigrationAbstract;
 import org.cloudbus.cloudsim.power.PowerVmSelectionPolicy;
 
 import examples.SimpleT1FLS;
+import tools.SurfaceCache;
 
 /**
  * The Static Threshold (THR) VM allocation policy.
@@ -38,6 +39,9 @@ public class MyPowerVmAllocationPolicyFuzzy extends PowerVmAllocationPolicyMigra
 	private double utilizationThreshold = 9;
 	private SimpleT1FLS fuzzyValue;
 
+	/** The lookup table of the fuzzy priority, or null to evaluate the rulebase. */
+	private SurfaceCache priorityCache;
+
 	/**
 	 * Instantiates a new power vm allocation policy migration mad.
 	 * 
@@ -63,23 +67,72 @@ public class MyPowerVmAllocationPolicyFuzzy extends PowerVmAllocationPolicyMigra
 	@Override
 	protected boolean isHostOverUtilized(PowerHost host) {
 		addHistoryEntry(host, getUtilizationThreshold());
-		double totalRequestedMips = 0;
-		double totalRequestedMemory = 0;
-		for (Vm vm : host.getVmList()) {
-			totalRequestedMips += vm.getCurrentRequestedTotalMips();
-			totalRequestedMemory += vm.getCurrentRequestedRam();
+		return isOverUtilized(host, getRequestedTotalMips(host), getRequestedTotalRam(host));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * org.cloudbus.cloudsim.power.PowerVmAllocationPolicyMigrationAbstract#isHostOverUtilizedAfterAllocation
+	 * (org.cloudbus.cloudsim.power.PowerHost, org.cloudbus.cloudsim.Vm)
+	 */
+	@Override
+	protected boolean isHostOverUtilizedAfterAllocation(PowerHost host, Vm vm) {
+		if (!canCreateVm(host, vm)) {
+			return true;
 		}
+		addHistoryEntry(host, getUtilizationThreshold());
+		return isOverUtilized(
+				host,
+				getRequestedTotalMips(host) + vm.getCurrentRequestedTotalMips(),
+				getRequestedTotalRam(host) + vm.getCurrentRequestedRam());
+	}
+
+	/**
+	 * Checks if the fuzzy utilization of a host with the given requested MIPS and memory is over the
+	 * threshold.
+	 * 
+	 * @param host the host
+	 * @param totalRequestedMips the total requested mips
+	 * @param totalRequestedMemory the total requested memory
+	 * @return true, if is over utilized
+	 */
+	private boolean isOverUtilized(PowerHost host, double totalRequestedMips, double totalRequestedMemory) {
 		double cpuUtilization = totalRequestedMips / host.getTotalMips();
 		cpuUtilization = cpuUtilization * 10;
 		double memoryUtilization = totalRequestedMemory / host.getRam();
 		memoryUtilization = memoryUtilization * 10;
-		double utilizationFuzzy = fuzzyValue.getPriority(cpuUtilization, memoryUtilization);
+		double utilizationFuzzy;
+		if (priorityCache != null) {
+			utilizationFuzzy = priorityCache.getValue(cpuUtilization, memoryUtilization);
+		} else {
+			utilizationFuzzy = fuzzyValue.getPriority(cpuUtilization, memoryUtilization);
+		}
 		double media = (cpuUtilization + memoryUtilization) / 2;
 		return utilizationFuzzy > getUtilizationThreshold();
 	}
 	
 	
 	//System.out.println("Valor normal:" + utilization + "Valor Fuzzyficado:" + utilizationFuzzy);
+
+	/**
+	 * Makes the policy read the fuzzy priority from a lookup table of the control surface instead
+	 * of evaluating the rulebase for every check. The priorities, and so the decisions close to the
+	 * threshold, may then differ from the exact ones by up to about the error bound.
+	 * 
+	 * @param points the initial number of grid points per input
+	 * @param errorBound the maximum interpolation error on the priority
+	 */
+	public void enablePriorityCache(int points, double errorBound) {
+		priorityCache = fuzzyValue.createPriorityCache(points, errorBound);
+	}
+
+	/**
+	 * Makes the policy evaluate the rulebase for every check again.
+	 */
+	public void disablePriorityCache() {
+		priorityCache = null;
+	}
 	
 	/**
 	 * Sets the utilization threshold.
@@ -12,10 +12,12 @@ import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.VmAllocationPolicy;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.Simulation;
 import org.cloudbus.cloudsim.examples.power.Constants;
 import org.cloudbus.cloudsim.power.PowerDatacenter;
 import org.cloudbus.cloudsim.power.PowerHost;
 import org.cloudbus.cloudsim.power.PowerVmAllocationPolicyMigrationAbstract;
+import org.cloudbus.cloudsim.power.PowerVmAllocationPolicyMigrationFuzzy;
 import org.cloudbus.cloudsim.power.PowerVmAllocationPolicyMigrationInterQuartileRange;
 import org.cloudbus.cloudsim.power.PowerVmAllocationPolicyMigrationLocalRegression;
 import org.cloudbus.cloudsim.power.PowerVmAllocationPolicyMigrationLocalRegressionRobust;
@@ -25,26 +27,29 @@ import org.cloudbus.cloudsim.power.PowerVmAllocationPolicySimple;
 import org.cloudbus.cloudsim.power.PowerVmSelectionPolicy;
 import org.cloudbus.cloudsim.power.PowerVmSelectionPolicyMaximumCorrelation;
 import org.cloudbus.cloudsim.power.PowerVmSelectionPolicyMinimumMigrationTime;
+import org.cloudbus.cloudsim.power.PowerVmSelectionPolicyMinimumUtilization;
+import org.cloudbus.cloudsim.power.PowerVmSelectionPolicyRandomSelection;
 
 public abstract class MyRunnerAbstract {
 	/** The enable output. */
-	private static boolean enableOutput;
+	private boolean enableOutput;
 
 	/** The broker. */
-	protected static DatacenterBroker broker;
+	protected DatacenterBroker broker;
 
 	/** The cloudlet list. */
-	protected static List<Cloudlet> cloudletList;
+	protected List<Cloudlet> cloudletList;
 
 	/** The vm list. */
-	protected static List<Vm> vmList;
+	protected List<Vm> vmList;
 
 	/** The host list. */
-	protected static List<PowerHost> hostList;
+	protected List<PowerHost> hostList;
 
 
 	/**
-	 * Run.
+	 * Run. The experiment runs in a simulation of its own, bound to the calling thread while it
+	 * runs, so that several experiments can run in parallel threads.
 	 * 
 	 * @param enableOutput the enable output
 	 * @param outputToFile the output to file
@@ -64,24 +69,29 @@ public abstract class MyRunnerAbstract {
 			String vmAllocationPolicy,
 			String vmSelectionPolicy,
 			String parameter) {
+		Simulation previousSimulation = CloudSim.setSimulation(new Simulation());
 		try {
-			initLogOutput(
-					enableOutput,
-					outputToFile,
+			try {
+				initLogOutput(
+						enableOutput,
+						outputToFile,
+						outputFolder,
+						workload,
+						vmAllocationPolicy,
+						vmSelectionPolicy,
+						parameter);
+			} catch (Exception e) {
+				e.printStackTrace();
+				terminate(e);
+			}
+			init(inputFolder + "/" + workload);
+			start(
+					getExperimentName(workload, vmAllocationPolicy, vmSelectionPolicy, parameter),
 					outputFolder,
-					workload,
-					vmAllocationPolicy,
-					vmSelectionPolicy,
-					parameter);
-		} catch (Exception e) {
-			e.printStackTrace();
-			System.exit(0);
+					getVmAllocationPolicy(vmAllocationPolicy, vmSelectionPolicy, parameter));
+		} finally {
+			CloudSim.setSimulation(previousSimulation);
 		}
-		init(inputFolder + "/" + workload);
-		start(
-				getExperimentName(workload, vmAllocationPolicy, vmSelectionPolicy, parameter),
-				outputFolder,
-				getVmAllocationPolicy(vmAllocationPolicy, vmSelectionPolicy, parameter));
 	}
 
 	/**
@@ -167,13 +177,13 @@ public abstract class MyRunnerAbstract {
 					vmList,
 					lastClock,
 					experimentName,
-					MyConstants.OUTPUT_CSV,
+					isOutputCsv(),
 					outputFolder);
 
 		} catch (Exception e) {
 			e.printStackTrace();
 			Log.printLine("The simulation has been terminated due to an unexpected error");
-			System.exit(0);
+			terminate(e);
 		}
 
 		Log.printLine("Finished " + experimentName);
@@ -276,9 +286,28 @@ public abstract class MyRunnerAbstract {
 					hostList,
 					vmSelectionPolicy,
 					parameter);
+		} else if (vmAllocationPolicyName.equals("fuzzyt1")) {
+			vmAllocationPolicy = new PowerVmAllocationPolicyMigrationFuzzy(
+					hostList,
+					vmSelectionPolicy,
+					FuzzyControllerFactory.createType1Controller(),
+					parameter);
+		} else if (vmAllocationPolicyName.equals("fuzzyit2")) {
+			vmAllocationPolicy = new PowerVmAllocationPolicyMigrationFuzzy(
+					hostList,
+					vmSelectionPolicy,
+					FuzzyControllerFactory.createIntervalType2Controller(0.5, 0),
+					parameter);
+		} else if (vmAllocationPolicyName.equals("fuzzyzgt2")) {
+			vmAllocationPolicy = new PowerVmAllocationPolicyMigrationFuzzy(
+					hostList,
+					vmSelectionPolicy,
+					FuzzyControllerFactory.createZSlicesController(0.5, 4, 0),
+					parameter);
 		}else {
 			System.out.println("Unknown VM allocation policy: " + vmAllocationPolicyName);
-			System.exit(0);
+			terminate(new IllegalArgumentException("Unknown VM allocation policy: "
+					+ vmAllocationPolicyName));
 		}
 		return vmAllocationPolicy;
 	}
@@ -294,20 +323,47 @@ public abstract class MyRunnerAbstract {
 		if (vmSelectionPolicyName.equals("mc")) {
 			vmSelectionPolicy = new PowerVmSelectionPolicyMaximumCorrelation(
 					new PowerVmSelectionPolicyMinimumMigrationTime());
+		} else if (vmSelectionPolicyName.equals("mmt")) {
+			vmSelectionPolicy = new PowerVmSelectionPolicyMinimumMigrationTime();
+		} else if (vmSelectionPolicyName.equals("mu")) {
+			vmSelectionPolicy = new PowerVmSelectionPolicyMinimumUtilization();
+		} else if (vmSelectionPolicyName.equals("rs")) {
+			vmSelectionPolicy = new PowerVmSelectionPolicyRandomSelection();
 		} else {
 			System.out.println("Unknown VM selection policy: " + vmSelectionPolicyName);
-			System.exit(0);
+			terminate(new IllegalArgumentException("Unknown VM selection policy: "
+					+ vmSelectionPolicyName));
 		}
 		return vmSelectionPolicy;
 	}
 
+	/**
+	 * Checks if the results are written to CSV files in the output folder.
+	 * 
+	 * @return true, if the results are written to CSV files
+	 */
+	protected boolean isOutputCsv() {
+		return MyConstants.OUTPUT_CSV;
+	}
+
+	/**
+	 * Terminates the experiment after an unexpected error. A single experiment run from the
+	 * command line has nothing left to do, so the JVM exits; runners sharing the JVM with other
+	 * experiments override this to throw instead.
+	 * 
+	 * @param e the error
+	 */
+	protected void terminate(Exception e) {
+		System.exit(0);
+	}
+
 	/**
 	 * Sets the enable output.
 	 * 
 	 * @param enableOutput the new enable output
 	 */
 	public void setEnableOutput(boolean enableOutput) {
-		MyRunnerAbstract.enableOutput = enableOutput;
+		this.enableOutput = enableOutput;
 	}
 
 	/**
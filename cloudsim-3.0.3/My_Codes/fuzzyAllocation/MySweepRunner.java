@@ -0,0 +1,496 @@
+package fuzzyAllocation;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.PlanetLabTraceStore;
+
+/**
+ * Runs a grid of PlanetLab experiments (workloads x allocation policies x selection policies x
+ * parameters) on a bounded pool of worker threads. Each experiment runs in a simulation of its
+ * own, bound to its worker thread, so the experiments share the JVM without sharing any
+ * simulation state. The trace files of each workload are packed once into a
+ * {@link PlanetLabTraceStore}, which all the experiments of the workload map read-only.
+ *
+ * The grid is read from a properties file:
+ *
+ * <pre>
+ * inputFolder=workload/planetlab
+ * outputFolder=output
+ * # the workloads, all the subfolders of the input folder by default
+ * workloads=20110303,20110306
+ * policies=thr,mad,iqr,lr,lrr,fuzzy
+ * selections=mc,mmt,mu,rs
+ * # the parameters of each policy, or of all the policies without a list of their own
+ * parameters=0.8
+ * parameters.thr=0.7,0.8,0.9
+ * parameters.mad=2.5
+ * # the number of worker threads, the number of processors by default
+ * threads=32
+ * </pre>
+ *
+ * An experiment is done once its stats CSV file is written, so running the same grid again after
+ * a crash only runs the experiments that did not finish. When all the experiments have run, the
+ * stats CSV files of the grid are aggregated into the stats.csv file of the output folder.
+ */
+public class MySweepRunner {
+
+	/** The header of the aggregated stats file, matching the rows written by MyHelper. */
+	public static final String STATS_HEADER = "experiment,workload,policy,selection,parameter,"
+			+ "hosts,vms,totalSimulationTime,energy,migrations,sla,slaTimePerActiveHost,"
+			+ "slaDegradationDueToMigration,slaOverall,slaAverage,hostShutdowns,"
+			+ "meanTimeBeforeHostShutdown,stDevTimeBeforeHostShutdown,"
+			+ "meanTimeBeforeVmMigration,stDevTimeBeforeVmMigration,"
+			+ "executionTimeVmSelectionMean,executionTimeVmSelectionStDev,"
+			+ "executionTimeHostSelectionMean,executionTimeHostSelectionStDev,"
+			+ "executionTimeVmReallocationMean,executionTimeVmReallocationStDev,"
+			+ "executionTimeTotalMean,executionTimeTotalStDev,\n";
+
+	/** The allocation policies that take no selection policy nor parameter. */
+	private static final List<String> NON_MIGRATING_POLICIES = Arrays.asList("dvfs");
+
+	/** The input folder, holding a subfolder of trace files per workload. */
+	private final String inputFolder;
+
+	/** The output folder. */
+	private final String outputFolder;
+
+	/** The experiments of the grid, by name. */
+	private final Map<String, String[]> experiments = new LinkedHashMap<String, String[]>();
+
+	/** The names of the experiments that failed. */
+	private final List<String> failedExperiments = Collections.synchronizedList(new ArrayList<String>());
+
+	/** The enable output. */
+	private final boolean enableOutput;
+
+	/** The number of worker threads. */
+	private final int threads;
+
+	/**
+	 * The main method.
+	 *
+	 * @param args the path of the grid properties file
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.out.println("Usage: MySweepRunner <grid.properties>");
+			System.exit(0);
+		}
+		Properties grid = new Properties();
+		InputStream input = new FileInputStream(args[0]);
+		try {
+			grid.load(input);
+		} finally {
+			input.close();
+		}
+		MySweepRunner sweep = new MySweepRunner(grid);
+		sweep.run();
+		if (!sweep.getFailedExperiments().isEmpty()) {
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Instantiates a new sweep runner.
+	 *
+	 * @param grid the grid properties
+	 */
+	public MySweepRunner(Properties grid) {
+		inputFolder = getRequiredProperty(grid, "inputFolder");
+		outputFolder = getRequiredProperty(grid, "outputFolder");
+		enableOutput = Boolean.parseBoolean(grid.getProperty("enableOutput", "false"));
+		threads = Integer.parseInt(grid.getProperty(
+				"threads",
+				String.valueOf(Runtime.getRuntime().availableProcessors())));
+		if (threads < 1) {
+			throw new IllegalArgumentException("The number of threads must be positive");
+		}
+
+		List<String> workloads = getList(grid, "workloads");
+		if (workloads.isEmpty()) {
+			File[] folders = new File(inputFolder).listFiles();
+			if (folders == null) {
+				throw new IllegalArgumentException(inputFolder + " is not a directory");
+			}
+			for (File folder : folders) {
+				if (folder.isDirectory()) {
+					workloads.add(folder.getName());
+				}
+			}
+			Collections.sort(workloads);
+		}
+		List<String> policies = getList(grid, "policies");
+		List<String> selections = getList(grid, "selections");
+		if (workloads.isEmpty() || policies.isEmpty()) {
+			throw new IllegalArgumentException("The grid has no workloads or no policies");
+		}
+
+		for (String workload : workloads) {
+			for (String policy : policies) {
+				if (NON_MIGRATING_POLICIES.contains(policy)) {
+					addExperiment(workload, policy, "", "");
+					continue;
+				}
+				List<String> parameters = getList(grid, "parameters." + policy);
+				if (parameters.isEmpty()) {
+					parameters = getList(grid, "parameters");
+				}
+				if (selections.isEmpty() || parameters.isEmpty()) {
+					throw new IllegalArgumentException("The grid has no selections or no parameters for "
+							+ policy);
+				}
+				for (String selection : selections) {
+					for (String parameter : parameters) {
+						addExperiment(workload, policy, selection, parameter);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Runs the experiments of the grid that are not done yet, then aggregates the stats of the
+	 * grid.
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void run() throws IOException {
+		new File(outputFolder).mkdirs();
+		new File(outputFolder + "/stats").mkdirs();
+		if (enableOutput) {
+			new File(outputFolder + "/log").mkdirs();
+		}
+
+		List<String> pending = new ArrayList<String>();
+		for (String name : experiments.keySet()) {
+			if (!isDone(name)) {
+				pending.add(name);
+			}
+		}
+		System.out.println("Sweep of " + experiments.size() + " experiments, "
+				+ (experiments.size() - pending.size()) + " already done, running "
+				+ pending.size() + " on " + threads + " threads");
+
+		Map<String, String> traceStores = packTraces(pending);
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		for (final String name : pending) {
+			final String[] experiment = experiments.get(name);
+			final String traceStore = traceStores.get(experiment[0]);
+			executor.execute(new Runnable() {
+
+				@Override
+				public void run() {
+					try {
+						new SweepExperimentRunner(
+								enableOutput,
+								traceStore,
+								outputFolder,
+								experiment[1],
+								experiment[2],
+								experiment[3]);
+						System.out.println("Finished " + name);
+					} catch (Throwable e) {
+						failedExperiments.add(name);
+						System.out.println("Failed " + name + ": " + e);
+					} finally {
+						closeLogOutput();
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		try {
+			while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+				// keep waiting for the running experiments
+			}
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The sweep has been interrupted", e);
+		}
+
+		int rows = aggregateStats(outputFolder + "/stats.csv");
+		System.out.println("Aggregated the stats of " + rows + " experiments into " + outputFolder
+				+ "/stats.csv");
+		if (!failedExperiments.isEmpty()) {
+			System.out.println(failedExperiments.size() + " experiments failed: " + failedExperiments);
+		}
+	}
+
+	/**
+	 * Packs the trace files of the workloads of the pending experiments into trace stores. The
+	 * stores are kept in the traces folder of the output folder, so they are packed only once.
+	 *
+	 * @param pending the names of the pending experiments
+	 * @return the paths of the trace stores, by workload
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	protected Map<String, String> packTraces(List<String> pending) throws IOException {
+		Map<String, String> traceStores = new LinkedHashMap<String, String>();
+		for (String name : pending) {
+			String workload = experiments.get(name)[0];
+			if (traceStores.containsKey(workload)) {
+				continue;
+			}
+			File traces = new File(outputFolder + "/traces");
+			traces.mkdirs();
+			File store = new File(traces, workload + ".trace");
+			if (!store.exists()) {
+				// pack into a temporary file first, so a crash does not leave a truncated store
+				File temporary = new File(traces, workload + ".trace.tmp");
+				PlanetLabTraceStore.convert(
+						inputFolder + "/" + workload,
+						temporary.getPath(),
+						PlanetLabTraceStore.DEFAULT_SAMPLES);
+				if (!temporary.renameTo(store)) {
+					throw new IOException("Cannot rename " + temporary + " to " + store);
+				}
+			}
+			traceStores.put(workload, store.getPath());
+		}
+		return traceStores;
+	}
+
+	/**
+	 * Aggregates the stats CSV files of the experiments of the grid that are done.
+	 *
+	 * @param outputPath the output path
+	 * @return the number of aggregated experiments
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	protected int aggregateStats(String outputPath) throws IOException {
+		int rows = 0;
+		BufferedWriter writer = new BufferedWriter(new FileWriter(outputPath));
+		try {
+			writer.write(STATS_HEADER);
+			for (String name : experiments.keySet()) {
+				if (!isDone(name)) {
+					continue;
+				}
+				BufferedReader reader = new BufferedReader(new FileReader(getStatsFile(name)));
+				try {
+					String line;
+					while ((line = reader.readLine()) != null) {
+						writer.write(line + "\n");
+					}
+				} finally {
+					reader.close();
+				}
+				rows++;
+			}
+		} finally {
+			writer.close();
+		}
+		return rows;
+	}
+
+	/**
+	 * Checks if an experiment is done, that is if its stats file has been completely written.
+	 *
+	 * @param name the name of the experiment
+	 * @return true, if the experiment is done
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	protected boolean isDone(String name) throws IOException {
+		File file = getStatsFile(name);
+		if (!file.isFile() || file.length() == 0) {
+			return false;
+		}
+		// the row ends with a line feed, so a file without one has been cut short by a crash
+		RandomAccessFile stats = new RandomAccessFile(file, "r");
+		try {
+			stats.seek(file.length() - 1);
+			return stats.read() == '\n';
+		} finally {
+			stats.close();
+		}
+	}
+
+	/**
+	 * Closes the log file of the experiment that has run in the calling worker thread, so the
+	 * worker does not keep a file open per experiment.
+	 */
+	private static void closeLogOutput() {
+		OutputStream output = Log.getOutput();
+		if (output != System.out) {
+			try {
+				output.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			Log.setOutput(System.out);
+		}
+	}
+
+	/**
+	 * Gets the stats file of an experiment.
+	 *
+	 * @param name the name of the experiment
+	 * @return the stats file
+	 */
+	protected File getStatsFile(String name) {
+		return new File(outputFolder + "/stats/" + name + "_stats.csv");
+	}
+
+	/**
+	 * Gets the names of the experiments of the grid.
+	 *
+	 * @return the names of the experiments
+	 */
+	public List<String> getExperimentNames() {
+		return new ArrayList<String>(experiments.keySet());
+	}
+
+	/**
+	 * Gets the names of the experiments that failed.
+	 *
+	 * @return the names of the failed experiments
+	 */
+	public List<String> getFailedExperiments() {
+		return failedExperiments;
+	}
+
+	/**
+	 * Adds an experiment to the grid, named as MyRunnerAbstract names it.
+	 *
+	 * @param workload the workload
+	 * @param policy the vm allocation policy
+	 * @param selection the vm selection policy
+	 * @param parameter the parameter
+	 */
+	private void addExperiment(String workload, String policy, String selection, String parameter) {
+		StringBuilder name = new StringBuilder(workload);
+		for (String part : new String[] { policy, selection, parameter }) {
+			if (!part.isEmpty()) {
+				name.append("_").append(part);
+			}
+		}
+		experiments.put(name.toString(), new String[] { workload, policy, selection, parameter });
+	}
+
+	/**
+	 * Gets a comma separated list property.
+	 *
+	 * @param grid the grid properties
+	 * @param key the key
+	 * @return the values, empty if the property is not set
+	 */
+	private static List<String> getList(Properties grid, String key) {
+		List<String> values = new ArrayList<String>();
+		String property = grid.getProperty(key);
+		if (property != null) {
+			for (String value : property.split(",")) {
+				if (!value.trim().isEmpty()) {
+					values.add(value.trim());
+				}
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Gets a property that must be set.
+	 *
+	 * @param grid the grid properties
+	 * @param key the key
+	 * @return the value
+	 */
+	private static String getRequiredProperty(Properties grid, String key) {
+		String value = grid.getProperty(key);
+		if (value == null || value.trim().isEmpty()) {
+			throw new IllegalArgumentException("The grid does not set " + key);
+		}
+		return value.trim();
+	}
+
+	/**
+	 * A PlanetLab runner writing its results to CSV files, which fails with an exception instead
+	 * of exiting the JVM shared with the other experiments of the sweep.
+	 */
+	private static class SweepExperimentRunner extends MyPlanetLabRunner {
+
+		/**
+		 * Runs an experiment on a trace store.
+		 *
+		 * @param enableOutput the enable output
+		 * @param traceStore the path of the trace store of the workload
+		 * @param outputFolder the output folder
+		 * @param vmAllocationPolicy the vm allocation policy
+		 * @param vmSelectionPolicy the vm selection policy
+		 * @param parameter the parameter
+		 */
+		public SweepExperimentRunner(
+				boolean enableOutput,
+				String traceStore,
+				String outputFolder,
+				String vmAllocationPolicy,
+				String vmSelectionPolicy,
+				String parameter) {
+			super(
+					enableOutput,
+					true,
+					new File(traceStore).getParent(),
+					outputFolder,
+					new File(traceStore).getName(),
+					vmAllocationPolicy,
+					vmSelectionPolicy,
+					parameter);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see fuzzyAllocation.MyRunnerAbstract#getExperimentName(java.lang.String[])
+		 */
+		@Override
+		protected String getExperimentName(String... args) {
+			// name the experiment after the workload, not after its trace store
+			String[] names = args.clone();
+			if (names.length > 0 && names[0].endsWith(".trace")) {
+				names[0] = names[0].substring(0, names[0].length() - ".trace".length());
+			}
+			return super.getExperimentName(names);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see fuzzyAllocation.MyRunnerAbstract#isOutputCsv()
+		 */
+		@Override
+		protected boolean isOutputCsv() {
+			return true;
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see fuzzyAllocation.MyRunnerAbstract#terminate(java.lang.Exception)
+		 */
+		@Override
+		protected void terminate(Exception e) {
+			throw new IllegalStateException(e);
+		}
+
+	}
+
+}
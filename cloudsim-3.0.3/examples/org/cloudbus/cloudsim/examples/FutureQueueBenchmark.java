@@ -0,0 +1,180 @@
+package org.cloudbus.cloudsim.examples;
+
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation
+ *               of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009, The University of Melbourne, Australia
+ */
+
+import java.util.Calendar;
+import java.util.Random;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.EventQueue;
+import org.cloudbus.cloudsim.core.FutureQueue;
+import org.cloudbus.cloudsim.core.HeapFutureQueue;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+
+/**
+ * A benchmark comparing the future event queue implementations. It runs the simulation kernel with
+ * a number of entities that keep scheduling events to themselves until a time limit. Most of the
+ * events are aligned to a scheduling interval, as the events of the power-aware datacenters are, so
+ * many events share the same time; the remaining ones are scheduled at random times.
+ * <p>
+ * Usage: FutureQueueBenchmark [entities] [simulation time] [repetitions]
+ */
+public class FutureQueueBenchmark {
+
+	/** The scheduling interval. */
+	private static final double SCHEDULING_INTERVAL = 300;
+
+	/** The tag of the benchmark events. */
+	private static final int TAG = 1000000;
+
+	/**
+	 * Creates main() to run this benchmark.
+	 *
+	 * @param args the args
+	 */
+	public static void main(String[] args) {
+		int entities = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		double limit = args.length > 1 ? Double.parseDouble(args[1]) : 24 * 60 * 60;
+		int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+		Log.disable();
+
+		// Warm up both implementations first
+		run(FutureQueue.class, entities, limit);
+		run(HeapFutureQueue.class, entities, limit);
+
+		Log.enable();
+		Log.printLine("Entities: " + entities + ", simulation time: " + limit + ", repetitions: "
+				+ repetitions);
+		report(FutureQueue.class, entities, limit, repetitions);
+		report(HeapFutureQueue.class, entities, limit, repetitions);
+	}
+
+	/**
+	 * Runs the benchmark several times with a queue implementation and prints the average time.
+	 *
+	 * @param queueClass the queue implementation
+	 * @param entities the number of entities
+	 * @param limit the simulation time limit
+	 * @param repetitions the number of repetitions
+	 */
+	private static void report(
+			Class<? extends EventQueue> queueClass,
+			int entities,
+			double limit,
+			int repetitions) {
+		long totalTime = 0;
+		long events = 0;
+		for (int i = 0; i < repetitions; i++) {
+			Log.disable();
+			long start = System.nanoTime();
+			events = run(queueClass, entities, limit);
+			totalTime += System.nanoTime() - start;
+			Log.enable();
+		}
+		double averageMs = totalTime / 1000000.0 / repetitions;
+		Log.formatLine(
+				"%-16s %10d events %10.2f ms/run %12.0f events/s",
+				queueClass.getSimpleName(),
+				events,
+				averageMs,
+				events / (averageMs / 1000));
+	}
+
+	/**
+	 * Runs one simulation with a queue implementation.
+	 *
+	 * @param queueClass the queue implementation
+	 * @param entities the number of entities
+	 * @param limit the simulation time limit
+	 * @return the number of processed events
+	 */
+	private static long run(Class<? extends EventQueue> queueClass, int entities, double limit) {
+		CloudSim.setFutureQueueClass(queueClass);
+		CloudSim.init(1, Calendar.getInstance(), false);
+		Random random = new Random(1);
+		BenchmarkEntity[] list = new BenchmarkEntity[entities];
+		for (int i = 0; i < entities; i++) {
+			list[i] = new BenchmarkEntity("BenchmarkEntity_" + i, limit, random.nextLong());
+		}
+		CloudSim.startSimulation();
+		CloudSim.setFutureQueueClass(FutureQueue.class);
+
+		long events = 0;
+		for (BenchmarkEntity entity : list) {
+			events += entity.getProcessedEvents();
+		}
+		return events;
+	}
+
+	/**
+	 * An entity that schedules events to itself until the time limit.
+	 */
+	private static class BenchmarkEntity extends SimEntity {
+
+		/** The simulation time limit. */
+		private final double limit;
+
+		/** The random generator. */
+		private final Random random;
+
+		/** The number of processed events. */
+		private long processedEvents = 0;
+
+		/**
+		 * Instantiates a new benchmark entity.
+		 *
+		 * @param name the name
+		 * @param limit the simulation time limit
+		 * @param seed the random seed
+		 */
+		public BenchmarkEntity(String name, double limit, long seed) {
+			super(name);
+			this.limit = limit;
+			random = new Random(seed);
+		}
+
+		@Override
+		public void startEntity() {
+			schedule(getId(), SCHEDULING_INTERVAL, TAG);
+			schedule(getId(), random.nextDouble() * SCHEDULING_INTERVAL, TAG);
+		}
+
+		@Override
+		public void processEvent(SimEvent ev) {
+			processedEvents++;
+			double clock = CloudSim.clock();
+			if (clock >= limit) {
+				return;
+			}
+			if (clock % SCHEDULING_INTERVAL == 0) {
+				schedule(getId(), SCHEDULING_INTERVAL, TAG);
+			} else {
+				schedule(getId(), random.nextDouble() * SCHEDULING_INTERVAL, TAG);
+			}
+		}
+
+		@Override
+		public void shutdownEntity() {
+		}
+
+		/**
+		 * Gets the number of processed events.
+		 *
+		 * @return the number of processed events
+		 */
+		public long getProcessedEvents() {
+			return processedEvents;
+		}
+	}
+
+}
@@ -24,6 +24,12 @@ public class Constants {
 	public final static double SCHEDULING_INTERVAL = 300;
 	public final static double SIMULATION_LIMIT = 24 * 60 * 60;
 
+	/*
+	 * The number of threads updating the hosts at each scheduling interval. The hosts are only
+	 * updated in parallel when the output is disabled.
+	 */
+	public final static int HOST_PROCESSING_THREADS = 1;
+
 	public final static int CLOUDLET_LENGTH	= 2500 * (int) SIMULATION_LIMIT;
 	public final static int CLOUDLET_PES	= 1;
 
@@ -19,14 +19,14 @@ import org.cloudbus.cloudsim.DatacenterBroker;
 import org.cloudbus.cloudsim.DatacenterCharacteristics;
 import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.HostDynamicWorkload;
-import org.cloudbus.cloudsim.HostStateHistoryEntry;
+import org.cloudbus.cloudsim.HostStateHistory;
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.Pe;
 import org.cloudbus.cloudsim.Storage;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.VmAllocationPolicy;
 import org.cloudbus.cloudsim.VmSchedulerTimeSharedOverSubscription;
-import org.cloudbus.cloudsim.VmStateHistoryEntry;
+import org.cloudbus.cloudsim.VmStateHistory;
 import org.cloudbus.cloudsim.power.PowerDatacenter;
 import org.cloudbus.cloudsim.power.PowerDatacenterBroker;
 import org.cloudbus.cloudsim.power.PowerHost;
@@ -194,17 +194,8 @@ public class Helper {
 	public static List<Double> getTimesBeforeHostShutdown(List<Host> hosts) {
 		List<Double> timeBeforeShutdown = new LinkedList<Double>();
 		for (Host host : hosts) {
-			boolean previousIsActive = true;
-			double lastTimeSwitchedOn = 0;
-			for (HostStateHistoryEntry entry : ((HostDynamicWorkload) host).getStateHistory()) {
-				if (previousIsActive == true && entry.isActive() == false) {
-					timeBeforeShutdown.add(entry.getTime() - lastTimeSwitchedOn);
-				}
-				if (previousIsActive == false && entry.isActive() == true) {
-					lastTimeSwitchedOn = entry.getTime();
-				}
-				previousIsActive = entry.isActive();
-			}
+			timeBeforeShutdown.addAll(((HostDynamicWorkload) host).getStateHistoryStore()
+					.getTimesBeforeShutdown());
 		}
 		return timeBeforeShutdown;
 	}
@@ -218,17 +209,7 @@ public class Helper {
 	public static List<Double> getTimesBeforeVmMigration(List<Vm> vms) {
 		List<Double> timeBeforeVmMigration = new LinkedList<Double>();
 		for (Vm vm : vms) {
-			boolean previousIsInMigration = false;
-			double lastTimeMigrationFinished = 0;
-			for (VmStateHistoryEntry entry : vm.getStateHistory()) {
-				if (previousIsInMigration == true && entry.isInMigration() == false) {
-					timeBeforeVmMigration.add(entry.getTime() - lastTimeMigrationFinished);
-				}
-				if (previousIsInMigration == false && entry.isInMigration() == true) {
-					lastTimeMigrationFinished = entry.getTime();
-				}
-				previousIsInMigration = entry.isInMigration();
-			}
+			timeBeforeVmMigration.addAll(vm.getStateHistoryStore().getTimesBeforeMigration());
 		}
 		return timeBeforeVmMigration;
 	}
@@ -494,27 +475,10 @@ public class Helper {
 		double slaViolationTimePerHost = 0;
 		double totalTime = 0;
 
-		for (Host _host : hosts) {
-			HostDynamicWorkload host = (HostDynamicWorkload) _host;
-			double previousTime = -1;
-			double previousAllocated = 0;
-			double previousRequested = 0;
-			boolean previousIsActive = true;
-
-			for (HostStateHistoryEntry entry : host.getStateHistory()) {
-				if (previousTime != -1 && previousIsActive) {
-					double timeDiff = entry.getTime() - previousTime;
-					totalTime += timeDiff;
-					if (previousAllocated < previousRequested) {
-						slaViolationTimePerHost += timeDiff;
-					}
-				}
-
-				previousAllocated = entry.getAllocatedMips();
-				previousRequested = entry.getRequestedMips();
-				previousTime = entry.getTime();
-				previousIsActive = entry.isActive();
-			}
+		for (Host host : hosts) {
+			HostStateHistory stateHistory = ((HostDynamicWorkload) host).getStateHistoryStore();
+			totalTime += stateHistory.getActiveTime();
+			slaViolationTimePerHost += stateHistory.getActiveSlaViolationTime();
 		}
 
 		return slaViolationTimePerHost / totalTime;
@@ -530,25 +494,10 @@ public class Helper {
 		double slaViolationTimePerHost = 0;
 		double totalTime = 0;
 
-		for (Host _host : hosts) {
-			HostDynamicWorkload host = (HostDynamicWorkload) _host;
-			double previousTime = -1;
-			double previousAllocated = 0;
-			double previousRequested = 0;
-
-			for (HostStateHistoryEntry entry : host.getStateHistory()) {
-				if (previousTime != -1) {
-					double timeDiff = entry.getTime() - previousTime;
-					totalTime += timeDiff;
-					if (previousAllocated < previousRequested) {
-						slaViolationTimePerHost += timeDiff;
-					}
-				}
-
-				previousAllocated = entry.getAllocatedMips();
-				previousRequested = entry.getRequestedMips();
-				previousTime = entry.getTime();
-			}
+		for (Host host : hosts) {
+			HostStateHistory stateHistory = ((HostDynamicWorkload) host).getStateHistoryStore();
+			totalTime += stateHistory.getTotalTime();
+			slaViolationTimePerHost += stateHistory.getSlaViolationTime();
 		}
 
 		return slaViolationTimePerHost / totalTime;
@@ -562,51 +511,26 @@ public class Helper {
 	 */
 	protected static Map<String, Double> getSlaMetrics(List<Vm> vms) {
 		Map<String, Double> metrics = new HashMap<String, Double>();
-		List<Double> slaViolation = new LinkedList<Double>();
+		double slaViolationSum = 0;
+		int slaViolationCount = 0;
 		double totalAllocated = 0;
 		double totalRequested = 0;
 		double totalUnderAllocatedDueToMigration = 0;
 
 		for (Vm vm : vms) {
-			double vmTotalAllocated = 0;
-			double vmTotalRequested = 0;
-			double vmUnderAllocatedDueToMigration = 0;
-			double previousTime = -1;
-			double previousAllocated = 0;
-			double previousRequested = 0;
-			boolean previousIsInMigration = false;
-
-			for (VmStateHistoryEntry entry : vm.getStateHistory()) {
-				if (previousTime != -1) {
-					double timeDiff = entry.getTime() - previousTime;
-					vmTotalAllocated += previousAllocated * timeDiff;
-					vmTotalRequested += previousRequested * timeDiff;
-
-					if (previousAllocated < previousRequested) {
-						slaViolation.add((previousRequested - previousAllocated) / previousRequested);
-						if (previousIsInMigration) {
-							vmUnderAllocatedDueToMigration += (previousRequested - previousAllocated)
-									* timeDiff;
-						}
-					}
-				}
-
-				previousAllocated = entry.getAllocatedMips();
-				previousRequested = entry.getRequestedMips();
-				previousTime = entry.getTime();
-				previousIsInMigration = entry.isInMigration();
-			}
-
-			totalAllocated += vmTotalAllocated;
-			totalRequested += vmTotalRequested;
-			totalUnderAllocatedDueToMigration += vmUnderAllocatedDueToMigration;
+			VmStateHistory stateHistory = vm.getStateHistoryStore();
+			slaViolationSum += stateHistory.getSlaViolationSum();
+			slaViolationCount += stateHistory.getSlaViolationCount();
+			totalAllocated += stateHistory.getTotalAllocatedMips();
+			totalRequested += stateHistory.getTotalRequestedMips();
+			totalUnderAllocatedDueToMigration += stateHistory.getUnderAllocatedMipsDueToMigration();
 		}
 
 		metrics.put("overall", (totalRequested - totalAllocated) / totalRequested);
-		if (slaViolation.isEmpty()) {
+		if (slaViolationCount == 0) {
 			metrics.put("average", 0.);
 		} else {
-			metrics.put("average", MathUtil.mean(slaViolation));
+			metrics.put("average", slaViolationSum / slaViolationCount);
 		}
 		metrics.put("underallocated_migration", totalUnderAllocatedDueToMigration / totalRequested);
 		// metrics.put("sla_time_per_vm_with_migration", slaViolationTimePerVmWithMigration /
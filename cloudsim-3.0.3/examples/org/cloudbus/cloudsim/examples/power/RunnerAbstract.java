@@ -165,6 +165,7 @@ public abstract class RunnerAbstract {
 					vmAllocationPolicy);
 
 			datacenter.setDisableMigrations(false);
+			datacenter.setHostProcessingThreads(Constants.HOST_PROCESSING_THREADS);
 
 			broker.submitVmList(vmList);
 			broker.submitCloudletList(cloudletList);
@@ -2,10 +2,12 @@ package org.cloudbus.cloudsim.examples.power.planetlab;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.PlanetLabTraceStore;
 import org.cloudbus.cloudsim.UtilizationModel;
 import org.cloudbus.cloudsim.UtilizationModelNull;
 import org.cloudbus.cloudsim.UtilizationModelPlanetLabInMemory;
@@ -31,7 +33,7 @@ public class PlanetLabHelper {
 	 * Creates the cloudlet list planet lab.
 	 * 
 	 * @param brokerId the broker id
-	 * @param inputFolderName the input folder name
+	 * @param inputFolderName the input folder name, or the path of a packed PlanetLabTraceStore
 	 * @return the list
 	 * @throws FileNotFoundException the file not found exception
 	 */
@@ -46,18 +48,40 @@ public class PlanetLabHelper {
 		File inputFolder = new File(inputFolderName);
 		File[] files = inputFolder.listFiles();
 
-		for (int i = 0; i < files.length; i++) {
+		// a file instead of a directory is a packed trace store
+		PlanetLabTraceStore store = null;
+		int traces = 0;
+		if (inputFolder.isFile()) {
+			try {
+				store = PlanetLabTraceStore.open(inputFolderName);
+			} catch (IOException e) {
+				throw new IllegalArgumentException("Cannot open the trace store " + inputFolderName, e);
+			}
+			traces = store.getTraceCount();
+		} else {
+			traces = files.length;
+		}
+
+		for (int i = 0; i < traces; i++) {
 			Cloudlet cloudlet = null;
 			try {
+				UtilizationModel utilizationModelCpu;
+				if (store != null) {
+					utilizationModelCpu = store.createUtilizationModel(i, Constants.SCHEDULING_INTERVAL);
+				} else {
+					utilizationModelCpu = new UtilizationModelPlanetLabInMemory(
+							files[i].getAbsolutePath(),
+							Constants.SCHEDULING_INTERVAL);
+				}
 				cloudlet = new Cloudlet(
 						i,
 						Constants.CLOUDLET_LENGTH,
 						Constants.CLOUDLET_PES,
 						fileSize,
 						outputSize,
-						new UtilizationModelPlanetLabInMemory(
-								files[i].getAbsolutePath(),
-								Constants.SCHEDULING_INTERVAL), utilizationModelNull, utilizationModelNull);
+						utilizationModelCpu,
+						utilizationModelNull,
+						utilizationModelNull);
 			} catch (Exception e) {
 				e.printStackTrace();
 				System.exit(0);
@@ -0,0 +1,34 @@
+package org.cloudbus.cloudsim.examples.power.planetlab;
+
+import java.io.IOException;
+
+import org.cloudbus.cloudsim.PlanetLabTraceStore;
+
+/**
+ * Packs a directory of PlanetLab trace files into a single PlanetLabTraceStore file. The path of the
+ * packed file can be used instead of the workload directory by the PlanetLab examples, so that the
+ * traces are memory-mapped instead of parsed for every VM.
+ * 
+ * Usage: PlanetLabTraceConverter inputFolder outputFile [samples]
+ */
+public class PlanetLabTraceConverter {
+
+	/**
+	 * The main method.
+	 * 
+	 * @param args the arguments
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: PlanetLabTraceConverter inputFolder outputFile [samples]");
+			return;
+		}
+		int samples = args.length > 2 ? Integer.parseInt(args[2]) : PlanetLabTraceStore.DEFAULT_SAMPLES;
+		long start = System.currentTimeMillis();
+		int traces = PlanetLabTraceStore.convert(args[0], args[1], samples);
+		System.out.println("Packed " + traces + " traces of " + samples + " samples into " + args[1]
+				+ " in " + (System.currentTimeMillis() - start) + " ms");
+	}
+
+}
@@ -8,7 +8,6 @@
 package org.cloudbus.cloudsim;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -52,6 +51,9 @@ public class Datacenter extends SimEntity {
 	/** The scheduling interval. */
 	private double schedulingInterval;
 
+	/** The migrations whose VM_MIGRATE event has been processed, reused for the next migrations. */
+	private final List<VmMigration> freeVmMigrations = new ArrayList<VmMigration>();
+
 	/**
 	 * Allocates a new PowerDatacenter object.
 	 * 
@@ -482,6 +484,24 @@ public class Datacenter extends SimEntity {
 		getVmList().remove(vm);
 	}
 
+	/**
+	 * Gets a migration to be sent as the data of a VM_MIGRATE event to this datacenter. The
+	 * migrations are reused once their event has been processed, so the event data must not be kept
+	 * after that.
+	 * 
+	 * @param vm the vm
+	 * @param host the target host
+	 * @return the migration
+	 */
+	protected VmMigration obtainVmMigration(Vm vm, Host host) {
+		if (freeVmMigrations.isEmpty()) {
+			return new VmMigration(vm, host, true);
+		}
+		VmMigration migration = freeVmMigrations.remove(freeVmMigrations.size() - 1);
+		migration.set(vm, host);
+		return migration;
+	}
+
 	/**
 	 * Process the event for an User/Broker who wants to migrate a VM. This PowerDatacenter will
 	 * then send the status back to the User/Broker.
@@ -492,16 +512,24 @@ public class Datacenter extends SimEntity {
 	 */
 	protected void processVmMigrate(SimEvent ev, boolean ack) {
 		Object tmp = ev.getData();
-		if (!(tmp instanceof Map<?, ?>)) {
-			throw new ClassCastException("The data object must be Map<String, Object>");
+		Vm vm;
+		Host host;
+		if (tmp instanceof VmMigration) {
+			VmMigration migration = (VmMigration) tmp;
+			vm = migration.getVm();
+			host = migration.getHost();
+			if (migration.isReusable()) {
+				migration.set(null, null);
+				freeVmMigrations.add(migration);
+			}
+		} else if (tmp instanceof Map<?, ?>) {
+			Map<?, ?> migrate = (Map<?, ?>) tmp;
+			vm = (Vm) migrate.get("vm");
+			host = (Host) migrate.get("host");
+		} else {
+			throw new ClassCastException("The data object must be VmMigration or Map<String, Object>");
 		}
 
-		@SuppressWarnings("unchecked")
-		Map<String, Object> migrate = (HashMap<String, Object>) tmp;
-
-		Vm vm = (Vm) migrate.get("vm");
-		Host host = (Host) migrate.get("host");
-
 		getVmAllocationPolicy().deallocateHostForVm(vm);
 		host.removeMigratingInVm(vm);
 		boolean result = getVmAllocationPolicy().allocateHostForVm(vm, host);
@@ -132,7 +132,7 @@ public class Host {
 				System.exit(0);
 			}
 
-			getVmScheduler().getVmsMigratingIn().add(vm.getUid());
+			getVmScheduler().addMigratingInVm(vm.getUid());
 			if (!getVmScheduler().allocatePesForVm(vm, vm.getCurrentRequestedMips())) {
 				Log.printLine("[VmScheduler.addMigratingInVm] Allocation of VM #" + vm.getId() + " to Host #"
 						+ getId() + " failed by MIPS");
@@ -157,7 +157,7 @@ public class Host {
 		vmDeallocate(vm);
 		getVmsMigratingIn().remove(vm);
 		getVmList().remove(vm);
-		getVmScheduler().getVmsMigratingIn().remove(vm.getUid());
+		getVmScheduler().removeMigratingInVm(vm.getUid());
 		vm.setInMigration(false);
 	}
 
@@ -169,9 +169,7 @@ public class Host {
 			if (!getVmList().contains(vm)) {
 				getVmList().add(vm);
 			}
-			if (!getVmScheduler().getVmsMigratingIn().contains(vm.getUid())) {
-				getVmScheduler().getVmsMigratingIn().add(vm.getUid());
-			}
+			getVmScheduler().addMigratingInVm(vm.getUid());
 			getRamProvisioner().allocateRamForVm(vm, vm.getCurrentRequestedRam());
 			getBwProvisioner().allocateBwForVm(vm, vm.getCurrentRequestedBw());
 			getVmScheduler().allocatePesForVm(vm, vm.getCurrentRequestedMips());
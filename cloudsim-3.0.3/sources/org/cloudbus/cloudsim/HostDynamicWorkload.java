@@ -9,7 +9,6 @@
 package org.cloudbus.cloudsim;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
 import org.cloudbus.cloudsim.core.CloudSim;
@@ -32,7 +31,7 @@ public class HostDynamicWorkload extends Host {
 	private double previousUtilizationMips;
 
 	/** The state history. */
-	private final List<HostStateHistoryEntry> stateHistory = new LinkedList<HostStateHistoryEntry>();
+	private final HostStateHistory stateHistory = new HostStateHistory();
 
 	/**
 	 * Instantiates a new host.
@@ -67,20 +66,15 @@ public class HostDynamicWorkload extends Host {
 		setUtilizationMips(0);
 		double hostTotalRequestedMips = 0;
 
-		for (Vm vm : getVmList()) {
-			getVmScheduler().deallocatePesForVm(vm);
-		}
-
-		for (Vm vm : getVmList()) {
-			getVmScheduler().allocatePesForVm(vm, vm.getCurrentRequestedMips());
-		}
+		getVmScheduler().reallocatePesForVms(getVmList());
 
 		for (Vm vm : getVmList()) {
 			double totalRequestedMips = vm.getCurrentRequestedTotalMips();
 			double totalAllocatedMips = getVmScheduler().getTotalAllocatedMipsForVm(vm);
 
-			if (!Log.isDisabled()) {
+			if (Log.isEnabled(Log.Level.TRACE)) {
 				Log.formatLine(
+						Log.Level.TRACE,
 						"%.2f: [Host #" + getId() + "] Total allocated MIPS for VM #" + vm.getId()
 								+ " (Host #" + vm.getHost().getId()
 								+ ") is %.2f, was requested %.2f out of total %.2f (%.2f%%)",
@@ -97,6 +91,7 @@ public class HostDynamicWorkload extends Host {
 							.getTotalAllocatedMipsForVm(vm)));
 				}
 				Log.formatLine(
+						Log.Level.TRACE,
 						"%.2f: [Host #" + getId() + "] MIPS for VM #" + vm.getId() + " by PEs ("
 								+ getNumberOfPes() + " * " + getVmScheduler().getPeCapacity() + ")."
 								+ pesString,
@@ -104,12 +99,21 @@ public class HostDynamicWorkload extends Host {
 			}
 
 			if (getVmsMigratingIn().contains(vm)) {
-				Log.formatLine("%.2f: [Host #" + getId() + "] VM #" + vm.getId()
-						+ " is being migrated to Host #" + getId(), CloudSim.clock());
+				if (Log.isEnabled(Log.Level.TRACE)) {
+					Log.formatLine(
+							Log.Level.TRACE,
+							"%.2f: [Host #" + getId() + "] VM #" + vm.getId()
+									+ " is being migrated to Host #" + getId(),
+							CloudSim.clock());
+				}
 			} else {
-				if (totalAllocatedMips + 0.1 < totalRequestedMips) {
-					Log.formatLine("%.2f: [Host #" + getId() + "] Under allocated MIPS for VM #" + vm.getId()
-							+ ": %.2f", CloudSim.clock(), totalRequestedMips - totalAllocatedMips);
+				if (totalAllocatedMips + 0.1 < totalRequestedMips && Log.isEnabled(Log.Level.DEBUG)) {
+					Log.formatLine(
+							Log.Level.DEBUG,
+							"%.2f: [Host #" + getId() + "] Under allocated MIPS for VM #" + vm.getId()
+									+ ": %.2f",
+							CloudSim.clock(),
+							totalRequestedMips - totalAllocatedMips);
 				}
 
 				vm.addStateHistoryEntry(
@@ -119,9 +123,12 @@ public class HostDynamicWorkload extends Host {
 						(vm.isInMigration() && !getVmsMigratingIn().contains(vm)));
 
 				if (vm.isInMigration()) {
-					Log.formatLine(
-							"%.2f: [Host #" + getId() + "] VM #" + vm.getId() + " is in migration",
-							CloudSim.clock());
+					if (Log.isEnabled(Log.Level.TRACE)) {
+						Log.formatLine(
+								Log.Level.TRACE,
+								"%.2f: [Host #" + getId() + "] VM #" + vm.getId() + " is in migration",
+								CloudSim.clock());
+					}
 					totalAllocatedMips /= 0.9; // performance degradation due to migration - 10%
 				}
 			}
@@ -271,6 +278,16 @@ public class HostDynamicWorkload extends Host {
 	 * @return the state history
 	 */
 	public List<HostStateHistoryEntry> getStateHistory() {
+		return stateHistory.getEntries();
+	}
+
+	/**
+	 * Gets the state history store, which accumulates the SLA metrics of the host whether its
+	 * states are kept or not.
+	 * 
+	 * @return the state history store
+	 */
+	public HostStateHistory getStateHistoryStore() {
 		return stateHistory;
 	}
 
@@ -285,20 +302,7 @@ public class HostDynamicWorkload extends Host {
 	public
 			void
 			addStateHistoryEntry(double time, double allocatedMips, double requestedMips, boolean isActive) {
-
-		HostStateHistoryEntry newState = new HostStateHistoryEntry(
-				time,
-				allocatedMips,
-				requestedMips,
-				isActive);
-		if (!getStateHistory().isEmpty()) {
-			HostStateHistoryEntry previousState = getStateHistory().get(getStateHistory().size() - 1);
-			if (previousState.getTime() == time) {
-				getStateHistory().set(getStateHistory().size() - 1, newState);
-				return;
-			}
-		}
-		getStateHistory().add(newState);
+		stateHistory.add(time, allocatedMips, requestedMips, isActive);
 	}
 
 }
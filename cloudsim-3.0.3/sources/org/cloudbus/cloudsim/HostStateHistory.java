@@ -0,0 +1,141 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The state history of a host, whose flag tells if the host is active. The time during which the
+ * host has been under-allocated, active or not, and the times before the host has been switched
+ * off, are accumulated as the states are added.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class HostStateHistory extends StateHistory<HostStateHistoryEntry> {
+
+	/** The total time. */
+	private double totalTime;
+
+	/** The time during which the allocated mips were less than the requested mips. */
+	private double slaViolationTime;
+
+	/** The time during which the host was active. */
+	private double activeTime;
+
+	/** The time during which the host was active and the allocated mips were less than the requested mips. */
+	private double activeSlaViolationTime;
+
+	/** The flag of the last final state, the host being active before the first state. */
+	private boolean previousActive = true;
+
+	/** The last time the host has been switched on. */
+	private double lastTimeSwitchedOn;
+
+	/** The times before the host has been switched off, up to the last final state. */
+	private final List<Double> timesBeforeShutdown = new ArrayList<Double>();
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.StateHistory#addInterval(double, double, boolean, double)
+	 */
+	@Override
+	protected void addInterval(double allocatedMips, double requestedMips, boolean active, double duration) {
+		totalTime += duration;
+		if (allocatedMips < requestedMips) {
+			slaViolationTime += duration;
+		}
+		if (active) {
+			activeTime += duration;
+			if (allocatedMips < requestedMips) {
+				activeSlaViolationTime += duration;
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.StateHistory#addFinalState(double, boolean)
+	 */
+	@Override
+	protected void addFinalState(double time, boolean active) {
+		if (previousActive && !active) {
+			timesBeforeShutdown.add(time - lastTimeSwitchedOn);
+		}
+		if (!previousActive && active) {
+			lastTimeSwitchedOn = time;
+		}
+		previousActive = active;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.StateHistory#createEntry(double, double, double, boolean)
+	 */
+	@Override
+	protected HostStateHistoryEntry createEntry(
+			double time,
+			double allocatedMips,
+			double requestedMips,
+			boolean active) {
+		return new HostStateHistoryEntry(time, allocatedMips, requestedMips, active);
+	}
+
+	/**
+	 * Gets the total time covered by the history.
+	 *
+	 * @return the total time
+	 */
+	public double getTotalTime() {
+		return totalTime;
+	}
+
+	/**
+	 * Gets the time during which the allocated mips were less than the requested mips.
+	 *
+	 * @return the SLA violation time
+	 */
+	public double getSlaViolationTime() {
+		return slaViolationTime;
+	}
+
+	/**
+	 * Gets the time during which the host was active.
+	 *
+	 * @return the active time
+	 */
+	public double getActiveTime() {
+		return activeTime;
+	}
+
+	/**
+	 * Gets the time during which the host was active and the allocated mips were less than the
+	 * requested mips.
+	 *
+	 * @return the SLA violation time while active
+	 */
+	public double getActiveSlaViolationTime() {
+		return activeSlaViolationTime;
+	}
+
+	/**
+	 * Gets the times during which the host stayed active before being switched off.
+	 *
+	 * @return the times before shutdown
+	 */
+	public List<Double> getTimesBeforeShutdown() {
+		List<Double> times = new ArrayList<Double>(timesBeforeShutdown);
+		// the last state is not final yet, but ends the history if nothing follows it
+		if (hasLastState() && previousActive && !getLastFlag()) {
+			times.add(getLastTime() - lastTimeSwitchedOn);
+		}
+		return times;
+	}
+
+}
@@ -14,6 +14,16 @@ import java.io.OutputStream;
 /**
  * The Log class used for performing loggin of the simulation process. It provides the ability to
  * substitute the output stream by any OutputStream subclass.
+ * <p>
+ * Each message has a {@link Level}, and it is printed only if the output is enabled and its level is
+ * not finer than the level of the log. The methods without a level print at {@link Level#INFO}. The
+ * arguments of a message are built before the call, so the frequent messages should be guarded by
+ * {@link #isEnabled(Level)}, or built by a {@link MessageSupplier}, to cost nothing when they are not
+ * printed.
+ * <p>
+ * The output, the level and the disable flag are kept per thread, so that simulations running in
+ * parallel threads can have their own. A thread starts with a copy of the settings of the thread
+ * that created it.
  * 
  * @author Anton Beloglazov
  * @since CloudSim Toolkit 2.0
@@ -23,11 +33,81 @@ public class Log {
 	/** The Constant LINE_SEPARATOR. */
 	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
 
-	/** The output. */
-	private static OutputStream output;
+	/** The settings of each thread. */
+	private static final ThreadLocal<Settings> settings = new InheritableThreadLocal<Settings>() {
 
-	/** The disable output flag. */
-	private static boolean disabled;
+		@Override
+		protected Settings initialValue() {
+			return new Settings();
+		}
+
+		@Override
+		protected Settings childValue(Settings parentValue) {
+			return parentValue.copy();
+		}
+	};
+
+	/**
+	 * The settings of the log in a thread.
+	 */
+	private static class Settings {
+
+		/** The output. */
+		private OutputStream output;
+
+		/** The disable output flag. */
+		private boolean disabled;
+
+		/** The level of the log, which prints all the messages by default. */
+		private Level level = Level.TRACE;
+
+		/**
+		 * Copies the settings.
+		 * 
+		 * @return the copy
+		 */
+		private Settings copy() {
+			Settings copy = new Settings();
+			copy.output = output;
+			copy.disabled = disabled;
+			copy.level = level;
+			return copy;
+		}
+	}
+
+	/**
+	 * The levels of the messages, from the most to the least important.
+	 */
+	public enum Level {
+
+		/** The errors. */
+		ERROR,
+
+		/** The warnings. */
+		WARNING,
+
+		/** The general information about the simulation. */
+		INFO,
+
+		/** The details of each scheduling interval, such as the utilization of each host. */
+		DEBUG,
+
+		/** The details of each VM at each scheduling interval. */
+		TRACE
+	}
+
+	/**
+	 * A message that is built only if it is printed.
+	 */
+	public interface MessageSupplier {
+
+		/**
+		 * Gets the message.
+		 * 
+		 * @return the message
+		 */
+		String getMessage();
+	}
 
 	/**
 	 * Prints the message.
@@ -35,12 +115,8 @@ public class Log {
 	 * @param message the message
 	 */
 	public static void print(String message) {
-		if (!isDisabled()) {
-			try {
-				getOutput().write(message.getBytes());
-			} catch (IOException e) {
-				e.printStackTrace();
-			}
+		if (isEnabled(Level.INFO)) {
+			write(message);
 		}
 	}
 
@@ -50,7 +126,7 @@ public class Log {
 	 * @param message the message
 	 */
 	public static void print(Object message) {
-		if (!isDisabled()) {
+		if (isEnabled(Level.INFO)) {
 			print(String.valueOf(message));
 		}
 	}
@@ -61,8 +137,8 @@ public class Log {
 	 * @param message the message
 	 */
 	public static void printLine(String message) {
-		if (!isDisabled()) {
-			print(message + LINE_SEPARATOR);
+		if (isEnabled(Level.INFO)) {
+			write(message + LINE_SEPARATOR);
 		}
 	}
 
@@ -70,8 +146,8 @@ public class Log {
 	 * Prints the empty line.
 	 */
 	public static void printLine() {
-		if (!isDisabled()) {
-			print(LINE_SEPARATOR);
+		if (isEnabled(Level.INFO)) {
+			write(LINE_SEPARATOR);
 		}
 	}
 
@@ -81,7 +157,7 @@ public class Log {
 	 * @param message the message
 	 */
 	public static void printLine(Object message) {
-		if (!isDisabled()) {
+		if (isEnabled(Level.INFO)) {
 			printLine(String.valueOf(message));
 		}
 	}
@@ -93,8 +169,8 @@ public class Log {
 	 * @param args the args
 	 */
 	public static void format(String format, Object... args) {
-		if (!isDisabled()) {
-			print(String.format(format, args));
+		if (isEnabled(Level.INFO)) {
+			write(String.format(format, args));
 		}
 	}
 
@@ -105,8 +181,82 @@ public class Log {
 	 * @param args the args
 	 */
 	public static void formatLine(String format, Object... args) {
-		if (!isDisabled()) {
-			printLine(String.format(format, args));
+		if (isEnabled(Level.INFO)) {
+			write(String.format(format, args) + LINE_SEPARATOR);
+		}
+	}
+
+	/**
+	 * Prints the message at a level.
+	 * 
+	 * @param level the level of the message
+	 * @param message the message
+	 */
+	public static void print(Level level, String message) {
+		if (isEnabled(level)) {
+			write(message);
+		}
+	}
+
+	/**
+	 * Prints the line at a level.
+	 * 
+	 * @param level the level of the message
+	 * @param message the message
+	 */
+	public static void printLine(Level level, String message) {
+		if (isEnabled(level)) {
+			write(message + LINE_SEPARATOR);
+		}
+	}
+
+	/**
+	 * Prints the empty line at a level.
+	 * 
+	 * @param level the level of the message
+	 */
+	public static void printLine(Level level) {
+		if (isEnabled(level)) {
+			write(LINE_SEPARATOR);
+		}
+	}
+
+	/**
+	 * Prints the line built by a supplier at a level. The supplier is only called if the line is
+	 * printed.
+	 * 
+	 * @param level the level of the message
+	 * @param message the supplier of the message
+	 */
+	public static void printLine(Level level, MessageSupplier message) {
+		if (isEnabled(level)) {
+			write(message.getMessage() + LINE_SEPARATOR);
+		}
+	}
+
+	/**
+	 * Prints a line formated as in String.format() at a level.
+	 * 
+	 * @param level the level of the message
+	 * @param format the format
+	 * @param args the args
+	 */
+	public static void formatLine(Level level, String format, Object... args) {
+		if (isEnabled(level)) {
+			write(String.format(format, args) + LINE_SEPARATOR);
+		}
+	}
+
+	/**
+	 * Writes a message to the output.
+	 * 
+	 * @param message the message
+	 */
+	private static void write(String message) {
+		try {
+			getOutput().write(message.getBytes());
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
 	}
 
@@ -116,7 +266,7 @@ public class Log {
 	 * @param _output the new output
 	 */
 	public static void setOutput(OutputStream _output) {
-		output = _output;
+		settings.get().output = _output;
 	}
 
 	/**
@@ -125,10 +275,11 @@ public class Log {
 	 * @return the output
 	 */
 	public static OutputStream getOutput() {
-		if (output == null) {
-			setOutput(System.out);
+		Settings threadSettings = settings.get();
+		if (threadSettings.output == null) {
+			threadSettings.output = System.out;
 		}
-		return output;
+		return threadSettings.output;
 	}
 
 	/**
@@ -137,7 +288,7 @@ public class Log {
 	 * @param _disabled the new disabled
 	 */
 	public static void setDisabled(boolean _disabled) {
-		disabled = _disabled;
+		settings.get().disabled = _disabled;
 	}
 
 	/**
@@ -146,7 +297,39 @@ public class Log {
 	 * @return true, if is disable
 	 */
 	public static boolean isDisabled() {
-		return disabled;
+		return settings.get().disabled;
+	}
+
+	/**
+	 * Sets the level of the log. The messages finer than the level are not printed.
+	 * 
+	 * @param level the new level
+	 */
+	public static void setLevel(Level level) {
+		if (level == null) {
+			throw new IllegalArgumentException("The log level cannot be null");
+		}
+		settings.get().level = level;
+	}
+
+	/**
+	 * Gets the level of the log.
+	 * 
+	 * @return the level
+	 */
+	public static Level getLevel() {
+		return settings.get().level;
+	}
+
+	/**
+	 * Checks if the messages of a level are printed.
+	 * 
+	 * @param level the level of the messages
+	 * @return true, if the output is enabled and the level is not finer than the level of the log
+	 */
+	public static boolean isEnabled(Level level) {
+		Settings threadSettings = settings.get();
+		return !threadSettings.disabled && level.ordinal() <= threadSettings.level.ordinal();
 	}
 
 	/**
@@ -0,0 +1,172 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A list of VM migrations produced by a {@link VmAllocationPolicy}. Each migration is a VM and its
+ * target host, stored in parallel arrays in the order the migrations have been planned.
+ * <p>
+ * The plan replaces the list of maps with the keys "vm" and "host" returned by
+ * {@link VmAllocationPolicy#optimizeAllocation(List)}; {@link #fromMigrationMap(List)} and
+ * {@link #toMigrationMap()} convert between both representations.
+ * 
+ * @since CloudSim Toolkit 3.0
+ * @see VmAllocationPolicy#optimizeAllocationPlan(List)
+ */
+public class MigrationPlan {
+
+	/** The initial capacity. */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** The vms. */
+	private Vm[] vms = new Vm[INITIAL_CAPACITY];
+
+	/** The target hosts. */
+	private Host[] hosts = new Host[INITIAL_CAPACITY];
+
+	/** The number of migrations. */
+	private int size = 0;
+
+	/**
+	 * Adds a migration to the plan.
+	 * 
+	 * @param vm the vm
+	 * @param host the target host
+	 */
+	public void add(Vm vm, Host host) {
+		if (size == vms.length) {
+			vms = Arrays.copyOf(vms, size * 2);
+			hosts = Arrays.copyOf(hosts, size * 2);
+		}
+		vms[size] = vm;
+		hosts[size] = host;
+		size++;
+	}
+
+	/**
+	 * Adds all the migrations of another plan to the plan.
+	 * 
+	 * @param plan the plan
+	 */
+	public void addAll(MigrationPlan plan) {
+		for (int i = 0; i < plan.size(); i++) {
+			add(plan.getVm(i), plan.getHost(i));
+		}
+	}
+
+	/**
+	 * Gets the vm of a migration.
+	 * 
+	 * @param index the index of the migration
+	 * @return the vm
+	 */
+	public Vm getVm(int index) {
+		checkIndex(index);
+		return vms[index];
+	}
+
+	/**
+	 * Gets the target host of a migration.
+	 * 
+	 * @param index the index of the migration
+	 * @return the target host
+	 */
+	public Host getHost(int index) {
+		checkIndex(index);
+		return hosts[index];
+	}
+
+	/**
+	 * Gets a migration as a separate object, e.g. to be sent as the data of an event.
+	 * 
+	 * @param index the index of the migration
+	 * @return the migration
+	 */
+	public VmMigration getMigration(int index) {
+		return new VmMigration(getVm(index), getHost(index));
+	}
+
+	/**
+	 * Gets the number of migrations.
+	 * 
+	 * @return the number of migrations
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks if the plan has no migrations.
+	 * 
+	 * @return true, if the plan is empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all the migrations.
+	 */
+	public void clear() {
+		Arrays.fill(vms, 0, size, null);
+		Arrays.fill(hosts, 0, size, null);
+		size = 0;
+	}
+
+	/**
+	 * Converts the plan to a list of maps with the keys "vm" and "host".
+	 * 
+	 * @return the migration map
+	 */
+	public List<Map<String, Object>> toMigrationMap() {
+		List<Map<String, Object>> migrationMap = new ArrayList<Map<String, Object>>(size);
+		for (int i = 0; i < size; i++) {
+			Map<String, Object> migrate = new HashMap<String, Object>();
+			migrate.put("vm", vms[i]);
+			migrate.put("host", hosts[i]);
+			migrationMap.add(migrate);
+		}
+		return migrationMap;
+	}
+
+	/**
+	 * Creates a plan from a list of maps with the keys "vm" and "host".
+	 * 
+	 * @param migrationMap the migration map, or null
+	 * @return the plan, or null if the migration map is null
+	 */
+	public static MigrationPlan fromMigrationMap(List<Map<String, Object>> migrationMap) {
+		if (migrationMap == null) {
+			return null;
+		}
+		MigrationPlan plan = new MigrationPlan();
+		for (Map<String, Object> migrate : migrationMap) {
+			plan.add((Vm) migrate.get("vm"), (Host) migrate.get("host"));
+		}
+		return plan;
+	}
+
+	/**
+	 * Checks that an index refers to a migration of the plan.
+	 * 
+	 * @param index the index
+	 */
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+		}
+	}
+
+}
@@ -0,0 +1,257 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A store of PlanetLab CPU utilization traces packed into a single binary file that is mapped into
+ * memory. All the utilization models created from a store share its mapping, so the traces are
+ * neither parsed nor copied to the heap when a simulation starts.
+ * <p>
+ * The file starts with a header: the magic number, the format version, the number of traces, the
+ * number of samples per trace and the name of each trace. The samples follow, one column per trace,
+ * each sample being the utilization percentage as an unsigned byte. A directory of PlanetLab trace
+ * files is packed with {@link #convert(String, String, int)}; the traces keep the order in which the
+ * directory is listed, as in the PlanetLab examples.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see UtilizationModelPlanetLabMapped
+ */
+public class PlanetLabTraceStore {
+
+	/** The magic number of the file format. */
+	private static final int MAGIC = 0x43535054;
+
+	/** The version of the file format. */
+	private static final int VERSION = 1;
+
+	/** The number of samples of a day long PlanetLab trace (5 min * 288 = 24 hours). */
+	public static final int DEFAULT_SAMPLES = 288;
+
+	/** The charset of the trace names. */
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/** The open stores, by canonical path. */
+	private static final Map<String, PlanetLabTraceStore> stores = new HashMap<String, PlanetLabTraceStore>();
+
+	/** The names of the traces. */
+	private final List<String> traceNames;
+
+	/** The indexes of the traces, by name. */
+	private final Map<String, Integer> traceIndexes = new HashMap<String, Integer>();
+
+	/** The number of samples per trace. */
+	private final int samples;
+
+	/** The columns of the traces, sharing the mapping of the file. */
+	private final ByteBuffer[] columns;
+
+	/**
+	 * Instantiates a new PlanetLab trace store from a mapped file.
+	 *
+	 * @param path the path of the file
+	 * @param buffer the mapped file
+	 */
+	private PlanetLabTraceStore(String path, ByteBuffer buffer) {
+		if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+			throw new IllegalArgumentException(path + " is not a PlanetLab trace store");
+		}
+		int traces = buffer.getInt();
+		samples = buffer.getInt();
+		if (traces < 0 || samples < 1) {
+			throw new IllegalArgumentException(path + " has an invalid header");
+		}
+
+		List<String> names = new ArrayList<String>(traces);
+		for (int i = 0; i < traces; i++) {
+			byte[] name = new byte[buffer.getShort() & 0xFFFF];
+			buffer.get(name);
+			names.add(new String(name, UTF_8));
+			traceIndexes.put(names.get(i), i);
+		}
+		traceNames = Collections.unmodifiableList(names);
+
+		if (buffer.remaining() < (long) traces * samples) {
+			throw new IllegalArgumentException(path + " is truncated");
+		}
+		columns = new ByteBuffer[traces];
+		int offset = buffer.position();
+		for (int i = 0; i < traces; i++) {
+			ByteBuffer column = buffer.duplicate();
+			column.position(offset + i * samples);
+			column.limit(offset + (i + 1) * samples);
+			columns[i] = column.slice();
+		}
+	}
+
+	/**
+	 * Opens a store, mapping its file into memory. A store that is already open is shared.
+	 *
+	 * @param path the path of the file
+	 * @return the store
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static PlanetLabTraceStore open(String path) throws IOException {
+		String canonicalPath = new java.io.File(path).getCanonicalPath();
+		synchronized (stores) {
+			PlanetLabTraceStore store = stores.get(canonicalPath);
+			if (store == null) {
+				RandomAccessFile file = new RandomAccessFile(canonicalPath, "r");
+				try {
+					FileChannel channel = file.getChannel();
+					// the mapping stays valid after the channel is closed
+					ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+					store = new PlanetLabTraceStore(path, buffer);
+				} finally {
+					file.close();
+				}
+				stores.put(canonicalPath, store);
+			}
+			return store;
+		}
+	}
+
+	/**
+	 * Packs a directory of PlanetLab trace files into a store file. Each trace file holds one
+	 * utilization percentage per line; the first samples lines of each file are stored.
+	 *
+	 * @param inputFolderName the directory of the trace files
+	 * @param outputPath the path of the store file
+	 * @param samples the number of samples per trace
+	 * @return the number of packed traces
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static int convert(String inputFolderName, String outputPath, int samples) throws IOException {
+		if (samples < 1) {
+			throw new IllegalArgumentException("The number of samples must be positive");
+		}
+		java.io.File[] files = new java.io.File(inputFolderName).listFiles();
+		if (files == null) {
+			throw new IllegalArgumentException(inputFolderName + " is not a directory");
+		}
+
+		byte[] data = new byte[files.length * samples];
+		for (int i = 0; i < files.length; i++) {
+			BufferedReader input = new BufferedReader(new FileReader(files[i]));
+			try {
+				for (int j = 0; j < samples; j++) {
+					String line = input.readLine();
+					if (line == null) {
+						throw new IllegalArgumentException(files[i] + " has less than " + samples
+								+ " samples");
+					}
+					int value = Integer.valueOf(line);
+					if (value < 0 || value > 255) {
+						throw new IllegalArgumentException(files[i] + " has a utilization of " + value
+								+ "%, which cannot be stored");
+					}
+					data[i * samples + j] = (byte) value;
+				}
+			} finally {
+				input.close();
+			}
+		}
+
+		DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+				outputPath)));
+		try {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(files.length);
+			output.writeInt(samples);
+			for (java.io.File file : files) {
+				byte[] name = file.getName().getBytes(UTF_8);
+				output.writeShort(name.length);
+				output.write(name);
+			}
+			output.write(data);
+		} finally {
+			output.close();
+		}
+		return files.length;
+	}
+
+	/**
+	 * Creates a utilization model reading a trace of the store.
+	 *
+	 * @param trace the index of the trace
+	 * @param schedulingInterval the scheduling interval
+	 * @return the utilization model
+	 */
+	public UtilizationModelPlanetLabMapped createUtilizationModel(int trace, double schedulingInterval) {
+		return new UtilizationModelPlanetLabMapped(getColumn(trace), schedulingInterval);
+	}
+
+	/**
+	 * Gets the column of a trace. The returned buffer is a read-only view of the mapping.
+	 *
+	 * @param trace the index of the trace
+	 * @return the column
+	 */
+	public ByteBuffer getColumn(int trace) {
+		if (trace < 0 || trace >= columns.length) {
+			throw new IllegalArgumentException("No trace #" + trace + " in the store");
+		}
+		return columns[trace].duplicate();
+	}
+
+	/**
+	 * Gets the number of traces.
+	 *
+	 * @return the number of traces
+	 */
+	public int getTraceCount() {
+		return columns.length;
+	}
+
+	/**
+	 * Gets the number of samples per trace.
+	 *
+	 * @return the number of samples
+	 */
+	public int getSampleCount() {
+		return samples;
+	}
+
+	/**
+	 * Gets the names of the traces, i.e. the names of the original files.
+	 *
+	 * @return the trace names
+	 */
+	public List<String> getTraceNames() {
+		return traceNames;
+	}
+
+	/**
+	 * Gets the index of a trace.
+	 *
+	 * @param name the name of the trace
+	 * @return the index, or -1 if there is no trace with that name
+	 */
+	public int getTraceIndex(String name) {
+		Integer index = traceIndexes.get(name);
+		return index == null ? -1 : index;
+	}
+
+}
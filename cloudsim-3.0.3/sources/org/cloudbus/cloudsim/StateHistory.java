@@ -0,0 +1,269 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An append-only history of the states of a host or a VM, kept in primitive columns: the time, the
+ * allocated MIPS, the requested MIPS and a flag. A state added at the time of the last state
+ * replaces it. Subclasses accumulate their metrics over the states as they are added, so the
+ * metrics are available even when the states themselves are not kept.
+ * <p>
+ * A state is final once a state with a later time is added. Each interval between two final states
+ * is passed to {@link #addInterval(double, double, boolean, double)}, and each final state to
+ * {@link #addFinalState(double, boolean)}; the last state is final only when the history ends, so
+ * the metrics depending on it have to take it into account themselves.
+ *
+ * @param <E> the type of the history entries
+ * @since CloudSim Toolkit 3.0
+ */
+public abstract class StateHistory<E> {
+
+	/** The initial capacity of the columns. */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** The flag telling if the states are kept. */
+	private boolean entriesKept = true;
+
+	/** The number of kept states. */
+	private int size;
+
+	/** The times of the kept states. */
+	private double[] times = new double[0];
+
+	/** The allocated mips of the kept states. */
+	private double[] allocatedMips = new double[0];
+
+	/** The requested mips of the kept states. */
+	private double[] requestedMips = new double[0];
+
+	/** The flags of the kept states. */
+	private final BitSet flags = new BitSet();
+
+	/** The flag telling if there is a last state. */
+	private boolean hasLastState;
+
+	/** The flag telling if the last state is kept. */
+	private boolean lastStateKept;
+
+	/** The time of the last state. */
+	private double lastTime;
+
+	/** The allocated mips of the last state. */
+	private double lastAllocatedMips;
+
+	/** The requested mips of the last state. */
+	private double lastRequestedMips;
+
+	/** The flag of the last state. */
+	private boolean lastFlag;
+
+	/** The read-only list view of the kept states. */
+	private final List<E> entries = new EntryList();
+
+	/**
+	 * Adds a state. A state at the time of the last state replaces it.
+	 *
+	 * @param time the time
+	 * @param allocatedMips the allocated mips
+	 * @param requestedMips the requested mips
+	 * @param flag the flag
+	 */
+	public void add(double time, double allocatedMips, double requestedMips, boolean flag) {
+		if (hasLastState && lastTime == time) {
+			setLastState(time, allocatedMips, requestedMips, flag);
+			if (lastStateKept) {
+				setEntry(size - 1, time, allocatedMips, requestedMips, flag);
+			}
+			return;
+		}
+
+		if (hasLastState) {
+			addFinalState(lastTime, lastFlag);
+			addInterval(lastAllocatedMips, lastRequestedMips, lastFlag, time - lastTime);
+		}
+		hasLastState = true;
+		setLastState(time, allocatedMips, requestedMips, flag);
+
+		lastStateKept = isEntriesKept();
+		if (lastStateKept) {
+			if (size == times.length) {
+				int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+				times = Arrays.copyOf(times, capacity);
+				this.allocatedMips = Arrays.copyOf(this.allocatedMips, capacity);
+				this.requestedMips = Arrays.copyOf(this.requestedMips, capacity);
+			}
+			setEntry(size++, time, allocatedMips, requestedMips, flag);
+		}
+	}
+
+	/**
+	 * Adds an interval between two final states to the metrics.
+	 *
+	 * @param allocatedMips the allocated mips during the interval
+	 * @param requestedMips the requested mips during the interval
+	 * @param flag the flag during the interval
+	 * @param duration the duration of the interval
+	 */
+	protected abstract void addInterval(
+			double allocatedMips,
+			double requestedMips,
+			boolean flag,
+			double duration);
+
+	/**
+	 * Adds a final state to the metrics.
+	 *
+	 * @param time the time of the state
+	 * @param flag the flag of the state
+	 */
+	protected abstract void addFinalState(double time, boolean flag);
+
+	/**
+	 * Creates a history entry for a kept state.
+	 *
+	 * @param time the time
+	 * @param allocatedMips the allocated mips
+	 * @param requestedMips the requested mips
+	 * @param flag the flag
+	 * @return the entry
+	 */
+	protected abstract E createEntry(double time, double allocatedMips, double requestedMips, boolean flag);
+
+	/**
+	 * Gets a read-only list view of the kept states, in the order they were added. The entries are
+	 * created when they are read.
+	 *
+	 * @return the entries
+	 */
+	public List<E> getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Gets the number of kept states.
+	 *
+	 * @return the number of kept states
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks if the states are kept, which they are by default. The metrics are accumulated
+	 * whether the states are kept or not.
+	 *
+	 * @return true, if the states are kept
+	 */
+	public boolean isEntriesKept() {
+		return entriesKept;
+	}
+
+	/**
+	 * Sets if the states are kept. The states added while they are not kept are left out of the
+	 * entries.
+	 *
+	 * @param entriesKept the flag telling if the states are kept
+	 */
+	public void setEntriesKept(boolean entriesKept) {
+		this.entriesKept = entriesKept;
+	}
+
+	/**
+	 * Checks if there is a last state.
+	 *
+	 * @return true, if a state has been added
+	 */
+	protected boolean hasLastState() {
+		return hasLastState;
+	}
+
+	/**
+	 * Gets the time of the last state.
+	 *
+	 * @return the time of the last state
+	 */
+	protected double getLastTime() {
+		return lastTime;
+	}
+
+	/**
+	 * Gets the flag of the last state.
+	 *
+	 * @return the flag of the last state
+	 */
+	protected boolean getLastFlag() {
+		return lastFlag;
+	}
+
+	/**
+	 * Sets the last state.
+	 *
+	 * @param time the time
+	 * @param allocatedMips the allocated mips
+	 * @param requestedMips the requested mips
+	 * @param flag the flag
+	 */
+	private void setLastState(double time, double allocatedMips, double requestedMips, boolean flag) {
+		lastTime = time;
+		lastAllocatedMips = allocatedMips;
+		lastRequestedMips = requestedMips;
+		lastFlag = flag;
+	}
+
+	/**
+	 * Sets a kept state.
+	 *
+	 * @param index the index of the state
+	 * @param time the time
+	 * @param allocatedMips the allocated mips
+	 * @param requestedMips the requested mips
+	 * @param flag the flag
+	 */
+	private void setEntry(int index, double time, double allocatedMips, double requestedMips, boolean flag) {
+		times[index] = time;
+		this.allocatedMips[index] = allocatedMips;
+		this.requestedMips[index] = requestedMips;
+		flags.set(index, flag);
+	}
+
+	/**
+	 * The read-only list view of the kept states.
+	 */
+	private class EntryList extends AbstractList<E> implements RandomAccess {
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.AbstractList#get(int)
+		 */
+		@Override
+		public E get(int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+			}
+			return createEntry(times[index], allocatedMips[index], requestedMips[index], flags.get(index));
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.AbstractCollection#size()
+		 */
+		@Override
+		public int size() {
+			return size;
+		}
+
+	}
+
+}
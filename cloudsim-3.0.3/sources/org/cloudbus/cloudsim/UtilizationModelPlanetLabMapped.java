@@ -0,0 +1,95 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A utilization model reading a PlanetLab trace from a {@link PlanetLabTraceStore}. The samples are
+ * read from the mapping of the store when they are requested, and interpolated as in
+ * {@link UtilizationModelPlanetLabInMemory}: the utilization after the last sample of the trace is
+ * that of the last sample.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see PlanetLabTraceStore#createUtilizationModel(int, double)
+ */
+public class UtilizationModelPlanetLabMapped implements UtilizationModel {
+
+	/** The scheduling interval. */
+	private double schedulingInterval;
+
+	/** The samples, as utilization percentages. */
+	private final ByteBuffer column;
+
+	/** The number of samples. */
+	private final int samples;
+
+	/**
+	 * Instantiates a new utilization model reading a column of a PlanetLab trace store.
+	 *
+	 * @param column the samples, as unsigned byte utilization percentages
+	 * @param schedulingInterval the scheduling interval
+	 */
+	public UtilizationModelPlanetLabMapped(ByteBuffer column, double schedulingInterval) {
+		this.column = column;
+		samples = column.limit();
+		setSchedulingInterval(schedulingInterval);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see cloudsim.power.UtilizationModel#getUtilization(double)
+	 */
+	@Override
+	public double getUtilization(double time) {
+		if (time % getSchedulingInterval() == 0) {
+			return getSample((int) time / (int) getSchedulingInterval());
+		}
+		int time1 = (int) Math.floor(time / getSchedulingInterval());
+		int time2 = (int) Math.ceil(time / getSchedulingInterval());
+		double utilization1 = getSample(time1);
+		double utilization2 = getSample(time2);
+		double delta = (utilization2 - utilization1) / ((time2 - time1) * getSchedulingInterval());
+		double utilization = utilization1 + delta * (time - time1 * getSchedulingInterval());
+		return utilization;
+	}
+
+	/**
+	 * Gets a sample as a utilization fraction.
+	 *
+	 * @param index the index of the sample
+	 * @return the utilization
+	 */
+	private double getSample(int index) {
+		if (index == samples) {
+			// the utilization stays at the last sample until the end of the trace period
+			index = samples - 1;
+		}
+		return (column.get(index) & 0xFF) / 100.0;
+	}
+
+	/**
+	 * Sets the scheduling interval.
+	 *
+	 * @param schedulingInterval the new scheduling interval
+	 */
+	public void setSchedulingInterval(double schedulingInterval) {
+		this.schedulingInterval = schedulingInterval;
+	}
+
+	/**
+	 * Gets the scheduling interval.
+	 *
+	 * @return the scheduling interval
+	 */
+	public double getSchedulingInterval() {
+		return schedulingInterval;
+	}
+
+}
@@ -8,7 +8,6 @@
 package org.cloudbus.cloudsim;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
 /**
@@ -74,7 +73,7 @@ public class Vm {
 	private boolean beingInstantiated;
 
 	/** The mips allocation history. */
-	private final List<VmStateHistoryEntry> stateHistory = new LinkedList<VmStateHistoryEntry>();
+	private final VmStateHistory stateHistory = new VmStateHistory();
 
 	/**
 	 * Creates a new VMCharacteristics object.
@@ -575,6 +574,16 @@ public class Vm {
 	 * @return the state history
 	 */
 	public List<VmStateHistoryEntry> getStateHistory() {
+		return stateHistory.getEntries();
+	}
+
+	/**
+	 * Gets the state history store, which accumulates the SLA metrics of the VM whether its states
+	 * are kept or not.
+	 * 
+	 * @return the state history store
+	 */
+	public VmStateHistory getStateHistoryStore() {
 		return stateHistory;
 	}
 
@@ -591,19 +600,7 @@ public class Vm {
 			double allocatedMips,
 			double requestedMips,
 			boolean isInMigration) {
-		VmStateHistoryEntry newState = new VmStateHistoryEntry(
-				time,
-				allocatedMips,
-				requestedMips,
-				isInMigration);
-		if (!getStateHistory().isEmpty()) {
-			VmStateHistoryEntry previousState = getStateHistory().get(getStateHistory().size() - 1);
-			if (previousState.getTime() == time) {
-				getStateHistory().set(getStateHistory().size() - 1, newState);
-				return;
-			}
-		}
-		getStateHistory().add(newState);
+		stateHistory.add(time, allocatedMips, requestedMips, isInMigration);
 	}
 
 }
@@ -67,6 +67,22 @@ public abstract class VmAllocationPolicy {
 	 */
 	public abstract List<Map<String, Object>> optimizeAllocation(List<? extends Vm> vmList);
 
+	/**
+	 * Optimize allocation of the VMs according to current utilization, returning the migrations as a
+	 * typed plan. The default implementation converts the result of
+	 * {@link #optimizeAllocation(List)}, so that existing policies keep working; policies that build
+	 * a plan natively should override it. The datacenters call this method, so a policy that
+	 * overrides it must derive {@link #optimizeAllocation(List)} from it, as
+	 * {@link org.cloudbus.cloudsim.power.PowerVmAllocationPolicyMigrationAbstract} does; that class
+	 * still honours the subclasses that override {@link #optimizeAllocation(List)} instead.
+	 * 
+	 * @param vmList the vm list
+	 * @return the migration plan, or null if no optimization is performed
+	 */
+	public MigrationPlan optimizeAllocationPlan(List<? extends Vm> vmList) {
+		return MigrationPlan.fromMigrationMap(optimizeAllocation(vmList));
+	}
+
 	/**
 	 * Releases the host used by a VM.
 	 * 
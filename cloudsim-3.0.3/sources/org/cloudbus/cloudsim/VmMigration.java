@@ -0,0 +1,92 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+/**
+ * The migration of a VM to a target host. It is the data of the
+ * {@link org.cloudbus.cloudsim.core.CloudSimTags#VM_MIGRATE} events.
+ * 
+ * @since CloudSim Toolkit 3.0
+ * @see MigrationPlan
+ */
+public class VmMigration {
+
+	/** The vm. */
+	private Vm vm;
+
+	/** The target host. */
+	private Host host;
+
+	/** Whether the migration is reused by the datacenter once its event has been processed. */
+	private final boolean reusable;
+
+	/**
+	 * Instantiates a new vm migration.
+	 * 
+	 * @param vm the vm
+	 * @param host the target host
+	 */
+	public VmMigration(Vm vm, Host host) {
+		this(vm, host, false);
+	}
+
+	/**
+	 * Instantiates a new vm migration.
+	 * 
+	 * @param vm the vm
+	 * @param host the target host
+	 * @param reusable whether the migration is reused by the datacenter once its event has been
+	 *            processed
+	 * @see Datacenter#obtainVmMigration(Vm, Host)
+	 */
+	VmMigration(Vm vm, Host host, boolean reusable) {
+		this.vm = vm;
+		this.host = host;
+		this.reusable = reusable;
+	}
+
+	/**
+	 * Sets the vm and the target host of a reused migration.
+	 * 
+	 * @param vm the vm
+	 * @param host the target host
+	 */
+	void set(Vm vm, Host host) {
+		this.vm = vm;
+		this.host = host;
+	}
+
+	/**
+	 * Checks if the migration is reused by the datacenter once its event has been processed.
+	 * 
+	 * @return true, if the migration is reusable
+	 */
+	boolean isReusable() {
+		return reusable;
+	}
+
+	/**
+	 * Gets the vm.
+	 * 
+	 * @return the vm
+	 */
+	public Vm getVm() {
+		return vm;
+	}
+
+	/**
+	 * Gets the target host.
+	 * 
+	 * @return the target host
+	 */
+	public Host getHost() {
+		return host;
+	}
+
+}
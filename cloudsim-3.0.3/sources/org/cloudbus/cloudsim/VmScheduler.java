@@ -8,9 +8,12 @@
 package org.cloudbus.cloudsim;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.cloudbus.cloudsim.lists.PeList;
 
@@ -42,6 +45,18 @@ public abstract class VmScheduler {
 	/** The VMs migrating out. */
 	private List<String> vmsMigratingOut;
 
+	/** The VMs migrating in, indexed for membership tests. */
+	private Set<String> vmsMigratingInIndex;
+
+	/** The VMs migrating out, indexed for membership tests. */
+	private Set<String> vmsMigratingOutIndex;
+
+	/** The read-only view of the VMs migrating in. */
+	private List<String> vmsMigratingInView;
+
+	/** The read-only view of the VMs migrating out. */
+	private List<String> vmsMigratingOutView;
+
 	/**
 	 * Creates a new HostAllocationPolicy.
 	 * 
@@ -92,6 +107,23 @@ public abstract class VmScheduler {
 		}
 	}
 
+	/**
+	 * Reallocates PEs for the VMs of a host to their current requested MIPS. All the VMs are
+	 * released first, then allocated again in the order of the list.
+	 * 
+	 * @param vms the vms of the host
+	 * @pre $none
+	 * @post $none
+	 */
+	public void reallocatePesForVms(List<? extends Vm> vms) {
+		for (Vm vm : vms) {
+			deallocatePesForVm(vm);
+		}
+		for (Vm vm : vms) {
+			allocatePesForVm(vm, vm.getCurrentRequestedMips());
+		}
+	}
+
 	/**
 	 * Gets the pes allocated for vm.
 	 * 
@@ -224,39 +256,119 @@ public abstract class VmScheduler {
 	}
 
 	/**
-	 * Gets the vms in migration.
+	 * Adds a VM to the VMs migrating in, unless it is already one of them.
+	 * 
+	 * @param vmUid the uid of the vm
+	 */
+	public void addMigratingInVm(String vmUid) {
+		if (vmsMigratingInIndex.add(vmUid)) {
+			vmsMigratingIn.add(vmUid);
+		}
+	}
+
+	/**
+	 * Removes a VM from the VMs migrating in.
+	 * 
+	 * @param vmUid the uid of the vm
+	 */
+	public void removeMigratingInVm(String vmUid) {
+		if (vmsMigratingInIndex.remove(vmUid)) {
+			vmsMigratingIn.remove(vmUid);
+		}
+	}
+
+	/**
+	 * Checks if a VM is migrating in.
+	 * 
+	 * @param vmUid the uid of the vm
+	 * @return true, if the vm is migrating in
+	 */
+	public boolean isMigratingInVm(String vmUid) {
+		return vmsMigratingInIndex.contains(vmUid);
+	}
+
+	/**
+	 * Adds a VM to the VMs migrating out, unless it is already one of them.
+	 * 
+	 * @param vmUid the uid of the vm
+	 */
+	public void addMigratingOutVm(String vmUid) {
+		if (vmsMigratingOutIndex.add(vmUid)) {
+			vmsMigratingOut.add(vmUid);
+		}
+	}
+
+	/**
+	 * Removes a VM from the VMs migrating out.
+	 * 
+	 * @param vmUid the uid of the vm
+	 */
+	public void removeMigratingOutVm(String vmUid) {
+		if (vmsMigratingOutIndex.remove(vmUid)) {
+			vmsMigratingOut.remove(vmUid);
+		}
+	}
+
+	/**
+	 * Checks if a VM is migrating out.
+	 * 
+	 * @param vmUid the uid of the vm
+	 * @return true, if the vm is migrating out
+	 */
+	public boolean isMigratingOutVm(String vmUid) {
+		return vmsMigratingOutIndex.contains(vmUid);
+	}
+
+	/**
+	 * Gets the vms in migration, as a read-only view. They are changed through
+	 * addMigratingOutVm() and removeMigratingOutVm(), which keep isMigratingOutVm() up to date.
 	 * 
 	 * @return the vms in migration
 	 */
 	public List<String> getVmsMigratingOut() {
-		return vmsMigratingOut;
+		return vmsMigratingOutView;
 	}
 
 	/**
-	 * Sets the vms in migration.
+	 * Sets the vms in migration. The scheduler keeps a copy of the list, without duplicates.
 	 * 
 	 * @param vmsInMigration the new vms migrating out
 	 */
 	protected void setVmsMigratingOut(List<String> vmsInMigration) {
-		vmsMigratingOut = vmsInMigration;
+		vmsMigratingOut = new ArrayList<String>();
+		vmsMigratingOutIndex = new HashSet<String>();
+		for (String vmUid : vmsInMigration) {
+			if (vmsMigratingOutIndex.add(vmUid)) {
+				vmsMigratingOut.add(vmUid);
+			}
+		}
+		vmsMigratingOutView = Collections.unmodifiableList(vmsMigratingOut);
 	}
 
 	/**
-	 * Gets the vms migrating in.
+	 * Gets the vms migrating in, as a read-only view. They are changed through addMigratingInVm()
+	 * and removeMigratingInVm(), which keep isMigratingInVm() up to date.
 	 * 
 	 * @return the vms migrating in
 	 */
 	public List<String> getVmsMigratingIn() {
-		return vmsMigratingIn;
+		return vmsMigratingInView;
 	}
 
 	/**
-	 * Sets the vms migrating in.
+	 * Sets the vms migrating in. The scheduler keeps a copy of the list, without duplicates.
 	 * 
 	 * @param vmsMigratingIn the new vms migrating in
 	 */
 	protected void setVmsMigratingIn(List<String> vmsMigratingIn) {
-		this.vmsMigratingIn = vmsMigratingIn;
+		this.vmsMigratingIn = new ArrayList<String>();
+		vmsMigratingInIndex = new HashSet<String>();
+		for (String vmUid : vmsMigratingIn) {
+			if (vmsMigratingInIndex.add(vmUid)) {
+				this.vmsMigratingIn.add(vmUid);
+			}
+		}
+		vmsMigratingInView = Collections.unmodifiableList(this.vmsMigratingIn);
 	}
 
 	/**
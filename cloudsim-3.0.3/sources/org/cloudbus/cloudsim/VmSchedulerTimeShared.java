@@ -21,6 +21,13 @@ import org.cloudbus.cloudsim.provisioners.PeProvisioner;
  * VmSchedulerTimeShared is a VMM allocation policy that allocates one or more Pe to a VM, and
  * allows sharing of PEs by multiple VMs. This class also implements 10% performance degration due
  * to VM migration. This scheduler does not support over-subscription.
+ * <p>
+ * In the incremental mode, which is the default, {@link #reallocatePesForVms(List)} releases and
+ * allocates the VMs of the host in one pass, and maps the VMs on the PEs again only if their
+ * allocated MIPS have changed since the last mapping. The result is the same as releasing and
+ * allocating the VMs one by one, which maps all the VMs on the PEs after each VM. Subclasses
+ * overriding {@link #allocatePesForVm(Vm, List)} or {@link #deallocatePesForVm(Vm)}, or changing
+ * the MIPS of the PEs during the simulation, should turn the incremental mode off.
  * 
  * @author Rodrigo N. Calheiros
  * @author Anton Beloglazov
@@ -34,6 +41,15 @@ public class VmSchedulerTimeShared extends VmScheduler {
 	/** The pes in use. */
 	private int pesInUse;
 
+	/** The incremental mode flag. */
+	private boolean incremental = true;
+
+	/** The VMs mapped on the PEs by the last mapping, in the order of the mapping. */
+	private List<String> provisionedVmUids;
+
+	/** The MIPS mapped on the PEs for each VM by the last mapping. */
+	private final List<List<Double>> provisionedMips = new ArrayList<List<Double>>();
+
 	/**
 	 * Instantiates a new vm scheduler time shared.
 	 * 
@@ -53,18 +69,82 @@ public class VmSchedulerTimeShared extends VmScheduler {
 		/**
 		 * TODO: add the same to RAM and BW provisioners
 		 */
+		updateVmsMigratingOut(vm);
+		boolean result = allocatePesForVm(vm.getUid(), mipsShareRequested);
+		updatePeProvisioning();
+		return result;
+	}
+
+	/**
+	 * Adds the VM to the VMs migrating out if it is in migration and not migrating in, or removes
+	 * it from them if it is not in migration.
+	 * 
+	 * @param vm the vm
+	 */
+	protected void updateVmsMigratingOut(Vm vm) {
 		if (vm.isInMigration()) {
-			if (!getVmsMigratingIn().contains(vm.getUid()) && !getVmsMigratingOut().contains(vm.getUid())) {
-				getVmsMigratingOut().add(vm.getUid());
+			if (!isMigratingInVm(vm.getUid())) {
+				addMigratingOutVm(vm.getUid());
 			}
 		} else {
-			if (getVmsMigratingOut().contains(vm.getUid())) {
-				getVmsMigratingOut().remove(vm.getUid());
+			removeMigratingOutVm(vm.getUid());
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.VmScheduler#reallocatePesForVms(java.util.List)
+	 */
+	@Override
+	public void reallocatePesForVms(List<? extends Vm> vms) {
+		if (!isIncremental()) {
+			super.reallocatePesForVms(vms);
+			return;
+		}
+		if (vms.isEmpty()) {
+			return;
+		}
+
+		// release all the VMs at once: the VMs left are allocated again, as the last release does
+		for (Vm vm : vms) {
+			getMipsMapRequested().remove(vm.getUid());
+		}
+		setPesInUse(0);
+		getMipsMap().clear();
+		setAvailableMips(PeList.getTotalMips(getPeList()));
+		for (Map.Entry<String, List<Double>> entry : getMipsMapRequested().entrySet()) {
+			allocatePesForVm(entry.getKey(), entry.getValue());
+		}
+
+		// allocate the VMs again, mapping them on the PEs only once at the end
+		for (Vm vm : vms) {
+			updateVmsMigratingOut(vm);
+			allocatePesForVm(vm.getUid(), vm.getCurrentRequestedMips());
+		}
+		if (!isPeProvisioningUpToDate()) {
+			updatePeProvisioning();
+		}
+	}
+
+	/**
+	 * Checks if the last mapping of the VMs on the PEs is the one of the current allocated MIPS,
+	 * VM by VM in the order of the mapping.
+	 * 
+	 * @return true, if the mapping is up to date
+	 */
+	protected boolean isPeProvisioningUpToDate() {
+		if (provisionedVmUids == null || provisionedVmUids.size() != getMipsMap().size()) {
+			return false;
+		}
+		int i = 0;
+		for (Map.Entry<String, List<Double>> entry : getMipsMap().entrySet()) {
+			if (!entry.getKey().equals(provisionedVmUids.get(i))
+					|| !entry.getValue().equals(provisionedMips.get(i))) {
+				return false;
 			}
+			i++;
 		}
-		boolean result = allocatePesForVm(vm.getUid(), mipsShareRequested);
-		updatePeProvisioning();
-		return result;
+		return true;
 	}
 
 	/**
@@ -93,17 +173,19 @@ public class VmSchedulerTimeShared extends VmScheduler {
 		getMipsMapRequested().put(vmUid, mipsShareRequested);
 		setPesInUse(getPesInUse() + mipsShareRequested.size());
 
-		if (getVmsMigratingIn().contains(vmUid)) {
+		boolean migratingIn = isMigratingInVm(vmUid);
+		boolean migratingOut = isMigratingOutVm(vmUid);
+		if (migratingIn) {
 			// the destination host only experience 10% of the migrating VM's MIPS
 			totalRequestedMips *= 0.1;
 		}
 
-		List<Double> mipsShareAllocated = new ArrayList<Double>();
+		List<Double> mipsShareAllocated = new ArrayList<Double>(mipsShareRequested.size());
 		for (Double mipsRequested : mipsShareRequested) {
-			if (getVmsMigratingOut().contains(vmUid)) {
+			if (migratingOut) {
 				// performance degradation due to migration = 10% MIPS
 				mipsRequested *= 0.9;
-			} else if (getVmsMigratingIn().contains(vmUid)) {
+			} else if (migratingIn) {
 				// the destination host only experience 10% of the migrating VM's MIPS
 				mipsRequested *= 0.1;
 			}
@@ -120,6 +202,11 @@ public class VmSchedulerTimeShared extends VmScheduler {
 	 * Update allocation of VMs on PEs.
 	 */
 	protected void updatePeProvisioning() {
+		if (provisionedVmUids == null) {
+			provisionedVmUids = new ArrayList<String>();
+		}
+		provisionedVmUids.clear();
+		provisionedMips.clear();
 		getPeMap().clear();
 		for (Pe pe : getPeList()) {
 			pe.getPeProvisioner().deallocateMipsForAllVms();
@@ -132,18 +219,21 @@ public class VmSchedulerTimeShared extends VmScheduler {
 
 		for (Map.Entry<String, List<Double>> entry : getMipsMap().entrySet()) {
 			String vmUid = entry.getKey();
-			getPeMap().put(vmUid, new LinkedList<Pe>());
+			List<Pe> vmPes = new LinkedList<Pe>();
+			getPeMap().put(vmUid, vmPes);
+			provisionedVmUids.add(vmUid);
+			provisionedMips.add(entry.getValue());
 
 			for (double mips : entry.getValue()) {
 				while (mips >= 0.1) {
 					if (availableMips >= mips) {
 						peProvisioner.allocateMipsForVm(vmUid, mips);
-						getPeMap().get(vmUid).add(pe);
+						vmPes.add(pe);
 						availableMips -= mips;
 						break;
 					} else {
 						peProvisioner.allocateMipsForVm(vmUid, availableMips);
-						getPeMap().get(vmUid).add(pe);
+						vmPes.add(pe);
 						mips -= availableMips;
 						if (mips <= 0.1) {
 							break;
@@ -194,6 +284,8 @@ public class VmSchedulerTimeShared extends VmScheduler {
 		super.deallocatePesForAllVms();
 		getMipsMapRequested().clear();
 		setPesInUse(0);
+		// the PEs have been released without mapping the VMs again
+		provisionedVmUids = null;
 	}
 
 	/**
@@ -225,6 +317,24 @@ public class VmSchedulerTimeShared extends VmScheduler {
 		return pesInUse;
 	}
 
+	/**
+	 * Checks if the incremental mode is on.
+	 * 
+	 * @return true, if the incremental mode is on
+	 */
+	public boolean isIncremental() {
+		return incremental;
+	}
+
+	/**
+	 * Sets the incremental mode.
+	 * 
+	 * @param incremental the incremental mode flag
+	 */
+	public void setIncremental(boolean incremental) {
+		this.incremental = incremental;
+	}
+
 	/**
 	 * Gets the mips map requested.
 	 * 
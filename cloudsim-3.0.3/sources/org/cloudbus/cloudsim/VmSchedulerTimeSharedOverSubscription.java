@@ -51,14 +51,15 @@ public class VmSchedulerTimeSharedOverSubscription extends VmSchedulerTimeShared
 
 		// if the requested mips is bigger than the capacity of a single PE, we cap
 		// the request to the PE's capacity
-		List<Double> mipsShareRequestedCapped = new ArrayList<Double>();
+		double[] mipsShareRequestedCapped = new double[mipsShareRequested.size()];
 		double peMips = getPeCapacity();
+		int i = 0;
 		for (Double mips : mipsShareRequested) {
 			if (mips > peMips) {
-				mipsShareRequestedCapped.add(peMips);
+				mipsShareRequestedCapped[i++] = peMips;
 				totalRequestedMips += peMips;
 			} else {
-				mipsShareRequestedCapped.add(mips);
+				mipsShareRequestedCapped[i++] = mips;
 				totalRequestedMips += mips;
 			}
 		}
@@ -66,18 +67,20 @@ public class VmSchedulerTimeSharedOverSubscription extends VmSchedulerTimeShared
 		getMipsMapRequested().put(vmUid, mipsShareRequested);
 		setPesInUse(getPesInUse() + mipsShareRequested.size());
 
-		if (getVmsMigratingIn().contains(vmUid)) {
+		boolean migratingIn = isMigratingInVm(vmUid);
+		boolean migratingOut = isMigratingOutVm(vmUid);
+		if (migratingIn) {
 			// the destination host only experience 10% of the migrating VM's MIPS
 			totalRequestedMips *= 0.1;
 		}
 
 		if (getAvailableMips() >= totalRequestedMips) {
-			List<Double> mipsShareAllocated = new ArrayList<Double>();
-			for (Double mipsRequested : mipsShareRequestedCapped) {
-				if (getVmsMigratingOut().contains(vmUid)) {
+			List<Double> mipsShareAllocated = new ArrayList<Double>(mipsShareRequestedCapped.length);
+			for (double mipsRequested : mipsShareRequestedCapped) {
+				if (migratingOut) {
 					// performance degradation due to migration = 10% MIPS
 					mipsRequested *= 0.9;
-				} else if (getVmsMigratingIn().contains(vmUid)) {
+				} else if (migratingIn) {
 					// the destination host only experience 10% of the migrating VM's MIPS
 					mipsRequested *= 0.1;
 				}
@@ -103,13 +106,13 @@ public class VmSchedulerTimeSharedOverSubscription extends VmSchedulerTimeShared
 		double totalRequiredMipsByAllVms = 0;
 
 		Map<String, List<Double>> mipsMapCapped = new HashMap<String, List<Double>>();
+		double peMips = getPeCapacity();
 		for (Entry<String, List<Double>> entry : getMipsMapRequested().entrySet()) {
 
 			double requiredMipsByThisVm = 0.0;
 			String vmId = entry.getKey();
 			List<Double> mipsShareRequested = entry.getValue();
-			List<Double> mipsShareRequestedCapped = new ArrayList<Double>();
-			double peMips = getPeCapacity();
+			List<Double> mipsShareRequestedCapped = new ArrayList<Double>(mipsShareRequested.size());
 			for (Double mips : mipsShareRequested) {
 				if (mips > peMips) {
 					mipsShareRequestedCapped.add(peMips);
@@ -122,7 +125,7 @@ public class VmSchedulerTimeSharedOverSubscription extends VmSchedulerTimeShared
 
 			mipsMapCapped.put(vmId, mipsShareRequestedCapped);
 
-			if (getVmsMigratingIn().contains(entry.getKey())) {
+			if (isMigratingInVm(entry.getKey())) {
 				// the destination host only experience 10% of the migrating VM's MIPS
 				requiredMipsByThisVm *= 0.1;
 			}
@@ -140,14 +143,16 @@ public class VmSchedulerTimeSharedOverSubscription extends VmSchedulerTimeShared
 			String vmUid = entry.getKey();
 			List<Double> requestedMips = entry.getValue();
 
-			List<Double> updatedMipsAllocation = new ArrayList<Double>();
+			boolean migratingIn = isMigratingInVm(vmUid);
+			boolean migratingOut = isMigratingOutVm(vmUid);
+			List<Double> updatedMipsAllocation = new ArrayList<Double>(requestedMips.size());
 			for (Double mips : requestedMips) {
-				if (getVmsMigratingOut().contains(vmUid)) {
+				if (migratingOut) {
 					// the original amount is scaled
 					mips *= scalingFactor;
 					// performance degradation due to migration = 10% MIPS
 					mips *= 0.9;
-				} else if (getVmsMigratingIn().contains(vmUid)) {
+				} else if (migratingIn) {
 					// the destination host only experiences 10% of the migrating VM's MIPS
 					mips *= 0.1;
 					// the final 10% of the requested MIPS are scaled
@@ -0,0 +1,153 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The state history of a VM, whose flag tells if the VM is in migration. The allocated and
+ * requested mips integrated over time, the under-allocation of the intervals violating the SLA and
+ * the times before the VM has been migrated are accumulated as the states are added.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class VmStateHistory extends StateHistory<VmStateHistoryEntry> {
+
+	/** The allocated mips integrated over time. */
+	private double totalAllocatedMips;
+
+	/** The requested mips integrated over time. */
+	private double totalRequestedMips;
+
+	/** The mips missing while in migration, integrated over time. */
+	private double underAllocatedMipsDueToMigration;
+
+	/** The sum of the relative under-allocations of the intervals violating the SLA. */
+	private double slaViolationSum;
+
+	/** The number of intervals violating the SLA. */
+	private int slaViolationCount;
+
+	/** The flag of the last final state, the VM not being in migration before the first state. */
+	private boolean previousInMigration;
+
+	/** The last time a migration of the VM has started. */
+	private double lastTimeMigrationStarted;
+
+	/** The times before the VM has been migrated, up to the last final state. */
+	private final List<Double> timesBeforeMigration = new ArrayList<Double>();
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.StateHistory#addInterval(double, double, boolean, double)
+	 */
+	@Override
+	protected void addInterval(double allocatedMips, double requestedMips, boolean inMigration, double duration) {
+		totalAllocatedMips += allocatedMips * duration;
+		totalRequestedMips += requestedMips * duration;
+		if (allocatedMips < requestedMips) {
+			slaViolationSum += (requestedMips - allocatedMips) / requestedMips;
+			slaViolationCount++;
+			if (inMigration) {
+				underAllocatedMipsDueToMigration += (requestedMips - allocatedMips) * duration;
+			}
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.StateHistory#addFinalState(double, boolean)
+	 */
+	@Override
+	protected void addFinalState(double time, boolean inMigration) {
+		if (previousInMigration && !inMigration) {
+			timesBeforeMigration.add(time - lastTimeMigrationStarted);
+		}
+		if (!previousInMigration && inMigration) {
+			lastTimeMigrationStarted = time;
+		}
+		previousInMigration = inMigration;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.StateHistory#createEntry(double, double, double, boolean)
+	 */
+	@Override
+	protected VmStateHistoryEntry createEntry(
+			double time,
+			double allocatedMips,
+			double requestedMips,
+			boolean inMigration) {
+		return new VmStateHistoryEntry(time, allocatedMips, requestedMips, inMigration);
+	}
+
+	/**
+	 * Gets the allocated mips integrated over time.
+	 *
+	 * @return the total allocated mips
+	 */
+	public double getTotalAllocatedMips() {
+		return totalAllocatedMips;
+	}
+
+	/**
+	 * Gets the requested mips integrated over time.
+	 *
+	 * @return the total requested mips
+	 */
+	public double getTotalRequestedMips() {
+		return totalRequestedMips;
+	}
+
+	/**
+	 * Gets the mips missing while the VM was in migration, integrated over time.
+	 *
+	 * @return the under-allocated mips due to migration
+	 */
+	public double getUnderAllocatedMipsDueToMigration() {
+		return underAllocatedMipsDueToMigration;
+	}
+
+	/**
+	 * Gets the sum of the relative under-allocations, (requested - allocated) / requested, of the
+	 * intervals violating the SLA.
+	 *
+	 * @return the SLA violation sum
+	 */
+	public double getSlaViolationSum() {
+		return slaViolationSum;
+	}
+
+	/**
+	 * Gets the number of intervals violating the SLA.
+	 *
+	 * @return the SLA violation count
+	 */
+	public int getSlaViolationCount() {
+		return slaViolationCount;
+	}
+
+	/**
+	 * Gets the times measured at the end of each migration of the VM, from the start of that
+	 * migration, as the power helpers have always reported them.
+	 *
+	 * @return the times before migration
+	 */
+	public List<Double> getTimesBeforeMigration() {
+		List<Double> times = new ArrayList<Double>(timesBeforeMigration);
+		// the last state is not final yet, but ends the history if nothing follows it
+		if (hasLastState() && previousInMigration && !getLastFlag()) {
+			times.add(getLastTime() - lastTimeMigrationStarted);
+		}
+		return times;
+	}
+
+}
@@ -66,7 +66,7 @@ public class CloudSimShutdown extends SimEntity {
 	public void processEvent(SimEvent ev) {
 		numUser--;
 		if (numUser == 0 || ev.getTag() == CloudSimTags.ABRUPT_END_OF_SIMULATION) {
-			CloudSim.abruptallyTerminate();
+			getSimulation().abruptallyTerminate();
 		}
 	}
 
@@ -8,15 +8,25 @@
 
 package org.cloudbus.cloudsim.core;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+import org.cloudbus.cloudsim.core.predicates.PredicateType;
 
 /**
- * This class implements the deferred event queue used by {@link Simulation}. The event queue uses a
- * linked list to store the events.
- * 
+ * This class implements the deferred event queue used by {@link Simulation}. The events are kept in
+ * one linked list per destination entity, so that the lookups done by an entity only visit its own
+ * events. Each list also counts its events by tag, which allows the {@link PredicateType} lookups
+ * to return without scanning when no event has the requested tags. Subclasses of PredicateType are
+ * matched event by event, as they may override match().
+ *
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
  * @see Simulation
@@ -24,29 +34,81 @@ import java.util.ListIterator;
  */
 public class DeferredQueue {
 
-	/** The list. */
-	private final List<SimEvent> list = new LinkedList<SimEvent>();
+	/** The events of each destination entity, indexed by the entity id. */
+	private final List<EntityEvents> lists = new ArrayList<EntityEvents>();
 
-	/** The max time. */
-	private double maxTime = -1;
+	/** The number of events in the queue. */
+	private int size = 0;
+
+	/**
+	 * The deferred events of one destination entity.
+	 */
+	private static final class EntityEvents {
+
+		/** The list. */
+		private final List<SimEvent> list = new LinkedList<SimEvent>();
+
+		/** The max time. */
+		private double maxTime = -1;
+
+		/** The number of events with each tag. */
+		private final Map<Integer, int[]> tagCounts = new HashMap<Integer, int[]>();
+
+		/**
+		 * Gets the number of events with any of the tags of a predicate.
+		 *
+		 * @param p the predicate
+		 * @return the number of events
+		 */
+		private int countTags(PredicateType p) {
+			int count = 0;
+			for (int i = 0; i < p.getNumberOfTags(); i++) {
+				int[] tagCount = tagCounts.get(p.getTag(i));
+				if (tagCount != null) {
+					count += tagCount[0];
+				}
+			}
+			return count;
+		}
+
+		/**
+		 * Updates the number of events with a tag.
+		 *
+		 * @param tag the tag
+		 * @param delta the change in the number of events
+		 */
+		private void updateTagCount(int tag, int delta) {
+			int[] tagCount = tagCounts.get(tag);
+			if (tagCount == null) {
+				tagCount = new int[1];
+				tagCounts.put(tag, tagCount);
+			}
+			tagCount[0] += delta;
+		}
+
+	}
 
 	/**
 	 * Adds a new event to the queue. Adding a new event to the queue preserves the temporal order
 	 * of the events.
-	 * 
+	 *
 	 * @param newEvent The event to be added to the queue.
 	 */
 	public void addEvent(SimEvent newEvent) {
+		EntityEvents events = getOrCreateEvents(newEvent.getDestination());
+		events.updateTagCount(newEvent.getTag(), 1);
+		size++;
+
 		// The event has to be inserted as the last of all events
 		// with the same event_time(). Yes, this matters.
 		double eventTime = newEvent.eventTime();
-		if (eventTime >= maxTime) {
-			list.add(newEvent);
-			maxTime = eventTime;
+		if (eventTime >= events.maxTime) {
+			events.list.add(newEvent);
+			events.maxTime = eventTime;
 			return;
 		}
 
-		ListIterator<SimEvent> iterator = list.listIterator();
+		ListIterator<SimEvent> iterator = events.list.listIterator();
 		SimEvent event;
 		while (iterator.hasNext()) {
 			event = iterator.next();
@@ -57,32 +119,209 @@ public class DeferredQueue {
 			}
 		}
 
-		list.add(newEvent);
+		events.list.add(newEvent);
+	}
+
+	/**
+	 * Counts the events for a destination entity that match a predicate.
+	 *
+	 * @param destination the id of the destination entity
+	 * @param p the predicate
+	 * @return the number of matching events
+	 */
+	public int count(int destination, Predicate p) {
+		EntityEvents events = getEvents(destination);
+		if (events == null || events.list.isEmpty()) {
+			return 0;
+		}
+		if (p == CloudSim.SIM_ANY) {
+			return events.list.size();
+		}
+		if (isTypePredicate(p)) {
+			return events.countTags((PredicateType) p);
+		}
+
+		int count = 0;
+		for (SimEvent event : events.list) {
+			if (p.match(event)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Finds the first event for a destination entity that matches a predicate.
+	 *
+	 * @param destination the id of the destination entity
+	 * @param p the predicate
+	 * @return the event, or null if no event matches
+	 */
+	public SimEvent findFirst(int destination, Predicate p) {
+		return find(destination, p, false);
 	}
 
 	/**
-	 * Returns an iterator to the events in the queue.
-	 * 
+	 * Removes the first event for a destination entity that matches a predicate.
+	 *
+	 * @param destination the id of the destination entity
+	 * @param p the predicate
+	 * @return the removed event, or null if no event matches
+	 */
+	public SimEvent select(int destination, Predicate p) {
+		return find(destination, p, true);
+	}
+
+	/**
+	 * Returns an iterator to the events in the queue. The events are returned in temporal order,
+	 * and the iterator supports removal.
+	 *
 	 * @return the iterator
 	 */
 	public Iterator<SimEvent> iterator() {
-		return list.iterator();
+		List<SimEvent> snapshot = new ArrayList<SimEvent>(size);
+		for (EntityEvents events : lists) {
+			if (events != null) {
+				snapshot.addAll(events.list);
+			}
+		}
+		// Events with the same time are ordered by their serial number, i.e. in the order
+		// they have been processed and deferred
+		Collections.sort(snapshot);
+
+		final Iterator<SimEvent> iterator = snapshot.iterator();
+		return new Iterator<SimEvent>() {
+
+			/** The last returned event. */
+			private SimEvent last;
+
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+
+			@Override
+			public SimEvent next() {
+				last = iterator.next();
+				return last;
+			}
+
+			@Override
+			public void remove() {
+				if (last == null) {
+					throw new IllegalStateException();
+				}
+				removeEvent(last);
+				last = null;
+			}
+		};
 	}
 
 	/**
 	 * Returns the size of this event queue.
-	 * 
+	 *
 	 * @return the number of events in the queue.
 	 */
 	public int size() {
-		return list.size();
+		return size;
 	}
 
 	/**
 	 * Clears the queue.
 	 */
 	public void clear() {
-		list.clear();
+		lists.clear();
+		size = 0;
+	}
+
+	/**
+	 * Finds the first event for a destination entity that matches a predicate.
+	 *
+	 * @param destination the id of the destination entity
+	 * @param p the predicate
+	 * @param remove whether the event has to be removed from the queue
+	 * @return the event, or null if no event matches
+	 */
+	private SimEvent find(int destination, Predicate p, boolean remove) {
+		EntityEvents events = getEvents(destination);
+		if (events == null || events.list.isEmpty()) {
+			return null;
+		}
+		if (isTypePredicate(p) && events.countTags((PredicateType) p) == 0) {
+			return null;
+		}
+
+		Iterator<SimEvent> iterator = events.list.iterator();
+		while (iterator.hasNext()) {
+			SimEvent event = iterator.next();
+			if (p.match(event)) {
+				if (remove) {
+					iterator.remove();
+					events.updateTagCount(event.getTag(), -1);
+					size--;
+				}
+				return event;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Removes an event from the queue.
+	 *
+	 * @param event the event
+	 */
+	private void removeEvent(SimEvent event) {
+		EntityEvents events = getEvents(event.getDestination());
+		if (events != null && events.list.remove(event)) {
+			events.updateTagCount(event.getTag(), -1);
+			size--;
+		}
+	}
+
+	/**
+	 * Gets the events of a destination entity.
+	 *
+	 * @param destination the id of the destination entity
+	 * @return the events, or null if the entity has never had deferred events
+	 */
+	private EntityEvents getEvents(int destination) {
+		if (destination < 0 || destination >= lists.size()) {
+			return null;
+		}
+		return lists.get(destination);
+	}
+
+	/**
+	 * Gets the events of a destination entity, creating the list if necessary.
+	 *
+	 * @param destination the id of the destination entity
+	 * @return the events
+	 */
+	private EntityEvents getOrCreateEvents(int destination) {
+		if (destination < 0) {
+			throw new IllegalArgumentException("Deferred event without a destination.");
+		}
+		while (lists.size() <= destination) {
+			lists.add(null);
+		}
+		EntityEvents events = lists.get(destination);
+		if (events == null) {
+			events = new EntityEvents();
+			lists.set(destination, events);
+		}
+		return events;
+	}
+
+	/**
+	 * Checks if a predicate selects events by their tags only, i.e. if it is a
+	 * {@link PredicateType} itself; a subclass may override match() and is matched event by event.
+	 *
+	 * @param p the predicate
+	 * @return true, if the tag counts answer the predicate
+	 */
+	private static boolean isTypePredicate(Predicate p) {
+		return p != null && p.getClass() == PredicateType.class;
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,102 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The interface of the future event queue used by {@link CloudSim}. Implementations must keep the
+ * events ordered by event time and, for events with the same time, by the serial number assigned
+ * when the event was added.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see FutureQueue
+ * @see HeapFutureQueue
+ * @see CloudSim#setFutureQueueClass(Class)
+ */
+public interface EventQueue {
+
+	/**
+	 * Add a new event to the queue. Adding a new event to the queue preserves the temporal order of
+	 * the events in the queue.
+	 *
+	 * @param newEvent The event to be put in the queue.
+	 */
+	void addEvent(SimEvent newEvent);
+
+	/**
+	 * Add a new event to the head of the queue.
+	 *
+	 * @param newEvent The event to be put in the queue.
+	 */
+	void addEventFirst(SimEvent newEvent);
+
+	/**
+	 * Returns the first event of the queue without removing it.
+	 *
+	 * @return the first event, or null if the queue is empty
+	 */
+	SimEvent peek();
+
+	/**
+	 * Removes the first event of the queue and all the following events with the same event time,
+	 * and appends them to the given list in queue order.
+	 *
+	 * @param events the list the removed events are appended to
+	 * @return the number of removed events
+	 */
+	int pollFirstEvents(List<SimEvent> events);
+
+	/**
+	 * Returns an iterator to the queue. The events are returned in queue order.
+	 *
+	 * @return the iterator
+	 */
+	Iterator<SimEvent> iterator();
+
+	/**
+	 * Returns an iterator to the queue that returns the events in no particular order. It is meant
+	 * for the scans that do not depend on the order, such as removing all the matching events, and
+	 * may be cheaper than {@link #iterator()}. The iterator supports removal.
+	 *
+	 * @return the iterator
+	 */
+	Iterator<SimEvent> unorderedIterator();
+
+	/**
+	 * Returns the size of this event queue.
+	 *
+	 * @return the size
+	 */
+	int size();
+
+	/**
+	 * Removes the event from the queue.
+	 *
+	 * @param event the event
+	 * @return true, if successful
+	 */
+	boolean remove(SimEvent event);
+
+	/**
+	 * Removes all the events from the queue.
+	 *
+	 * @param events the events
+	 * @return true, if successful
+	 */
+	boolean removeAll(Collection<SimEvent> events);
+
+	/**
+	 * Clears the queue.
+	 */
+	void clear();
+
+}
@@ -10,7 +10,7 @@ package org.cloudbus.cloudsim.core;
 
 import java.util.Collection;
 import java.util.Iterator;
-import java.util.SortedSet;
+import java.util.List;
 import java.util.TreeSet;
 
 /**
@@ -22,10 +22,10 @@ import java.util.TreeSet;
  * @see Simulation
  * @see java.util.TreeSet
  */
-public class FutureQueue {
+public class FutureQueue implements EventQueue {
 
 	/** The sorted set. */
-	private final SortedSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
+	private final TreeSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
 
 	/** The serial. */
 	private long serial = 0;
@@ -36,6 +36,7 @@ public class FutureQueue {
 	 * 
 	 * @param newEvent The event to be put in the queue.
 	 */
+	@Override
 	public void addEvent(SimEvent newEvent) {
 		newEvent.setSerial(serial++);
 		sortedSet.add(newEvent);
@@ -46,25 +47,62 @@ public class FutureQueue {
 	 * 
 	 * @param newEvent The event to be put in the queue.
 	 */
+	@Override
 	public void addEventFirst(SimEvent newEvent) {
 		newEvent.setSerial(0);
 		sortedSet.add(newEvent);
 	}
 
+	@Override
+	public SimEvent peek() {
+		if (sortedSet.isEmpty()) {
+			return null;
+		}
+		return sortedSet.first();
+	}
+
+	@Override
+	public int pollFirstEvents(List<SimEvent> events) {
+		SimEvent first = sortedSet.pollFirst();
+		if (first == null) {
+			return 0;
+		}
+		events.add(first);
+		int count = 1;
+		while (!sortedSet.isEmpty() && sortedSet.first().eventTime() == first.eventTime()) {
+			events.add(sortedSet.pollFirst());
+			count++;
+		}
+		return count;
+	}
+
 	/**
 	 * Returns an iterator to the queue.
 	 * 
 	 * @return the iterator
 	 */
+	@Override
 	public Iterator<SimEvent> iterator() {
 		return sortedSet.iterator();
 	}
 
+	/**
+	 * Returns an iterator to the queue. The events are returned in queue order, which costs nothing
+	 * more than any other order.
+	 * 
+	 * @return the iterator
+	 */
+	@Override
+	public Iterator<SimEvent> unorderedIterator() {
+		return sortedSet.iterator();
+	}
+
 	/**
 	 * Returns the size of this event queue.
 	 * 
 	 * @return the size
 	 */
+	@Override
 	public int size() {
 		return sortedSet.size();
 	}
@@ -75,6 +113,7 @@ public class FutureQueue {
 	 * @param event the event
 	 * @return true, if successful
 	 */
+	@Override
 	public boolean remove(SimEvent event) {
 		return sortedSet.remove(event);
 	}
@@ -85,6 +124,7 @@ public class FutureQueue {
 	 * @param events the events
 	 * @return true, if successful
 	 */
+	@Override
 	public boolean removeAll(Collection<SimEvent> events) {
 		return sortedSet.removeAll(events);
 	}
@@ -92,6 +132,7 @@ public class FutureQueue {
 	/**
 	 * Clears the queue.
 	 */
+	@Override
 	public void clear() {
 		sortedSet.clear();
 	}
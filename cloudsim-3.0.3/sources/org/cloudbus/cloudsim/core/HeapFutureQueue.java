@@ -0,0 +1,450 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A future event queue that groups the events by event time. Each distinct event time has a bucket
+ * holding its events in serial order, and the buckets are kept in an indexed 4-ary heap backed by an
+ * array. A primitive open-addressing table maps event times to buckets.
+ * <p>
+ * Compared to {@link FutureQueue}, adding an event does not allocate a tree node: it is appended to
+ * the bucket of its event time, and buckets are recycled once they are drained. Removing all the
+ * events at the head time costs O(log T), where T is the number of distinct event times, plus the
+ * copy of the events.
+ * <p>
+ * The {@link #iterator()} works on a sorted snapshot of the queue and costs O(n + T log T), so it is
+ * unsuitable for scans done at every clock tick. The {@link #unorderedIterator()} skips the sort and
+ * costs O(n); it is the one used by {@link Simulation#cancelAll} to remove the matching events.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see EventQueue
+ * @see FutureQueue
+ */
+public class HeapFutureQueue implements EventQueue {
+
+	/** The arity of the heap. */
+	private static final int ARITY = 4;
+
+	/** The initial capacity of the heap and of the time table. */
+	private static final int INITIAL_CAPACITY = 64;
+
+	/** The heap of buckets ordered by time. */
+	private Bucket[] heap = new Bucket[INITIAL_CAPACITY];
+
+	/** The number of buckets in the heap. */
+	private int heapSize = 0;
+
+	/** The keys of the time table, i.e. the bits of the event times. */
+	private long[] tableKeys = new long[INITIAL_CAPACITY * 2];
+
+	/** The values of the time table; null marks a free slot. */
+	private Bucket[] tableValues = new Bucket[INITIAL_CAPACITY * 2];
+
+	/** The drained buckets available for reuse. */
+	private final ArrayDeque<Bucket> freeBuckets = new ArrayDeque<Bucket>();
+
+	/** The number of events in the queue. */
+	private int size = 0;
+
+	/** The serial. */
+	private long serial = 0;
+
+	/**
+	 * The events sharing the same event time.
+	 */
+	private static final class Bucket {
+
+		/** The event time. */
+		private double time;
+
+		/** The position of the bucket in the heap. */
+		private int heapIndex;
+
+		/** The events in serial order. */
+		private final ArrayDeque<SimEvent> events = new ArrayDeque<SimEvent>();
+
+	}
+
+	@Override
+	public void addEvent(SimEvent newEvent) {
+		newEvent.setSerial(serial++);
+		getOrCreateBucket(newEvent.eventTime()).events.addLast(newEvent);
+		size++;
+	}
+
+	@Override
+	public void addEventFirst(SimEvent newEvent) {
+		newEvent.setSerial(0);
+		getOrCreateBucket(newEvent.eventTime()).events.addFirst(newEvent);
+		size++;
+	}
+
+	@Override
+	public SimEvent peek() {
+		if (heapSize == 0) {
+			return null;
+		}
+		return heap[0].events.peekFirst();
+	}
+
+	@Override
+	public int pollFirstEvents(List<SimEvent> events) {
+		if (heapSize == 0) {
+			return 0;
+		}
+		Bucket bucket = heap[0];
+		int count = bucket.events.size();
+		SimEvent event;
+		while ((event = bucket.events.pollFirst()) != null) {
+			events.add(event);
+		}
+		size -= count;
+		releaseBucket(bucket);
+		return count;
+	}
+
+	/**
+	 * Returns an iterator over a sorted snapshot of the queue. The iterator supports removal.
+	 *
+	 * @return the iterator
+	 */
+	@Override
+	public Iterator<SimEvent> iterator() {
+		Bucket[] buckets = Arrays.copyOf(heap, heapSize);
+		Arrays.sort(buckets, new Comparator<Bucket>() {
+
+			@Override
+			public int compare(Bucket a, Bucket b) {
+				return Double.compare(a.time, b.time);
+			}
+		});
+		List<SimEvent> snapshot = new ArrayList<SimEvent>(size);
+		for (Bucket bucket : buckets) {
+			snapshot.addAll(bucket.events);
+		}
+		return new SnapshotIterator(snapshot);
+	}
+
+	/**
+	 * Returns an iterator over an unsorted snapshot of the queue. The iterator supports removal.
+	 *
+	 * @return the iterator
+	 */
+	@Override
+	public Iterator<SimEvent> unorderedIterator() {
+		List<SimEvent> snapshot = new ArrayList<SimEvent>(size);
+		for (int i = 0; i < heapSize; i++) {
+			snapshot.addAll(heap[i].events);
+		}
+		return new SnapshotIterator(snapshot);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean remove(SimEvent event) {
+		Bucket bucket = getBucket(event.eventTime());
+		if (bucket == null || !bucket.events.remove(event)) {
+			return false;
+		}
+		size--;
+		if (bucket.events.isEmpty()) {
+			releaseBucket(bucket);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean removeAll(Collection<SimEvent> events) {
+		boolean removed = false;
+		for (SimEvent event : events) {
+			removed |= remove(event);
+		}
+		return removed;
+	}
+
+	@Override
+	public void clear() {
+		while (heapSize > 0) {
+			Bucket bucket = heap[0];
+			bucket.events.clear();
+			releaseBucket(bucket);
+		}
+		size = 0;
+	}
+
+	/**
+	 * Gets the bucket of the given event time, creating it if necessary.
+	 *
+	 * @param time the event time
+	 * @return the bucket
+	 */
+	private Bucket getOrCreateBucket(double time) {
+		Bucket bucket = getBucket(time);
+		if (bucket != null) {
+			return bucket;
+		}
+
+		bucket = freeBuckets.pollFirst();
+		if (bucket == null) {
+			bucket = new Bucket();
+		}
+		bucket.time = time;
+		tablePut(bucket);
+
+		if (heapSize == heap.length) {
+			heap = Arrays.copyOf(heap, heapSize * 2);
+		}
+		bucket.heapIndex = heapSize;
+		heap[heapSize++] = bucket;
+		siftUp(bucket.heapIndex);
+		return bucket;
+	}
+
+	/**
+	 * Gets the bucket of the given event time.
+	 *
+	 * @param time the event time
+	 * @return the bucket, or null if there is no event at that time
+	 */
+	private Bucket getBucket(double time) {
+		long key = timeKey(time);
+		int mask = tableKeys.length - 1;
+		for (int i = hash(key) & mask; tableValues[i] != null; i = (i + 1) & mask) {
+			if (tableKeys[i] == key) {
+				return tableValues[i];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Removes an empty bucket from the heap and the time table and makes it available for reuse.
+	 *
+	 * @param bucket the bucket
+	 */
+	private void releaseBucket(Bucket bucket) {
+		bucket.events.clear();
+		tableRemove(bucket.time);
+
+		int index = bucket.heapIndex;
+		Bucket last = heap[--heapSize];
+		heap[heapSize] = null;
+		if (index < heapSize) {
+			heap[index] = last;
+			last.heapIndex = index;
+			siftDown(index);
+			siftUp(last.heapIndex);
+		}
+		freeBuckets.addFirst(bucket);
+	}
+
+	/**
+	 * Moves the bucket at the given position up the heap.
+	 *
+	 * @param index the position
+	 */
+	private void siftUp(int index) {
+		Bucket bucket = heap[index];
+		while (index > 0) {
+			int parent = (index - 1) / ARITY;
+			if (heap[parent].time <= bucket.time) {
+				break;
+			}
+			heap[index] = heap[parent];
+			heap[index].heapIndex = index;
+			index = parent;
+		}
+		heap[index] = bucket;
+		bucket.heapIndex = index;
+	}
+
+	/**
+	 * Moves the bucket at the given position down the heap.
+	 *
+	 * @param index the position
+	 */
+	private void siftDown(int index) {
+		Bucket bucket = heap[index];
+		while (true) {
+			int firstChild = index * ARITY + 1;
+			if (firstChild >= heapSize) {
+				break;
+			}
+			int lastChild = Math.min(firstChild + ARITY, heapSize);
+			int minChild = firstChild;
+			for (int child = firstChild + 1; child < lastChild; child++) {
+				if (heap[child].time < heap[minChild].time) {
+					minChild = child;
+				}
+			}
+			if (heap[minChild].time >= bucket.time) {
+				break;
+			}
+			heap[index] = heap[minChild];
+			heap[index].heapIndex = index;
+			index = minChild;
+		}
+		heap[index] = bucket;
+		bucket.heapIndex = index;
+	}
+
+	/**
+	 * Adds a bucket to the time table.
+	 *
+	 * @param bucket the bucket
+	 */
+	private void tablePut(Bucket bucket) {
+		if ((heapSize + 1) * 2 > tableKeys.length) {
+			resizeTable(tableKeys.length * 2);
+		}
+		long key = timeKey(bucket.time);
+		int mask = tableKeys.length - 1;
+		int i = hash(key) & mask;
+		while (tableValues[i] != null) {
+			i = (i + 1) & mask;
+		}
+		tableKeys[i] = key;
+		tableValues[i] = bucket;
+	}
+
+	/**
+	 * Removes an event time from the time table, shifting back the following entries of the probe
+	 * sequence.
+	 *
+	 * @param time the event time
+	 */
+	private void tableRemove(double time) {
+		long key = timeKey(time);
+		int mask = tableKeys.length - 1;
+		int i = hash(key) & mask;
+		while (tableKeys[i] != key || tableValues[i] == null) {
+			if (tableValues[i] == null) {
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+
+		int free = i;
+		for (i = (i + 1) & mask; tableValues[i] != null; i = (i + 1) & mask) {
+			int home = hash(tableKeys[i]) & mask;
+			if (((i - home) & mask) >= ((i - free) & mask)) {
+				tableKeys[free] = tableKeys[i];
+				tableValues[free] = tableValues[i];
+				free = i;
+			}
+		}
+		tableValues[free] = null;
+	}
+
+	/**
+	 * Rebuilds the time table with a new capacity.
+	 *
+	 * @param capacity the new capacity, a power of two
+	 */
+	private void resizeTable(int capacity) {
+		long[] oldKeys = tableKeys;
+		Bucket[] oldValues = tableValues;
+		tableKeys = new long[capacity];
+		tableValues = new Bucket[capacity];
+		int mask = capacity - 1;
+		for (int j = 0; j < oldValues.length; j++) {
+			if (oldValues[j] != null) {
+				int i = hash(oldKeys[j]) & mask;
+				while (tableValues[i] != null) {
+					i = (i + 1) & mask;
+				}
+				tableKeys[i] = oldKeys[j];
+				tableValues[i] = oldValues[j];
+			}
+		}
+	}
+
+	/**
+	 * Gets the table key of an event time. Adding zero maps -0.0 to 0.0, so that times that are equal
+	 * according to == share a bucket.
+	 *
+	 * @param time the event time
+	 * @return the key
+	 */
+	private static long timeKey(double time) {
+		return Double.doubleToLongBits(time + 0.0);
+	}
+
+	/**
+	 * Spreads the bits of a key.
+	 *
+	 * @param key the key
+	 * @return the hash
+	 */
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * An iterator over a snapshot of the queue that removes the events from the queue.
+	 */
+	private final class SnapshotIterator implements Iterator<SimEvent> {
+
+		/** The snapshot. */
+		private final List<SimEvent> snapshot;
+
+		/** The position of the next event. */
+		private int next = 0;
+
+		/** The last returned event. */
+		private SimEvent last;
+
+		/**
+		 * Instantiates a new snapshot iterator.
+		 *
+		 * @param snapshot the snapshot
+		 */
+		private SnapshotIterator(List<SimEvent> snapshot) {
+			this.snapshot = snapshot;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next < snapshot.size();
+		}
+
+		@Override
+		public SimEvent next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			last = snapshot.get(next++);
+			return last;
+		}
+
+		@Override
+		public void remove() {
+			if (last == null) {
+				throw new IllegalStateException();
+			}
+			HeapFutureQueue.this.remove(last);
+			last = null;
+		}
+	}
+
+}
@@ -42,6 +42,9 @@ public abstract class SimEntity implements Cloneable {
 	/** The entity's current state. */
 	private int state;
 
+	/** The simulation the entity belongs to. */
+	private final Simulation simulation;
+
 	/**
 	 * Creates a new entity.
 	 * 
@@ -54,7 +57,8 @@ public abstract class SimEntity implements Cloneable {
 		this.name = name;
 		id = -1;
 		state = RUNNABLE;
-		CloudSim.addEntity(this);
+		simulation = CloudSim.getSimulation();
+		simulation.addEntity(this);
 	}
 
 	/**
@@ -87,10 +91,10 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void schedule(int dest, double delay, int tag, Object data) {
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return;
 		}
-		CloudSim.send(id, dest, delay, tag, data);
+		simulation.send(id, dest, delay, tag, data);
 	}
 
 	/**
@@ -115,7 +119,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void schedule(String dest, double delay, int tag, Object data) {
-		schedule(CloudSim.getEntityId(dest), delay, tag, data);
+		schedule(simulation.getEntityId(dest), delay, tag, data);
 	}
 
 	/**
@@ -162,7 +166,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void scheduleNow(String dest, int tag, Object data) {
-		schedule(CloudSim.getEntityId(dest), 0, tag, data);
+		schedule(simulation.getEntityId(dest), 0, tag, data);
 	}
 
 	/**
@@ -186,10 +190,10 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void scheduleFirst(int dest, double delay, int tag, Object data) {
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return;
 		}
-		CloudSim.sendFirst(id, dest, delay, tag, data);
+		simulation.sendFirst(id, dest, delay, tag, data);
 	}
 
 	/**
@@ -214,7 +218,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void scheduleFirst(String dest, double delay, int tag, Object data) {
-		scheduleFirst(CloudSim.getEntityId(dest), delay, tag, data);
+		scheduleFirst(simulation.getEntityId(dest), delay, tag, data);
 	}
 
 	/**
@@ -261,7 +265,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @param data The data to be sent with the event.
 	 */
 	public void scheduleFirstNow(String dest, int tag, Object data) {
-		scheduleFirst(CloudSim.getEntityId(dest), 0, tag, data);
+		scheduleFirst(simulation.getEntityId(dest), 0, tag, data);
 	}
 
 	/**
@@ -284,10 +288,10 @@ public abstract class SimEntity implements Cloneable {
 		if (delay < 0) {
 			throw new IllegalArgumentException("Negative delay supplied.");
 		}
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return;
 		}
-		CloudSim.pause(id, delay);
+		simulation.pause(id, delay);
 	}
 
 	/**
@@ -297,7 +301,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @return The count of matching events
 	 */
 	public int numEventsWaiting(Predicate p) {
-		return CloudSim.waiting(id, p);
+		return simulation.waiting(id, p);
 	}
 
 	/**
@@ -306,7 +310,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @return The count of events
 	 */
 	public int numEventsWaiting() {
-		return CloudSim.waiting(id, CloudSim.SIM_ANY);
+		return simulation.waiting(id, CloudSim.SIM_ANY);
 	}
 
 	/**
@@ -316,11 +320,11 @@ public abstract class SimEntity implements Cloneable {
 	 * @return the simulation event
 	 */
 	public SimEvent selectEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return null;
 		}
 
-		return CloudSim.select(id, p);
+		return simulation.select(id, p);
 	}
 
 	/**
@@ -330,11 +334,11 @@ public abstract class SimEntity implements Cloneable {
 	 * @return The number of events cancelled (0 or 1)
 	 */
 	public SimEvent cancelEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return null;
 		}
 
-		return CloudSim.cancel(id, p);
+		return simulation.cancel(id, p);
 	}
 
 	/**
@@ -345,7 +349,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @return the simulation event
 	 */
 	public SimEvent getNextEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return null;
 		}
 		if (numEventsWaiting(p) > 0) {
@@ -361,11 +365,11 @@ public abstract class SimEntity implements Cloneable {
 	 * @param p The predicate to match
 	 */
 	public void waitForEvent(Predicate p) {
-		if (!CloudSim.running()) {
+		if (!simulation.running()) {
 			return;
 		}
 
-		CloudSim.wait(id, p);
+		simulation.wait(id, p);
 		state = WAITING;
 	}
 
@@ -443,6 +447,15 @@ public abstract class SimEntity implements Cloneable {
 
 	// --------------- PACKAGE LEVEL METHODS ------------------
 
+	/**
+	 * Gets the simulation the entity belongs to, i.e. the one bound to the thread that created it.
+	 * 
+	 * @return the simulation
+	 */
+	public Simulation getSimulation() {
+		return simulation;
+	}
+
 	/**
 	 * Gets the state.
 	 * 
@@ -481,6 +494,9 @@ public abstract class SimEntity implements Cloneable {
 	 */
 	protected void setState(int state) {
 		this.state = state;
+		if (state == RUNNABLE) {
+			simulation.setEntityPending(id);
+		}
 	}
 
 	/**
@@ -575,7 +591,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @post $none
 	 */
 	protected void send(String entityName, double delay, int cloudSimTag, Object data) {
-		send(CloudSim.getEntityId(entityName), delay, cloudSimTag, data);
+		send(simulation.getEntityId(entityName), delay, cloudSimTag, data);
 	}
 
 	/**
@@ -643,7 +659,7 @@ public abstract class SimEntity implements Cloneable {
 	 * @post $none
 	 */
 	protected void sendNow(String entityName, int cloudSimTag, Object data) {
-		send(CloudSim.getEntityId(entityName), 0, cloudSimTag, data);
+		send(simulation.getEntityId(entityName), 0, cloudSimTag, data);
 	}
 
 	/**
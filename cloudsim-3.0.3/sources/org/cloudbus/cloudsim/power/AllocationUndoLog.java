@@ -0,0 +1,196 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.power;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Vm;
+
+/**
+ * A log of the VM creations and destructions made on power hosts, which can be undone in reverse
+ * order. A VM allocation policy attaches the log to its hosts with
+ * {@link PowerHost#setAllocationUndoLog(AllocationUndoLog)} before making speculative changes, and
+ * calls {@link #undo()} to roll them back, in time proportional to the number of changes.
+ * <p>
+ * Only {@link PowerHost#vmCreate(Vm)} and {@link PowerHost#vmDestroy(Vm)} can be undone. The other
+ * operations that change the VMs of a host fail while a log is attached. A destruction that
+ * immediately follows the creation of the same VM on the same host cancels it, so trial creations
+ * do not make the log grow.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see PowerVmAllocationPolicyMigrationAbstract#saveAllocation()
+ * @see PowerVmAllocationPolicyMigrationAbstract#restoreAllocation()
+ */
+public class AllocationUndoLog {
+
+	/** The recorded changes. */
+	private final List<Change> changes = new ArrayList<Change>();
+
+	/** The host of each VM before its first recorded change. */
+	private final Map<Vm, Host> previousHosts = new HashMap<Vm, Host>();
+
+	/** Whether the changes are being undone. */
+	private boolean undoing = false;
+
+	/**
+	 * A VM creation or destruction.
+	 */
+	private static final class Change {
+
+		/** The host. */
+		private final PowerHost host;
+
+		/** The vm. */
+		private final Vm vm;
+
+		/** Whether the vm has been created, or destroyed otherwise. */
+		private final boolean created;
+
+		/** The position of a destroyed vm in the vm list of the host. */
+		private final int position;
+
+		/**
+		 * Instantiates a new change.
+		 *
+		 * @param host the host
+		 * @param vm the vm
+		 * @param created whether the vm has been created
+		 * @param position the position of a destroyed vm
+		 */
+		private Change(PowerHost host, Vm vm, boolean created, int position) {
+			this.host = host;
+			this.vm = vm;
+			this.created = created;
+			this.position = position;
+		}
+
+	}
+
+	/**
+	 * Records the creation of a VM.
+	 *
+	 * @param host the host
+	 * @param vm the vm
+	 * @param previousHost the host of the vm before the creation
+	 */
+	void recordCreate(PowerHost host, Vm vm, Host previousHost) {
+		if (!undoing) {
+			recordPreviousHost(vm, previousHost);
+			changes.add(new Change(host, vm, true, -1));
+		}
+	}
+
+	/**
+	 * Records the destruction of a VM.
+	 *
+	 * @param host the host
+	 * @param vm the vm
+	 * @param position the position of the vm in the vm list of the host, or -1 if it was not there
+	 * @param previousHost the host of the vm before the destruction
+	 */
+	void recordDestroy(PowerHost host, Vm vm, int position, Host previousHost) {
+		if (undoing) {
+			return;
+		}
+		recordPreviousHost(vm, previousHost);
+		if (!changes.isEmpty()) {
+			Change last = changes.get(changes.size() - 1);
+			if (last.created && last.host == host && last.vm == vm) {
+				// the vm list and the resources of the host are back to what they were before the
+				// creation
+				changes.remove(changes.size() - 1);
+				return;
+			}
+		}
+		if (position >= 0) {
+			changes.add(new Change(host, vm, false, position));
+		}
+	}
+
+	/**
+	 * Records the host of a VM before its first change, which is restored by {@link #undo()}.
+	 *
+	 * @param vm the vm
+	 * @param previousHost the host of the vm before the change
+	 */
+	private void recordPreviousHost(Vm vm, Host previousHost) {
+		if (!previousHosts.containsKey(vm)) {
+			previousHosts.put(vm, previousHost);
+		}
+	}
+
+	/**
+	 * Undoes the recorded changes in reverse order and clears the log. Destroyed VMs are created
+	 * again at their previous position in the vm list of the host, and every changed VM gets back
+	 * the host it had before its first change.
+	 *
+	 * @throws IllegalStateException if a destroyed vm cannot be created again
+	 */
+	public void undo() {
+		undoing = true;
+		try {
+			for (int i = changes.size() - 1; i >= 0; i--) {
+				Change change = changes.get(i);
+				if (change.created) {
+					change.host.vmDestroy(change.vm);
+				} else {
+					if (!change.host.vmCreate(change.vm)) {
+						throw new IllegalStateException("Couldn't restore VM #" + change.vm.getId()
+								+ " on host #" + change.host.getId());
+					}
+					List<Vm> vmList = change.host.getVmList();
+					vmList.add(change.position, vmList.remove(vmList.size() - 1));
+				}
+			}
+			for (Map.Entry<Vm, Host> entry : previousHosts.entrySet()) {
+				entry.getKey().setHost(entry.getValue());
+			}
+		} finally {
+			undoing = false;
+			changes.clear();
+			previousHosts.clear();
+		}
+	}
+
+	/**
+	 * Gets the vm list a host had before the recorded changes, without undoing them.
+	 *
+	 * @param host the host
+	 * @return a copy of the vm list of the host before the changes
+	 */
+	List<Vm> getVmListBeforeChanges(PowerHost host) {
+		List<Vm> vmList = new ArrayList<Vm>(host.getVmList());
+		for (int i = changes.size() - 1; i >= 0; i--) {
+			Change change = changes.get(i);
+			if (change.host != host) {
+				continue;
+			}
+			if (change.created) {
+				vmList.remove(change.vm);
+			} else {
+				vmList.add(change.position, change.vm);
+			}
+		}
+		return vmList;
+	}
+
+	/**
+	 * Gets the number of recorded changes.
+	 *
+	 * @return the number of changes
+	 */
+	public int size() {
+		return changes.size();
+	}
+
+}
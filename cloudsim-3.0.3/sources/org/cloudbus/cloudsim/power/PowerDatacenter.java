@@ -8,18 +8,26 @@
 
 package org.cloudbus.cloudsim.power;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.cloudbus.cloudsim.Datacenter;
 import org.cloudbus.cloudsim.DatacenterCharacteristics;
 import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.MigrationPlan;
 import org.cloudbus.cloudsim.Storage;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.VmAllocationPolicy;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.core.Simulation;
 import org.cloudbus.cloudsim.core.predicates.PredicateType;
 
 /**
@@ -50,6 +58,12 @@ public class PowerDatacenter extends Datacenter {
 	/** The migration count. */
 	private int migrationCount;
 
+	/** The number of threads updating the hosts, 1 if the hosts are updated sequentially. */
+	private int hostProcessingThreads = 1;
+
+	/** The executor of the parallel host updates, created when first needed. */
+	private ExecutorService hostProcessingExecutor;
+
 	/**
 	 * Instantiates a new datacenter.
 	 * 
@@ -94,33 +108,32 @@ public class PowerDatacenter extends Datacenter {
 
 		// if some time passed since last processing
 		if (currentTime > getLastProcessTime()) {
-			System.out.print(currentTime + " ");
-
 			double minTime = updateCloudetProcessingWithoutSchedulingFutureEventsForce();
 
 			if (!isDisableMigrations()) {
-				List<Map<String, Object>> migrationMap = getVmAllocationPolicy().optimizeAllocation(
-						getVmList());
+				MigrationPlan migrationPlan = getVmAllocationPolicy().optimizeAllocationPlan(getVmList());
 
-				if (migrationMap != null) {
-					for (Map<String, Object> migrate : migrationMap) {
-						Vm vm = (Vm) migrate.get("vm");
-						PowerHost targetHost = (PowerHost) migrate.get("host");
+				if (migrationPlan != null) {
+					for (int i = 0; i < migrationPlan.size(); i++) {
+						Vm vm = migrationPlan.getVm(i);
+						PowerHost targetHost = (PowerHost) migrationPlan.getHost(i);
 						PowerHost oldHost = (PowerHost) vm.getHost();
 
-						if (oldHost == null) {
-							Log.formatLine(
-									"%.2f: Migration of VM #%d to Host #%d is started",
-									currentTime,
-									vm.getId(),
-									targetHost.getId());
-						} else {
-							Log.formatLine(
-									"%.2f: Migration of VM #%d from Host #%d to Host #%d is started",
-									currentTime,
-									vm.getId(),
-									oldHost.getId(),
-									targetHost.getId());
+						if (Log.isEnabled(Log.Level.INFO)) {
+							if (oldHost == null) {
+								Log.formatLine(
+										"%.2f: Migration of VM #%d to Host #%d is started",
+										currentTime,
+										vm.getId(),
+										targetHost.getId());
+							} else {
+								Log.formatLine(
+										"%.2f: Migration of VM #%d from Host #%d to Host #%d is started",
+										currentTime,
+										vm.getId(),
+										oldHost.getId(),
+										targetHost.getId());
+							}
 						}
 
 						targetHost.addMigratingInVm(vm);
@@ -134,7 +147,7 @@ public class PowerDatacenter extends Datacenter {
 								getId(),
 								vm.getRam() / ((double) targetHost.getBw() / (2 * 8000)),
 								CloudSimTags.VM_MIGRATE,
-								migrate);
+								obtainVmMigration(vm, targetHost));
 					}
 				}
 			}
@@ -171,59 +184,104 @@ public class PowerDatacenter extends Datacenter {
 		double minTime = Double.MAX_VALUE;
 		double timeDiff = currentTime - getLastProcessTime();
 		double timeFrameDatacenterEnergy = 0.0;
+		boolean debug = Log.isEnabled(Log.Level.DEBUG);
 
-		Log.printLine("\n\n--------------------------------------------------------------\n\n");
-		Log.formatLine("New resource usage for the time frame starting at %.2f:", currentTime);
+		if (debug) {
+			Log.printLine(
+					Log.Level.DEBUG,
+					"\n\n--------------------------------------------------------------\n\n");
+			Log.formatLine(
+					Log.Level.DEBUG,
+					"New resource usage for the time frame starting at %.2f:",
+					currentTime);
+		}
 
-		for (PowerHost host : this.<PowerHost> getHostList()) {
-			Log.printLine();
+		List<PowerHost> hostList = this.<PowerHost> getHostList();
+		double[] hostTimes = null;
+		double[] hostEnergies = null;
+		if (isParallelHostProcessing()) {
+			hostTimes = new double[hostList.size()];
+			hostEnergies = new double[hostList.size()];
+			updateHostsProcessingInParallel(hostList, currentTime, timeDiff, hostTimes, hostEnergies);
+		}
 
-			double time = host.updateVmsProcessing(currentTime); // inform VMs to update processing
+		for (int i = 0; i < hostList.size(); i++) {
+			PowerHost host = hostList.get(i);
+			if (debug) {
+				Log.printLine(Log.Level.DEBUG);
+			}
+
+			double time;
+			if (hostTimes == null) {
+				time = host.updateVmsProcessing(currentTime); // inform VMs to update processing
+			} else {
+				time = hostTimes[i];
+			}
 			if (time < minTime) {
 				minTime = time;
 			}
 
-			Log.formatLine(
-					"%.2f: [Host #%d] utilization is %.2f%%",
-					currentTime,
-					host.getId(),
-					host.getUtilizationOfCpu() * 100);
+			if (debug) {
+				Log.formatLine(
+						Log.Level.DEBUG,
+						"%.2f: [Host #%d] utilization is %.2f%%",
+						currentTime,
+						host.getId(),
+						host.getUtilizationOfCpu() * 100);
+			}
 		}
 
 		if (timeDiff > 0) {
-			Log.formatLine(
-					"\nEnergy consumption for the last time frame from %.2f to %.2f:",
-					getLastProcessTime(),
-					currentTime);
+			if (debug) {
+				Log.formatLine(
+						Log.Level.DEBUG,
+						"\nEnergy consumption for the last time frame from %.2f to %.2f:",
+						getLastProcessTime(),
+						currentTime);
+			}
 
-			for (PowerHost host : this.<PowerHost> getHostList()) {
+			// the energy is summed in the order of the host list, so that both modes give the same result
+			for (int i = 0; i < hostList.size(); i++) {
+				PowerHost host = hostList.get(i);
 				double previousUtilizationOfCpu = host.getPreviousUtilizationOfCpu();
 				double utilizationOfCpu = host.getUtilizationOfCpu();
-				double timeFrameHostEnergy = host.getEnergyLinearInterpolation(
-						previousUtilizationOfCpu,
-						utilizationOfCpu,
-						timeDiff);
+				double timeFrameHostEnergy;
+				if (hostEnergies == null) {
+					timeFrameHostEnergy = host.getEnergyLinearInterpolation(
+							previousUtilizationOfCpu,
+							utilizationOfCpu,
+							timeDiff);
+				} else {
+					timeFrameHostEnergy = hostEnergies[i];
+				}
 				timeFrameDatacenterEnergy += timeFrameHostEnergy;
 
-				Log.printLine();
-				Log.formatLine(
-						"%.2f: [Host #%d] utilization at %.2f was %.2f%%, now is %.2f%%",
-						currentTime,
-						host.getId(),
-						getLastProcessTime(),
-						previousUtilizationOfCpu * 100,
-						utilizationOfCpu * 100);
+				if (debug) {
+					Log.printLine(Log.Level.DEBUG);
+					Log.formatLine(
+							Log.Level.DEBUG,
+							"%.2f: [Host #%d] utilization at %.2f was %.2f%%, now is %.2f%%",
+							currentTime,
+							host.getId(),
+							getLastProcessTime(),
+							previousUtilizationOfCpu * 100,
+							utilizationOfCpu * 100);
+					Log.formatLine(
+							Log.Level.DEBUG,
+							"%.2f: [Host #%d] energy is %.2f W*sec",
+							currentTime,
+							host.getId(),
+							timeFrameHostEnergy);
+				}
+			}
+
+			if (debug) {
 				Log.formatLine(
-						"%.2f: [Host #%d] energy is %.2f W*sec",
+						Log.Level.DEBUG,
+						"\n%.2f: Data center's energy is %.2f W*sec\n",
 						currentTime,
-						host.getId(),
-						timeFrameHostEnergy);
+						timeFrameDatacenterEnergy);
 			}
-
-			Log.formatLine(
-					"\n%.2f: Data center's energy is %.2f W*sec\n",
-					currentTime,
-					timeFrameDatacenterEnergy);
 		}
 
 		setPower(getPower() + timeFrameDatacenterEnergy);
@@ -239,12 +297,174 @@ public class PowerDatacenter extends Datacenter {
 			}
 		}
 
-		Log.printLine();
+		if (debug) {
+			Log.printLine(Log.Level.DEBUG);
+		}
 
 		setLastProcessTime(currentTime);
 		return minTime;
 	}
 
+	/**
+	 * Updates the processing of the hosts in parallel and computes their energy for the time frame.
+	 * The hosts that have a VM in migration share that VM with another host, so they are updated
+	 * sequentially, in the order of the host list, after the other hosts.
+	 * 
+	 * @param hostList the host list
+	 * @param currentTime the current time
+	 * @param timeDiff the length of the time frame
+	 * @param hostTimes the array receiving the next event time of each host
+	 * @param hostEnergies the array receiving the energy of each host, if timeDiff is positive
+	 */
+	private void updateHostsProcessingInParallel(
+			final List<PowerHost> hostList,
+			final double currentTime,
+			final double timeDiff,
+			final double[] hostTimes,
+			final double[] hostEnergies) {
+		final List<Integer> independentHosts = new ArrayList<Integer>();
+		List<Integer> migrationHosts = new ArrayList<Integer>();
+		for (int i = 0; i < hostList.size(); i++) {
+			if (hasVmInMigration(hostList.get(i))) {
+				migrationHosts.add(i);
+			} else {
+				independentHosts.add(i);
+			}
+		}
+
+		final Simulation simulation = getSimulation();
+		int tasks = Math.min(getHostProcessingThreads(), independentHosts.size());
+		List<Callable<Void>> callables = new ArrayList<Callable<Void>>(tasks);
+		for (int t = 0; t < tasks; t++) {
+			final int from = t * independentHosts.size() / tasks;
+			final int to = (t + 1) * independentHosts.size() / tasks;
+			callables.add(new Callable<Void>() {
+
+				@Override
+				public Void call() {
+					// the hosts read the clock of the simulation of the datacenter
+					boolean bind = CloudSim.getSimulation() != simulation;
+					Simulation previous = bind ? CloudSim.setSimulation(simulation) : null;
+					try {
+						for (int j = from; j < to; j++) {
+							int i = independentHosts.get(j);
+							updateHostProcessing(
+									hostList.get(i),
+									currentTime,
+									timeDiff,
+									hostTimes,
+									hostEnergies,
+									i);
+						}
+					} finally {
+						if (bind) {
+							CloudSim.setSimulation(previous);
+						}
+					}
+					return null;
+				}
+			});
+		}
+
+		try {
+			for (Future<Void> future : getHostProcessingExecutor().invokeAll(callables)) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while updating the hosts", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		}
+
+		for (int i : migrationHosts) {
+			updateHostProcessing(hostList.get(i), currentTime, timeDiff, hostTimes, hostEnergies, i);
+		}
+	}
+
+	/**
+	 * Updates the processing of a host and computes its energy for the time frame.
+	 * 
+	 * @param host the host
+	 * @param currentTime the current time
+	 * @param timeDiff the length of the time frame
+	 * @param hostTimes the array receiving the next event time of each host
+	 * @param hostEnergies the array receiving the energy of each host, if timeDiff is positive
+	 * @param i the position of the host in the host list
+	 */
+	private static void updateHostProcessing(
+			PowerHost host,
+			double currentTime,
+			double timeDiff,
+			double[] hostTimes,
+			double[] hostEnergies,
+			int i) {
+		hostTimes[i] = host.updateVmsProcessing(currentTime);
+		if (timeDiff > 0) {
+			hostEnergies[i] = host.getEnergyLinearInterpolation(
+					host.getPreviousUtilizationOfCpu(),
+					host.getUtilizationOfCpu(),
+					timeDiff);
+		}
+	}
+
+	/**
+	 * Checks if a host has a VM in migration.
+	 * 
+	 * @param host the host
+	 * @return true, if a VM of the host is in migration
+	 */
+	private static boolean hasVmInMigration(PowerHost host) {
+		for (Vm vm : host.getVmList()) {
+			if (vm.isInMigration()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the executor of the parallel host updates, creating it if necessary. Its threads are
+	 * daemon threads, so that they do not keep the JVM alive after the simulation.
+	 * 
+	 * @return the executor
+	 */
+	private ExecutorService getHostProcessingExecutor() {
+		if (hostProcessingExecutor == null) {
+			hostProcessingExecutor = Executors.newFixedThreadPool(
+					getHostProcessingThreads(),
+					new ThreadFactory() {
+
+						@Override
+						public Thread newThread(Runnable runnable) {
+							Thread thread = new Thread(runnable, getName() + "-host-processing");
+							thread.setDaemon(true);
+							return thread;
+						}
+					});
+		}
+		return hostProcessingExecutor;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.Datacenter#shutdownEntity()
+	 */
+	@Override
+	public void shutdownEntity() {
+		super.shutdownEntity();
+		if (hostProcessingExecutor != null) {
+			hostProcessingExecutor.shutdown();
+			hostProcessingExecutor = null;
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.cloudbus.cloudsim.Datacenter#processVmMigrate(org.cloudbus.cloudsim.core.SimEvent,
@@ -365,4 +585,43 @@ public class PowerDatacenter extends Datacenter {
 		setMigrationCount(getMigrationCount() + 1);
 	}
 
+	/**
+	 * Gets the number of threads updating the hosts.
+	 * 
+	 * @return the number of threads, 1 if the hosts are updated sequentially
+	 */
+	public int getHostProcessingThreads() {
+		return hostProcessingThreads;
+	}
+
+	/**
+	 * Sets the number of threads updating the hosts at each scheduling interval. With more than one
+	 * thread, the processing of the VMs of different hosts is updated concurrently, so the VMs must
+	 * not share cloudlet schedulers or utilization models. The next event time and the energy are
+	 * reduced in the order of the host list, so the results are the same as with sequential updates.
+	 * The hosts are only updated in parallel while the log is disabled, since the log of the updates
+	 * would be interleaved otherwise.
+	 * 
+	 * @param hostProcessingThreads the number of threads, 1 to update the hosts sequentially
+	 */
+	public void setHostProcessingThreads(int hostProcessingThreads) {
+		if (hostProcessingThreads < 1) {
+			throw new IllegalArgumentException("The number of host processing threads must be positive");
+		}
+		if (hostProcessingExecutor != null) {
+			hostProcessingExecutor.shutdown();
+			hostProcessingExecutor = null;
+		}
+		this.hostProcessingThreads = hostProcessingThreads;
+	}
+
+	/**
+	 * Checks if the hosts are updated in parallel.
+	 * 
+	 * @return true, if more than one thread updates the hosts and the log is disabled
+	 */
+	protected boolean isParallelHostProcessing() {
+		return getHostProcessingThreads() > 1 && Log.isDisabled();
+	}
+
 }
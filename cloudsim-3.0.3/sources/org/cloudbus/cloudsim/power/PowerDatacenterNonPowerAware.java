@@ -9,10 +9,10 @@
 package org.cloudbus.cloudsim.power;
 
 import java.util.List;
-import java.util.Map;
 
 import org.cloudbus.cloudsim.DatacenterCharacteristics;
 import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.MigrationPlan;
 import org.cloudbus.cloudsim.Storage;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.VmAllocationPolicy;
@@ -79,11 +79,16 @@ public class PowerDatacenterNonPowerAware extends PowerDatacenter {
 		if (currentTime > getLastProcessTime()) {
 			double timeDiff = currentTime - getLastProcessTime();
 			double minTime = Double.MAX_VALUE;
+			boolean debug = Log.isEnabled(Log.Level.DEBUG);
 
-			Log.printLine("\n");
+			if (debug) {
+				Log.printLine(Log.Level.DEBUG, "\n");
+			}
 
 			for (PowerHost host : this.<PowerHost> getHostList()) {
-				Log.formatLine("%.2f: Host #%d", CloudSim.clock(), host.getId());
+				if (debug) {
+					Log.formatLine(Log.Level.DEBUG, "%.2f: Host #%d", CloudSim.clock(), host.getId());
+				}
 
 				double hostPower = 0.0;
 
@@ -94,24 +99,38 @@ public class PowerDatacenterNonPowerAware extends PowerDatacenter {
 					e.printStackTrace();
 				}
 
+				if (debug) {
+					Log.formatLine(
+							Log.Level.DEBUG,
+							"%.2f: Host #%d utilization is %.2f%%",
+							CloudSim.clock(),
+							host.getId(),
+							host.getUtilizationOfCpu() * 100);
+					Log.formatLine(
+							Log.Level.DEBUG,
+							"%.2f: Host #%d energy is %.2f W*sec",
+							CloudSim.clock(),
+							host.getId(),
+							hostPower);
+				}
+			}
+
+			if (debug) {
 				Log.formatLine(
-						"%.2f: Host #%d utilization is %.2f%%",
-						CloudSim.clock(),
-						host.getId(),
-						host.getUtilizationOfCpu() * 100);
-				Log.formatLine(
-						"%.2f: Host #%d energy is %.2f W*sec",
+						Log.Level.DEBUG,
+						"\n%.2f: Consumed energy is %.2f W*sec\n",
 						CloudSim.clock(),
-						host.getId(),
-						hostPower);
+						timeframePower);
 			}
 
-			Log.formatLine("\n%.2f: Consumed energy is %.2f W*sec\n", CloudSim.clock(), timeframePower);
-
-			Log.printLine("\n\n--------------------------------------------------------------\n\n");
+			Log.printLine(
+					Log.Level.DEBUG,
+					"\n\n--------------------------------------------------------------\n\n");
 
 			for (PowerHost host : this.<PowerHost> getHostList()) {
-				Log.formatLine("\n%.2f: Host #%d", CloudSim.clock(), host.getId());
+				if (debug) {
+					Log.formatLine(Log.Level.DEBUG, "\n%.2f: Host #%d", CloudSim.clock(), host.getId());
+				}
 
 				double time = host.updateVmsProcessing(currentTime); // inform VMs to update
 																		// processing
@@ -133,31 +152,34 @@ public class PowerDatacenterNonPowerAware extends PowerDatacenter {
 				}
 			}
 
-			Log.printLine();
+			if (debug) {
+				Log.printLine(Log.Level.DEBUG);
+			}
 
 			if (!isDisableMigrations()) {
-				List<Map<String, Object>> migrationMap = getVmAllocationPolicy().optimizeAllocation(
-						getVmList());
+				MigrationPlan migrationPlan = getVmAllocationPolicy().optimizeAllocationPlan(getVmList());
 
-				if (migrationMap != null) {
-					for (Map<String, Object> migrate : migrationMap) {
-						Vm vm = (Vm) migrate.get("vm");
-						PowerHost targetHost = (PowerHost) migrate.get("host");
+				if (migrationPlan != null) {
+					for (int i = 0; i < migrationPlan.size(); i++) {
+						Vm vm = migrationPlan.getVm(i);
+						PowerHost targetHost = (PowerHost) migrationPlan.getHost(i);
 						PowerHost oldHost = (PowerHost) vm.getHost();
 
-						if (oldHost == null) {
-							Log.formatLine(
-									"%.2f: Migration of VM #%d to Host #%d is started",
-									CloudSim.clock(),
-									vm.getId(),
-									targetHost.getId());
-						} else {
-							Log.formatLine(
-									"%.2f: Migration of VM #%d from Host #%d to Host #%d is started",
-									CloudSim.clock(),
-									vm.getId(),
-									oldHost.getId(),
-									targetHost.getId());
+						if (Log.isEnabled(Log.Level.INFO)) {
+							if (oldHost == null) {
+								Log.formatLine(
+										"%.2f: Migration of VM #%d to Host #%d is started",
+										CloudSim.clock(),
+										vm.getId(),
+										targetHost.getId());
+							} else {
+								Log.formatLine(
+										"%.2f: Migration of VM #%d from Host #%d to Host #%d is started",
+										CloudSim.clock(),
+										vm.getId(),
+										oldHost.getId(),
+										targetHost.getId());
+							}
 						}
 
 						targetHost.addMigratingInVm(vm);
@@ -168,7 +190,7 @@ public class PowerDatacenterNonPowerAware extends PowerDatacenter {
 								getId(),
 								vm.getRam() / ((double) vm.getBw() / 8000) + 10,
 								CloudSimTags.VM_MIGRATE,
-								migrate);
+								obtainVmMigration(vm, targetHost));
 					}
 				}
 			}
@@ -8,10 +8,13 @@
 
 package org.cloudbus.cloudsim.power;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.HostDynamicWorkload;
 import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.VmScheduler;
 import org.cloudbus.cloudsim.power.models.PowerModel;
 import org.cloudbus.cloudsim.provisioners.BwProvisioner;
@@ -36,6 +39,18 @@ public class PowerHost extends HostDynamicWorkload {
 	/** The power model. */
 	private PowerModel powerModel;
 
+	/**
+	 * The allocation version, incremented whenever VMs are created on or removed from the host, or
+	 * the processing of the VMs is updated. It allows caching values derived from the VM list.
+	 */
+	private long allocationVersion = 0;
+
+	/** The host indexes tracking the free resources of the host. */
+	private List<PowerHostIndex> hostIndexes;
+
+	/** The undo log the VM creations and destructions are recorded to, or null. */
+	private AllocationUndoLog allocationUndoLog;
+
 	/**
 	 * Instantiates a new host.
 	 * 
@@ -58,6 +73,90 @@ public class PowerHost extends HostDynamicWorkload {
 		setPowerModel(powerModel);
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.HostDynamicWorkload#updateVmsProcessing(double)
+	 */
+	@Override
+	public double updateVmsProcessing(double currentTime) {
+		double smallerTime = super.updateVmsProcessing(currentTime);
+		incrementAllocationVersion();
+		return smallerTime;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.Host#vmCreate(org.cloudbus.cloudsim.Vm)
+	 */
+	@Override
+	public boolean vmCreate(Vm vm) {
+		Host previousHost = vm.getHost();
+		boolean result = super.vmCreate(vm);
+		if (result && getAllocationUndoLog() != null) {
+			getAllocationUndoLog().recordCreate(this, vm, previousHost);
+		}
+		// a failed creation may still have released resources previously allocated to the vm
+		incrementAllocationVersion();
+		return result;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.Host#vmDestroy(org.cloudbus.cloudsim.Vm)
+	 */
+	@Override
+	public void vmDestroy(Vm vm) {
+		if (vm != null && getAllocationUndoLog() != null) {
+			getAllocationUndoLog().recordDestroy(this, vm, getVmList().indexOf(vm), vm.getHost());
+		}
+		super.vmDestroy(vm);
+		incrementAllocationVersion();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.Host#vmDestroyAll()
+	 */
+	@Override
+	public void vmDestroyAll() {
+		checkNoAllocationUndoLog("vmDestroyAll");
+		super.vmDestroyAll();
+		incrementAllocationVersion();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.Host#addMigratingInVm(org.cloudbus.cloudsim.Vm)
+	 */
+	@Override
+	public void addMigratingInVm(Vm vm) {
+		checkNoAllocationUndoLog("addMigratingInVm");
+		super.addMigratingInVm(vm);
+		incrementAllocationVersion();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.Host#removeMigratingInVm(org.cloudbus.cloudsim.Vm)
+	 */
+	@Override
+	public void removeMigratingInVm(Vm vm) {
+		checkNoAllocationUndoLog("removeMigratingInVm");
+		super.removeMigratingInVm(vm);
+		incrementAllocationVersion();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.Host#reallocateMigratingInVms()
+	 */
+	@Override
+	public void reallocateMigratingInVms() {
+		checkNoAllocationUndoLog("reallocateMigratingInVms");
+		super.reallocateMigratingInVms();
+		incrementAllocationVersion();
+	}
+
 	/**
 	 * Gets the power. For this moment only consumed by all PEs.
 	 * 
@@ -117,6 +216,70 @@ public class PowerHost extends HostDynamicWorkload {
 		return (fromPower + (toPower - fromPower) / 2) * time;
 	}
 
+	/**
+	 * Gets the allocation version. The version changes whenever VMs are created on or removed from
+	 * the host, or the processing of the VMs is updated.
+	 * 
+	 * @return the allocation version
+	 */
+	public long getAllocationVersion() {
+		return allocationVersion;
+	}
+
+	/**
+	 * Increments the allocation version.
+	 */
+	protected void incrementAllocationVersion() {
+		allocationVersion++;
+		if (hostIndexes != null) {
+			for (PowerHostIndex hostIndex : hostIndexes) {
+				hostIndex.markChanged(this);
+			}
+		}
+	}
+
+	/**
+	 * Sets the undo log the VM creations and destructions are recorded to.
+	 * 
+	 * @param allocationUndoLog the undo log, or null to stop recording
+	 */
+	public void setAllocationUndoLog(AllocationUndoLog allocationUndoLog) {
+		this.allocationUndoLog = allocationUndoLog;
+	}
+
+	/**
+	 * Gets the undo log the VM creations and destructions are recorded to.
+	 * 
+	 * @return the undo log, or null if the changes are not recorded
+	 */
+	public AllocationUndoLog getAllocationUndoLog() {
+		return allocationUndoLog;
+	}
+
+	/**
+	 * Checks that no undo log is attached, since the given operation cannot be undone.
+	 * 
+	 * @param operation the name of the operation
+	 */
+	private void checkNoAllocationUndoLog(String operation) {
+		if (getAllocationUndoLog() != null) {
+			throw new IllegalStateException(operation + " cannot be undone while host #" + getId()
+					+ " records an allocation undo log");
+		}
+	}
+
+	/**
+	 * Registers a host index to be notified when the allocation of the host changes.
+	 * 
+	 * @param hostIndex the host index
+	 */
+	void addHostIndex(PowerHostIndex hostIndex) {
+		if (hostIndexes == null) {
+			hostIndexes = new ArrayList<PowerHostIndex>(1);
+		}
+		hostIndexes.add(hostIndex);
+	}
+
 	/**
 	 * Sets the power model.
 	 * 
@@ -0,0 +1,342 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.power;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+
+/**
+ * An index of the free resources of a list of hosts, used to skip the hosts that cannot fit a VM
+ * during placement. The index is a segment tree over the positions of the hosts in the list; each
+ * node keeps the maximum available MIPS, PE capacity, available RAM and available BW of the hosts
+ * below it, so that a search only descends into subtrees where every resource may be large enough.
+ * <p>
+ * The index is a conservative filter: every host for which {@link PowerHost#isSuitableForVm(Vm)}
+ * holds is returned as a candidate, but candidates still have to be checked with that method. RAM
+ * and BW are only indexed for {@link RamProvisionerSimple} and {@link BwProvisionerSimple}; other
+ * provisioners never filter out a host. The hosts notify the index when their allocation changes,
+ * and the changed hosts are updated in O(log N) each before the next search.
+ *
+ * @since CloudSim Toolkit 3.0
+ * @see PowerVmAllocationPolicyAbstract#getHostIndex()
+ */
+public class PowerHostIndex {
+
+	/** The hosts. */
+	private final List<PowerHost> hosts;
+
+	/** The positions of the hosts in the list. */
+	private final Map<PowerHost, Integer> positions = new IdentityHashMap<PowerHost, Integer>();
+
+	/** The number of leaves of the tree, a power of two. */
+	private final int leaves;
+
+	/** The maximum available MIPS of each node. */
+	private final double[] availableMips;
+
+	/** The maximum PE capacity of each node. */
+	private final double[] peCapacity;
+
+	/** The maximum available RAM of each node. */
+	private final double[] availableRam;
+
+	/** The maximum available BW of each node. */
+	private final double[] availableBw;
+
+	/** Whether each host has changed since its leaf was last updated. */
+	private final boolean[] changed;
+
+	/** The positions of the changed hosts. */
+	private final List<Integer> changedHosts = new ArrayList<Integer>();
+
+	/**
+	 * Instantiates a new power host index and registers it with the hosts.
+	 *
+	 * @param hosts the hosts
+	 */
+	public PowerHostIndex(List<? extends PowerHost> hosts) {
+		this.hosts = new ArrayList<PowerHost>(hosts);
+		int leaves = 1;
+		while (leaves < hosts.size()) {
+			leaves *= 2;
+		}
+		this.leaves = leaves;
+		availableMips = new double[2 * leaves];
+		peCapacity = new double[2 * leaves];
+		availableRam = new double[2 * leaves];
+		availableBw = new double[2 * leaves];
+		Arrays.fill(availableMips, Double.NEGATIVE_INFINITY);
+		Arrays.fill(peCapacity, Double.NEGATIVE_INFINITY);
+		Arrays.fill(availableRam, Double.NEGATIVE_INFINITY);
+		Arrays.fill(availableBw, Double.NEGATIVE_INFINITY);
+		changed = new boolean[hosts.size()];
+
+		for (int i = 0; i < this.hosts.size(); i++) {
+			PowerHost host = this.hosts.get(i);
+			if (positions.put(host, i) != null) {
+				throw new IllegalArgumentException("Host #" + host.getId() + " is listed twice.");
+			}
+			setLeaf(i);
+			host.addHostIndex(this);
+		}
+		for (int node = leaves - 1; node > 0; node--) {
+			updateNode(node);
+		}
+	}
+
+	/**
+	 * Gets the hosts that may be suitable for a VM, in the order of the host list. The host the VM
+	 * is currently placed on is always a candidate, since its resources are partly held by the VM
+	 * itself; a VM in migration may hold resources on other hosts as well, so all the hosts are
+	 * candidates for it. The hosts must not be modified while the candidates are iterated, except
+	 * for changes that are undone before the next candidate is requested.
+	 *
+	 * @param vm the vm
+	 * @return the candidate hosts
+	 */
+	public Iterable<PowerHost> getCandidates(final Vm vm) {
+		return new Iterable<PowerHost>() {
+
+			@Override
+			public Iterator<PowerHost> iterator() {
+				return new CandidateIterator(vm);
+			}
+		};
+	}
+
+	/**
+	 * Gets the number of indexed hosts.
+	 *
+	 * @return the number of hosts
+	 */
+	public int size() {
+		return hosts.size();
+	}
+
+	/**
+	 * Marks a host as changed. Called by the host whenever its allocation version is incremented,
+	 * which may happen concurrently when the datacenter updates its hosts in parallel.
+	 *
+	 * @param host the host
+	 */
+	synchronized void markChanged(PowerHost host) {
+		Integer position = positions.get(host);
+		if (position != null && !changed[position]) {
+			changed[position] = true;
+			changedHosts.add(position);
+		}
+	}
+
+	/**
+	 * Gets the position of the first candidate at or after the given position.
+	 *
+	 * @param from the position to start from
+	 * @param current the position of the host the vm is placed on, or -1
+	 * @param mips the requested total mips
+	 * @param maxMips the requested mips of the largest PE
+	 * @param ram the requested ram
+	 * @param bw the requested bw
+	 * @return the position of the candidate, or -1 if there is none
+	 */
+	private int nextCandidate(int from, int current, double mips, double maxMips, double ram, double bw) {
+		if (from >= hosts.size()) {
+			return -1;
+		}
+		updateChangedHosts();
+		int candidate = findFirst(1, 0, leaves, from, mips, maxMips, ram, bw);
+		if (current >= from && (candidate < 0 || current < candidate)) {
+			candidate = current;
+		}
+		return candidate;
+	}
+
+	/**
+	 * Finds the first leaf at or after a position in a subtree whose resources fit the request.
+	 *
+	 * @param node the root of the subtree
+	 * @param low the first position covered by the subtree
+	 * @param high the position after the last one covered by the subtree
+	 * @param from the position to start from
+	 * @param mips the requested total mips
+	 * @param maxMips the requested mips of the largest PE
+	 * @param ram the requested ram
+	 * @param bw the requested bw
+	 * @return the position of the leaf, or -1 if there is none
+	 */
+	private int findFirst(
+			int node,
+			int low,
+			int high,
+			int from,
+			double mips,
+			double maxMips,
+			double ram,
+			double bw) {
+		if (high <= from || availableMips[node] < mips || peCapacity[node] < maxMips
+				|| availableRam[node] < ram || availableBw[node] < bw) {
+			return -1;
+		}
+		if (node >= leaves) {
+			return node - leaves;
+		}
+		int middle = (low + high) >>> 1;
+		int position = findFirst(2 * node, low, middle, from, mips, maxMips, ram, bw);
+		if (position < 0) {
+			position = findFirst(2 * node + 1, middle, high, from, mips, maxMips, ram, bw);
+		}
+		return position;
+	}
+
+	/**
+	 * Updates the leaves of the changed hosts and their ancestors.
+	 */
+	private synchronized void updateChangedHosts() {
+		for (int position : changedHosts) {
+			changed[position] = false;
+			setLeaf(position);
+			for (int node = (position + leaves) / 2; node > 0; node /= 2) {
+				updateNode(node);
+			}
+		}
+		changedHosts.clear();
+	}
+
+	/**
+	 * Sets the leaf of a host from its current free resources.
+	 *
+	 * @param position the position of the host
+	 */
+	private void setLeaf(int position) {
+		PowerHost host = hosts.get(position);
+		int leaf = position + leaves;
+		availableMips[leaf] = host.getVmScheduler().getAvailableMips();
+		peCapacity[leaf] = host.getVmScheduler().getPeCapacity();
+		if (host.getRamProvisioner() instanceof RamProvisionerSimple) {
+			availableRam[leaf] = host.getRamProvisioner().getAvailableRam();
+		} else {
+			availableRam[leaf] = Double.POSITIVE_INFINITY;
+		}
+		if (host.getBwProvisioner() instanceof BwProvisionerSimple) {
+			availableBw[leaf] = host.getBwProvisioner().getAvailableBw();
+		} else {
+			availableBw[leaf] = Double.POSITIVE_INFINITY;
+		}
+	}
+
+	/**
+	 * Sets an inner node to the maximum of its children.
+	 *
+	 * @param node the node
+	 */
+	private void updateNode(int node) {
+		int left = 2 * node;
+		int right = left + 1;
+		availableMips[node] = Math.max(availableMips[left], availableMips[right]);
+		peCapacity[node] = Math.max(peCapacity[left], peCapacity[right]);
+		availableRam[node] = Math.max(availableRam[left], availableRam[right]);
+		availableBw[node] = Math.max(availableBw[left], availableBw[right]);
+	}
+
+	/**
+	 * An iterator over the candidate hosts for a VM. The requested resources are read once, when
+	 * the iterator is created.
+	 */
+	private final class CandidateIterator implements Iterator<PowerHost> {
+
+		/** Whether all the hosts are candidates. */
+		private final boolean all;
+
+		/** The position of the host the vm is placed on, or -1. */
+		private final int current;
+
+		/** The requested total mips. */
+		private final double mips;
+
+		/** The requested mips of the largest PE. */
+		private final double maxMips;
+
+		/** The requested ram. */
+		private final double ram;
+
+		/** The requested bw. */
+		private final double bw;
+
+		/** The position of the last returned candidate. */
+		private int last = -1;
+
+		/** The position of the next candidate, or -1 if there is none. */
+		private int next;
+
+		/** Whether the next candidate has been looked up since the last one was returned. */
+		private boolean found = false;
+
+		/**
+		 * Instantiates a new candidate iterator.
+		 *
+		 * @param vm the vm
+		 */
+		private CandidateIterator(Vm vm) {
+			all = vm.isInMigration();
+			Integer position = vm.getHost() == null ? null : positions.get(vm.getHost());
+			current = position == null ? -1 : position;
+			mips = vm.getCurrentRequestedTotalMips();
+			maxMips = vm.getCurrentRequestedMaxMips();
+			ram = Math.min(vm.getCurrentRequestedRam(), vm.getRam());
+			bw = vm.getCurrentRequestedBw();
+		}
+
+		@Override
+		public boolean hasNext() {
+			// the candidates are looked up lazily, after the caller has checked the previous one
+			if (!found) {
+				next = find(last + 1);
+				found = true;
+			}
+			return next >= 0;
+		}
+
+		@Override
+		public PowerHost next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			last = next;
+			found = false;
+			return hosts.get(last);
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		/**
+		 * Finds the next candidate.
+		 *
+		 * @param from the position to start from
+		 * @return the position of the candidate, or -1 if there is none
+		 */
+		private int find(int from) {
+			if (all) {
+				return from < hosts.size() ? from : -1;
+			}
+			return nextCandidate(from, current, mips, maxMips, ram, bw);
+		}
+	}
+
+}
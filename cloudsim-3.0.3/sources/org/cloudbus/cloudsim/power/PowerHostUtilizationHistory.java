@@ -15,6 +15,7 @@ import org.cloudbus.cloudsim.VmScheduler;
 import org.cloudbus.cloudsim.power.models.PowerModel;
 import org.cloudbus.cloudsim.provisioners.BwProvisioner;
 import org.cloudbus.cloudsim.provisioners.RamProvisioner;
+import org.cloudbus.cloudsim.util.DoubleRingBuffer;
 import org.cloudbus.cloudsim.util.MathUtil;
 
 /**
@@ -62,14 +63,67 @@ public class PowerHostUtilizationHistory extends PowerHost {
 	 * @return the host utilization history
 	 */
 	protected double[] getUtilizationHistory() {
+		return getUtilizationHistory(null);
+	}
+
+	/**
+	 * Gets the host utilization history as it would be if a VM were allocated to the host. The host
+	 * is not modified.
+	 * 
+	 * @param additionalVm the vm to be allocated, or null
+	 * @return the host utilization history
+	 */
+	protected double[] getUtilizationHistory(PowerVm additionalVm) {
+		double[] utilizationHistory = getUntrimmedUtilizationHistory();
+		// the vm goes last, as it would be appended to the vm list when created
+		if (additionalVm != null) {
+			addUtilizationHistory(utilizationHistory, additionalVm, getTotalMips());
+		}
+		return MathUtil.trimZeroTail(utilizationHistory);
+	}
+
+	/**
+	 * Gets the host utilization history as it would be if a VM were allocated to the host, from the
+	 * untrimmed history of the host. It only walks the history of that VM. The host is not modified.
+	 * 
+	 * @param untrimmedUtilizationHistory the untrimmed history of the host, which is not modified
+	 * @param additionalVm the vm to be allocated
+	 * @return the host utilization history
+	 * @see #getUntrimmedUtilizationHistory()
+	 */
+	protected double[] getUtilizationHistory(double[] untrimmedUtilizationHistory, PowerVm additionalVm) {
+		double[] utilizationHistory = untrimmedUtilizationHistory.clone();
+		addUtilizationHistory(utilizationHistory, additionalVm, getTotalMips());
+		return MathUtil.trimZeroTail(utilizationHistory);
+	}
+
+	/**
+	 * Gets the sum of the utilization histories of the VMs of the host, of length
+	 * {@link PowerVm#HISTORY_LENGTH}, without trimming it at the first zero.
+	 * 
+	 * @return the untrimmed host utilization history
+	 */
+	protected double[] getUntrimmedUtilizationHistory() {
 		double[] utilizationHistory = new double[PowerVm.HISTORY_LENGTH];
 		double hostMips = getTotalMips();
 		for (PowerVm vm : this.<PowerVm> getVmList()) {
-			for (int i = 0; i < vm.getUtilizationHistory().size(); i++) {
-				utilizationHistory[i] += vm.getUtilizationHistory().get(i) * vm.getMips() / hostMips;
-			}
+			addUtilizationHistory(utilizationHistory, vm, hostMips);
+		}
+		return utilizationHistory;
+	}
+
+	/**
+	 * Adds the utilization history of a VM to a host utilization history.
+	 * 
+	 * @param utilizationHistory the host utilization history
+	 * @param vm the vm
+	 * @param hostMips the total mips of the host
+	 */
+	private static void addUtilizationHistory(double[] utilizationHistory, PowerVm vm, double hostMips) {
+		DoubleRingBuffer vmUtilizationHistory = vm.getUtilizationHistoryBuffer();
+		for (int i = 0; i < vmUtilizationHistory.size(); i++) {
+			utilizationHistory[i] += vmUtilizationHistory.get(i) * vm.getMips() / hostMips;
 		}
-		return MathUtil.trimZeroTail(utilizationHistory);
 	}
 
 }
@@ -8,12 +8,12 @@
 
 package org.cloudbus.cloudsim.power;
 
-import java.util.LinkedList;
 import java.util.List;
 
 import org.cloudbus.cloudsim.CloudletScheduler;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.util.DoubleRingBuffer;
 import org.cloudbus.cloudsim.util.MathUtil;
 
 /**
@@ -36,8 +36,8 @@ public class PowerVm extends Vm {
 	/** The Constant HISTORY_LENGTH. */
 	public static final int HISTORY_LENGTH = 30;
 
-	/** The utilization history. */
-	private final List<Double> utilizationHistory = new LinkedList<Double>();
+	/** The utilization history, most recent value first. */
+	private final DoubleRingBuffer utilizationHistory = new DoubleRingBuffer(HISTORY_LENGTH);
 
 	/** The previous time. */
 	private double previousTime;
@@ -108,15 +108,11 @@ public class PowerVm extends Vm {
 	 */
 	public double getUtilizationMad() {
 		double mad = 0;
-		if (!getUtilizationHistory().isEmpty()) {
-			int n = HISTORY_LENGTH;
-			if (HISTORY_LENGTH > getUtilizationHistory().size()) {
-				n = getUtilizationHistory().size();
-			}
-			double median = MathUtil.median(getUtilizationHistory());
-			double[] deviationSum = new double[n];
-			for (int i = 0; i < n; i++) {
-				deviationSum[i] = Math.abs(median - getUtilizationHistory().get(i));
+		if (!getUtilizationHistoryBuffer().isEmpty()) {
+			double[] deviationSum = getUtilizationHistoryBuffer().toArray();
+			double median = MathUtil.median(deviationSum);
+			for (int i = 0; i < deviationSum.length; i++) {
+				deviationSum[i] = Math.abs(median - deviationSum[i]);
 			}
 			mad = MathUtil.median(deviationSum);
 		}
@@ -129,18 +125,7 @@ public class PowerVm extends Vm {
 	 * @return the utilization mean in MIPS
 	 */
 	public double getUtilizationMean() {
-		double mean = 0;
-		if (!getUtilizationHistory().isEmpty()) {
-			int n = HISTORY_LENGTH;
-			if (HISTORY_LENGTH > getUtilizationHistory().size()) {
-				n = getUtilizationHistory().size();
-			}
-			for (int i = 0; i < n; i++) {
-				mean += getUtilizationHistory().get(i);
-			}
-			mean /= n;
-		}
-		return mean * getMips();
+		return getUtilizationHistoryBuffer().getMean() * getMips();
 	}
 
 	/**
@@ -149,20 +134,7 @@ public class PowerVm extends Vm {
 	 * @return the utilization variance in MIPS
 	 */
 	public double getUtilizationVariance() {
-		double mean = getUtilizationMean();
-		double variance = 0;
-		if (!getUtilizationHistory().isEmpty()) {
-			int n = HISTORY_LENGTH;
-			if (HISTORY_LENGTH > getUtilizationHistory().size()) {
-				n = getUtilizationHistory().size();
-			}
-			for (int i = 0; i < n; i++) {
-				double tmp = getUtilizationHistory().get(i) * getMips() - mean;
-				variance += tmp * tmp;
-			}
-			variance /= n;
-		}
-		return variance;
+		return getUtilizationHistoryBuffer().getVariance() * getMips() * getMips();
 	}
 
 	/**
@@ -171,18 +143,25 @@ public class PowerVm extends Vm {
 	 * @param utilization the utilization
 	 */
 	public void addUtilizationHistoryValue(final double utilization) {
-		getUtilizationHistory().add(0, utilization);
-		if (getUtilizationHistory().size() > HISTORY_LENGTH) {
-			getUtilizationHistory().remove(HISTORY_LENGTH);
-		}
+		getUtilizationHistoryBuffer().addFirst(utilization);
 	}
 
 	/**
-	 * Gets the utilization history.
+	 * Gets a read-only view of the utilization history, most recent value first.
 	 * 
 	 * @return the utilization history
 	 */
 	protected List<Double> getUtilizationHistory() {
+		return getUtilizationHistoryBuffer().asList();
+	}
+
+	/**
+	 * Gets the utilization history buffer, most recent value first. It gives access to the history
+	 * without boxing, as well as to its running sums.
+	 * 
+	 * @return the utilization history buffer
+	 */
+	protected DoubleRingBuffer getUtilizationHistoryBuffer() {
 		return utilizationHistory;
 	}
 
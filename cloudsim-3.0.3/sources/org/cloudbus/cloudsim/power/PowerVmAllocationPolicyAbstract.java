@@ -37,6 +37,9 @@ public abstract class PowerVmAllocationPolicyAbstract extends VmAllocationPolicy
 	/** The vm table. */
 	private final Map<String, Host> vmTable = new HashMap<String, Host>();
 
+	/** The host index. */
+	private PowerHostIndex hostIndex;
+
 	/**
 	 * Instantiates a new power vm allocation policy abstract.
 	 * 
@@ -63,19 +66,29 @@ public abstract class PowerVmAllocationPolicyAbstract extends VmAllocationPolicy
 	@Override
 	public boolean allocateHostForVm(Vm vm, Host host) {
 		if (host == null) {
-			Log.formatLine("%.2f: No suitable host found for VM #" + vm.getId() + "\n", CloudSim.clock());
+			if (Log.isEnabled(Log.Level.WARNING)) {
+				Log.formatLine(
+						Log.Level.WARNING,
+						"%.2f: No suitable host found for VM #" + vm.getId() + "\n",
+						CloudSim.clock());
+			}
 			return false;
 		}
 		if (host.vmCreate(vm)) { // if vm has been succesfully created in the host
 			getVmTable().put(vm.getUid(), host);
+			if (Log.isEnabled(Log.Level.INFO)) {
+				Log.formatLine(
+						"%.2f: VM #" + vm.getId() + " has been allocated to the host #" + host.getId(),
+						CloudSim.clock());
+			}
+			return true;
+		}
+		if (Log.isEnabled(Log.Level.WARNING)) {
 			Log.formatLine(
-					"%.2f: VM #" + vm.getId() + " has been allocated to the host #" + host.getId(),
+					Log.Level.WARNING,
+					"%.2f: Creation of VM #" + vm.getId() + " on the host #" + host.getId() + " failed\n",
 					CloudSim.clock());
-			return true;
 		}
-		Log.formatLine(
-				"%.2f: Creation of VM #" + vm.getId() + " on the host #" + host.getId() + " failed\n",
-				CloudSim.clock());
 		return false;
 	}
 
@@ -86,7 +99,7 @@ public abstract class PowerVmAllocationPolicyAbstract extends VmAllocationPolicy
 	 * @return the power host
 	 */
 	public PowerHost findHostForVm(Vm vm) {
-		for (PowerHost host : this.<PowerHost> getHostList()) {
+		for (PowerHost host : getHostIndex().getCandidates(vm)) {
 			if (host.isSuitableForVm(vm)) {
 				return host;
 			}
@@ -94,6 +107,18 @@ public abstract class PowerVmAllocationPolicyAbstract extends VmAllocationPolicy
 		return null;
 	}
 
+	/**
+	 * Gets the index of the free resources of the hosts. The index is created on first use.
+	 * 
+	 * @return the host index
+	 */
+	protected PowerHostIndex getHostIndex() {
+		if (hostIndex == null) {
+			hostIndex = new PowerHostIndex(this.<PowerHost> getHostList());
+		}
+		return hostIndex;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.cloudbus.cloudsim.VmAllocationPolicy#deallocateHostForVm(org.cloudbus.cloudsim.Vm)
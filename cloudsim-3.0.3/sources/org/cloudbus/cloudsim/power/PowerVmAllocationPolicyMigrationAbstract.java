@@ -19,10 +19,12 @@ import java.util.Set;
 import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.HostDynamicWorkload;
 import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.MigrationPlan;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.power.lists.PowerVmList;
 import org.cloudbus.cloudsim.util.ExecutionTimeMeasurer;
+import org.cloudbus.cloudsim.util.MathUtil;
 
 /**
  * The class of an abstract power-aware VM allocation policy that dynamically optimizes the VM
@@ -44,8 +46,8 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 	/** The vm selection policy. */
 	private PowerVmSelectionPolicy vmSelectionPolicy;
 
-	/** The saved allocation. */
-	private final List<Map<String, Object>> savedAllocation = new ArrayList<Map<String, Object>>();
+	/** The undo log of the changes made to the hosts while finding a new allocation. */
+	private final AllocationUndoLog allocationUndoLog = new AllocationUndoLog();
 
 	/** The utilization history. */
 	private final Map<Integer, List<Double>> utilizationHistory = new HashMap<Integer, List<Double>>();
@@ -68,6 +70,65 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 	/** The execution time history total. */
 	private final List<Double> executionTimeHistoryTotal = new LinkedList<Double>();
 
+	/** The utilization summaries of the hosts, reused while the allocation is being optimized. */
+	private final Map<PowerHost, HostUtilizationSummary> utilizationSummaries = new HashMap<PowerHost, HostUtilizationSummary>();
+
+	/** Whether the utilization summaries can be reused. */
+	private boolean utilizationSummariesEnabled = false;
+
+	/** Whether a subclass overrides the map-based optimizeAllocation(List). */
+	private final boolean optimizeAllocationOverridden = isOverridden("optimizeAllocation", List.class);
+
+	/** Whether a subclass overrides the map-based getNewVmPlacement(List, Set). */
+	private final boolean newVmPlacementOverridden = isOverridden("getNewVmPlacement", List.class, Set.class);
+
+	/** Whether a subclass overrides the map-based getNewVmPlacementFromUnderUtilizedHost(List, Set). */
+	private final boolean newVmPlacementFromUnderUtilizedHostOverridden = isOverridden(
+			"getNewVmPlacementFromUnderUtilizedHost",
+			List.class,
+			Set.class);
+
+	/** Whether a subclass overrides the map-based getMigrationMapFromUnderUtilizedHosts(List). */
+	private final boolean migrationMapFromUnderUtilizedHostsOverridden = isOverridden(
+			"getMigrationMapFromUnderUtilizedHosts",
+			List.class);
+
+	/** Whether a subclass overrides the map-based extractHostListFromMigrationMap(List). */
+	private final boolean extractHostListFromMigrationMapOverridden = isOverridden(
+			"extractHostListFromMigrationMap",
+			List.class);
+
+	/**
+	 * The utilization of a host derived from its VM list. A summary is valid as long as neither the
+	 * allocation version of the host nor the simulation time change. Summaries are only reused
+	 * during {@link PowerVmAllocationPolicyMigrationAbstract#optimizeAllocation(List)}, since only
+	 * then all the changes to the hosts go through calls that update the allocation version.
+	 */
+	private static class HostUtilizationSummary {
+
+		/** The allocation version of the host the summary has been computed for. */
+		private long allocationVersion;
+
+		/** The simulation time the summary has been computed at. */
+		private double time;
+
+		/** The total MIPS requested by the VMs. */
+		private double requestedTotalMips;
+
+		/** The total RAM requested by the VMs. */
+		private double requestedTotalRam;
+
+		/** The utilization of the CPU in MIPS, including the potential usage of migrating in VMs. */
+		private double utilizationOfCpuMips;
+
+		/** The utilization history of the host, or null if it has not been needed yet. */
+		private double[] utilizationHistory;
+
+		/** The untrimmed utilization history of the host, or null if it has not been needed yet. */
+		private double[] untrimmedUtilizationHistory;
+
+	}
+
 	/**
 	 * Instantiates a new power vm allocation policy migration abstract.
 	 * 
@@ -82,7 +143,10 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 	}
 
 	/**
-	 * Optimize allocation of the VMs according to current utilization.
+	 * Optimize allocation of the VMs according to current utilization. It converts the plan built by
+	 * {@link #optimizeAllocationPlan(List)}. Subclasses written against the map-based API may still
+	 * override it; the datacenters then get its result through {@link #optimizeAllocationPlan(List)},
+	 * and calling the super method gives the plan of this class.
 	 * 
 	 * @param vmList the vm list
 	 * 
@@ -90,7 +154,33 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 	 */
 	@Override
 	public List<Map<String, Object>> optimizeAllocation(List<? extends Vm> vmList) {
+		if (optimizeAllocationOverridden) {
+			return planAllocation(vmList).toMigrationMap();
+		}
+		return optimizeAllocationPlan(vmList).toMigrationMap();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.cloudbus.cloudsim.VmAllocationPolicy#optimizeAllocationPlan(java.util.List)
+	 */
+	@Override
+	public MigrationPlan optimizeAllocationPlan(List<? extends Vm> vmList) {
+		if (optimizeAllocationOverridden) {
+			return MigrationPlan.fromMigrationMap(optimizeAllocation(vmList));
+		}
+		return planAllocation(vmList);
+	}
+
+	/**
+	 * Builds the migration plan of {@link #optimizeAllocationPlan(List)}.
+	 * 
+	 * @param vmList the vm list
+	 * @return the migration plan
+	 */
+	private MigrationPlan planAllocation(List<? extends Vm> vmList) {
 		ExecutionTimeMeasurer.start("optimizeAllocationTotal");
+		setUtilizationSummariesEnabled(true);
 
 		ExecutionTimeMeasurer.start("optimizeAllocationHostSelection");
 		List<PowerHostUtilizationHistory> overUtilizedHosts = getOverUtilizedHosts();
@@ -100,44 +190,51 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 		printOverUtilizedHosts(overUtilizedHosts);
 
 		saveAllocation();
-
-		ExecutionTimeMeasurer.start("optimizeAllocationVmSelection");
-		List<? extends Vm> vmsToMigrate = getVmsToMigrateFromHosts(overUtilizedHosts);
-		getExecutionTimeHistoryVmSelection().add(ExecutionTimeMeasurer.end("optimizeAllocationVmSelection"));
-
-		Log.printLine("Reallocation of VMs from the over-utilized hosts:");
-		ExecutionTimeMeasurer.start("optimizeAllocationVmReallocation");
-		List<Map<String, Object>> migrationMap = getNewVmPlacement(vmsToMigrate, new HashSet<Host>(
-				overUtilizedHosts));
-		getExecutionTimeHistoryVmReallocation().add(
-				ExecutionTimeMeasurer.end("optimizeAllocationVmReallocation"));
-		Log.printLine();
-
-		migrationMap.addAll(getMigrationMapFromUnderUtilizedHosts(overUtilizedHosts));
-
-		restoreAllocation();
+		MigrationPlan migrationPlan;
+		try {
+			ExecutionTimeMeasurer.start("optimizeAllocationVmSelection");
+			List<? extends Vm> vmsToMigrate = getVmsToMigrateFromHosts(overUtilizedHosts);
+			getExecutionTimeHistoryVmSelection().add(ExecutionTimeMeasurer.end("optimizeAllocationVmSelection"));
+
+			Log.printLine(Log.Level.DEBUG, "Reallocation of VMs from the over-utilized hosts:");
+			ExecutionTimeMeasurer.start("optimizeAllocationVmReallocation");
+			migrationPlan = placeVms(vmsToMigrate, new HashSet<Host>(overUtilizedHosts));
+			getExecutionTimeHistoryVmReallocation().add(
+					ExecutionTimeMeasurer.end("optimizeAllocationVmReallocation"));
+			Log.printLine(Log.Level.DEBUG);
+
+			if (migrationMapFromUnderUtilizedHostsOverridden) {
+				migrationPlan.addAll(MigrationPlan.fromMigrationMap(getMigrationMapFromUnderUtilizedHosts(overUtilizedHosts)));
+			} else {
+				migrationPlan.addAll(getMigrationPlanFromUnderUtilizedHosts(overUtilizedHosts));
+			}
+		} finally {
+			// the hosts must not keep the undo log if the planning fails
+			restoreAllocation();
+			setUtilizationSummariesEnabled(false);
+		}
 
 		getExecutionTimeHistoryTotal().add(ExecutionTimeMeasurer.end("optimizeAllocationTotal"));
 
-		return migrationMap;
+		return migrationPlan;
 	}
 
 	/**
-	 * Gets the migration map from under utilized hosts.
+	 * Gets the migration plan from under utilized hosts.
 	 * 
 	 * @param overUtilizedHosts the over utilized hosts
-	 * @return the migration map from under utilized hosts
+	 * @return the migration plan from under utilized hosts
 	 */
-	protected List<Map<String, Object>> getMigrationMapFromUnderUtilizedHosts(
+	protected MigrationPlan getMigrationPlanFromUnderUtilizedHosts(
 			List<PowerHostUtilizationHistory> overUtilizedHosts) {
-		List<Map<String, Object>> migrationMap = new LinkedList<Map<String, Object>>();
+		MigrationPlan migrationPlan = new MigrationPlan();
 		List<PowerHost> switchedOffHosts = getSwitchedOffHosts();
 
 		// over-utilized hosts + hosts that are selected to migrate VMs to from over-utilized hosts
 		Set<PowerHost> excludedHostsForFindingUnderUtilizedHost = new HashSet<PowerHost>();
 		excludedHostsForFindingUnderUtilizedHost.addAll(overUtilizedHosts);
 		excludedHostsForFindingUnderUtilizedHost.addAll(switchedOffHosts);
-		excludedHostsForFindingUnderUtilizedHost.addAll(extractHostListFromMigrationMap(migrationMap));
+		excludedHostsForFindingUnderUtilizedHost.addAll(extractHostList(migrationPlan));
 
 		// over-utilized + under-utilized hosts
 		Set<PowerHost> excludedHostsForFindingNewVmPlacement = new HashSet<PowerHost>();
@@ -156,7 +253,10 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 				break;
 			}
 
-			Log.printLine("Under-utilized host: host #" + underUtilizedHost.getId() + "\n");
+			if (Log.isEnabled(Log.Level.DEBUG)) {
+				Log.printLine(Log.Level.DEBUG, "Under-utilized host: host #" + underUtilizedHost.getId()
+						+ "\n");
+			}
 
 			excludedHostsForFindingUnderUtilizedHost.add(underUtilizedHost);
 			excludedHostsForFindingNewVmPlacement.add(underUtilizedHost);
@@ -166,25 +266,39 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 				continue;
 			}
 
-			Log.print("Reallocation of VMs from the under-utilized host: ");
-			if (!Log.isDisabled()) {
+			if (Log.isEnabled(Log.Level.DEBUG)) {
+				Log.print(Log.Level.DEBUG, "Reallocation of VMs from the under-utilized host: ");
 				for (Vm vm : vmsToMigrateFromUnderUtilizedHost) {
-					Log.print(vm.getId() + " ");
+					Log.print(Log.Level.DEBUG, vm.getId() + " ");
 				}
+				Log.printLine(Log.Level.DEBUG);
 			}
-			Log.printLine();
 
-			List<Map<String, Object>> newVmPlacement = getNewVmPlacementFromUnderUtilizedHost(
+			MigrationPlan newVmPlacement = placeVmsFromUnderUtilizedHost(
 					vmsToMigrateFromUnderUtilizedHost,
 					excludedHostsForFindingNewVmPlacement);
 
-			excludedHostsForFindingUnderUtilizedHost.addAll(extractHostListFromMigrationMap(newVmPlacement));
+			excludedHostsForFindingUnderUtilizedHost.addAll(extractHostList(newVmPlacement));
 
-			migrationMap.addAll(newVmPlacement);
-			Log.printLine();
+			migrationPlan.addAll(newVmPlacement);
+			Log.printLine(Log.Level.DEBUG);
 		}
 
-		return migrationMap;
+		return migrationPlan;
+	}
+
+	/**
+	 * Gets the migration map from under utilized hosts.
+	 * 
+	 * @param overUtilizedHosts the over utilized hosts
+	 * @return the migration map from under utilized hosts
+	 * @deprecated Use {@link #getMigrationPlanFromUnderUtilizedHosts(List)}; an override of this method
+	 *             is still used instead of it.
+	 */
+	@Deprecated
+	protected List<Map<String, Object>> getMigrationMapFromUnderUtilizedHosts(
+			List<PowerHostUtilizationHistory> overUtilizedHosts) {
+		return getMigrationPlanFromUnderUtilizedHosts(overUtilizedHosts).toMigrationMap();
 	}
 
 	/**
@@ -193,12 +307,12 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 	 * @param overUtilizedHosts the over utilized hosts
 	 */
 	protected void printOverUtilizedHosts(List<PowerHostUtilizationHistory> overUtilizedHosts) {
-		if (!Log.isDisabled()) {
-			Log.printLine("Over-utilized hosts:");
+		if (Log.isEnabled(Log.Level.DEBUG)) {
+			Log.printLine(Log.Level.DEBUG, "Over-utilized hosts:");
 			for (PowerHostUtilizationHistory host : overUtilizedHosts) {
-				Log.printLine("Host #" + host.getId());
+				Log.printLine(Log.Level.DEBUG, "Host #" + host.getId());
 			}
-			Log.printLine();
+			Log.printLine(Log.Level.DEBUG);
 		}
 	}
 
@@ -213,7 +327,7 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 		double minPower = Double.MAX_VALUE;
 		PowerHost allocatedHost = null;
 
-		for (PowerHost host : this.<PowerHost> getHostList()) {
+		for (PowerHost host : getHostIndex().getCandidates(vm)) {
 			if (excludedHosts.contains(host)) {
 				continue;
 			}
@@ -239,7 +353,10 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 	}
 
 	/**
-	 * Checks if is host over utilized after allocation.
+	 * Checks if is host over utilized after allocation. The default implementation creates the VM on
+	 * the host, checks the host and destroys the VM. Subclasses that can evaluate the check from
+	 * {@link #getUtilizationAfterAllocation(PowerHost, Vm)} should override it, so that the host is
+	 * not modified.
 	 * 
 	 * @param host the host
 	 * @param vm the vm
@@ -254,6 +371,29 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 		return isHostOverUtilizedAfterAllocation;
 	}
 
+	/**
+	 * Checks whether a VM can be created on a host, without creating it.
+	 * 
+	 * @param host the host
+	 * @param vm the vm
+	 * @return true, if the vm can be created on the host
+	 */
+	protected boolean canCreateVm(PowerHost host, Vm vm) {
+		return host.getStorage() >= vm.getSize() && host.isSuitableForVm(vm);
+	}
+
+	/**
+	 * Gets the CPU utilization of a host requested by its VMs and a VM that is not on the host yet,
+	 * as a fraction of the host's total MIPS.
+	 * 
+	 * @param host the host
+	 * @param vm the vm to be allocated
+	 * @return the utilization after allocation
+	 */
+	protected double getUtilizationAfterAllocation(PowerHost host, Vm vm) {
+		return (getRequestedTotalMips(host) + vm.getCurrentRequestedTotalMips()) / host.getTotalMips();
+	}
+
 	/**
 	 * Find host for vm.
 	 * 
@@ -269,18 +409,31 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 		return findHostForVm(vm, excludedHosts);
 	}
 
+	/**
+	 * Extract host list from migration plan.
+	 * 
+	 * @param migrationPlan the migration plan
+	 * @return the list
+	 */
+	protected List<PowerHost> extractHostListFromMigrationPlan(MigrationPlan migrationPlan) {
+		List<PowerHost> hosts = new ArrayList<PowerHost>(migrationPlan.size());
+		for (int i = 0; i < migrationPlan.size(); i++) {
+			hosts.add((PowerHost) migrationPlan.getHost(i));
+		}
+		return hosts;
+	}
+
 	/**
 	 * Extract host list from migration map.
 	 * 
 	 * @param migrationMap the migration map
 	 * @return the list
+	 * @deprecated Use {@link #extractHostListFromMigrationPlan(MigrationPlan)}; an override of this
+	 *             method is still used instead of it.
 	 */
+	@Deprecated
 	protected List<PowerHost> extractHostListFromMigrationMap(List<Map<String, Object>> migrationMap) {
-		List<PowerHost> hosts = new LinkedList<PowerHost>();
-		for (Map<String, Object> map : migrationMap) {
-			hosts.add((PowerHost) map.get("host"));
-		}
-		return hosts;
+		return extractHostListFromMigrationPlan(MigrationPlan.fromMigrationMap(migrationMap));
 	}
 
 	/**
@@ -289,25 +442,123 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 	 * @param vmsToMigrate the vms to migrate
 	 * @param excludedHosts the excluded hosts
 	 * @return the new vm placement
+	 * @deprecated Use {@link #getNewVmPlacementPlan(List, Set)}; an override of this method is still
+	 *             used instead of it.
 	 */
+	@Deprecated
 	protected List<Map<String, Object>> getNewVmPlacement(
 			List<? extends Vm> vmsToMigrate,
 			Set<? extends Host> excludedHosts) {
-		List<Map<String, Object>> migrationMap = new LinkedList<Map<String, Object>>();
+		return getNewVmPlacementPlan(vmsToMigrate, excludedHosts).toMigrationMap();
+	}
+
+	/**
+	 * Gets the new vm placement from under utilized host.
+	 * 
+	 * @param vmsToMigrate the vms to migrate
+	 * @param excludedHosts the excluded hosts
+	 * @return the new vm placement from under utilized host
+	 * @deprecated Use {@link #getNewVmPlacementPlanFromUnderUtilizedHost(List, Set)}; an override of
+	 *             this method is still used instead of it.
+	 */
+	@Deprecated
+	protected List<Map<String, Object>> getNewVmPlacementFromUnderUtilizedHost(
+			List<? extends Vm> vmsToMigrate,
+			Set<? extends Host> excludedHosts) {
+		return getNewVmPlacementPlanFromUnderUtilizedHost(vmsToMigrate, excludedHosts).toMigrationMap();
+	}
+
+	/**
+	 * Extracts the host list from a migration plan, through the map-based method if a subclass
+	 * overrides it.
+	 * 
+	 * @param migrationPlan the migration plan
+	 * @return the list
+	 */
+	private List<PowerHost> extractHostList(MigrationPlan migrationPlan) {
+		if (extractHostListFromMigrationMapOverridden) {
+			return extractHostListFromMigrationMap(migrationPlan.toMigrationMap());
+		}
+		return extractHostListFromMigrationPlan(migrationPlan);
+	}
+
+	/**
+	 * Gets the new vm placement, through the map-based method if a subclass overrides it.
+	 * 
+	 * @param vmsToMigrate the vms to migrate
+	 * @param excludedHosts the excluded hosts
+	 * @return the new vm placement
+	 */
+	private MigrationPlan placeVms(List<? extends Vm> vmsToMigrate, Set<? extends Host> excludedHosts) {
+		if (newVmPlacementOverridden) {
+			return MigrationPlan.fromMigrationMap(getNewVmPlacement(vmsToMigrate, excludedHosts));
+		}
+		return getNewVmPlacementPlan(vmsToMigrate, excludedHosts);
+	}
+
+	/**
+	 * Gets the new vm placement from under utilized host, through the map-based method if a subclass
+	 * overrides it.
+	 * 
+	 * @param vmsToMigrate the vms to migrate
+	 * @param excludedHosts the excluded hosts
+	 * @return the new vm placement from under utilized host
+	 */
+	private MigrationPlan placeVmsFromUnderUtilizedHost(
+			List<? extends Vm> vmsToMigrate,
+			Set<? extends Host> excludedHosts) {
+		if (newVmPlacementFromUnderUtilizedHostOverridden) {
+			return MigrationPlan.fromMigrationMap(getNewVmPlacementFromUnderUtilizedHost(
+					vmsToMigrate,
+					excludedHosts));
+		}
+		return getNewVmPlacementPlanFromUnderUtilizedHost(vmsToMigrate, excludedHosts);
+	}
+
+	/**
+	 * Checks if a subclass overrides a method of this class.
+	 * 
+	 * @param name the name of the method
+	 * @param parameterTypes the parameter types of the method
+	 * @return true, if the method is overridden
+	 */
+	private boolean isOverridden(String name, Class<?>... parameterTypes) {
+		for (Class<?> c = getClass(); c != PowerVmAllocationPolicyMigrationAbstract.class; c = c.getSuperclass()) {
+			try {
+				c.getDeclaredMethod(name, parameterTypes);
+				return true;
+			} catch (NoSuchMethodException e) {
+				// look in the superclass
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the new vm placement.
+	 * 
+	 * @param vmsToMigrate the vms to migrate
+	 * @param excludedHosts the excluded hosts
+	 * @return the new vm placement
+	 */
+	protected MigrationPlan getNewVmPlacementPlan(
+			List<? extends Vm> vmsToMigrate,
+			Set<? extends Host> excludedHosts) {
+		MigrationPlan migrationPlan = new MigrationPlan();
 		PowerVmList.sortByCpuUtilization(vmsToMigrate);
 		for (Vm vm : vmsToMigrate) {
 			PowerHost allocatedHost = findHostForVm(vm, excludedHosts);
 			if (allocatedHost != null) {
 				allocatedHost.vmCreate(vm);
-				Log.printLine("VM #" + vm.getId() + " allocated to host #" + allocatedHost.getId());
+				if (Log.isEnabled(Log.Level.DEBUG)) {
+					Log.printLine(Log.Level.DEBUG, "VM #" + vm.getId() + " allocated to host #"
+							+ allocatedHost.getId());
+				}
 
-				Map<String, Object> migrate = new HashMap<String, Object>();
-				migrate.put("vm", vm);
-				migrate.put("host", allocatedHost);
-				migrationMap.add(migrate);
+				migrationPlan.add(vm, allocatedHost);
 			}
 		}
-		return migrationMap;
+		return migrationPlan;
 	}
 
 	/**
@@ -317,31 +568,33 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 	 * @param excludedHosts the excluded hosts
 	 * @return the new vm placement from under utilized host
 	 */
-	protected List<Map<String, Object>> getNewVmPlacementFromUnderUtilizedHost(
+	protected MigrationPlan getNewVmPlacementPlanFromUnderUtilizedHost(
 			List<? extends Vm> vmsToMigrate,
 			Set<? extends Host> excludedHosts) {
-		List<Map<String, Object>> migrationMap = new LinkedList<Map<String, Object>>();
+		MigrationPlan migrationPlan = new MigrationPlan();
 		PowerVmList.sortByCpuUtilization(vmsToMigrate);
 		for (Vm vm : vmsToMigrate) {
 			PowerHost allocatedHost = findHostForVm(vm, excludedHosts);
 			if (allocatedHost != null) {
 				allocatedHost.vmCreate(vm);
-				Log.printLine("VM #" + vm.getId() + " allocated to host #" + allocatedHost.getId());
+				if (Log.isEnabled(Log.Level.DEBUG)) {
+					Log.printLine(Log.Level.DEBUG, "VM #" + vm.getId() + " allocated to host #"
+							+ allocatedHost.getId());
+				}
 
-				Map<String, Object> migrate = new HashMap<String, Object>();
-				migrate.put("vm", vm);
-				migrate.put("host", allocatedHost);
-				migrationMap.add(migrate);
+				migrationPlan.add(vm, allocatedHost);
 			} else {
-				Log.printLine("Not all VMs can be reallocated from the host, reallocation cancelled");
-				for (Map<String, Object> map : migrationMap) {
-					((Host) map.get("host")).vmDestroy((Vm) map.get("vm"));
+				Log.printLine(
+						Log.Level.DEBUG,
+						"Not all VMs can be reallocated from the host, reallocation cancelled");
+				for (int i = 0; i < migrationPlan.size(); i++) {
+					migrationPlan.getHost(i).vmDestroy(migrationPlan.getVm(i));
 				}
-				migrationMap.clear();
+				migrationPlan.clear();
 				break;
 			}
 		}
-		return migrationMap;
+		return migrationPlan;
 	}
 
 	/**
@@ -482,47 +735,37 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 		if (!getMetricHistory().containsKey(hostId)) {
 			getMetricHistory().put(hostId, new LinkedList<Double>());
 		}
-		if (!getTimeHistory().get(hostId).contains(CloudSim.clock())) {
-			getTimeHistory().get(hostId).add(CloudSim.clock());
+		// the clock never goes back, so the time can only be the last one of the history
+		List<Double> hostTimeHistory = getTimeHistory().get(hostId);
+		if (hostTimeHistory.isEmpty()
+				|| hostTimeHistory.get(hostTimeHistory.size() - 1) != CloudSim.clock()) {
+			hostTimeHistory.add(CloudSim.clock());
 			getUtilizationHistory().get(hostId).add(host.getUtilizationOfCpu());
 			getMetricHistory().get(hostId).add(metric);
 		}
 	}
 
 	/**
-	 * Save allocation.
+	 * Save allocation. The VM creations and destructions made on the hosts from now on are recorded,
+	 * so that they can be undone by {@link #restoreAllocation()}.
 	 */
 	protected void saveAllocation() {
-		getSavedAllocation().clear();
-		for (Host host : getHostList()) {
-			for (Vm vm : host.getVmList()) {
-				if (host.getVmsMigratingIn().contains(vm)) {
-					continue;
-				}
-				Map<String, Object> map = new HashMap<String, Object>();
-				map.put("host", host);
-				map.put("vm", vm);
-				getSavedAllocation().add(map);
-			}
+		for (PowerHost host : this.<PowerHost> getHostList()) {
+			host.setAllocationUndoLog(getAllocationUndoLog());
 		}
 	}
 
 	/**
-	 * Restore allocation.
+	 * Restore allocation. The VM creations and destructions made since
+	 * {@link #saveAllocation()} are undone in reverse order and no longer recorded.
 	 */
 	protected void restoreAllocation() {
-		for (Host host : getHostList()) {
-			host.vmDestroyAll();
-			host.reallocateMigratingInVms();
-		}
-		for (Map<String, Object> map : getSavedAllocation()) {
-			Vm vm = (Vm) map.get("vm");
-			PowerHost host = (PowerHost) map.get("host");
-			if (!host.vmCreate(vm)) {
-				Log.printLine("Couldn't restore VM #" + vm.getId() + " on host #" + host.getId());
-				System.exit(0);
+		try {
+			getAllocationUndoLog().undo();
+		} finally {
+			for (PowerHost host : this.<PowerHost> getHostList()) {
+				host.setAllocationUndoLog(null);
 			}
-			getVmTable().put(vm.getUid(), host);
 		}
 	}
 
@@ -570,6 +813,136 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 	 * @return the utilization of the CPU in MIPS
 	 */
 	protected double getUtilizationOfCpuMips(PowerHost host) {
+		if (isUtilizationSummariesEnabled()) {
+			return getUtilizationSummary(host).utilizationOfCpuMips;
+		}
+		return computeUtilizationOfCpuMips(host);
+	}
+
+	/**
+	 * Gets the total MIPS currently requested by the VMs of a host.
+	 * 
+	 * @param host the host
+	 * @return the total requested MIPS
+	 */
+	protected double getRequestedTotalMips(PowerHost host) {
+		if (isUtilizationSummariesEnabled()) {
+			return getUtilizationSummary(host).requestedTotalMips;
+		}
+		double requestedTotalMips = 0;
+		for (Vm vm : host.getVmList()) {
+			requestedTotalMips += vm.getCurrentRequestedTotalMips();
+		}
+		return requestedTotalMips;
+	}
+
+	/**
+	 * Gets the total RAM currently requested by the VMs of a host.
+	 * 
+	 * @param host the host
+	 * @return the total requested RAM
+	 */
+	protected double getRequestedTotalRam(PowerHost host) {
+		if (isUtilizationSummariesEnabled()) {
+			return getUtilizationSummary(host).requestedTotalRam;
+		}
+		double requestedTotalRam = 0;
+		for (Vm vm : host.getVmList()) {
+			requestedTotalRam += vm.getCurrentRequestedRam();
+		}
+		return requestedTotalRam;
+	}
+
+	/**
+	 * Gets the utilization summary of a host, computing it again if the allocation of the host has
+	 * changed since it was last computed.
+	 * 
+	 * @param host the host
+	 * @return the utilization summary
+	 */
+	private HostUtilizationSummary getUtilizationSummary(PowerHost host) {
+		HostUtilizationSummary summary = utilizationSummaries.get(host);
+		if (summary == null) {
+			summary = new HostUtilizationSummary();
+			summary.allocationVersion = host.getAllocationVersion() - 1;
+			utilizationSummaries.put(host, summary);
+		}
+		if (summary.allocationVersion != host.getAllocationVersion() || summary.time != CloudSim.clock()) {
+			double requestedTotalMips = 0;
+			double requestedTotalRam = 0;
+			for (Vm vm : host.getVmList()) {
+				requestedTotalMips += vm.getCurrentRequestedTotalMips();
+				requestedTotalRam += vm.getCurrentRequestedRam();
+			}
+			summary.requestedTotalMips = requestedTotalMips;
+			summary.requestedTotalRam = requestedTotalRam;
+			summary.utilizationOfCpuMips = computeUtilizationOfCpuMips(host);
+			summary.utilizationHistory = null;
+			summary.untrimmedUtilizationHistory = null;
+			summary.allocationVersion = host.getAllocationVersion();
+			summary.time = CloudSim.clock();
+		}
+		return summary;
+	}
+
+	/**
+	 * Gets the utilization history of a host. While the allocation is being optimized, the history
+	 * is computed once per allocation of the host and shared by all the callers, which must not
+	 * modify it.
+	 * 
+	 * @param host the host
+	 * @return the host utilization history, most recent first
+	 */
+	protected double[] getHostUtilizationHistory(PowerHostUtilizationHistory host) {
+		if (!isUtilizationSummariesEnabled()) {
+			return host.getUtilizationHistory();
+		}
+		HostUtilizationSummary summary = getUtilizationSummary(host);
+		if (summary.utilizationHistory == null) {
+			summary.utilizationHistory = MathUtil.trimZeroTail(getUntrimmedUtilizationHistory(summary, host));
+		}
+		return summary.utilizationHistory;
+	}
+
+	/**
+	 * Gets the utilization history of a host as it would be if a VM were allocated to it. While the
+	 * allocation is being optimized, it is computed from the history of the host shared by the
+	 * callers and the history of the VM, without walking the other VMs of the host.
+	 * 
+	 * @param host the host
+	 * @param vm the vm to be allocated
+	 * @return the host utilization history, most recent first
+	 */
+	protected double[] getHostUtilizationHistory(PowerHostUtilizationHistory host, PowerVm vm) {
+		if (!isUtilizationSummariesEnabled()) {
+			return host.getUtilizationHistory(vm);
+		}
+		return host.getUtilizationHistory(getUntrimmedUtilizationHistory(getUtilizationSummary(host), host), vm);
+	}
+
+	/**
+	 * Gets the untrimmed utilization history of a host from its summary, computing it if needed.
+	 * 
+	 * @param summary the utilization summary of the host
+	 * @param host the host
+	 * @return the untrimmed host utilization history, which must not be modified
+	 */
+	private static double[] getUntrimmedUtilizationHistory(
+			HostUtilizationSummary summary,
+			PowerHostUtilizationHistory host) {
+		if (summary.untrimmedUtilizationHistory == null) {
+			summary.untrimmedUtilizationHistory = host.getUntrimmedUtilizationHistory();
+		}
+		return summary.untrimmedUtilizationHistory;
+	}
+
+	/**
+	 * Computes the utilization of the CPU in MIPS for the current potentially allocated VMs.
+	 * 
+	 * @param host the host
+	 * @return the utilization of the CPU in MIPS
+	 */
+	private double computeUtilizationOfCpuMips(PowerHost host) {
 		double hostUtilizationMips = 0;
 		for (Vm vm2 : host.getVmList()) {
 			if (host.getVmsMigratingIn().contains(vm2)) {
@@ -582,11 +955,73 @@ public abstract class PowerVmAllocationPolicyMigrationAbstract extends PowerVmAl
 	}
 
 	/**
-	 * Gets the saved allocation.
+	 * Enables or disables the reuse of the host utilization summaries. The summaries are discarded
+	 * in both cases.
+	 * 
+	 * @param utilizationSummariesEnabled whether the summaries can be reused
+	 */
+	protected void setUtilizationSummariesEnabled(boolean utilizationSummariesEnabled) {
+		utilizationSummaries.clear();
+		this.utilizationSummariesEnabled = utilizationSummariesEnabled;
+		// the fallback policy checks the same hosts while the allocation is optimized
+		if (getFallbackVmAllocationPolicy() != null) {
+			getFallbackVmAllocationPolicy().setUtilizationSummariesEnabled(utilizationSummariesEnabled);
+		}
+	}
+
+	/**
+	 * Gets the policy used when this policy cannot decide on its own, e.g. when the utilization
+	 * history of a host is too short. Its host utilization summaries are enabled and disabled along
+	 * with those of this policy. Policies with a fallback override this method, which returns null.
+	 * 
+	 * @return the fallback vm allocation policy, or null if there is none
+	 */
+	protected PowerVmAllocationPolicyMigrationAbstract getFallbackVmAllocationPolicy() {
+		return null;
+	}
+
+	/**
+	 * Checks whether the host utilization summaries can be reused.
+	 * 
+	 * @return true, if the summaries can be reused
+	 */
+	protected boolean isUtilizationSummariesEnabled() {
+		return utilizationSummariesEnabled;
+	}
+
+	/**
+	 * Gets the undo log of the changes made to the hosts while finding a new allocation.
+	 * 
+	 * @return the allocation undo log
+	 */
+	protected AllocationUndoLog getAllocationUndoLog() {
+		return allocationUndoLog;
+	}
+
+	/**
+	 * Gets the saved allocation, i.e. the hosts and VMs, except the VMs migrating in, as they were
+	 * when {@link #saveAllocation()} was called. Outside the optimization of the allocation, it is the
+	 * current allocation. The list is rebuilt from the undo log at each call, and changing it does not
+	 * affect {@link #restoreAllocation()}.
 	 * 
 	 * @return the saved allocation
+	 * @deprecated The allocation is no longer saved as maps; {@link #getAllocationUndoLog()} records
+	 *             the changes made since {@link #saveAllocation()}.
 	 */
+	@Deprecated
 	protected List<Map<String, Object>> getSavedAllocation() {
+		List<Map<String, Object>> savedAllocation = new ArrayList<Map<String, Object>>();
+		for (PowerHost host : this.<PowerHost> getHostList()) {
+			for (Vm vm : getAllocationUndoLog().getVmListBeforeChanges(host)) {
+				if (host.getVmsMigratingIn().contains(vm)) {
+					continue;
+				}
+				Map<String, Object> map = new HashMap<String, Object>();
+				map.put("host", host);
+				map.put("vm", vm);
+				savedAllocation.add(map);
+			}
+		}
 		return savedAllocation;
 	}
 
@@ -0,0 +1,532 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.power;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.core.CloudSim;
+
+/**
+ * The Fuzzy VM allocation policy. A host is considered over utilized when the overload degree
+ * inferred by a fuzzy controller from a set of features of the host is above a threshold.
+ *
+ * The controller is given the value of each feature, normalized to [0, 1], and returns an overload
+ * degree in [0, 1]. It can be any fuzzy system (type-1, interval type-2 or zSlices based general
+ * type-2) wrapped in a {@link Controller}. Its results are cached per host: a host checked again
+ * with the same features at the same simulation time is not evaluated again.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class PowerVmAllocationPolicyMigrationFuzzy extends PowerVmAllocationPolicyMigrationAbstract {
+
+	/**
+	 * The features of a host that can be given to the controller. All of them are normalized to [0,
+	 * 1].
+	 */
+	public enum Feature {
+
+		/** The total MIPS requested by the VMs of the host over the total MIPS of the host. */
+		CPU_UTILIZATION,
+
+		/** The total RAM requested by the VMs of the host over the RAM of the host. */
+		RAM_UTILIZATION,
+
+		/** The mean of the CPU utilization history of the host. */
+		CPU_UTILIZATION_HISTORY_MEAN,
+
+		/** The maximum of the CPU utilization history of the host. */
+		CPU_UTILIZATION_HISTORY_MAX,
+
+		/**
+		 * The trend of the CPU utilization history of the host, i.e. the least squares slope per
+		 * interval mapped from [-1, 1] to [0, 1], with 0.5 for a steady utilization.
+		 */
+		CPU_UTILIZATION_HISTORY_TREND
+	}
+
+	/**
+	 * A fuzzy system inferring the overload degree of a host from its features.
+	 */
+	public interface Controller {
+
+		/**
+		 * Gets the overload degree of a host.
+		 *
+		 * @param features the value of each feature of the policy, in the same order
+		 * @return the overload degree, in [0, 1]
+		 */
+		double getOverloadDegree(double[] features);
+
+	}
+
+	/** The utilization threshold. */
+	private double utilizationThreshold = 0.9;
+
+	/** The controller. */
+	private final Controller controller;
+
+	/** The features given to the controller. */
+	private final Feature[] features;
+
+	/** Whether a feature uses the CPU utilization history. */
+	private final boolean historyNeeded;
+
+	/** The inference results of the hosts at the current simulation time. */
+	private final OverloadDegreeCache overloadDegrees;
+
+	/** The simulation time of the cached inference results. */
+	private double overloadDegreesTime = -1;
+
+	/** The features of the host being checked, reused from one check to the next. */
+	private final double[] featureValues;
+
+	/** A copy of the features given to the controller, so that it cannot change the cache keys. */
+	private final double[] controllerFeatureValues;
+
+	/** The number of controller evaluations. */
+	private long evaluationCount;
+
+	/** The number of checks answered from the cache. */
+	private long cacheHitCount;
+
+	/**
+	 * The overload degrees by host id and features, in an open addressing hash table. Clearing it
+	 * only starts a new generation of its slots, so that its arrays are reused from one simulation
+	 * time to the next and a lookup does not allocate.
+	 */
+	private static class OverloadDegreeCache {
+
+		/** The number of features of a key. */
+		private final int dimension;
+
+		/** The host id of each slot. */
+		private int[] hostIds;
+
+		/** The features of each slot, dimension values per slot. */
+		private double[] keys;
+
+		/** The overload degree of each slot. */
+		private double[] values;
+
+		/** The generation of each slot; a slot is used only if it is of the current generation. */
+		private int[] generations;
+
+		/** The current generation. */
+		private int generation = 1;
+
+		/** The number of used slots. */
+		private int size;
+
+		/**
+		 * Instantiates a new overload degree cache.
+		 *
+		 * @param dimension the number of features of a key
+		 */
+		public OverloadDegreeCache(int dimension) {
+			this.dimension = dimension;
+			allocate(64);
+		}
+
+		/**
+		 * Allocates empty slots.
+		 *
+		 * @param capacity the number of slots, a power of two
+		 */
+		private void allocate(int capacity) {
+			hostIds = new int[capacity];
+			keys = new double[capacity * dimension];
+			values = new double[capacity];
+			generations = new int[capacity];
+		}
+
+		/**
+		 * Removes all the entries.
+		 */
+		public void clear() {
+			size = 0;
+			generation++;
+			if (generation == Integer.MAX_VALUE) {
+				Arrays.fill(generations, 0);
+				generation = 1;
+			}
+		}
+
+		/**
+		 * Finds the slot of a host and its features.
+		 *
+		 * @param hostId the host id
+		 * @param features the features
+		 * @return the slot holding them, or else the free slot where they can be put
+		 */
+		public int find(int hostId, double[] features) {
+			int hash = hostId;
+			for (double feature : features) {
+				long bits = Double.doubleToLongBits(feature);
+				hash = 31 * hash + (int) (bits ^ (bits >>> 32));
+			}
+			hash *= 0x9E3779B9;
+			int mask = hostIds.length - 1;
+			int slot = (hash ^ (hash >>> 16)) & mask;
+			while (contains(slot) && !matches(slot, hostId, features)) {
+				slot = (slot + 1) & mask;
+			}
+			return slot;
+		}
+
+		/**
+		 * Checks whether a slot holds an entry.
+		 *
+		 * @param slot the slot
+		 * @return true, if the slot holds an entry
+		 */
+		public boolean contains(int slot) {
+			return generations[slot] == generation;
+		}
+
+		/**
+		 * Gets the overload degree of a slot.
+		 *
+		 * @param slot a slot holding an entry
+		 * @return the overload degree
+		 */
+		public double get(int slot) {
+			return values[slot];
+		}
+
+		/**
+		 * Puts an entry into a free slot returned by {@link #find(int, double[])}.
+		 *
+		 * @param slot the slot
+		 * @param hostId the host id
+		 * @param features the features
+		 * @param overloadDegree the overload degree
+		 */
+		public void put(int slot, int hostId, double[] features, double overloadDegree) {
+			hostIds[slot] = hostId;
+			System.arraycopy(features, 0, keys, slot * dimension, dimension);
+			values[slot] = overloadDegree;
+			generations[slot] = generation;
+			size++;
+			if (size * 2 > hostIds.length) {
+				rehash();
+			}
+		}
+
+		/**
+		 * Doubles the number of slots, keeping the entries.
+		 */
+		private void rehash() {
+			int[] oldHostIds = hostIds;
+			double[] oldKeys = keys;
+			double[] oldValues = values;
+			int[] oldGenerations = generations;
+			allocate(oldHostIds.length * 2);
+			size = 0;
+			double[] features = new double[dimension];
+			for (int i = 0; i < oldHostIds.length; i++) {
+				if (oldGenerations[i] == generation) {
+					System.arraycopy(oldKeys, i * dimension, features, 0, dimension);
+					put(find(oldHostIds[i], features), oldHostIds[i], features, oldValues[i]);
+				}
+			}
+		}
+
+		/**
+		 * Checks whether a slot holds the given host and features, compared as
+		 * {@link Arrays#equals(double[], double[])} does.
+		 *
+		 * @param slot the slot
+		 * @param hostId the host id
+		 * @param features the features
+		 * @return true, if they match
+		 */
+		private boolean matches(int slot, int hostId, double[] features) {
+			if (hostIds[slot] != hostId) {
+				return false;
+			}
+			int offset = slot * dimension;
+			for (int i = 0; i < dimension; i++) {
+				if (Double.doubleToLongBits(keys[offset + i]) != Double.doubleToLongBits(features[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+	}
+
+	/**
+	 * Instantiates a new power vm allocation policy migration fuzzy.
+	 *
+	 * @param hostList the host list
+	 * @param vmSelectionPolicy the vm selection policy
+	 * @param controller the controller
+	 * @param features the features given to the controller, in the order of its inputs
+	 * @param utilizationThreshold the threshold on the overload degree, in [0, 1]
+	 */
+	public PowerVmAllocationPolicyMigrationFuzzy(
+			List<? extends Host> hostList,
+			PowerVmSelectionPolicy vmSelectionPolicy,
+			Controller controller,
+			Feature[] features,
+			double utilizationThreshold) {
+		super(hostList, vmSelectionPolicy);
+		if (controller == null) {
+			throw new IllegalArgumentException("The controller must not be null");
+		}
+		if (features.length == 0) {
+			throw new IllegalArgumentException("At least one feature is required");
+		}
+		this.controller = controller;
+		this.features = features.clone();
+		overloadDegrees = new OverloadDegreeCache(features.length);
+		featureValues = new double[features.length];
+		controllerFeatureValues = new double[features.length];
+		boolean historyNeeded = false;
+		for (Feature feature : features) {
+			historyNeeded |= feature != Feature.CPU_UTILIZATION && feature != Feature.RAM_UTILIZATION;
+		}
+		this.historyNeeded = historyNeeded;
+		setUtilizationThreshold(utilizationThreshold);
+	}
+
+	/**
+	 * Instantiates a new power vm allocation policy migration fuzzy, whose controller is given the
+	 * CPU and RAM utilization of the hosts.
+	 *
+	 * @param hostList the host list
+	 * @param vmSelectionPolicy the vm selection policy
+	 * @param controller the controller
+	 * @param utilizationThreshold the threshold on the overload degree, in [0, 1]
+	 */
+	public PowerVmAllocationPolicyMigrationFuzzy(
+			List<? extends Host> hostList,
+			PowerVmSelectionPolicy vmSelectionPolicy,
+			Controller controller,
+			double utilizationThreshold) {
+		this(hostList, vmSelectionPolicy, controller, new Feature[] { Feature.CPU_UTILIZATION,
+				Feature.RAM_UTILIZATION }, utilizationThreshold);
+	}
+
+	/**
+	 * Checks if is host over utilized.
+	 *
+	 * @param host the host
+	 * @return true, if is host over utilized
+	 */
+	@Override
+	protected boolean isHostOverUtilized(PowerHost host) {
+		addHistoryEntry(host, getUtilizationThreshold());
+		double[] utilizationHistory = null;
+		if (historyNeeded && host instanceof PowerHostUtilizationHistory) {
+			utilizationHistory = getHostUtilizationHistory((PowerHostUtilizationHistory) host);
+		}
+		return getOverloadDegree(
+				host,
+				getRequestedTotalMips(host),
+				getRequestedTotalRam(host),
+				utilizationHistory) > getUtilizationThreshold();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * org.cloudbus.cloudsim.power.PowerVmAllocationPolicyMigrationAbstract#isHostOverUtilizedAfterAllocation
+	 * (org.cloudbus.cloudsim.power.PowerHost, org.cloudbus.cloudsim.Vm)
+	 */
+	@Override
+	protected boolean isHostOverUtilizedAfterAllocation(PowerHost host, Vm vm) {
+		if (!canCreateVm(host, vm)) {
+			return true;
+		}
+		addHistoryEntry(host, getUtilizationThreshold());
+		double[] utilizationHistory = null;
+		if (historyNeeded && host instanceof PowerHostUtilizationHistory && vm instanceof PowerVm) {
+			utilizationHistory = getHostUtilizationHistory((PowerHostUtilizationHistory) host, (PowerVm) vm);
+		}
+		return getOverloadDegree(
+				host,
+				getRequestedTotalMips(host) + vm.getCurrentRequestedTotalMips(),
+				getRequestedTotalRam(host) + vm.getCurrentRequestedRam(),
+				utilizationHistory) > getUtilizationThreshold();
+	}
+
+	/**
+	 * Gets the overload degree of a host with the given requested MIPS, RAM and utilization history,
+	 * from the cache if the host has already been checked with the same features at the current
+	 * simulation time.
+	 *
+	 * @param host the host
+	 * @param totalRequestedMips the total requested mips
+	 * @param totalRequestedRam the total requested ram
+	 * @param utilizationHistory the utilization history, most recent first, or null if not needed
+	 *            or not available
+	 * @return the overload degree
+	 */
+	protected double getOverloadDegree(
+			PowerHost host,
+			double totalRequestedMips,
+			double totalRequestedRam,
+			double[] utilizationHistory) {
+		double cpuUtilization = totalRequestedMips / host.getTotalMips();
+		double[] values = featureValues;
+		for (int i = 0; i < features.length; i++) {
+			values[i] = getFeature(features[i], cpuUtilization, totalRequestedRam / host.getRam(), utilizationHistory);
+		}
+
+		if (CloudSim.clock() != overloadDegreesTime) {
+			overloadDegrees.clear();
+			overloadDegreesTime = CloudSim.clock();
+		}
+		int slot = overloadDegrees.find(host.getId(), values);
+		if (overloadDegrees.contains(slot)) {
+			cacheHitCount++;
+			return overloadDegrees.get(slot);
+		}
+		evaluationCount++;
+		System.arraycopy(values, 0, controllerFeatureValues, 0, values.length);
+		double result = getController().getOverloadDegree(controllerFeatureValues);
+		overloadDegrees.put(slot, host.getId(), values, result);
+		return result;
+	}
+
+	/**
+	 * Gets the value of a feature, clamped to [0, 1].
+	 *
+	 * @param feature the feature
+	 * @param cpuUtilization the cpu utilization
+	 * @param ramUtilization the ram utilization
+	 * @param utilizationHistory the utilization history, most recent first, or null
+	 * @return the value of the feature
+	 */
+	private static double getFeature(
+			Feature feature,
+			double cpuUtilization,
+			double ramUtilization,
+			double[] utilizationHistory) {
+		double value;
+		switch (feature) {
+			case CPU_UTILIZATION:
+				value = cpuUtilization;
+				break;
+			case RAM_UTILIZATION:
+				value = ramUtilization;
+				break;
+			case CPU_UTILIZATION_HISTORY_MEAN:
+				value = cpuUtilization;
+				if (utilizationHistory != null && utilizationHistory.length > 0) {
+					double sum = 0;
+					for (double utilization : utilizationHistory) {
+						sum += utilization;
+					}
+					value = sum / utilizationHistory.length;
+				}
+				break;
+			case CPU_UTILIZATION_HISTORY_MAX:
+				value = cpuUtilization;
+				if (utilizationHistory != null && utilizationHistory.length > 0) {
+					value = utilizationHistory[0];
+					for (double utilization : utilizationHistory) {
+						value = Math.max(value, utilization);
+					}
+				}
+				break;
+			default:
+				value = 0.5 + getTrend(utilizationHistory) / 2;
+				break;
+		}
+		return Math.min(Math.max(value, 0), 1);
+	}
+
+	/**
+	 * Gets the least squares slope of a utilization history per interval.
+	 *
+	 * @param utilizationHistory the utilization history, most recent first, or null
+	 * @return the slope, or 0 if the history has less than two values
+	 */
+	private static double getTrend(double[] utilizationHistory) {
+		if (utilizationHistory == null || utilizationHistory.length < 2) {
+			return 0;
+		}
+		int n = utilizationHistory.length;
+		// the values are most recent first, so that time runs from n - 1 down to 0
+		double meanTime = (n - 1) / 2.0;
+		double meanUtilization = 0;
+		for (double utilization : utilizationHistory) {
+			meanUtilization += utilization;
+		}
+		meanUtilization /= n;
+		double covariance = 0;
+		double variance = 0;
+		for (int i = 0; i < n; i++) {
+			double time = n - 1 - i;
+			covariance += (time - meanTime) * (utilizationHistory[i] - meanUtilization);
+			variance += (time - meanTime) * (time - meanTime);
+		}
+		return covariance / variance;
+	}
+
+	/**
+	 * Gets the controller.
+	 *
+	 * @return the controller
+	 */
+	public Controller getController() {
+		return controller;
+	}
+
+	/**
+	 * Gets the features given to the controller.
+	 *
+	 * @return the features
+	 */
+	public Feature[] getFeatures() {
+		return features.clone();
+	}
+
+	/**
+	 * Gets the number of controller evaluations.
+	 *
+	 * @return the evaluation count
+	 */
+	public long getEvaluationCount() {
+		return evaluationCount;
+	}
+
+	/**
+	 * Gets the number of checks answered from the cache, without evaluating the controller.
+	 *
+	 * @return the cache hit count
+	 */
+	public long getCacheHitCount() {
+		return cacheHitCount;
+	}
+
+	/**
+	 * Sets the utilization threshold.
+	 *
+	 * @param utilizationThreshold the new utilization threshold
+	 */
+	protected void setUtilizationThreshold(double utilizationThreshold) {
+		this.utilizationThreshold = utilizationThreshold;
+	}
+
+	/**
+	 * Gets the utilization threshold.
+	 *
+	 * @return the utilization threshold
+	 */
+	protected double getUtilizationThreshold() {
+		return utilizationThreshold;
+	}
+
+}
@@ -90,14 +90,33 @@ public class PowerVmAllocationPolicyMigrationInterQuartileRange extends
 			return getFallbackVmAllocationPolicy().isHostOverUtilized(host);
 		}
 		addHistoryEntry(host, upperThreshold);
-		double totalRequestedMips = 0;
-		for (Vm vm : host.getVmList()) {
-			totalRequestedMips += vm.getCurrentRequestedTotalMips();
-		}
-		double utilization = totalRequestedMips / host.getTotalMips();
+		double utilization = getRequestedTotalMips(host) / host.getTotalMips();
 		return utilization > upperThreshold;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * org.cloudbus.cloudsim.power.PowerVmAllocationPolicyMigrationAbstract#isHostOverUtilizedAfterAllocation
+	 * (org.cloudbus.cloudsim.power.PowerHost, org.cloudbus.cloudsim.Vm)
+	 */
+	@Override
+	protected boolean isHostOverUtilizedAfterAllocation(PowerHost host, Vm vm) {
+		if (!canCreateVm(host, vm)) {
+			return true;
+		}
+		PowerHostUtilizationHistory _host = (PowerHostUtilizationHistory) host;
+		double upperThreshold = 0;
+		try {
+			upperThreshold = 1 - getSafetyParameter()
+					* getUtilizationIqr(getHostUtilizationHistory(_host, (PowerVm) vm));
+		} catch (IllegalArgumentException e) {
+			return getFallbackVmAllocationPolicy().isHostOverUtilizedAfterAllocation(host, vm);
+		}
+		addHistoryEntry(host, upperThreshold);
+		return getUtilizationAfterAllocation(host, vm) > upperThreshold;
+	}
+
 	/**
 	 * Gets the host utilization iqr.
 	 * 
@@ -105,7 +124,17 @@ public class PowerVmAllocationPolicyMigrationInterQuartileRange extends
 	 * @return the host utilization iqr
 	 */
 	protected double getHostUtilizationIqr(PowerHostUtilizationHistory host) throws IllegalArgumentException {
-		double[] data = host.getUtilizationHistory();
+		// the history may be shared, and the iqr is computed by reordering the data in place
+		return getUtilizationIqr(getHostUtilizationHistory(host).clone());
+	}
+
+	/**
+	 * Gets the iqr of a utilization history.
+	 * 
+	 * @param data the utilization history
+	 * @return the utilization iqr
+	 */
+	protected double getUtilizationIqr(double[] data) throws IllegalArgumentException {
 		if (MathUtil.countNonZeroBeginning(data) >= 12) { // 12 has been suggested as a safe value
 			return MathUtil.iqr(data);
 		}
@@ -119,8 +148,8 @@ public class PowerVmAllocationPolicyMigrationInterQuartileRange extends
 	 */
 	protected void setSafetyParameter(double safetyParameter) {
 		if (safetyParameter < 0) {
-			Log.printLine("The safety parameter cannot be less than zero. The passed value is: "
-					+ safetyParameter);
+			Log.printLine(Log.Level.ERROR, "The safety parameter cannot be less than zero. "
+					+ "The passed value is: " + safetyParameter);
 			System.exit(0);
 		}
 		this.safetyParameter = safetyParameter;
@@ -150,6 +179,7 @@ public class PowerVmAllocationPolicyMigrationInterQuartileRange extends
 	 * 
 	 * @return the fallback vm allocation policy
 	 */
+	@Override
 	public PowerVmAllocationPolicyMigrationAbstract getFallbackVmAllocationPolicy() {
 		return fallbackVmAllocationPolicy;
 	}
@@ -90,30 +90,71 @@ public class PowerVmAllocationPolicyMigrationLocalRegression extends PowerVmAllo
 	@Override
 	protected boolean isHostOverUtilized(PowerHost host) {
 		PowerHostUtilizationHistory _host = (PowerHostUtilizationHistory) host;
-		double[] utilizationHistory = _host.getUtilizationHistory();
-		int length = 10; // we use 10 to make the regression responsive enough to latest values
-		if (utilizationHistory.length < length) {
+		double predictedUtilization = 0;
+		try {
+			predictedUtilization = getPredictedUtilization(
+					getHostUtilizationHistory(_host),
+					getMaximumVmMigrationTime(_host));
+		} catch (IllegalArgumentException e) {
 			return getFallbackVmAllocationPolicy().isHostOverUtilized(host);
 		}
-		double[] utilizationHistoryReversed = new double[length];
-		for (int i = 0; i < length; i++) {
-			utilizationHistoryReversed[i] = utilizationHistory[length - i - 1];
+
+		addHistoryEntry(host, predictedUtilization);
+
+		return predictedUtilization >= 1;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * org.cloudbus.cloudsim.power.PowerVmAllocationPolicyMigrationAbstract#isHostOverUtilizedAfterAllocation
+	 * (org.cloudbus.cloudsim.power.PowerHost, org.cloudbus.cloudsim.Vm)
+	 */
+	@Override
+	protected boolean isHostOverUtilizedAfterAllocation(PowerHost host, Vm vm) {
+		if (!canCreateVm(host, vm)) {
+			return true;
 		}
-		double[] estimates = null;
+		PowerHostUtilizationHistory _host = (PowerHostUtilizationHistory) host;
+		double predictedUtilization = 0;
 		try {
-			estimates = getParameterEstimates(utilizationHistoryReversed);
+			predictedUtilization = getPredictedUtilization(
+					getHostUtilizationHistory(_host, (PowerVm) vm),
+					getMaximumVmMigrationTime(_host, vm));
 		} catch (IllegalArgumentException e) {
-			return getFallbackVmAllocationPolicy().isHostOverUtilized(host);
+			return getFallbackVmAllocationPolicy().isHostOverUtilizedAfterAllocation(host, vm);
 		}
-		double migrationIntervals = Math.ceil(getMaximumVmMigrationTime(_host) / getSchedulingInterval());
-		double predictedUtilization = estimates[0] + estimates[1] * (length + migrationIntervals);
-		predictedUtilization *= getSafetyParameter();
 
 		addHistoryEntry(host, predictedUtilization);
 
 		return predictedUtilization >= 1;
 	}
 
+	/**
+	 * Gets the utilization predicted by the regression for the time when the migrations would finish.
+	 * 
+	 * @param utilizationHistory the utilization history
+	 * @param maximumVmMigrationTime the maximum vm migration time
+	 * @return the predicted utilization
+	 * @throws IllegalArgumentException if the history is too short or the regression fails
+	 */
+	protected double getPredictedUtilization(double[] utilizationHistory, double maximumVmMigrationTime)
+			throws IllegalArgumentException {
+		int length = 10; // we use 10 to make the regression responsive enough to latest values
+		if (utilizationHistory.length < length) {
+			throw new IllegalArgumentException();
+		}
+		double[] utilizationHistoryReversed = new double[length];
+		for (int i = 0; i < length; i++) {
+			utilizationHistoryReversed[i] = utilizationHistory[length - i - 1];
+		}
+		double[] estimates = getParameterEstimates(utilizationHistoryReversed);
+		double migrationIntervals = Math.ceil(maximumVmMigrationTime / getSchedulingInterval());
+		double predictedUtilization = estimates[0] + estimates[1] * (length + migrationIntervals);
+		predictedUtilization *= getSafetyParameter();
+		return predictedUtilization;
+	}
+
 	/**
 	 * Gets the parameter estimates.
 	 * 
@@ -141,6 +182,24 @@ public class PowerVmAllocationPolicyMigrationLocalRegression extends PowerVmAllo
 		return maxRam / ((double) host.getBw() / (2 * 8000));
 	}
 
+	/**
+	 * Gets the maximum vm migration time of a host after a VM is allocated to it.
+	 * 
+	 * @param host the host
+	 * @param vm the vm to be allocated
+	 * @return the maximum vm migration time
+	 */
+	protected double getMaximumVmMigrationTime(PowerHost host, Vm vm) {
+		int maxRam = vm.getRam();
+		for (Vm hostVm : host.getVmList()) {
+			int ram = hostVm.getRam();
+			if (ram > maxRam) {
+				maxRam = ram;
+			}
+		}
+		return maxRam / ((double) host.getBw() / (2 * 8000));
+	}
+
 	/**
 	 * Sets the scheduling interval.
 	 * 
@@ -174,6 +233,7 @@ public class PowerVmAllocationPolicyMigrationLocalRegression extends PowerVmAllo
 	 * 
 	 * @return the fallback vm allocation policy
 	 */
+	@Override
 	public PowerVmAllocationPolicyMigrationAbstract getFallbackVmAllocationPolicy() {
 		return fallbackVmAllocationPolicy;
 	}
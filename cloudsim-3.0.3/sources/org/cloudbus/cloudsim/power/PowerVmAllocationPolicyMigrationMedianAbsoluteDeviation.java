@@ -90,14 +90,33 @@ public class PowerVmAllocationPolicyMigrationMedianAbsoluteDeviation extends
 			return getFallbackVmAllocationPolicy().isHostOverUtilized(host);
 		}
 		addHistoryEntry(host, upperThreshold);
-		double totalRequestedMips = 0;
-		for (Vm vm : host.getVmList()) {
-			totalRequestedMips += vm.getCurrentRequestedTotalMips();
-		}
-		double utilization = totalRequestedMips / host.getTotalMips();
+		double utilization = getRequestedTotalMips(host) / host.getTotalMips();
 		return utilization > upperThreshold;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * org.cloudbus.cloudsim.power.PowerVmAllocationPolicyMigrationAbstract#isHostOverUtilizedAfterAllocation
+	 * (org.cloudbus.cloudsim.power.PowerHost, org.cloudbus.cloudsim.Vm)
+	 */
+	@Override
+	protected boolean isHostOverUtilizedAfterAllocation(PowerHost host, Vm vm) {
+		if (!canCreateVm(host, vm)) {
+			return true;
+		}
+		PowerHostUtilizationHistory _host = (PowerHostUtilizationHistory) host;
+		double upperThreshold = 0;
+		try {
+			upperThreshold = 1 - getSafetyParameter()
+					* getUtilizationMad(getHostUtilizationHistory(_host, (PowerVm) vm));
+		} catch (IllegalArgumentException e) {
+			return getFallbackVmAllocationPolicy().isHostOverUtilizedAfterAllocation(host, vm);
+		}
+		addHistoryEntry(host, upperThreshold);
+		return getUtilizationAfterAllocation(host, vm) > upperThreshold;
+	}
+
 	/**
 	 * Gets the host utilization mad.
 	 * 
@@ -105,7 +124,16 @@ public class PowerVmAllocationPolicyMigrationMedianAbsoluteDeviation extends
 	 * @return the host utilization mad
 	 */
 	protected double getHostUtilizationMad(PowerHostUtilizationHistory host) throws IllegalArgumentException {
-		double[] data = host.getUtilizationHistory();
+		return getUtilizationMad(getHostUtilizationHistory(host));
+	}
+
+	/**
+	 * Gets the mad of a utilization history.
+	 * 
+	 * @param data the utilization history
+	 * @return the utilization mad
+	 */
+	protected double getUtilizationMad(double[] data) throws IllegalArgumentException {
 		if (MathUtil.countNonZeroBeginning(data) >= 12) { // 12 has been suggested as a safe value
 			return MathUtil.mad(data);
 		}
@@ -119,8 +147,8 @@ public class PowerVmAllocationPolicyMigrationMedianAbsoluteDeviation extends
 	 */
 	protected void setSafetyParameter(double safetyParameter) {
 		if (safetyParameter < 0) {
-			Log.printLine("The safety parameter cannot be less than zero. The passed value is: "
-					+ safetyParameter);
+			Log.printLine(Log.Level.ERROR, "The safety parameter cannot be less than zero. "
+					+ "The passed value is: " + safetyParameter);
 			System.exit(0);
 		}
 		this.safetyParameter = safetyParameter;
@@ -150,6 +178,7 @@ public class PowerVmAllocationPolicyMigrationMedianAbsoluteDeviation extends
 	 * 
 	 * @return the fallback vm allocation policy
 	 */
+	@Override
 	public PowerVmAllocationPolicyMigrationAbstract getFallbackVmAllocationPolicy() {
 		return fallbackVmAllocationPolicy;
 	}
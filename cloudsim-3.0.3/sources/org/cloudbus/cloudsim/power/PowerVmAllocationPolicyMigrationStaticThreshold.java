@@ -56,14 +56,25 @@ public class PowerVmAllocationPolicyMigrationStaticThreshold extends PowerVmAllo
 	@Override
 	protected boolean isHostOverUtilized(PowerHost host) {
 		addHistoryEntry(host, getUtilizationThreshold());
-		double totalRequestedMips = 0;
-		for (Vm vm : host.getVmList()) {
-			totalRequestedMips += vm.getCurrentRequestedTotalMips();
-		}
-		double utilization = totalRequestedMips / host.getTotalMips();
+		double utilization = getRequestedTotalMips(host) / host.getTotalMips();
 		return utilization > getUtilizationThreshold();
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see
+	 * org.cloudbus.cloudsim.power.PowerVmAllocationPolicyMigrationAbstract#isHostOverUtilizedAfterAllocation
+	 * (org.cloudbus.cloudsim.power.PowerHost, org.cloudbus.cloudsim.Vm)
+	 */
+	@Override
+	protected boolean isHostOverUtilizedAfterAllocation(PowerHost host, Vm vm) {
+		if (!canCreateVm(host, vm)) {
+			return true;
+		}
+		addHistoryEntry(host, getUtilizationThreshold());
+		return getUtilizationAfterAllocation(host, vm) > getUtilizationThreshold();
+	}
+
 	/**
 	 * Sets the utilization threshold.
 	 * 
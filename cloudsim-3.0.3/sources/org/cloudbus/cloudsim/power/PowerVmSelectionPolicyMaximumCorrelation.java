@@ -13,6 +13,7 @@ import java.util.List;
 
 import org.apache.commons.math3.linear.Array2DRowRealMatrix;
 import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.util.DoubleRingBuffer;
 import org.cloudbus.cloudsim.util.MathUtil;
 
 /**
@@ -85,8 +86,8 @@ public class PowerVmSelectionPolicyMaximumCorrelation extends PowerVmSelectionPo
 		int m = getMinUtilizationHistorySize(vmList);
 		double[][] utilization = new double[n][m];
 		for (int i = 0; i < n; i++) {
-			List<Double> vmUtilization = vmList.get(i).getUtilizationHistory();
-			for (int j = 0; j < vmUtilization.size(); j++) {
+			DoubleRingBuffer vmUtilization = vmList.get(i).getUtilizationHistoryBuffer();
+			for (int j = 0; j < m; j++) {
 				utilization[i][j] = vmUtilization.get(j);
 			}
 		}
@@ -102,7 +103,7 @@ public class PowerVmSelectionPolicyMaximumCorrelation extends PowerVmSelectionPo
 	protected int getMinUtilizationHistorySize(final List<PowerVm> vmList) {
 		int minSize = Integer.MAX_VALUE;
 		for (PowerVm vm : vmList) {
-			int size = vm.getUtilizationHistory().size();
+			int size = vm.getUtilizationHistoryBuffer().size();
 			if (size < minSize) {
 				minSize = size;
 			}
@@ -47,11 +47,11 @@ public class BwProvisionerSimple extends BwProvisioner {
 		if (getAvailableBw() >= bw) {
 			setAvailableBw(getAvailableBw() - bw);
 			getBwTable().put(vm.getUid(), bw);
-			vm.setCurrentAllocatedBw(getAllocatedBwForVm(vm));
+			vm.setCurrentAllocatedBw(bw);
 			return true;
 		}
 
-		vm.setCurrentAllocatedBw(getAllocatedBwForVm(vm));
+		vm.setCurrentAllocatedBw(0);
 		return false;
 	}
 
@@ -61,8 +61,9 @@ public class BwProvisionerSimple extends BwProvisioner {
 	 */
 	@Override
 	public long getAllocatedBwForVm(Vm vm) {
-		if (getBwTable().containsKey(vm.getUid())) {
-			return getBwTable().get(vm.getUid());
+		Long allocatedBw = getBwTable().get(vm.getUid());
+		if (allocatedBw != null) {
+			return allocatedBw;
 		}
 		return 0;
 	}
@@ -73,8 +74,8 @@ public class BwProvisionerSimple extends BwProvisioner {
 	 */
 	@Override
 	public void deallocateBwForVm(Vm vm) {
-		if (getBwTable().containsKey(vm.getUid())) {
-			long amountFreed = getBwTable().remove(vm.getUid());
+		Long amountFreed = getBwTable().remove(vm.getUid());
+		if (amountFreed != null) {
 			setAvailableBw(getAvailableBw() + amountFreed);
 			vm.setCurrentAllocatedBw(0);
 		}
@@ -98,13 +99,8 @@ public class BwProvisionerSimple extends BwProvisioner {
 	 */
 	@Override
 	public boolean isSuitableForVm(Vm vm, long bw) {
-		long allocatedBw = getAllocatedBwForVm(vm);
-		boolean result = allocateBwForVm(vm, bw);
-		deallocateBwForVm(vm);
-		if (allocatedBw > 0) {
-			allocateBwForVm(vm, allocatedBw);
-		}
-		return result;
+		// the bandwidth already allocated to the VM would be released before allocating the new amount
+		return getAvailableBw() + getAllocatedBwForVm(vm) >= bw;
 	}
 
 	/**
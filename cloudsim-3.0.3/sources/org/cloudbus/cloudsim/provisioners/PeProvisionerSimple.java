@@ -58,18 +58,15 @@ public class PeProvisionerSimple extends PeProvisioner {
 			return false;
 		}
 
-		List<Double> allocatedMips;
-
-		if (getPeTable().containsKey(vmUid)) {
-			allocatedMips = getPeTable().get(vmUid);
-		} else {
-			allocatedMips = new ArrayList<Double>();
+		List<Double> allocatedMips = getPeTable().get(vmUid);
+		if (allocatedMips == null) {
+			allocatedMips = new ArrayList<Double>(1);
+			getPeTable().put(vmUid, allocatedMips);
 		}
 
 		allocatedMips.add(mips);
 
 		setAvailableMips(getAvailableMips() - mips);
-		getPeTable().put(vmUid, allocatedMips);
 
 		return true;
 	}
@@ -115,9 +112,10 @@ public class PeProvisionerSimple extends PeProvisioner {
 	 */
 	@Override
 	public double getAllocatedMipsForVmByVirtualPeId(Vm vm, int peId) {
-		if (getPeTable().containsKey(vm.getUid())) {
+		List<Double> allocatedMips = getPeTable().get(vm.getUid());
+		if (allocatedMips != null) {
 			try {
-				return getPeTable().get(vm.getUid()).get(peId);
+				return allocatedMips.get(peId);
 			} catch (Exception e) {
 			}
 		}
@@ -130,10 +128,7 @@ public class PeProvisionerSimple extends PeProvisioner {
 	 */
 	@Override
 	public List<Double> getAllocatedMipsForVm(Vm vm) {
-		if (getPeTable().containsKey(vm.getUid())) {
-			return getPeTable().get(vm.getUid());
-		}
-		return null;
+		return getPeTable().get(vm.getUid());
 	}
 
 	/*
@@ -142,9 +137,10 @@ public class PeProvisionerSimple extends PeProvisioner {
 	 */
 	@Override
 	public double getTotalAllocatedMipsForVm(Vm vm) {
-		if (getPeTable().containsKey(vm.getUid())) {
+		List<Double> allocatedMips = getPeTable().get(vm.getUid());
+		if (allocatedMips != null) {
 			double totalAllocatedMips = 0.0;
-			for (double mips : getPeTable().get(vm.getUid())) {
+			for (double mips : allocatedMips) {
 				totalAllocatedMips += mips;
 			}
 			return totalAllocatedMips;
@@ -158,11 +154,11 @@ public class PeProvisionerSimple extends PeProvisioner {
 	 */
 	@Override
 	public void deallocateMipsForVm(Vm vm) {
-		if (getPeTable().containsKey(vm.getUid())) {
-			for (double mips : getPeTable().get(vm.getUid())) {
+		List<Double> allocatedMips = getPeTable().remove(vm.getUid());
+		if (allocatedMips != null) {
+			for (double mips : allocatedMips) {
 				setAvailableMips(getAvailableMips() + mips);
 			}
-			getPeTable().remove(vm.getUid());
 		}
 	}
 
@@ -53,11 +53,11 @@ public class RamProvisionerSimple extends RamProvisioner {
 		if (getAvailableRam() >= ram) {
 			setAvailableRam(getAvailableRam() - ram);
 			getRamTable().put(vm.getUid(), ram);
-			vm.setCurrentAllocatedRam(getAllocatedRamForVm(vm));
+			vm.setCurrentAllocatedRam(ram);
 			return true;
 		}
 
-		vm.setCurrentAllocatedRam(getAllocatedRamForVm(vm));
+		vm.setCurrentAllocatedRam(0);
 
 		return false;
 	}
@@ -68,8 +68,9 @@ public class RamProvisionerSimple extends RamProvisioner {
 	 */
 	@Override
 	public int getAllocatedRamForVm(Vm vm) {
-		if (getRamTable().containsKey(vm.getUid())) {
-			return getRamTable().get(vm.getUid());
+		Integer allocatedRam = getRamTable().get(vm.getUid());
+		if (allocatedRam != null) {
+			return allocatedRam;
 		}
 		return 0;
 	}
@@ -80,8 +81,8 @@ public class RamProvisionerSimple extends RamProvisioner {
 	 */
 	@Override
 	public void deallocateRamForVm(Vm vm) {
-		if (getRamTable().containsKey(vm.getUid())) {
-			int amountFreed = getRamTable().remove(vm.getUid());
+		Integer amountFreed = getRamTable().remove(vm.getUid());
+		if (amountFreed != null) {
 			setAvailableRam(getAvailableRam() + amountFreed);
 			vm.setCurrentAllocatedRam(0);
 		}
@@ -103,13 +104,8 @@ public class RamProvisionerSimple extends RamProvisioner {
 	 */
 	@Override
 	public boolean isSuitableForVm(Vm vm, int ram) {
-		int allocatedRam = getAllocatedRamForVm(vm);
-		boolean result = allocateRamForVm(vm, ram);
-		deallocateRamForVm(vm);
-		if (allocatedRam > 0) {
-			allocateRamForVm(vm, allocatedRam);
-		}
-		return result;
+		// the RAM already allocated to the VM would be released before allocating the new amount
+		return getAvailableRam() + getAllocatedRamForVm(vm) >= Math.min(ram, vm.getRam());
 	}
 
 	/**
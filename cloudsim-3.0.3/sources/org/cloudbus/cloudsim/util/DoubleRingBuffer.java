@@ -0,0 +1,228 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.util;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * A fixed-capacity ring buffer of primitive doubles, ordered from the most recently added value
+ * (index 0) to the oldest one. When the buffer is full, adding a value drops the oldest one. The
+ * sum and the sum of squares of the values are kept up to date, so the mean and the variance are
+ * available in constant time.
+ *
+ * @since CloudSim Toolkit 3.0
+ */
+public class DoubleRingBuffer {
+
+	/** The values, in insertion order modulo the capacity. */
+	private final double[] values;
+
+	/** The position of the most recently added value. */
+	private int head;
+
+	/** The number of values. */
+	private int size;
+
+	/** The sum of the values. */
+	private double sum;
+
+	/** The sum of the squares of the values. */
+	private double sumOfSquares;
+
+	/** The read-only list view of the buffer. */
+	private final List<Double> listView = new ListView();
+
+	/**
+	 * Instantiates a new empty ring buffer.
+	 *
+	 * @param capacity the maximum number of values
+	 */
+	public DoubleRingBuffer(final int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("The capacity must be greater than zero");
+		}
+		values = new double[capacity];
+		head = capacity - 1;
+	}
+
+	/**
+	 * Adds a value at the front of the buffer, dropping the oldest value if the buffer is full.
+	 *
+	 * @param value the value
+	 */
+	public void addFirst(final double value) {
+		head = head == 0 ? values.length - 1 : head - 1;
+		if (size == values.length) {
+			double oldest = values[head];
+			sum -= oldest;
+			sumOfSquares -= oldest * oldest;
+		} else {
+			size++;
+		}
+		values[head] = value;
+		if (head == 0) {
+			// recompute the sums once per turn, so rounding errors do not accumulate
+			sum = 0;
+			sumOfSquares = 0;
+			for (int i = 0; i < size; i++) {
+				sum += values[i];
+				sumOfSquares += values[i] * values[i];
+			}
+		} else {
+			sum += value;
+			sumOfSquares += value * value;
+		}
+	}
+
+	/**
+	 * Gets a value.
+	 *
+	 * @param index the index of the value, 0 being the most recently added one
+	 * @return the value
+	 */
+	public double get(final int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		int i = head + index;
+		return values[i < values.length ? i : i - values.length];
+	}
+
+	/**
+	 * Gets the number of values.
+	 *
+	 * @return the size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Checks if the buffer is empty.
+	 *
+	 * @return true, if empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Gets the capacity.
+	 *
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		return values.length;
+	}
+
+	/**
+	 * Removes all the values.
+	 */
+	public void clear() {
+		head = values.length - 1;
+		size = 0;
+		sum = 0;
+		sumOfSquares = 0;
+	}
+
+	/**
+	 * Gets the sum of the values.
+	 *
+	 * @return the sum
+	 */
+	public double getSum() {
+		return sum;
+	}
+
+	/**
+	 * Gets the mean of the values, or 0 if the buffer is empty.
+	 *
+	 * @return the mean
+	 */
+	public double getMean() {
+		if (size == 0) {
+			return 0;
+		}
+		return sum / size;
+	}
+
+	/**
+	 * Gets the population variance of the values, or 0 if the buffer is empty.
+	 *
+	 * @return the variance
+	 */
+	public double getVariance() {
+		if (size == 0) {
+			return 0;
+		}
+		double mean = sum / size;
+		return Math.max(0, sumOfSquares / size - mean * mean);
+	}
+
+	/**
+	 * Copies the values, most recent first, into an array.
+	 *
+	 * @param destination the destination array
+	 * @param offset the position of the first value in the destination array
+	 */
+	public void copyTo(final double[] destination, final int offset) {
+		int firstPart = Math.min(size, values.length - head);
+		System.arraycopy(values, head, destination, offset, firstPart);
+		System.arraycopy(values, 0, destination, offset + firstPart, size - firstPart);
+	}
+
+	/**
+	 * Gets the values, most recent first, in a new array.
+	 *
+	 * @return the values
+	 */
+	public double[] toArray() {
+		double[] array = new double[size];
+		copyTo(array, 0);
+		return array;
+	}
+
+	/**
+	 * Gets a read-only list view of the buffer, which reflects later changes to the buffer
+	 * without copying the values.
+	 *
+	 * @return the list view
+	 */
+	public List<Double> asList() {
+		return listView;
+	}
+
+	/**
+	 * The read-only list view of the buffer.
+	 */
+	private class ListView extends AbstractList<Double> implements RandomAccess {
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.AbstractList#get(int)
+		 */
+		@Override
+		public Double get(final int index) {
+			return DoubleRingBuffer.this.get(index);
+		}
+
+		/*
+		 * (non-Javadoc)
+		 * @see java.util.AbstractCollection#size()
+		 */
+		@Override
+		public int size() {
+			return size;
+		}
+
+	}
+
+}
@@ -10,10 +10,15 @@ package org.cloudbus.cloudsim.util;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.apache.commons.math3.exception.NoDataException;
+import org.apache.commons.math3.exception.util.LocalizedFormats;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.apache.commons.math3.stat.regression.OLSMultipleLinearRegression;
 import org.apache.commons.math3.stat.regression.SimpleRegression;
+import org.apache.commons.math3.util.Precision;
 
 /**
  * A class containing multiple convenient math functions.
@@ -23,6 +28,9 @@ import org.apache.commons.math3.stat.regression.SimpleRegression;
  */
 public class MathUtil {
 
+	/** Whether createWeigthedLinearRegression applies the tricube weights, by number of values. */
+	private static final Map<Integer, Boolean> TRICUBE_WEIGTHED = new ConcurrentHashMap<Integer, Boolean>();
+
 	/**
 	 * Sums a list of numbers.
 	 * 
@@ -62,14 +70,118 @@ public class MathUtil {
 	}
 
 	/**
-	 * Gets the median.
+	 * Gets the median. The result is the same as the one of
+	 * {@link DescriptiveStatistics#getPercentile(double)}, but the order statistics are selected in
+	 * linear time on a copy of the data, without building a DescriptiveStatistics.
 	 * 
 	 * @param list the list
 	 * 
 	 * @return the median
 	 */
 	public static double median(final double[] list) {
-		return getStatistics(list).getPercentile(50);
+		if (list.length == 0) {
+			return Double.NaN;
+		}
+		return medianInPlace(Arrays.copyOf(list, list.length));
+	}
+
+	/**
+	 * Gets the median of an array, reordering the array.
+	 * 
+	 * @param data the data, which must not be empty
+	 * @return the median
+	 */
+	private static double medianInPlace(final double[] data) {
+		// the legacy estimation of the 50th percentile of commons-math's Percentile
+		int n = data.length;
+		double pos = 0.5 * (n + 1);
+		double fpos = Math.floor(pos);
+		int intPos = (int) fpos;
+		double dif = pos - fpos;
+		if (pos < 1) {
+			return select(data, 0);
+		}
+		if (pos >= n) {
+			return select(data, n - 1);
+		}
+		double lower = select(data, intPos - 1);
+		// the values after the selected one are not smaller than it
+		double upper = data[intPos];
+		for (int i = intPos + 1; i < n; i++) {
+			if (data[i] < upper) {
+				upper = data[i];
+			}
+		}
+		return lower + dif * (upper - lower);
+	}
+
+	/**
+	 * Selects the k-th smallest value of an array. The array is reordered so that the value is at
+	 * position k, preceded by values that are not greater and followed by values that are not
+	 * smaller.
+	 * 
+	 * @param data the data
+	 * @param k the position of the value in the sorted data
+	 * @return the k-th smallest value
+	 */
+	public static double select(final double[] data, final int k) {
+		return select(data, 0, data.length - 1, k);
+	}
+
+	/**
+	 * Selects the k-th smallest value of a range of an array, reordering the range.
+	 * 
+	 * @param data the data
+	 * @param from the first position of the range
+	 * @param to the last position of the range
+	 * @param k the position of the value in the array once the range is sorted
+	 * @return the k-th smallest value
+	 */
+	private static double select(final double[] data, final int from, final int to, final int k) {
+		int left = from;
+		int right = to;
+		while (right > left) {
+			// median of three pivot, moved to the right end
+			int middle = (left + right) >>> 1;
+			if (data[middle] < data[left]) {
+				swap(data, middle, left);
+			}
+			if (data[right] < data[left]) {
+				swap(data, right, left);
+			}
+			if (data[middle] < data[right]) {
+				swap(data, middle, right);
+			}
+			double pivot = data[right];
+			int store = left;
+			for (int i = left; i < right; i++) {
+				if (data[i] < pivot) {
+					swap(data, i, store++);
+				}
+			}
+			swap(data, store, right);
+			if (store == k) {
+				break;
+			} else if (store < k) {
+				left = store + 1;
+			} else {
+				right = store - 1;
+			}
+		}
+		return data[k];
+	}
+
+	/**
+	 * Swaps two values of an array.
+	 * 
+	 * @param data the data
+	 * @param i the position of the first value
+	 * @param j the position of the second value
+	 */
+	private static void swap(final double[] data, final int i, final int j) {
+		double tmp = data[i];
+		data[i] = data[j];
+		data[j] = tmp;
 	}
 
 	/**
@@ -163,27 +275,29 @@ public class MathUtil {
 	public static double mad(final double[] data) {
 		double mad = 0;
 		if (data.length > 0) {
-			double median = median(data);
-			double[] deviationSum = new double[data.length];
+			double[] deviationSum = Arrays.copyOf(data, data.length);
+			double median = medianInPlace(deviationSum);
 			for (int i = 0; i < data.length; i++) {
 				deviationSum[i] = Math.abs(median - data[i]);
 			}
-			mad = median(deviationSum);
+			mad = medianInPlace(deviationSum);
 		}
 		return mad;
 	}
 
 	/**
-	 * Gets the IQR.
+	 * Gets the IQR. The data is reordered.
 	 * 
 	 * @param data the data
 	 * @return the IQR
 	 */
 	public static double iqr(final double[] data) {
-		Arrays.sort(data);
 		int q1 = (int) Math.round(0.25 * (data.length + 1)) - 1;
 		int q3 = (int) Math.round(0.75 * (data.length + 1)) - 1;
-		return data[q3] - data[q1];
+		double q3Value = select(data, q3);
+		// the values before q3 are not greater than it, and still contain q1
+		double q1Value = q1 == q3 ? q3Value : select(data, 0, q3 - 1, q1);
+		return q3Value - q1Value;
 	}
 
 	/**
@@ -236,6 +350,9 @@ public class MathUtil {
 	 */
 	public static double[] getLoessParameterEstimates(final double[] y) {
 		int n = y.length;
+		if (!isTricubeWeigthed(n)) {
+			return getLinearRegressionParameterEstimates(y);
+		}
 		double[] x = new double[n];
 		for (int i = 0; i < n; i++) {
 			x[i] = i + 1;
@@ -244,6 +361,82 @@ public class MathUtil {
 				.regress().getParameterEstimates();
 	}
 
+	/**
+	 * Checks if createWeigthedLinearRegression applies the tricube weights of n values.
+	 * 
+	 * @param n the number of values
+	 * @return true, if the weights are applied
+	 */
+	private static boolean isTricubeWeigthed(final int n) {
+		Boolean weigthed = TRICUBE_WEIGTHED.get(n);
+		if (weigthed == null) {
+			weigthed = isWeigthed(getTricubeWeigts(n));
+			TRICUBE_WEIGTHED.put(n, weigthed);
+		}
+		return weigthed;
+	}
+
+	/**
+	 * Checks if createWeigthedLinearRegression applies the weights, or fits the data as it is.
+	 * 
+	 * @param weigths the weigths
+	 * @return true, if the weights are applied
+	 */
+	private static boolean isWeigthed(final double[] weigths) {
+		int numZeroWeigths = 0;
+		for (int i = 0; i < weigths.length; i++) {
+			if (weigths[i] <= 0) {
+				numZeroWeigths++;
+			}
+		}
+		return numZeroWeigths >= 0.4 * weigths.length;
+	}
+
+	/**
+	 * Gets the intercept and the slope of the linear regression of y over x = 1, 2, ..., n. The
+	 * estimates are computed in a single pass with the updating formulas of SimpleRegression, so
+	 * they are the same as those of createLinearRegression(x, y).regress(), without allocating the
+	 * regression and its results.
+	 * 
+	 * @param y the y
+	 * @return the intercept and the slope
+	 */
+	public static double[] getLinearRegressionParameterEstimates(final double[] y) {
+		int n = y.length;
+		if (n < 3) {
+			throw new NoDataException(LocalizedFormats.NOT_ENOUGH_DATA_REGRESSION);
+		}
+		double sumX = 0;
+		double sumY = 0;
+		double sumXX = 0;
+		double sumXY = 0;
+		double xbar = 0;
+		double ybar = 0;
+		for (int i = 0; i < n; i++) {
+			double x = i + 1;
+			if (i == 0) {
+				xbar = x;
+				ybar = y[i];
+			} else {
+				double fact1 = 1.0 + i;
+				double fact2 = i / (1.0 + i);
+				double dx = x - xbar;
+				double dy = y[i] - ybar;
+				sumXX += dx * dx * fact2;
+				sumXY += dx * dy * fact2;
+				xbar += dx / fact1;
+				ybar += dy / fact1;
+			}
+			sumX += x;
+			sumY += y[i];
+		}
+		if (Math.abs(sumXX) <= Precision.SAFE_MIN) {
+			return new double[] { sumY / n, Double.NaN };
+		}
+		double slope = sumXY / sumXX;
+		return new double[] { (sumY - slope * sumX) / n, slope };
+	}
+
 	public static SimpleRegression createLinearRegression(final double[] x,
 			final double[] y) {
 		SimpleRegression regression = new SimpleRegression();
@@ -296,6 +489,17 @@ public class MathUtil {
 	 */
 	public static double[] getRobustLoessParameterEstimates(final double[] y) {
 		int n = y.length;
+		if (!isTricubeWeigthed(n)) {
+			double[] tricubeEstimates = getLinearRegressionParameterEstimates(y);
+			double[] residuals = new double[n];
+			for (int i = 0; i < n; i++) {
+				residuals[i] = y[i] - (tricubeEstimates[0] + tricubeEstimates[1] * (i + 1));
+			}
+			if (!isWeigthed(getTricubeBisquareWeigts(residuals))) {
+				// both regressions fit the same data
+				return tricubeEstimates;
+			}
+		}
 		double[] x = new double[n];
 		for (int i = 0; i < n; i++) {
 			x[i] = i + 1;
@@ -7,6 +7,9 @@
  */
 package examples;
 
+import java.io.File;
+import tools.JMathPlotter;
+
 /**
  *
  * @author Christian Wagner
@@ -32,11 +35,15 @@ public class ExampleLauncher
                 + "IT2NSzSlicesGT2  --> launches a zSlices based IT2 Non Singleton General Type-2 Fuzzy Logic System\n"
                 + "GT2NSzSlicesGT2  --> launches a zSlices based GT2 Non Singleton General Type-2 Fuzzy Logic System\n"
                 + "zSlicesGT2MC  --> launches a zSlices based General Type-2 Fuzzy Logic System in MultiCore Mode\n"
-                + "zSlicesGT2MC-2outputs  --> launches a zSlices based General Type-2 Fuzzy Logic System with 2 outputs in MultiCore Mode");
+                + "zSlicesGT2MC-2outputs  --> launches a zSlices based General Type-2 Fuzzy Logic System with 2 outputs in MultiCore Mode\n"
+                + "An output directory can be given after the example, in which case the plots "
+                + "are written to PNG and CSV files in it instead of being shown.");
+        if(args.length>1)
+            JMathPlotter.setOutputDirectory(new File(args[1]));
         if(args.length==0)
         System.out.println(s);
         else if(args[0].equals("type1"))
-            new SimpleT1FLS();
+            SimpleT1FLS.main(new String[0]);
         else if(args[0].equals("NStype1"))
             new SimpleNST1FLS();
         else if(args[0].equals("type1-2outputs"))
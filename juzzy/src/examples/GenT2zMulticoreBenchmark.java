@@ -0,0 +1,157 @@
+/*
+ * GenT2zMulticoreBenchmark.java
+ *
+ * Compares the sequential and the multicore evaluation of a zSlices based
+ * general type-2 FLS.
+ */
+package examples;
+
+import generalType2zSlices.sets.GenT2zMF_Gaussian;
+import generalType2zSlices.sets.GenT2zMF_Triangular;
+import generalType2zSlices.system.GenT2zEngine_Defuzzification;
+import generalType2zSlices.system.GenT2z_Antecedent;
+import generalType2zSlices.system.GenT2z_Consequent;
+import generalType2zSlices.system.GenT2z_Rule;
+import generalType2zSlices.system.GenT2z_Rulebase;
+import generalType2zSlices.system.multicore.FLCFactory;
+import generalType2zSlices.system.multicore.FLCPoolFactory;
+import generic.Input;
+import generic.Output;
+import generic.Tuple;
+import intervalType2.sets.IntervalT2MF_Gaussian;
+import intervalType2.sets.IntervalT2MF_Triangular;
+import type1.sets.T1MF_Gaussian;
+import type1.sets.T1MF_Triangular;
+
+/**
+ * A benchmark running the zSlices based general type-2 FLS of
+ * SimplezGT2FLS_Multicore over a grid of inputs, with GenT2z_Rulebase.evaluate()
+ * and with the FLCFactory and FLCPoolFactory multicore engines. It checks that
+ * all three give the same outputs and prints the time per evaluation, for center
+ * of sets and centroid type reduction.
+ * Usage: GenT2zMulticoreBenchmark [discretizations per input] [zLevels]
+ */
+public class GenT2zMulticoreBenchmark
+{
+    private Input food, service;
+    private Output tip;
+    private GenT2z_Rulebase rulebase;
+    private FLCFactory factory;
+    private FLCPoolFactory poolFactory;
+
+    public GenT2zMulticoreBenchmark(int numberOfzLevels)
+    {
+        food = new Input("Food Quality", new Tuple(0,10));
+        service = new Input("Service Level", new Tuple(0,10));
+        tip = new Output("Tip", new Tuple(0,30));
+
+        GenT2zMF_Triangular badFoodMF = new GenT2zMF_Triangular("zGT2MF for bad food",
+                new IntervalT2MF_Triangular("IT2MF for bad food",
+                new T1MF_Triangular("Upper MF for bad food",0.0, 0.0, 10.0),
+                new T1MF_Triangular("Lower MF for bad food",0.0, 0.0, 8.0)), numberOfzLevels);
+        GenT2zMF_Triangular greatFoodMF = new GenT2zMF_Triangular("zGT2MF for great food",
+                new IntervalT2MF_Triangular("IT2MF for great food",
+                new T1MF_Triangular("Upper MF for great food",0.0, 10.0, 10.0),
+                new T1MF_Triangular("Lower MF for great food",2.0, 10.0, 10.0)), numberOfzLevels);
+        GenT2zMF_Triangular unfriendlyServiceMF = new GenT2zMF_Triangular("zGT2MF for unfriendly service",
+                new IntervalT2MF_Triangular("IT2MF for unfriendly service",
+                new T1MF_Triangular("Upper MF for unfriendly service",0.0, 0.0, 8.0),
+                new T1MF_Triangular("Lower MF for unfriendly service",0.0, 0.0, 6.0)), numberOfzLevels);
+        GenT2zMF_Triangular friendlyServiceMF = new GenT2zMF_Triangular("zGT2MF for friendly service",
+                new IntervalT2MF_Triangular("IT2MF for friendly service",
+                new T1MF_Triangular("Upper MF for friendly service",2.0, 10.0, 10.0),
+                new T1MF_Triangular("Lower MF for friendly service",4.0, 10.0, 10.0)), numberOfzLevels);
+        GenT2zMF_Gaussian lowTipMF = new GenT2zMF_Gaussian("zGT2MF for Low tip",
+                new IntervalT2MF_Gaussian("IT2MF for Low tip",
+                new T1MF_Gaussian("Upper MF Low tip", 0.0, 6.0),
+                new T1MF_Gaussian("Lower MF Low tip", 0.0, 4.0)), numberOfzLevels);
+        GenT2zMF_Gaussian mediumTipMF = new GenT2zMF_Gaussian("zGT2MF for Medium tip",
+                new IntervalT2MF_Gaussian("IT2MF for Medium tip",
+                new T1MF_Gaussian("Upper MF Medium tip", 15.0, 6.0),
+                new T1MF_Gaussian("Lower MF Medium tip", 15.0, 4.0)), numberOfzLevels);
+        GenT2zMF_Gaussian highTipMF = new GenT2zMF_Gaussian("zGT2MF for High tip",
+                new IntervalT2MF_Gaussian("IT2MF for High tip",
+                new T1MF_Gaussian("Upper MF High tip", 30.0, 6.0),
+                new T1MF_Gaussian("Lower MF High tip", 30.0, 4.0)), numberOfzLevels);
+
+        GenT2z_Antecedent badFood = new GenT2z_Antecedent("BadFood", badFoodMF, food);
+        GenT2z_Antecedent greatFood = new GenT2z_Antecedent("GreatFood", greatFoodMF, food);
+        GenT2z_Antecedent unfriendlyService = new GenT2z_Antecedent("UnfriendlyService", unfriendlyServiceMF, service);
+        GenT2z_Antecedent friendlyService = new GenT2z_Antecedent("FriendlyService", friendlyServiceMF, service);
+
+        GenT2zEngine_Defuzzification gT2zED = new GenT2zEngine_Defuzzification(100);
+        GenT2z_Consequent lowTip = new GenT2z_Consequent("LowTip", lowTipMF, tip, gT2zED);
+        GenT2z_Consequent mediumTip = new GenT2z_Consequent("MediumTip", mediumTipMF, tip, gT2zED);
+        GenT2z_Consequent highTip = new GenT2z_Consequent("HighTip", highTipMF, tip, gT2zED);
+
+        rulebase = new GenT2z_Rulebase(4);
+        rulebase.addRule(new GenT2z_Rule(new GenT2z_Antecedent[]{badFood, unfriendlyService}, lowTip));
+        rulebase.addRule(new GenT2z_Rule(new GenT2z_Antecedent[]{badFood, friendlyService}, mediumTip));
+        rulebase.addRule(new GenT2z_Rule(new GenT2z_Antecedent[]{greatFood, unfriendlyService}, lowTip));
+        rulebase.addRule(new GenT2z_Rule(new GenT2z_Antecedent[]{greatFood, friendlyService}, highTip));
+
+        factory = new FLCFactory(rulebase.getIT2Rulebases());
+        poolFactory = new FLCPoolFactory(rulebase.getIT2Rulebases());
+    }
+
+    /**
+     * Evaluates the FLS over a grid of inputs and returns the time taken in
+     * nanoseconds.
+     * @param engine 0: GenT2z_Rulebase, 1: FLCFactory, 2: FLCPoolFactory
+     * @param outputs Receives the output for each point of the grid.
+     */
+    private long run(int engine, int typeReductionType, int discretizations, double[] outputs)
+    {
+        double step = food.getDomain().getSize()/(discretizations-1.0);
+        long start = System.nanoTime();
+        for(int i = 0; i < discretizations; i++)
+        {
+            food.setInput(i * step);
+            for(int j = 0; j < discretizations; j++)
+            {
+                service.setInput(j * step);
+                double output;
+                if(engine == 0)
+                    output = rulebase.evaluate(typeReductionType).get(tip);
+                else if(engine == 1)
+                    output = factory.runFactory(typeReductionType).get(tip);
+                else
+                    output = poolFactory.runFactory(typeReductionType).get(tip);
+                outputs[i * discretizations + j] = output;
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void report(String name, int typeReductionType, int discretizations)
+    {
+        int evaluations = discretizations * discretizations;
+        double[] expected = new double[evaluations];
+        double[] outputs = new double[evaluations];
+        String[] engines = new String[]{"GenT2z_Rulebase", "FLCFactory", "FLCPoolFactory"};
+        //warm up, and get the reference outputs
+        run(0, typeReductionType, discretizations, expected);
+        for(int engine = 0; engine < engines.length; engine++)
+        {
+            run(engine, typeReductionType, discretizations, outputs);
+            long time = run(engine, typeReductionType, discretizations, outputs);
+            int mismatches = 0;
+            for(int i = 0; i < evaluations; i++)
+                if(Math.abs(outputs[i] - expected[i]) > 1e-9)
+                    mismatches++;
+            System.out.println(String.format("%-10s %-16s %10.1f us/evaluation, %d mismatches",
+                    name, engines[engine], time / 1000.0 / evaluations, mismatches));
+        }
+    }
+
+    public static void main(String args[])
+    {
+        int discretizations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        int numberOfzLevels = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        GenT2zMulticoreBenchmark benchmark = new GenT2zMulticoreBenchmark(numberOfzLevels);
+        System.out.println(Runtime.getRuntime().availableProcessors() + " processors, "
+                + numberOfzLevels + " zLevels, " + discretizations * discretizations + " evaluations");
+        benchmark.report("COS", 0, discretizations);
+        benchmark.report("Centroid", 1, discretizations / 2);
+    }
+}
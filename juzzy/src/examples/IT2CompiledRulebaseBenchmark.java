@@ -0,0 +1,183 @@
+/*
+ * IT2CompiledRulebaseBenchmark.java
+ *
+ * Compares the interpreted and the compiled evaluation of an interval type-2
+ * rulebase.
+ */
+package examples;
+
+import generic.Input;
+import generic.Output;
+import generic.Tuple;
+import intervalType2.sets.IntervalT2MF_Gauangle;
+import intervalType2.sets.IntervalT2MF_Gaussian;
+import intervalType2.sets.IntervalT2MF_Triangular;
+import intervalType2.system.IT2_Antecedent;
+import intervalType2.system.IT2_CompiledRulebase;
+import intervalType2.system.IT2_Consequent;
+import intervalType2.system.IT2_Rule;
+import intervalType2.system.IT2_Rulebase;
+import type1.sets.T1MF_Gauangle;
+import type1.sets.T1MF_Gaussian;
+import type1.sets.T1MF_Triangular;
+
+/**
+ * A benchmark comparing IT2_Rulebase.evaluate() with IT2_CompiledRulebase on
+ * the tipping FLS of SimpleIT2FLS. It first checks that both give the same
+ * outputs on a grid of inputs, for center of sets and centroid type reduction,
+ * then times both.
+ * Usage: IT2CompiledRulebaseBenchmark [evaluations] [repetitions] [discretizations per input]
+ */
+public class IT2CompiledRulebaseBenchmark
+{
+    private Input food, service;
+    private Output tip;
+    private IT2_Rulebase rulebase;
+    private IT2_CompiledRulebase compiledRulebase;
+    private double[] inputValues, outputValues;
+    private int foodIndex, serviceIndex, tipIndex;
+
+    public IT2CompiledRulebaseBenchmark()
+    {
+        food = new Input("Food Quality", new Tuple(0,10));
+        service = new Input("Service Level", new Tuple(0,10));
+        tip = new Output("Tip", new Tuple(0,30));
+
+        IntervalT2MF_Triangular badFoodMF = new IntervalT2MF_Triangular("IT2MF for bad food",
+                new T1MF_Triangular("Upper MF for bad food",0.0, 0.0, 10.0),
+                new T1MF_Triangular("Lower MF for bad food",0.0, 0.0, 8.0));
+        IntervalT2MF_Triangular greatFoodMF = new IntervalT2MF_Triangular("IT2MF for great food",
+                new T1MF_Triangular("Upper MF for great food",0.0, 10.0, 10.0),
+                new T1MF_Triangular("Lower MF for great food",2.0, 10.0, 10.0));
+        IntervalT2MF_Gauangle unfriendlyServiceMF = new IntervalT2MF_Gauangle("IT2MF for unfriendly service",
+                new T1MF_Gauangle("Upper MF for unfriendly service",0.0, 0.0, 8.0),
+                new T1MF_Gauangle("Lower MF for unfriendly service",0.0, 0.0, 6.0));
+        IntervalT2MF_Gauangle friendlyServiceMF = new IntervalT2MF_Gauangle("IT2MF for friendly service",
+                new T1MF_Gauangle("Upper MF for friendly service",2.0, 10.0, 10.0),
+                new T1MF_Gauangle("Lower MF for friendly service",4.0, 10.0, 10.0));
+        IntervalT2MF_Gaussian lowTipMF = new IntervalT2MF_Gaussian("IT2MF for Low tip",
+                new T1MF_Gaussian("Upper MF Low tip", 0.0, 6.0),
+                new T1MF_Gaussian("Lower MF Low tip", 0.0, 4.0));
+        IntervalT2MF_Gaussian mediumTipMF = new IntervalT2MF_Gaussian("IT2MF for Medium tip",
+                new T1MF_Gaussian("Upper MF Medium tip", 15.0, 6.0),
+                new T1MF_Gaussian("Lower MF Medium tip", 15.0, 4.0));
+        IntervalT2MF_Gaussian highTipMF = new IntervalT2MF_Gaussian("IT2MF for High tip",
+                new T1MF_Gaussian("Upper MF High tip", 30.0, 6.0),
+                new T1MF_Gaussian("Lower MF High tip", 30.0, 4.0));
+
+        IT2_Antecedent badFood = new IT2_Antecedent("BadFood", badFoodMF, food);
+        IT2_Antecedent greatFood = new IT2_Antecedent("GreatFood", greatFoodMF, food);
+        IT2_Antecedent unfriendlyService = new IT2_Antecedent("UnfriendlyService", unfriendlyServiceMF, service);
+        IT2_Antecedent friendlyService = new IT2_Antecedent("FriendlyService", friendlyServiceMF, service);
+
+        IT2_Consequent lowTip = new IT2_Consequent("LowTip", lowTipMF, tip);
+        IT2_Consequent mediumTip = new IT2_Consequent("MediumTip", mediumTipMF, tip);
+        IT2_Consequent highTip = new IT2_Consequent("HighTip", highTipMF, tip);
+
+        rulebase = new IT2_Rulebase(4);
+        rulebase.addRule(new IT2_Rule(new IT2_Antecedent[]{badFood, unfriendlyService}, lowTip));
+        rulebase.addRule(new IT2_Rule(new IT2_Antecedent[]{badFood, friendlyService}, mediumTip));
+        rulebase.addRule(new IT2_Rule(new IT2_Antecedent[]{greatFood, unfriendlyService}, lowTip));
+        rulebase.addRule(new IT2_Rule(new IT2_Antecedent[]{greatFood, friendlyService}, highTip));
+
+        compiledRulebase = new IT2_CompiledRulebase(rulebase);
+        inputValues = new double[compiledRulebase.getInputs().length];
+        outputValues = new double[compiledRulebase.getOutputs().length];
+        foodIndex = compiledRulebase.getInputIndex(food);
+        serviceIndex = compiledRulebase.getInputIndex(service);
+        tipIndex = compiledRulebase.getOutputIndex(tip);
+    }
+
+    private double evaluateInterpreted(double foodQuality, double serviceLevel, int typeReductionType)
+    {
+        food.setInput(foodQuality);
+        service.setInput(serviceLevel);
+        return rulebase.evaluate(typeReductionType).get(tip);
+    }
+
+    private double evaluateCompiled(double foodQuality, double serviceLevel, int typeReductionType)
+    {
+        inputValues[foodIndex] = foodQuality;
+        inputValues[serviceIndex] = serviceLevel;
+        compiledRulebase.evaluate(inputValues, typeReductionType, outputValues);
+        return outputValues[tipIndex];
+    }
+
+    /**
+     * Returns the number of inputs on a grid spanning both input domains for
+     * which both evaluations do not give the same bits.
+     */
+    private int countMismatches(int typeReductionType, int discretizations)
+    {
+        double step = 10.0 / (discretizations - 1);
+        int mismatches = 0;
+        for(int i = 0; i < discretizations; i++)
+        {
+            for(int j = 0; j < discretizations; j++)
+            {
+                double interpreted = evaluateInterpreted(i * step, j * step, typeReductionType);
+                double compiled = evaluateCompiled(i * step, j * step, typeReductionType);
+                if(Double.doubleToLongBits(interpreted) != Double.doubleToLongBits(compiled))
+                    mismatches++;
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Runs a number of evaluations on pseudo-random inputs and returns the time
+     * taken in nanoseconds.
+     */
+    private long time(boolean compiled, int typeReductionType, int evaluations)
+    {
+        double sum = 0;
+        double x = 0.5, y = 0.25;
+        long start = System.nanoTime();
+        for(int i = 0; i < evaluations; i++)
+        {
+            x = (x * 7.3 + 0.11) % 10;
+            y = (y * 3.7 + 0.29) % 10;
+            if(compiled)
+                sum += evaluateCompiled(x, y, typeReductionType);
+            else
+                sum += evaluateInterpreted(x, y, typeReductionType);
+        }
+        long time = System.nanoTime() - start;
+        if(Double.isInfinite(sum))  //keeps the results alive
+            System.out.println(sum);
+        return time;
+    }
+
+    private void report(String name, boolean compiled, int typeReductionType, int evaluations, int repetitions)
+    {
+        long total = 0;
+        for(int i = 0; i < repetitions; i++)
+            total += time(compiled, typeReductionType, evaluations);
+        double nsPerEvaluation = (double) total / repetitions / evaluations;
+        System.out.println(String.format("%-24s %10.1f ns/evaluation", name, nsPerEvaluation));
+    }
+
+    public static void main(String args[])
+    {
+        int evaluations = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int discretizations = args.length > 2 ? Integer.parseInt(args[2]) : 101;
+        IT2CompiledRulebaseBenchmark benchmark = new IT2CompiledRulebaseBenchmark();
+
+        System.out.println("Mismatches with center of sets type reduction: "
+                + benchmark.countMismatches(0, discretizations));
+        System.out.println("Mismatches with centroid type reduction: "
+                + benchmark.countMismatches(1, discretizations));
+
+        //warm up both paths first
+        for(int t = 0; t <= 1; t++)
+        {
+            benchmark.time(false, t, evaluations / 10);
+            benchmark.time(true, t, evaluations / 10);
+        }
+        benchmark.report("Interpreted, COS", false, 0, evaluations, repetitions);
+        benchmark.report("Compiled, COS", true, 0, evaluations, repetitions);
+        benchmark.report("Interpreted, centroid", false, 1, evaluations / 10, repetitions);
+        benchmark.report("Compiled, centroid", true, 1, evaluations / 10, repetitions);
+    }
+}
@@ -10,10 +10,13 @@ package examples;
 import generic.Input;
 import generic.Output;
 import generic.Tuple;
+import java.io.File;
 import tools.JMathPlotter;
+import tools.SurfaceCache;
 import type1.sets.T1MF_Interface;
 import type1.sets.T1MF_Trapezoidal;
 import type1.system.T1_Antecedent;
+import type1.system.T1_CompiledRulebase;
 import type1.system.T1_Consequent;
 import type1.system.T1_Rule;
 import type1.system.T1_Rulebase;
@@ -23,6 +26,9 @@ import type1.system.T1_Rulebase;
  *  scenario.
  * We have two inputs: food quality and service level and as an output we would
  * like to generate the applicable tip.
+ * The constructor only builds the rulebase, without plotting or printing
+ * anything, so that the system can be used in simulations and on machines
+ * without a display; plot() shows its membership functions.
  * @author Christian Wagner
  */
 public class SimpleT1FLS 
@@ -31,6 +37,9 @@ public class SimpleT1FLS
     Input memory;
     Output priority;             //the output of the FLS
     T1_Rulebase rulebase;   //the rulebase captures the entire FLS
+    T1_CompiledRulebase compiledRulebase;   //the rulebase compiled for fast evaluation
+    int cpuIndex, memoryIndex, priorityIndex;
+    T1MF_Interface[] cpuMFs, priorityMFs;   //the sets shown by plot()
     
 	public SimpleT1FLS()
     {
@@ -95,32 +104,62 @@ public class SimpleT1FLS
         
         //just an example of setting the discretisation level of an output - the usual level is 100
         priority.setDiscretisationLevel(100);        
-        
-        //get some outputs
-        
-        for(int i = 0; i <= 20; i++) {
-        	for(int j = 0; j <= 20; j++) {
-	        	double cpuInput = i * 0.5;
-	        	double memoryInput = j * 0.5;
-	        	getPriority(cpuInput, memoryInput);
-        	}
-        }
-        
+
+        //compile the rulebase, which gives the same outputs without allocating objects
+        compiledRulebase = new T1_CompiledRulebase(rulebase);
+        cpuIndex = compiledRulebase.getInputIndex(cpu);
+        memoryIndex = compiledRulebase.getInputIndex(memory);
+        priorityIndex = compiledRulebase.getOutputIndex(priority);
+
+        cpuMFs = new T1MF_Interface[]{lowCpuMF, reasonableCpuMF, highCpuMF};
+        priorityMFs = new T1MF_Interface[]{lowPriorityMF, normalPriorityMF, highPriorityMF};
+    }
+
+    /**
+     * Plots the membership functions of the cpu input and of the priority,
+     * either in frames or, if an output directory was given to JMathPlotter,
+     * to PNG and CSV files.
+     */
+    public void plot()
+    {
         //plot some sets, discretizing each input into 100 steps.
-        plotMFs("Cpu Membership Functions", new T1MF_Interface[]{lowCpuMF, reasonableCpuMF, highCpuMF},
-        		cpu.getDomain(), 100); 
-        plotMFs("Priority Membership Functions", new T1MF_Interface[]{lowPriorityMF, normalPriorityMF, highPriorityMF}, 
-        		priority.getDomain(), 100);
+        plotMFs("Cpu Membership Functions", cpuMFs, cpu.getDomain(), 100); 
+        plotMFs("Priority Membership Functions", priorityMFs, priority.getDomain(), 100);
         //plot control surface
         //do either height defuzzification (false) or centroid d. (true)
-        //plotControlSurface(true, 100, 100);
-        
-        
-        //cpu.setInput(cpuUsage);
-        //setReturnvalue(rulebase.evaluate(1).get(priority));
-        
-        //print out the rules
-        System.out.println("\n"+rulebase);        
+        plotControlSurface(false, 100, 100);
+    }
+
+    /**
+     * Returns the rulebase.
+     */
+    public T1_Rulebase getRulebase()
+    {
+        return rulebase;
+    }
+
+    /**
+     * Returns the cpu usage input.
+     */
+    public Input getCpuInput()
+    {
+        return cpu;
+    }
+
+    /**
+     * Returns the memory usage input.
+     */
+    public Input getMemoryInput()
+    {
+        return memory;
+    }
+
+    /**
+     * Returns the priority output.
+     */
+    public Output getPriorityOutput()
+    {
+        return priority;
     }
     
     /**
@@ -129,6 +168,46 @@ public class SimpleT1FLS
      * @param serviceLevel 
      */
     public double getPriority(double cpuUsage, double memUsage)
+    {
+        //the compiled rulebase gives the same result as rulebase.evaluate(0);
+        //the buffers of the workspace of the calling thread keep this thread-safe
+        T1_CompiledRulebase.Workspace workspace = compiledRulebase.getWorkspace();
+        double[] inputValues = workspace.getInputValues();
+        double[] results = workspace.getResults();
+        inputValues[cpuIndex] = cpuUsage;
+        inputValues[memoryIndex] = memUsage;
+        compiledRulebase.evaluate(inputValues, 0, results, workspace);
+        return results[priorityIndex];
+    }
+
+    /**
+     * Returns a lookup table of the priority over the cpu and memory domains,
+     * as given by getPriority(), refined until its interpolation error is
+     * within a bound.
+     * @param points The initial number of grid points per input.
+     * @param errorBound The maximum interpolation error on the priority.
+     */
+    public SurfaceCache createPriorityCache(int points, double errorBound)
+    {
+        SurfaceCache.Function function = new SurfaceCache.Function()
+        {
+            @Override
+            public double evaluate(double[] x)
+            {
+                return getPriority(x[0], x[1]);
+            }
+        };
+        return new SurfaceCache(function, new Tuple[]{cpu.getDomain(), memory.getDomain()},
+                points, errorBound, 1025);
+    }
+
+    /**
+     * Returns the priority for a given set of inputs, evaluating the rulebase
+     * through its objects.
+     * @param cpuUsage
+     * @param memUsage 
+     */
+    public double getPriorityInterpreted(double cpuUsage, double memUsage)
     {
         //first, set the inputs
         cpu.setInput(cpuUsage);
@@ -161,8 +240,9 @@ public class SimpleT1FLS
         double[] x = new double[input1Discs];
         double[] y = new double[input2Discs];
         double[][] z = new double[y.length][x.length];
-        double incrX, incrY = 0;
+        double incrX, incrY;
         incrX = cpu.getDomain().getSize()/(input1Discs-1.0);
+        incrY = memory.getDomain().getSize()/(input2Discs-1.0);
 
         //first, get the values
         for(int currentX=0; currentX<input1Discs; currentX++)
@@ -179,10 +259,11 @@ public class SimpleT1FLS
             cpu.setInput(x[currentX]);
             for(int currentY=0; currentY<input2Discs; currentY++)
             {
+                memory.setInput(y[currentY]);
                 if(useCentroidDefuzzification)
                     output = rulebase.evaluate(1).get(priority);
                 else
-                    output = rulebase.evaluate(0).get(priority);
+                    output = getPriority(x[currentX], y[currentY]);
                 z[currentY][currentX] = output;
             }    
         }
@@ -190,12 +271,22 @@ public class SimpleT1FLS
         //now do the plotting
         JMathPlotter plotter = new JMathPlotter(17, 17, 14);
         plotter.plotControlSurface("Control Surface",
-                new String[]{cpu.getName(), "Priority"}, x, y, z, new Tuple(0.0,30.0), true);   
-       plotter.show("Type-1 Fuzzy Logic System Control Surface for Tipping Example");
+                new String[]{cpu.getName(), memory.getName(), "Priority"}, x, y, z, priority.getDomain(), true);   
+       plotter.show("Type-1 Fuzzy Logic System Control Surface for Priority");
     }
 
+	/**
+	 * Plots the system, prints its rules and its priorities on a grid. If a
+	 * directory is given, the plots are written to it instead of being shown.
+	 */
 	public static void main(String args[]) {
 		SimpleT1FLS myFLS = new SimpleT1FLS();
+		if(args.length > 0)
+			JMathPlotter.setOutputDirectory(new File(args[0]));
+		myFLS.plot();
+		
+		//print out the rules
+		System.out.println("\n"+myFLS.getRulebase());
 		
 		
 		for(float i = 0; i <= 10; i = (float) (i + 0.5)) {
@@ -0,0 +1,170 @@
+/*
+ * T1CompiledRulebaseBenchmark.java
+ *
+ * Compares the interpreted and the compiled evaluation of a type-1 rulebase.
+ */
+package examples;
+
+import generic.Input;
+import generic.Output;
+import generic.Tuple;
+import type1.sets.T1MF_Gaussian;
+import type1.sets.T1MF_Trapezoidal;
+import type1.sets.T1MF_Triangular;
+import type1.system.T1_Antecedent;
+import type1.system.T1_CompiledRulebase;
+import type1.system.T1_Consequent;
+import type1.system.T1_Rule;
+import type1.system.T1_Rulebase;
+
+/**
+ * A benchmark comparing T1_Rulebase.evaluate() with T1_CompiledRulebase on a
+ * two input, nine rule FLS similar to SimpleT1FLS, with trapezoidal, triangular
+ * and gaussian sets. It first checks that both give the same outputs on a grid
+ * of inputs, for height and centroid defuzzification, then times both.
+ * Usage: T1CompiledRulebaseBenchmark [evaluations] [repetitions]
+ */
+public class T1CompiledRulebaseBenchmark
+{
+    private Input cpu, memory;
+    private Output priority;
+    private T1_Rulebase rulebase;
+    private T1_CompiledRulebase compiledRulebase;
+    private double[] inputValues, outputValues;
+    private int cpuIndex, memoryIndex, priorityIndex;
+
+    public T1CompiledRulebaseBenchmark()
+    {
+        cpu = new Input("Cpu usage", new Tuple(0,10));
+        memory = new Input("Memory usage", new Tuple(0,10));
+        priority = new Output("Priority", new Tuple(0,10));
+
+        T1MF_Trapezoidal lowCpuMF = new T1MF_Trapezoidal("MF for low CPU", new double[]{-3.74, -0.476, 0.5, 3});
+        T1MF_Triangular reasonableCpuMF = new T1MF_Triangular("MF for reasonable CPU", 2, 5, 8);
+        T1MF_Trapezoidal highCpuMF = new T1MF_Trapezoidal("MF for high CPU", new double[]{7, 8, 10, 10});
+        T1MF_Trapezoidal lowMemMF = new T1MF_Trapezoidal("MF for low Memory", new double[]{-3.74, -0.476, 0.5, 3});
+        T1MF_Gaussian reasonableMemMF = new T1MF_Gaussian("MF for reasonable Memory", 5, 1.5);
+        T1MF_Trapezoidal highMemMF = new T1MF_Trapezoidal("MF for high Memory", new double[]{7, 8, 10, 10});
+
+        T1_Antecedent lowCpu = new T1_Antecedent("lowCpu", lowCpuMF, cpu);
+        T1_Antecedent reasonableCpu = new T1_Antecedent("ReasonableCpu", reasonableCpuMF, cpu);
+        T1_Antecedent highCpu = new T1_Antecedent("HighCpu", highCpuMF, cpu);
+        T1_Antecedent lowMem = new T1_Antecedent("lowMemory", lowMemMF, memory);
+        T1_Antecedent reasonableMem = new T1_Antecedent("ReasonableMemory", reasonableMemMF, memory);
+        T1_Antecedent highMem = new T1_Antecedent("HighMemory", highMemMF, memory);
+
+        T1_Consequent lowUsage = new T1_Consequent("LowPriority",
+                new T1MF_Trapezoidal("MF for low priority", new double[]{-1.36, -0.0428, 0.4, 4.5}), priority);
+        T1_Consequent normalUsage = new T1_Consequent("NormalPriority",
+                new T1MF_Trapezoidal("MF for normal priority", new double[]{1, 4.6, 5.4, 9}), priority);
+        T1_Consequent highUsage = new T1_Consequent("HighPriority",
+                new T1MF_Trapezoidal("MF for high priority", new double[]{5.5, 9.6, 10, 10}), priority);
+
+        rulebase = new T1_Rulebase(9);
+        rulebase.addRule(new T1_Rule(new T1_Antecedent[]{lowCpu, lowMem}, lowUsage));
+        rulebase.addRule(new T1_Rule(new T1_Antecedent[]{lowCpu, reasonableMem}, normalUsage));
+        rulebase.addRule(new T1_Rule(new T1_Antecedent[]{lowCpu, highMem}, highUsage));
+        rulebase.addRule(new T1_Rule(new T1_Antecedent[]{reasonableCpu, lowMem}, normalUsage));
+        rulebase.addRule(new T1_Rule(new T1_Antecedent[]{reasonableCpu, reasonableMem}, normalUsage));
+        rulebase.addRule(new T1_Rule(new T1_Antecedent[]{reasonableCpu, highMem}, highUsage));
+        rulebase.addRule(new T1_Rule(new T1_Antecedent[]{highCpu, lowMem}, highUsage));
+        rulebase.addRule(new T1_Rule(new T1_Antecedent[]{highCpu, reasonableMem}, highUsage));
+        rulebase.addRule(new T1_Rule(new T1_Antecedent[]{highCpu, highMem}, highUsage));
+
+        compiledRulebase = new T1_CompiledRulebase(rulebase);
+        inputValues = new double[compiledRulebase.getInputs().length];
+        outputValues = new double[compiledRulebase.getOutputs().length];
+        cpuIndex = compiledRulebase.getInputIndex(cpu);
+        memoryIndex = compiledRulebase.getInputIndex(memory);
+        priorityIndex = compiledRulebase.getOutputIndex(priority);
+    }
+
+    private double evaluateInterpreted(double cpuUsage, double memUsage, int defuzzificationType)
+    {
+        cpu.setInput(cpuUsage);
+        memory.setInput(memUsage);
+        return rulebase.evaluate(defuzzificationType).get(priority);
+    }
+
+    private double evaluateCompiled(double cpuUsage, double memUsage, int defuzzificationType)
+    {
+        inputValues[cpuIndex] = cpuUsage;
+        inputValues[memoryIndex] = memUsage;
+        compiledRulebase.evaluate(inputValues, defuzzificationType, outputValues);
+        return outputValues[priorityIndex];
+    }
+
+    /**
+     * Returns the number of inputs on a 201x201 grid for which both evaluations
+     * do not give the same bits.
+     */
+    private int countMismatches(int defuzzificationType)
+    {
+        int mismatches = 0;
+        for(int i = 0; i <= 200; i++)
+        {
+            for(int j = 0; j <= 200; j++)
+            {
+                double interpreted = evaluateInterpreted(i * 0.05, j * 0.05, defuzzificationType);
+                double compiled = evaluateCompiled(i * 0.05, j * 0.05, defuzzificationType);
+                if(Double.doubleToLongBits(interpreted) != Double.doubleToLongBits(compiled))
+                    mismatches++;
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Runs a number of evaluations on pseudo-random inputs and returns the time
+     * taken in nanoseconds.
+     */
+    private long time(boolean compiled, int defuzzificationType, int evaluations)
+    {
+        double sum = 0;
+        double x = 0.5, y = 0.25;
+        long start = System.nanoTime();
+        for(int i = 0; i < evaluations; i++)
+        {
+            x = (x * 7.3 + 0.11) % 10;
+            y = (y * 3.7 + 0.29) % 10;
+            if(compiled)
+                sum += evaluateCompiled(x, y, defuzzificationType);
+            else
+                sum += evaluateInterpreted(x, y, defuzzificationType);
+        }
+        long time = System.nanoTime() - start;
+        if(Double.isInfinite(sum))  //keeps the results alive
+            System.out.println(sum);
+        return time;
+    }
+
+    private void report(String name, boolean compiled, int defuzzificationType, int evaluations, int repetitions)
+    {
+        long total = 0;
+        for(int i = 0; i < repetitions; i++)
+            total += time(compiled, defuzzificationType, evaluations);
+        double nsPerEvaluation = (double) total / repetitions / evaluations;
+        System.out.println(String.format("%-24s %10.1f ns/evaluation", name, nsPerEvaluation));
+    }
+
+    public static void main(String args[])
+    {
+        int evaluations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int repetitions = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        T1CompiledRulebaseBenchmark benchmark = new T1CompiledRulebaseBenchmark();
+
+        System.out.println("Mismatches with height defuzzification: " + benchmark.countMismatches(0));
+        System.out.println("Mismatches with centroid defuzzification: " + benchmark.countMismatches(1));
+
+        //warm up both paths first
+        for(int d = 0; d <= 1; d++)
+        {
+            benchmark.time(false, d, evaluations);
+            benchmark.time(true, d, evaluations);
+        }
+        benchmark.report("Interpreted, height", false, 0, evaluations, repetitions);
+        benchmark.report("Compiled, height", true, 0, evaluations, repetitions);
+        benchmark.report("Interpreted, centroid", false, 1, evaluations / 10, repetitions);
+        benchmark.report("Compiled, centroid", true, 1, evaluations / 10, repetitions);
+    }
+}
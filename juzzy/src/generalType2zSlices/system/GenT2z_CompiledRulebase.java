@@ -0,0 +1,215 @@
+/*
+ * GenT2z_CompiledRulebase.java
+ *
+ * Compiled, thread-safe form of a GenT2z_Rulebase.
+ */
+
+package generalType2zSlices.system;
+
+import generic.BadParameterException;
+import generic.Input;
+import generic.Output;
+import intervalType2.system.IT2_CompiledRulebase;
+import intervalType2.system.IT2_Rulebase;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A zSlices based general type-2 rulebase compiled into one IT2_CompiledRulebase
+ * per zLevel, which can be evaluated by several threads at once.
+ * GenT2z_Rulebase.evaluate() builds the interval type-2 rulebase of every zLevel
+ * again on each call; here they are built and compiled once, and the outputs of
+ * the zLevels are weighted by their zValues in the same order. The results are
+ * the same as those of GenT2z_Rulebase.evaluate() for both center-of-sets (0)
+ * and centroid (1) type reduction.
+ * The rulebase is compiled as it is when the constructor is called: later
+ * changes to its rules, membership functions, implication method or centroid
+ * algorithm are not reflected.
+ * Only singleton inputs are supported. A compiled rulebase is immutable and
+ * does not update its Input objects: the buffers used during an evaluation are
+ * kept in a Workspace, either given by the caller or, by default, one per
+ * thread.
+ */
+public class GenT2z_CompiledRulebase
+{
+    private final IT2_CompiledRulebase[] zLevels;
+    private final double[] zValues;
+    private final Input[] inputs;
+    private final Output[] outputs;
+    //the position of each output in the results of each zLevel
+    private final int[][] zLevelOutputIndexes;
+
+    //the workspace of each thread, used when none is given to evaluate()
+    private final ThreadLocal<Workspace> workspaces = new ThreadLocal<Workspace>()
+    {
+        @Override
+        protected Workspace initialValue()
+        {
+            return createWorkspace();
+        }
+    };
+
+    /**
+     * The buffers used while evaluating a compiled rulebase. A workspace can only
+     * be used with the rulebase that created it, by one thread at a time.
+     */
+    public static final class Workspace
+    {
+        private final GenT2z_CompiledRulebase rulebase;
+        private final IT2_CompiledRulebase.Workspace[] zLevelWorkspaces;
+        private final double[][] zLevelResults;
+
+        private Workspace(GenT2z_CompiledRulebase rulebase)
+        {
+            this.rulebase = rulebase;
+            zLevelWorkspaces = new IT2_CompiledRulebase.Workspace[rulebase.zLevels.length];
+            zLevelResults = new double[rulebase.zLevels.length][];
+            for (int i = 0; i < zLevelWorkspaces.length; i++)
+            {
+                zLevelWorkspaces[i] = rulebase.zLevels[i].createWorkspace();
+                zLevelResults[i] = new double[rulebase.zLevels[i].getOutputs().length];
+            }
+        }
+    }
+
+    /**
+     * Compiles a rulebase.
+     * @param rulebase The rulebase, whose inputs must all be singletons.
+     */
+    public GenT2z_CompiledRulebase(GenT2z_Rulebase rulebase)
+    {
+        IT2_Rulebase[] rbsIT2 = rulebase.getIT2Rulebases();
+        zLevels = new IT2_CompiledRulebase[rbsIT2.length];
+        for (int i = 0; i < zLevels.length; i++)
+            zLevels[i] = new IT2_CompiledRulebase(rbsIT2[i]);
+        zValues = rulebase.getRules().get(0).getAntecedents()[0].getSet().getZValues().clone();
+
+        //the zLevels share the Input objects of the rulebase, in the same order
+        inputs = zLevels[0].getInputs();
+        for (int i = 1; i < zLevels.length; i++)
+            for (int j = 0; j < inputs.length; j++)
+                if (zLevels[i].getInputIndex(inputs[j]) != j)
+                    throw new BadParameterException("The zLevels of the rulebase do not have the same inputs.");
+
+        //same output order as GenT2z_Rulebase
+        List<Output> outputList = new ArrayList<Output>();
+        for (GenT2z_Rule rule : rulebase.getRules())
+        {
+            Iterator<GenT2z_Consequent> it = rule.getConsequentsIterator();
+            while (it.hasNext())
+            {
+                Output o = it.next().getOutput();
+                if (!outputList.contains(o))
+                    outputList.add(o);
+            }
+        }
+        outputs = outputList.toArray(new Output[outputList.size()]);
+        zLevelOutputIndexes = new int[zLevels.length][outputs.length];
+        for (int i = 0; i < zLevels.length; i++)
+            for (int o = 0; o < outputs.length; o++)
+                zLevelOutputIndexes[i][o] = zLevels[i].getOutputIndex(outputs[o]);
+    }
+
+    /**
+     * Returns the inputs of the rulebase, in the order in which their values are
+     * passed to evaluate().
+     */
+    public Input[] getInputs()
+    {
+        return inputs.clone();
+    }
+
+    /**
+     * Returns the outputs of the rulebase, in the order in which their values are
+     * returned by evaluate().
+     */
+    public Output[] getOutputs()
+    {
+        return outputs.clone();
+    }
+
+    /**
+     * Returns the position of an input in the input values, or -1 if the
+     * rulebase does not use it.
+     */
+    public int getInputIndex(Input input)
+    {
+        for (int i = 0; i < inputs.length; i++)
+            if (inputs[i] == input)
+                return i;
+        return -1;
+    }
+
+    /**
+     * Returns the position of an output in the results, or -1 if the rulebase
+     * does not use it.
+     */
+    public int getOutputIndex(Output output)
+    {
+        for (int o = 0; o < outputs.length; o++)
+            if (outputs[o] == output)
+                return o;
+        return -1;
+    }
+
+    /**
+     * Returns the number of zLevels.
+     */
+    public int getNumberOfZLevels()
+    {
+        return zLevels.length;
+    }
+
+    /**
+     * Returns a new workspace for evaluating this rulebase.
+     */
+    public Workspace createWorkspace()
+    {
+        return new Workspace(this);
+    }
+
+    /**
+     * Evaluates the rulebase for the given input values, using the workspace of
+     * the current thread. The Input objects of the rulebase are not updated.
+     * @param inputValues The value of each input, in the order of getInputs().
+     * @param typeReductionType 0: Center Of Sets, 1: Centroid
+     * @param results The array receiving the value of each output, in the order
+     * of getOutputs().
+     */
+    public void evaluate(double[] inputValues, int typeReductionType, double[] results)
+    {
+        evaluate(inputValues, typeReductionType, results, workspaces.get());
+    }
+
+    /**
+     * Evaluates the rulebase for the given input values, using the given
+     * workspace. The Input objects of the rulebase are not updated.
+     * @param inputValues The value of each input, in the order of getInputs().
+     * @param typeReductionType 0: Center Of Sets, 1: Centroid
+     * @param results The array receiving the value of each output, in the order
+     * of getOutputs().
+     * @param workspace A workspace created by this rulebase.
+     */
+    public void evaluate(double[] inputValues, int typeReductionType, double[] results, Workspace workspace)
+    {
+        if (workspace.rulebase != this)
+            throw new BadParameterException("The workspace was not created by this rulebase.");
+        for (int i = 0; i < zLevels.length; i++)
+            zLevels[i].evaluate(inputValues, typeReductionType, workspace.zLevelResults[i],
+                    workspace.zLevelWorkspaces[i]);
+
+        //apply zLevel
+        for (int o = 0; o < outputs.length; o++)
+        {
+            double numerator = 0.0;
+            double denominator = 0.0;
+            for (int i = 0; i < zLevels.length; i++)
+            {
+                numerator += workspace.zLevelResults[i][zLevelOutputIndexes[i][o]] * zValues[i];
+                denominator += zValues[i];
+            }
+            results[o] = numerator / denominator;
+        }
+    }
+}
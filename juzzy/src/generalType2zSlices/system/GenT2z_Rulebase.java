@@ -12,6 +12,7 @@ import generalType2zSlices.sets.GenT2zMF_Intersection;
 import generic.BadParameterException;
 import generic.Output;
 import generic.Tuple;
+import intervalType2.sets.IntervalT2Engine_Centroid;
 import intervalType2.system.IT2_Rulebase;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -34,6 +35,7 @@ public class GenT2z_Rulebase
     private final byte CENTROID = 1;
 //    private byte inferenceMethod = 0;   //nopt used ATM
     private byte implicationMethod = 1;    
+    private byte centroidAlgorithm = IntervalT2Engine_Centroid.KARNIKMENDEL;
     private final byte PRODUCT = 0;
     private final byte MINIMUM = 1;        
     
@@ -242,6 +244,7 @@ public class GenT2z_Rulebase
                 rbs[i].addRule(rules.get(currentRule).getRuleasIT2Rules()[i]);
             }
             rbs[i].setImplicationMethod(implicationMethod);
+            rbs[i].setCentroidAlgorithm(centroidAlgorithm);
         }
         
         return rbs;
@@ -314,6 +317,33 @@ public class GenT2z_Rulebase
         else
             throw new BadParameterException("Only product (0) and minimum (1) implication is currentlyt supported.");
     }       
+
+    /**
+     * Returns the algorithm used for centroid type reduction.
+     * @return IntervalT2Engine_Centroid.KARNIKMENDEL (0) or
+     * IntervalT2Engine_Centroid.ENHANCEDKARNIKMENDEL (1)
+     */
+    public byte getCentroidAlgorithm()
+    {
+        return centroidAlgorithm;
+    }
+
+    /**
+     * Sets the algorithm used for centroid type reduction. The enhanced Karnik
+     * Mendel procedure needs fewer operations per iteration and fewer iterations,
+     * but its results may differ slightly from those of the default Karnik Mendel
+     * procedure, which stops within 0.001 of the solution. The algorithm is applied
+     * to the interval type-2 rulebase of every zLevel.
+     * @param centroidAlgorithm IntervalT2Engine_Centroid.KARNIKMENDEL (0) or
+     * IntervalT2Engine_Centroid.ENHANCEDKARNIKMENDEL (1).
+     */
+    public void setCentroidAlgorithm(byte centroidAlgorithm)
+    {
+        if(centroidAlgorithm != IntervalT2Engine_Centroid.KARNIKMENDEL
+                && centroidAlgorithm != IntervalT2Engine_Centroid.ENHANCEDKARNIKMENDEL)
+            throw new BadParameterException("Only Karnik Mendel (0) and enhanced Karnik Mendel (1) centroids are currently supported.");
+        this.centroidAlgorithm = centroidAlgorithm;
+    }
     public String toString()
     {
         String s="";
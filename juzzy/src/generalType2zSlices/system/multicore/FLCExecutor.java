@@ -0,0 +1,94 @@
+/*
+ * FLCExecutor.java
+ *
+ * The executor shared by the multicore FLC factories.
+ */
+
+package generalType2zSlices.system.multicore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs the FLCPlants of the factories on an executor shared by all of them,
+ * with one daemon thread per available processor, created once.
+ * The calling thread does not just wait for the plants: it runs the first one
+ * itself and then every plant that no worker has started yet, so a batch
+ * completes even when the workers are busy, e.g. when factories are run from
+ * inside the executor.
+ */
+final class FLCExecutor
+{
+    private static ExecutorService executor;
+
+    private FLCExecutor()
+    {
+    }
+
+    private static synchronized ExecutorService getExecutor()
+    {
+        if(executor == null)
+        {
+            executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                    new ThreadFactory()
+                    {
+                        private int count = 0;
+
+                        @Override
+                        public synchronized Thread newThread(Runnable r)
+                        {
+                            Thread thread = new Thread(r, "FLCExecutor_"+(count++));
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+        return executor;
+    }
+
+    /**
+     * Runs the given plants and returns once all of them have completed. Each
+     * plant writes into its own slot of the results, so no locking is needed;
+     * the completion of the futures makes the results visible to the caller.
+     * @throws RuntimeException if a plant failed, or if the calling thread was
+     * interrupted while waiting (its interrupt status is then set).
+     */
+    static void run(Runnable[] plants)
+    {
+        List<FutureTask<Object>> tasks = new ArrayList<FutureTask<Object>>(plants.length);
+        for(int i=0;i<plants.length;i++)
+            tasks.add(new FutureTask<Object>(plants[i], null));
+        ExecutorService executor = getExecutor();
+        for(int i=1;i<tasks.size();i++)
+            executor.execute(tasks.get(i));
+
+        //does nothing for the tasks already started by a worker
+        for(int i=0;i<tasks.size();i++)
+            tasks.get(i).run();
+
+        try
+        {
+            for(int i=0;i<tasks.size();i++)
+                tasks.get(i).get();
+        }
+        catch(InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the zSlices to be computed.", ex);
+        }
+        catch(ExecutionException ex)
+        {
+            Throwable cause = ex.getCause();
+            if(cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            if(cause instanceof Error)
+                throw (Error) cause;
+            throw new RuntimeException(cause);
+        }
+    }
+}
@@ -18,13 +18,13 @@ import java.util.TreeMap;
 
 /**
  * FLCFactory is the top level structure for the execution of multi zSlice FLCs. An FLCFactory controls a series of FLCPlants each of
- * which is responsible for the processing of a single zSlice.
+ * which is responsible for the processing of a single zSlice. The plants are run as tasks on an executor shared by all factories,
+ * so no thread is created per evaluation. A factory must not be run by several threads at once.
  * @author Christian Wagner
  */
 public class FLCFactory {
 
-    private int numberOfThreads;
-    private Thread[] threads;
+    private int numberOfThreads;    //one task per zSlice
     private FLCPlant[] plants;
     private TreeMap<Output, Object[]> rawResults;
     private double[] zLevels;
@@ -52,7 +52,6 @@ public class FLCFactory {
 //        }
         numberOfThreads = rulebases.length;
         
-        threads = new Thread[numberOfThreads];
         plants = new FLCPlant[numberOfThreads];
         Iterator<Output> it = rulebases[0].getOutputIterator();
         while(it.hasNext())
@@ -61,11 +60,12 @@ public class FLCFactory {
         }        
         zLevels = new double[numberOfThreads];
         
-        if(DEBUG)System.out.println("Creating 1 thread per zSlice: total of "+numberOfThreads+" threads.");
+        if(DEBUG)System.out.println("Creating 1 plant per zSlice: total of "+numberOfThreads+" plants.");
         for(int i=0;i<numberOfThreads;i++)
         {            
             zLevels[i] = (i+1.0) / rulebases.length;
             weight += zLevels[i];    //for later weighted average calculation - suffices to calculate weight once...
+            plants[i] = new FLCPlant(rulebases[i], rawResults, i, 0);
         }
     }
     
@@ -75,25 +75,9 @@ public class FLCFactory {
         //timer = System.currentTimeMillis();
         
         for(int i=0;i<numberOfThreads;i++)
-        {            
-            plants[i] = new FLCPlant(rulebases[i], rawResults, i, typeReductionType); //this could be moved to constructor for efficiency / less flexibility
-            threads[i] = new Thread(plants[i], "Thread_"+i);
-
-            if(DEBUG)System.out.println("Running Factory (thread) number "+i);
-            threads[i].start();
-
-        }
-        
-        for(int i=0;i<numberOfThreads;i++)
-        {
-            try {
-                threads[i].join();
-            } catch (InterruptedException ex) 
-            {
-                if(DEBUG)System.out.println("Thread "+i+" finished before it was joined with the main thread.");
-                ex.printStackTrace();
-            } 
-        }
+            plants[i].setTypeReductionType(typeReductionType);
+        if(DEBUG)System.out.println("Running the "+numberOfThreads+" zSlices on the shared executor.");
+        FLCExecutor.run(plants);
         
         Iterator<Output> it;
         //result = 0.0;
@@ -139,25 +123,9 @@ public class FLCFactory {
         //timer = System.currentTimeMillis();
         
         for(int i=0;i<numberOfThreads;i++)
-        {            
-            plants[i] = new FLCPlant(rulebases[i], rawResults, i, typeReductionType);
-            threads[i] = new Thread(plants[i], "Thread_"+i);
-
-            if(DEBUG)System.out.println("Running Factory (thread) number "+i);
-            threads[i].start();
-
-        }
-        
-        for(int i=0;i<numberOfThreads;i++)
-        {
-            try {
-                threads[i].join();
-            } catch (InterruptedException ex) 
-            {
-                if(DEBUG)System.out.println("Thread "+i+" finished before it was joined with the main thread.");
-                ex.printStackTrace();
-            } 
-        }
+            plants[i].setTypeReductionType(typeReductionType);
+        if(DEBUG)System.out.println("Running the "+numberOfThreads+" zSlices on the shared executor.");
+        FLCExecutor.run(plants);
         
         Iterator<Output> it;
 
@@ -16,7 +16,9 @@ import java.util.TreeMap;
 
 
 /**
- *
+ * Computes the centroid of a single zSlice. Each plant writes into its own
+ * position of the result arrays, which are allocated before the plants are run,
+ * so several plants can run at once without locking.
  * @author Christian Wagner
  */
 public class FLCPlant implements Runnable
@@ -56,9 +58,7 @@ public class FLCPlant implements Runnable
         while(it.hasNext())
         {
             o = it.next();
-            synchronized(results){
             ((Tuple[])results.get(o)[0])[positionPointer] = (Tuple)temp.get(o)[0];
-            }
         }
     }
     
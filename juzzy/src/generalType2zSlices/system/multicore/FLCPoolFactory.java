@@ -17,13 +17,15 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- *
+ * A multi zSlice FLC whose FLCPlants are created once and run as tasks on the executor shared by all factories,
+ * waiting for their completion rather than polling for idle workers. Unlike FLCFactory, the result arrays are
+ * allocated again for each run, so the results returned by runFactoryGetCentroid() are not overwritten by later
+ * runs. A factory must not be run by several threads at once.
  * @author Christian Wagner
  */
 public class FLCPoolFactory {
  
     private int numberOfThreads;
-    private ThreadPool pool;
     private FLCPlant[] plants;
     private TreeMap<Output, Object[]> rawResults;
     private double[] zLevels;
@@ -38,7 +40,6 @@ public class FLCPoolFactory {
         this.rulebases = rulebases;
         numberOfThreads = rulebases.length;
         plants = new FLCPlant[numberOfThreads];
-        pool = new ThreadPool(numberOfThreads);
         zLevels = new double[rulebases.length];
 
         
@@ -78,20 +79,7 @@ public class FLCPoolFactory {
             this.defaultTypeReduction = typeReductionType;
         }
         
-        for(int i=0;i<numberOfThreads;i++)
-        {            
-            try {
-                pool.execute(plants[i]);
-            } catch (InterruptedException ex) {
-                ex.printStackTrace();
-            }
-        }
-        
-        while(pool.getNumberOfBusyThreads()>0)                
-        {
-            //System.out.println("waiting : "+ pool.getNumberOfBusyThreads());
-            Thread.currentThread().yield();
-        }
+        FLCExecutor.run(plants);
         
 
         
@@ -154,19 +142,7 @@ public class FLCPoolFactory {
             this.defaultTypeReduction = typeReductionType;
         }        
         
-        for(int i=0;i<numberOfThreads;i++)
-        {            
-            try {
-                pool.execute(plants[i]);
-            } catch (InterruptedException ex) {
-                ex.printStackTrace();
-            }
-        }
-        while(pool.getNumberOfBusyThreads()>0)                
-        {
-            //System.out.println("waiting : "+ pool.getNumberOfBusyThreads());
-            Thread.currentThread().yield();
-        }        
+        FLCExecutor.run(plants);
 
         //Iterator<Output> it;
         Output o;
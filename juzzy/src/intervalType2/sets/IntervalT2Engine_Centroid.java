@@ -9,6 +9,7 @@
 
 package intervalType2.sets;
 
+import generic.BadParameterException;
 import generic.Tuple;
 
 /**
@@ -20,12 +21,19 @@ public class IntervalT2Engine_Centroid
     private Tuple centroid;
     private int primaryDiscretizationLevel = 100;
     
-    private final short KARNIKMENDEL = 0;
-    private final short ENHANCEDKARNIKMENDEL = 1;
+    public static final byte KARNIKMENDEL = 0;
+    public static final byte ENHANCEDKARNIKMENDEL = 1;
         private final double ENHANCEDKARNIKMENDEL_L0 = 2.4;
         private final double ENHANCEDKARNIKMENDEL_R0 = 1.7;
             
-    private final short centroid_algorithm_selector = KARNIKMENDEL;
+    private byte centroid_algorithm_selector = KARNIKMENDEL;
+
+    //discretization and prefix sums of the enhanced Karnik Mendel procedure,
+    //kept while the discretization level does not change
+    private double[] x, sumXLower, sumXUpper, sumLower, sumUpper;
+    //lower and upper membership values of the discretized set
+    private double[] lowerMemberships, upperMemberships;
+    private double left, step;
     private final boolean log = false; //log for comparison
     private final boolean DEBUG = false;
     
@@ -50,6 +58,28 @@ public class IntervalT2Engine_Centroid
         this.primaryDiscretizationLevel = primaryDiscretizationLevel;
     }     
     
+    /**
+     * Returns the algorithm used to compute centroids.
+     * @return KARNIKMENDEL (0) or ENHANCEDKARNIKMENDEL (1)
+     */
+    public byte getCentroidAlgorithm()
+    {
+        return centroid_algorithm_selector;
+    }
+
+    /**
+     * Sets the algorithm used to compute centroids.
+     * @param centroidAlgorithm KARNIKMENDEL (0), the default, or
+     * ENHANCEDKARNIKMENDEL (1).
+     */
+    public void setCentroidAlgorithm(byte centroidAlgorithm)
+    {
+        if(centroidAlgorithm != KARNIKMENDEL && centroidAlgorithm != ENHANCEDKARNIKMENDEL)
+            throw new BadParameterException("Only the Karnik Mendel (0) and enhanced Karnik Mendel (1) "
+                    + "centroid algorithms are supported.");
+        this.centroid_algorithm_selector = centroidAlgorithm;
+    }
+
     public Tuple getCentroid(IntervalT2MF_Interface mf)
     {
         //System.out.println("Change back to KM!!!!!!");
@@ -71,13 +101,79 @@ public class IntervalT2Engine_Centroid
         
         return centroid;
     }
+
+    /**
+     * Returns the centroid of a set given by its lower and upper membership
+     * values at the points of the discretization of its support used by
+     * getCentroid(IntervalT2MF_Interface), i.e. at
+     * x[i] = i*((right-left)/(primaryDiscretizationLevel-1))+left. The result is
+     * the same as the one of getCentroid() for a set with this support and these
+     * membership values, without calling the set for each point.
+     * @param left The left end of the support of the set.
+     * @param right The right end of the support of the set.
+     * @param lower The lower membership values, at least primaryDiscretizationLevel of them.
+     * @param upper The upper membership values, at least primaryDiscretizationLevel of them.
+     */
+    public Tuple getCentroid(double left, double right, double[] lower, double[] upper)
+    {
+        if(right==left)
+            centroid = new Tuple(left, right);  //domain is one point - return this point
+        else if(centroid_algorithm_selector == KARNIKMENDEL)
+            centroid = getCentroidKM(null, left, right, lower, upper);
+        else
+            centroid = getCentroid_enhanced(left, right, lower, upper, ENHANCEDKARNIKMENDEL_L0, ENHANCEDKARNIKMENDEL_R0);
+        return centroid;
+    }
+
+    /**
+     * Computes the lower and upper membership values of a set over the
+     * discretization of its support into the lowerMemberships and
+     * upperMemberships buffers.
+     */
+    private void discretize(IntervalT2MF_Interface mf)
+    {
+        int n = primaryDiscretizationLevel;
+        if(lowerMemberships == null || lowerMemberships.length != n)
+        {
+            lowerMemberships = new double[n];
+            upperMemberships = new double[n];
+        }
+        double left = mf.getSupport().getLeft();
+        double step = (mf.getSupport().getRight()-left)/(n-1);
+        Tuple w;
+        for (int i=0; i<n;i++)
+        {
+            w = mf.getFS(i*step+left); //discretize and shift - starting from domain starting point
+            lowerMemberships[i] = w.getLeft();
+            upperMemberships[i] = w.getRight();
+        }
+    }
     
     private Tuple getCentroidKM(IntervalT2MF_Interface mf)
     {
         if(mf==null) return new Tuple(Double.NaN, Double.NaN);
 
         if(mf instanceof IntervalT2MF_Intersection && !((IntervalT2MF_Intersection)mf).intersectionExists())  return new Tuple(Double.NaN, Double.NaN);
-        Tuple[] w;
+
+        //get domain size
+        if(DEBUG)System.out.println("MF name = "+mf.getName());
+        if(mf instanceof IntervalT2MF_Union &&((IntervalT2MF_Union)mf).isNull())
+            return null;
+        if(DEBUG)System.out.println("domain left point is: "+mf.getSupport().getLeft()+"  and right point is: "+mf.getSupport().getRight() );
+        if(mf.getSupport().getRight()==mf.getSupport().getLeft()) 
+            return mf.getSupport().clone();  //domain is one point - return this point
+
+        discretize(mf);
+        return getCentroidKM(mf, mf.getSupport().getLeft(), mf.getSupport().getRight(), lowerMemberships, upperMemberships);
+    }
+
+    /**
+     * Karnik Mendel procedure over the lower and upper membership values of a
+     * discretized set.
+     * @param mf The set, only used for diagnostics; may be null.
+     */
+    private Tuple getCentroidKM(IntervalT2MF_Interface mf, double left, double right, double[] lower, double[] upper)
+    {
         double[] x;
         double[] weights;
         //double[] weightsLeft;       //used to keep weights array intact for calculation of y_r
@@ -90,34 +186,23 @@ public class IntervalT2Engine_Centroid
 
         int iterationCounterLeft = 0, iterationCounterRight=0;
         
-
-        //get domain size
-        if(DEBUG)System.out.println("MF name = "+mf.getName());
-        if(mf instanceof IntervalT2MF_Union &&((IntervalT2MF_Union)mf).isNull())
-            return null;
-        if(DEBUG)System.out.println("domain left point is: "+mf.getSupport().getLeft()+"  and right point is: "+mf.getSupport().getRight() );
-        if(mf.getSupport().getRight()==mf.getSupport().getLeft()) 
-            return mf.getSupport().clone();  //domain is one point - return this point
-        
-        domainSize = mf.getSupport().getRight()-mf.getSupport().getLeft();
+        domainSize = right-left;
 //System.out.println("domain: "+mf.getSupport());
         //setup arrays for primaryDiscretizationLevel
-        w = new Tuple[primaryDiscretizationLevel];
         x = new double[primaryDiscretizationLevel];
         weights = new double[primaryDiscretizationLevel];
         //weightsLeft = new double[primaryDiscretizationLevel+1];
 //System.out.println("prim disc in KM= "+primaryDiscretizationLevel);
-        //compute lower and upper membership value w at x over primaryDiscretizationLevel (discretize domain primaryDiscretizationLevel times)
+        //the lower and upper membership values w at x are given over primaryDiscretizationLevel (discretize domain primaryDiscretizationLevel times)
         temp = domainSize/(primaryDiscretizationLevel-1);
         if(DEBUG)System.out.println("Domainsize = "+domainSize+",  discLevel = "+primaryDiscretizationLevel+",  stepSize = "+temp);
         for (int i=0; i<primaryDiscretizationLevel;i++)
         {
-            x[i] = i*temp+mf.getSupport().getLeft(); //discretize and shift - starting from domain starting point
-            w[i] = mf.getFS(x[i]);
+            x[i] = i*temp+left; //discretize and shift - starting from domain starting point
             //if(i==primaryDiscretizationLevel)System.out.println("x = "+x[i]+" and y = "+w[i]);
-            weights[i] = (w[i].getLeft()+w[i].getRight()) / 2;      //(8)
+            weights[i] = (lower[i]+upper[i]) / 2;      //(8)
             
-            if(DEBUG)System.out.println("KM x disc. number: "+i+"  = "+x[i]+ "  y(w[i]) = "+w[i]+"   weights[i] = "+weights[i]);
+            if(DEBUG)System.out.println("KM x disc. number: "+i+"  = "+x[i]+ "  y(w[i]) = ["+lower[i]+","+upper[i]+"]   weights[i] = "+weights[i]);
         }        
 
         for(byte runs=0;runs<2;runs++) //run once for left, once for right
@@ -126,9 +211,7 @@ public class IntervalT2Engine_Centroid
 
         for (int i=0; i<primaryDiscretizationLevel;i++)
         {
-            //x[i] = i*temp+mf.getSupport().getLeft(); //discretize and shift - starting from domain starting point
-            w[i] = mf.getFS(x[i]); 
-            weights[i] = (w[i].getLeft()+w[i].getRight()) / 2;      //(8)
+            weights[i] = (lower[i]+upper[i]) / 2;      //(8)
         
         }            
             
@@ -148,7 +231,8 @@ public class IntervalT2Engine_Centroid
                     if(x[k]<=y && y<=x[k+1])                                //10
                         break;
                  if(k==(primaryDiscretizationLevel-2))
-                     System.out.println("###################################  NO k WAS  FOUND! ###################### for: "+mf.getName()+"\n"+mf);
+                     System.out.println("###################################  NO k WAS  FOUND! ###################### for: "
+                             +(mf==null ? "["+left+","+right+"]" : mf.getName()+"\n"+mf));
                 }
 
                 //reset weights according to k                              //11
@@ -157,18 +241,18 @@ public class IntervalT2Engine_Centroid
                     if(DEBUG)System.out.println("Doing left   k = "+k+"   and primaryDiscretizationLevel = "+primaryDiscretizationLevel);
                     for(int i=0;i<=k;i++)
                         //weightsLeft[i] = w[i].getRight();
-                        weights[i] = w[i].getRight();
+                        weights[i] = upper[i];
                     for(int i=k+1;i<primaryDiscretizationLevel;i++)
                         //weightsLeft[i] = w[i].getLeft();
-                        weights[i] = w[i].getLeft();
+                        weights[i] = lower[i];
                 }
                 else
                 {
                     if(DEBUG)System.out.println("Doing right   k = "+k+"   and primaryDiscretizationLevel = "+primaryDiscretizationLevel);
                     for(int i=0;i<=k;i++)
-                        weights[i] = w[i].getLeft();
+                        weights[i] = lower[i];
                     for(int i=k+1;i<primaryDiscretizationLevel;i++)
-                        weights[i] = w[i].getRight();                    
+                        weights[i] = upper[i];                    
                 }
 
                 yDash = getWeightedSum(x, weights);
@@ -176,13 +260,16 @@ public class IntervalT2Engine_Centroid
                 //if(yDash == y)
                 if(Double.isNaN(yDash))
                 {
-                    if(DEBUG)System.out.println("Is using NAN in KM the right thing to avoid divide by zero? "+mf);
-                    double step = mf.getSupport().getSize()/9;
-                    double value;
-                    for (int i=0;i<10;i++)
+                    if(DEBUG && mf!=null)
                     {
-                        value = i*step+mf.getSupport().getLeft();
-                        if(DEBUG)System.out.println("FS for set at "+value+" is: "+mf.getFS(value));
+                        System.out.println("Is using NAN in KM the right thing to avoid divide by zero? "+mf);
+                        double step = mf.getSupport().getSize()/9;
+                        double value;
+                        for (int i=0;i<10;i++)
+                        {
+                            value = i*step+mf.getSupport().getLeft();
+                            System.out.println("FS for set at "+value+" is: "+mf.getFS(value));
+                        }
                     }
                     yDash = y;
                 }
@@ -217,204 +304,115 @@ public class IntervalT2Engine_Centroid
      
     }    
 
-    private Tuple getCentroid_enhanced(IntervalT2MF_Interface mf, double divisor_left, double divisor_right)    //parameter to divide primaryDiscretizationLevel, usually 2.4
+    /**
+     * Enhanced Karnik Mendel procedure (Wu and Mendel, 2009), over the same
+     * discretization as getCentroidKM(). The lower and upper memberships are
+     * computed once into primitive arrays together with their prefix sums, so
+     * that the weighted average for any switch point takes constant time; each
+     * end point is then found by moving the switch point until it is stable.
+     * The result is the exact switch point solution for the discretized set,
+     * which may differ slightly from the one of getCentroidKM(), as the latter
+     * stops when two iterations are within 0.001 of each other.
+     * @param divisor_left The initial switch point for y_l is the
+     * primaryDiscretizationLevel divided by this value, usually 2.4.
+     * @param divisor_right The same for y_r, usually 1.7.
+     */
+    private Tuple getCentroid_enhanced(IntervalT2MF_Interface mf, double divisor_left, double divisor_right)
     {
-        Tuple[] w;
-        double[] x;
-        double[] weights;
-        //double[] weightsLeft;       //used to keep weights array intact for calculation of y_r
-        double y=0, yDash=0, y_l=0, y_r=0;
-        double domainSize;  //stores the size of the domain over which the function is evaluated
-        double temp;    //stores various bits for efficiency purposes (avoid recalculation
-        int k, kDash;          //switch points
-        double a=0,b=0,aDash=0, bDash=0, s=0;
-        boolean stopFlag = false;   //set to true if correct yDash is found.
-        boolean stopFlagRight = false;   //set to true if correct yDash is found for right.
-
-        int iterationCounterLeft = 0, iterationCounterRight=0;
-        boolean log = true; //log for comparison
-
-        //get domain size
-        domainSize = mf.getSupport().getRight()-mf.getSupport().getLeft();
-
-        //setup arrays for primaryDiscretizationLevel
-        w = new Tuple[primaryDiscretizationLevel+1];
-        x = new double[primaryDiscretizationLevel+1];
-        weights = new double[primaryDiscretizationLevel+1];
-        //weightsLeft = new double[primaryDiscretizationLevel+1];
+        //same special cases as getCentroidKM()
+        if(mf==null) return new Tuple(Double.NaN, Double.NaN);
+        if(mf instanceof IntervalT2MF_Intersection && !((IntervalT2MF_Intersection)mf).intersectionExists())  return new Tuple(Double.NaN, Double.NaN);
+        if(mf instanceof IntervalT2MF_Union &&((IntervalT2MF_Union)mf).isNull())
+            return null;
+        if(mf.getSupport().getRight()==mf.getSupport().getLeft()) 
+            return mf.getSupport().clone();  //domain is one point - return this point
 
-        //compute lower and upper membership value w at x over primaryDiscretizationLevel (discretize domain primaryDiscretizationLevel times)
-        temp = domainSize/primaryDiscretizationLevel;
+        discretize(mf);
+        return getCentroid_enhanced(mf.getSupport().getLeft(), mf.getSupport().getRight(),
+                lowerMemberships, upperMemberships, divisor_left, divisor_right);
+    }
 
-        //set x and calculate weights (membership values for left/right (bottom/top)
-        for (int i=0; i<=primaryDiscretizationLevel;i++)
+    /**
+     * Enhanced Karnik Mendel procedure over the lower and upper membership
+     * values of a discretized set.
+     */
+    private Tuple getCentroid_enhanced(double left, double right, double[] lower, double[] upper,
+            double divisor_left, double divisor_right)
+    {
+        int n = primaryDiscretizationLevel;
+        if(x == null || x.length != n)
         {
-                x[i] = i*temp+mf.getSupport().getLeft(); //discretize and shift - starting from domain starting point
-                //x[i] = i*temp;    //use silly discretization
-                //x[i] = i/100.0;    //use very silly discretization
-                //System.out.println(x[i]);
-
-                w[i] = mf.getFS(x[i]);                
+            x = new double[n];
+            sumXLower = new double[n+1];
+            sumXUpper = new double[n+1];
+            sumLower = new double[n+1];
+            sumUpper = new double[n+1];
         }
-
-
-        //left
+        this.left = left;
+        step = (right-left)/(n-1);
+        for (int i=0; i<n;i++)
         {
-            stopFlag = false;           
-
-            //calculate k;
-            k = (int)Math.round(primaryDiscretizationLevel/divisor_left);
-
-            //System.out.println("k = "+k);
-            a=0;b=0;
-            //System.out.println("Domainsize = "+domainSize+"   domain left = "+domain.getLeft()+"    domain right = "+domain.getRight());
-            for (int i=0; i<=k;i++)
-            {
-
-
-                a += x[i]*w[i].getRight();
-                b += w[i].getRight();
-            }
-            for (int i=k+1; i<=primaryDiscretizationLevel;i++)
-            {
-                a += x[i]*w[i].getLeft();
-                b += w[i].getLeft();
-            }            
-
-                y = a/b;                                  //(23)
-
-
-
-
-
-            //step 3
-            while(!stopFlag)
-            {
-                //System.out.println("y = "+y);
-                if(log)iterationCounterLeft++;
-
-                for(kDash=0;kDash<primaryDiscretizationLevel;kDash++)
-                {//System.out.println("y = "+y+"     and x[kDash]= "+x[kDash]);
-                    if(x[kDash]<=y && y<=x[kDash+1])                                //10
-                    //if((x[kDash]-y<0.0005) && (y-x[kDash+1]<0.0005))                                //10
-                        break;
-                }
-                System.out.println("kDash = "+kDash+"   k = "+k);
-                if(kDash == k)
-                {
-                    stopFlag = true;
-
-                    y_l = y;
-
-                }
-                else
-                {
-                    s = kDash-k;
-                    if (s<0) s=-1; else s=1;
-
-                    //System.out.println("s = "+s);
-
-                    for(int i=(Math.min(k,kDash)+1);i<=Math.max(k,kDash);i++)
-                    {
-                        aDash += x[i]*(w[i].getRight()-w[i].getLeft());
-                        bDash += (w[i].getRight()-w[i].getLeft());
-                    }
-                    aDash = a + s * aDash;
-                    bDash = b + s * bDash;
-
-                    yDash = aDash/bDash;
-
-                    y = yDash;
-                    a = aDash;
-                    b = bDash;
-                    k = kDash;
-
-                    aDash=0; bDash=0;
-                }
-
-            }       
-        }//left complete
+            x[i] = i*step+left; //discretize and shift - starting from domain starting point
+            sumXLower[i+1] = sumXLower[i] + x[i]*lower[i];
+            sumXUpper[i+1] = sumXUpper[i] + x[i]*upper[i];
+            sumLower[i+1] = sumLower[i] + lower[i];
+            sumUpper[i+1] = sumUpper[i] + upper[i];
+        }
+        if(sumUpper[n]==0.0)
+            return new Tuple(Double.NaN, Double.NaN);   //empty set
 
-        //right
+        //y_l: upper memberships up to the switch point k, lower memberships after it
+        int k = Math.max(0, Math.min(n-2, (int)Math.round(n/divisor_left)-1));
+        double y_l = getAverage(sumXUpper, sumXLower, sumUpper, sumLower, k);
+        for(int iteration=0; iteration<n; iteration++)
         {
-            stopFlag = false;           
-
-            //calculate k;
-            k = (int)Math.round(primaryDiscretizationLevel/divisor_right);
-
-            //System.out.println("k = "+k);
-            a=0;b=0;
-            //System.out.println("Domainsize = "+domainSize+"   domain left = "+domain.getLeft()+"    domain right = "+domain.getRight());
-            for (int i=0; i<=k;i++)
-            {
-                a += x[i]*w[i].getLeft();
-                b += w[i].getLeft();
-            }
-            for (int i=k+1; i<=primaryDiscretizationLevel;i++)
-            {
-                a += x[i]*w[i].getRight();
-                b += w[i].getRight();
-            }            
-
-                y = a/b;                                  //(23)
-
-
-
-
-
-            //step 3
-            while(!stopFlag)
-            {
-                //System.out.println("y = "+y);
-                if(log)iterationCounterRight++;
-
-
-                for(kDash=0;kDash<primaryDiscretizationLevel;kDash++)
-                {//System.out.println("y = "+y+"     and x[kDash]= "+x[kDash]);
-                    if(x[kDash]<=y && y<=x[kDash+1])                                //10
-                    //if((x[kDash]-y<0.0005) && (y-x[kDash+1]<0.0005))                                //10
-                        break;
-                }
-                //System.out.println("kDash = "+kDash);
-                if(kDash == k)
-                {
-                    stopFlag = true;
-
-                    y_r = y;
-
-                }
-                else
-                {
-                    s = kDash-k;
-                    if (s<0) s=-1; else s=1;
-
-                    //System.out.println("s = "+s);
-
-                    for(int i=(Math.min(k,kDash)+1);i<=Math.max(k,kDash);i++)
-                    {
-                        aDash += x[i]*(w[i].getRight()-w[i].getLeft());
-                        bDash += (w[i].getRight()-w[i].getLeft());
-                    }
-                    aDash = a - s * aDash;
-                    bDash = b - s * bDash;
-
-                    yDash = aDash/bDash;
-
-                    y = yDash;
-                    a = aDash;
-                    b = bDash;
-                    k = kDash;
-
-                    aDash=0; bDash=0;
-                }
+            int kDash = getSwitchPoint(y_l);
+            if(kDash == k)
+                break;
+            k = kDash;
+            y_l = getAverage(sumXUpper, sumXLower, sumUpper, sumLower, k);
+        }
 
-            }                       
+        //y_r: lower memberships up to the switch point k, upper memberships after it
+        k = Math.max(0, Math.min(n-2, (int)Math.round(n/divisor_right)-1));
+        double y_r = getAverage(sumXLower, sumXUpper, sumLower, sumUpper, k);
+        for(int iteration=0; iteration<n; iteration++)
+        {
+            int kDash = getSwitchPoint(y_r);
+            if(kDash == k)
+                break;
+            k = kDash;
+            y_r = getAverage(sumXLower, sumXUpper, sumLower, sumUpper, k);
         }
-        //if(log)System.out.println("Iterations for y_l: "+iterationCounterLeft+"   iterations for y_r: "+iterationCounterRight);
-        
-//        return new Tuple[]{new Tuple(y_l,y_r),new Tuple(iterationCounterLeft,iterationCounterRight)};
         return new Tuple(y_l,y_r);
-    }      
+    }
+    /**
+     * Returns the weighted average of the discretization when the first
+     * memberships are used up to the switch point k, and the second ones after it.
+     */
+    private double getAverage(double[] sumXFirst, double[] sumXSecond, double[] sumFirst, double[] sumSecond, int k)
+    {
+        int n = x.length;
+        return (sumXFirst[k+1] + sumXSecond[n] - sumXSecond[k+1])
+                / (sumFirst[k+1] + sumSecond[n] - sumSecond[k+1]);
+    }
+
+    /**
+     * Returns the switch point k for y, i.e. x[k] <= y <= x[k+1], as the first
+     * such k in getCentroidKM().
+     */
+    private int getSwitchPoint(double y)
+    {
+        int n = x.length;
+        int k = (int)((y-left)/step);
+        k = Math.max(0, Math.min(n-2, k));
+        //correct for rounding in the division
+        while(k > 0 && x[k] > y)
+            k--;
+        while(k < n-2 && x[k+1] < y)
+            k++;
+        return k;
+    }
     
     private double getWeightedSum(double x[], double w[])
     {
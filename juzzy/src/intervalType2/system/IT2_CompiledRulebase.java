@@ -0,0 +1,635 @@
+/*
+ * IT2_CompiledRulebase.java
+ *
+ * Compiled, thread-safe form of an IT2_Rulebase.
+ */
+
+package intervalType2.system;
+
+import generic.BadParameterException;
+import generic.Input;
+import generic.Output;
+import generic.Tuple;
+import intervalType2.sets.IntervalT2Engine_Centroid;
+import intervalType2.sets.IntervalT2MF_Interface;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import type1.sets.T1MF_Interface;
+import type1.sets.T1MF_Singleton;
+
+/**
+ * An interval type-2 rulebase compiled into flat primitive arrays, which can be
+ * evaluated by several threads at once.
+ * Each distinct pair of input and antecedent membership function becomes a term,
+ * whose lower and upper memberships are computed once per evaluation; the rules
+ * keep the indexes of their terms, and the consequents of each output are kept
+ * sorted by the left and by the right end of their centroids, as the
+ * center-of-sets type reduction needs them. The results are the same as those
+ * of IT2_Rulebase.evaluate() for both center-of-sets (0) and centroid (1) type
+ * reduction; for the latter, the memberships of the overall output sets are
+ * computed once per discretization point instead of building them from set
+ * objects.
+ * The rulebase is compiled as it is when the constructor is called: later
+ * changes to its rules, membership functions, implication method or centroid
+ * algorithm are not reflected.
+ * Only singleton inputs are supported. A compiled rulebase is immutable and
+ * does not update its Input objects: the buffers used during an evaluation are
+ * kept in a Workspace, either given by the caller or, by default, one per
+ * thread.
+ */
+public class IT2_CompiledRulebase
+{
+    private static final byte PRODUCT = 0;
+    private static final byte MINIMUM = 1;
+
+    private final byte implicationMethod;
+    private final byte centroidAlgorithm;
+
+    private final Input[] inputs;
+    private final double[] domainLefts, domainRights;
+    private final Output[] outputs;
+
+    //terms: pairs of input and antecedent membership function
+    private final int[] termInputs;
+    private final IntervalT2MF_Interface[] termMFs;
+
+    //rules: the terms of rule r are ruleTerms[ruleTermOffsets[r]..ruleTermOffsets[r+1]-1],
+    //its consequents are ruleConsequentOffsets[r]..ruleConsequentOffsets[r+1]-1
+    private final int[] ruleTermOffsets;
+    private final int[] ruleTerms;
+    private final int[] ruleConsequentOffsets;
+    private final int[] consequentRules;
+    private final int[] consequentOutputs;
+    private final IT2_Consequent[] consequents;
+    //the sets of the consequents, and their lower and upper sets, as used by the centroid type reduction
+    private final IntervalT2MF_Interface[] consequentSets;
+    private final T1MF_Interface[] consequentLowerSets, consequentUpperSets;
+
+    //the consequents of each output, sorted by the left and by the right end of their centroids
+    private final int[][] leftOrders, rightOrders;
+    private final double[][] leftEndpoints, rightEndpoints;
+
+    private final int terms, rules;
+
+    //the workspace of each thread, used when none is given to evaluate()
+    private final ThreadLocal<Workspace> workspaces = new ThreadLocal<Workspace>()
+    {
+        @Override
+        protected Workspace initialValue()
+        {
+            return createWorkspace();
+        }
+    };
+
+    /**
+     * The buffers used while evaluating a compiled rulebase. A workspace can only
+     * be used with the rulebase that created it, by one thread at a time.
+     */
+    public static final class Workspace
+    {
+        private final IT2_CompiledRulebase rulebase;
+        private final double[] lowerMemberships, upperMemberships;
+        private final double[] lowerFStrengths, upperFStrengths;
+        //the fired consequents of the current output, as in IT2_COSInferenceData
+        private final double[] endpoints, lowerStrengths, upperStrengths, weights;
+        //the memberships of the overall output set of the centroid type reduction, grown as needed
+        private double[] lowerOutputMemberships = new double[0], upperOutputMemberships = new double[0];
+        private final IntervalT2Engine_Centroid centroidEngine;
+
+        private Workspace(IT2_CompiledRulebase rulebase)
+        {
+            this.rulebase = rulebase;
+            lowerMemberships = new double[rulebase.terms];
+            upperMemberships = new double[rulebase.terms];
+            lowerFStrengths = new double[rulebase.rules];
+            upperFStrengths = new double[rulebase.rules];
+            int consequents = rulebase.consequents.length;
+            endpoints = new double[consequents];
+            lowerStrengths = new double[consequents];
+            upperStrengths = new double[consequents];
+            weights = new double[consequents];
+            centroidEngine = new IntervalT2Engine_Centroid();
+            centroidEngine.setCentroidAlgorithm(rulebase.centroidAlgorithm);
+        }
+
+        private double[] getOutputMemberships(int length, boolean upper)
+        {
+            if (lowerOutputMemberships.length < length)
+            {
+                lowerOutputMemberships = new double[length];
+                upperOutputMemberships = new double[length];
+            }
+            return upper ? upperOutputMemberships : lowerOutputMemberships;
+        }
+    }
+
+    /**
+     * Compiles a rulebase.
+     * @param rulebase The rulebase, whose inputs must all be singletons.
+     */
+    public IT2_CompiledRulebase(IT2_Rulebase rulebase)
+    {
+        implicationMethod = rulebase.getImplicationMethod().equals("product") ? PRODUCT : MINIMUM;
+        centroidAlgorithm = rulebase.getCentroidAlgorithm();
+
+        List<Input> inputList = new ArrayList<Input>();
+        HashMap<Input, Integer> inputIndexes = new HashMap<Input, Integer>();
+        List<Output> outputList = new ArrayList<Output>();
+        HashMap<Output, Integer> outputIndexes = new HashMap<Output, Integer>();
+        List<IT2_Antecedent> termList = new ArrayList<IT2_Antecedent>();
+        List<Integer> termInputList = new ArrayList<Integer>();
+        List<IT2_Consequent> consequentList = new ArrayList<IT2_Consequent>();
+        List<Integer> consequentRuleList = new ArrayList<Integer>();
+
+        rules = rulebase.getNumberOfRules();
+        ruleTermOffsets = new int[rules + 1];
+        ruleConsequentOffsets = new int[rules + 1];
+        List<Integer> ruleTermList = new ArrayList<Integer>();
+
+        for (int r = 0; r < rules; r++)
+        {
+            IT2_Rule rule = (IT2_Rule) rulebase.getRules().get(r);
+            for (IT2_Antecedent antecedent : rule.getAntecedents())
+            {
+                Input input = antecedent.getInput();
+                if (!(input.getInputMF() instanceof T1MF_Singleton))
+                    throw new BadParameterException("Only singleton inputs are supported by the "
+                            + "compiled rulebase, but input " + input.getName() + " is not.");
+                Integer inputIndex = inputIndexes.get(input);
+                if (inputIndex == null)
+                {
+                    inputIndex = inputList.size();
+                    inputList.add(input);
+                    inputIndexes.put(input, inputIndex);
+                }
+                int term = 0;
+                while (term < termList.size() && (termInputList.get(term) != inputIndex.intValue()
+                        || termList.get(term).getMF() != antecedent.getMF()))
+                    term++;
+                if (term == termList.size())
+                {
+                    termList.add(antecedent);
+                    termInputList.add(inputIndex);
+                }
+                ruleTermList.add(term);
+            }
+            ruleTermOffsets[r + 1] = ruleTermList.size();
+
+            Iterator<IT2_Consequent> it = rule.getConsequentsIterator();
+            while (it.hasNext())
+            {
+                IT2_Consequent consequent = it.next();
+                if (!outputIndexes.containsKey(consequent.getOutput()))
+                {
+                    outputIndexes.put(consequent.getOutput(), outputList.size());
+                    outputList.add(consequent.getOutput());
+                }
+                consequentList.add(consequent);
+                consequentRuleList.add(r);
+            }
+            ruleConsequentOffsets[r + 1] = consequentList.size();
+        }
+
+        inputs = inputList.toArray(new Input[inputList.size()]);
+        domainLefts = new double[inputs.length];
+        domainRights = new double[inputs.length];
+        for (int i = 0; i < inputs.length; i++)
+        {
+            domainLefts[i] = inputs[i].getDomain().getLeft();
+            domainRights[i] = inputs[i].getDomain().getRight();
+        }
+        outputs = outputList.toArray(new Output[outputList.size()]);
+
+        terms = termList.size();
+        termInputs = new int[terms];
+        termMFs = new IntervalT2MF_Interface[terms];
+        for (int t = 0; t < terms; t++)
+        {
+            termInputs[t] = termInputList.get(t);
+            termMFs[t] = termList.get(t).getMF();
+        }
+
+        ruleTerms = new int[ruleTermList.size()];
+        for (int i = 0; i < ruleTerms.length; i++)
+            ruleTerms[i] = ruleTermList.get(i);
+
+        consequents = consequentList.toArray(new IT2_Consequent[consequentList.size()]);
+        consequentRules = new int[consequents.length];
+        consequentOutputs = new int[consequents.length];
+        consequentSets = new IntervalT2MF_Interface[consequents.length];
+        consequentLowerSets = new T1MF_Interface[consequents.length];
+        consequentUpperSets = new T1MF_Interface[consequents.length];
+        for (int c = 0; c < consequents.length; c++)
+        {
+            consequentRules[c] = consequentRuleList.get(c);
+            consequentOutputs[c] = outputIndexes.get(consequents[c].getOutput());
+            consequentSets[c] = consequents[c].getMembershipFunction();
+            consequentLowerSets[c] = consequentSets[c].getLMF();
+            consequentUpperSets[c] = consequentSets[c].getUMF();
+        }
+
+        leftOrders = new int[outputs.length][];
+        rightOrders = new int[outputs.length][];
+        leftEndpoints = new double[outputs.length][];
+        rightEndpoints = new double[outputs.length][];
+        for (int o = 0; o < outputs.length; o++)
+        {
+            int count = 0;
+            for (int c = 0; c < consequents.length; c++)
+                if (consequentOutputs[c] == o)
+                    count++;
+            leftOrders[o] = new int[count];
+            rightOrders[o] = new int[count];
+            count = 0;
+            for (int c = 0; c < consequents.length; c++)
+                if (consequentOutputs[c] == o)
+                    leftOrders[o][count] = rightOrders[o][count++] = c;
+            leftEndpoints[o] = sortByEndpoint(leftOrders[o], true);
+            rightEndpoints[o] = sortByEndpoint(rightOrders[o], false);
+        }
+    }
+
+    /**
+     * Sorts consequents by an end of their centroids, keeping the rule order of
+     * equal ends as the stable sort of IT2_Rulebase.doCOSTypeReduction() does.
+     * Since the order does not depend on the inputs, filtering the sorted
+     * consequents by firing gives the order of the interpreted rulebase.
+     * @param order The consequents, in rule order, sorted in place.
+     * @param left Whether to sort by the left or by the right end.
+     * @return The sorted ends.
+     */
+    private double[] sortByEndpoint(int[] order, boolean left)
+    {
+        double[] endpoints = new double[order.length];
+        for (int i = 0; i < order.length; i++)
+        {
+            Tuple centroid = consequents[order[i]].getCentroid();
+            double endpoint = left ? centroid.getLeft() : centroid.getRight();
+            int c = order[i];
+            int j = i;
+            while (j > 0 && endpoints[j - 1] > endpoint)
+            {
+                endpoints[j] = endpoints[j - 1];
+                order[j] = order[j - 1];
+                j--;
+            }
+            endpoints[j] = endpoint;
+            order[j] = c;
+        }
+        return endpoints;
+    }
+
+    /**
+     * Returns the inputs of the rulebase, in the order in which their values are
+     * passed to evaluate().
+     */
+    public Input[] getInputs()
+    {
+        return inputs.clone();
+    }
+
+    /**
+     * Returns the outputs of the rulebase, in the order in which their values are
+     * returned by evaluate().
+     */
+    public Output[] getOutputs()
+    {
+        return outputs.clone();
+    }
+
+    /**
+     * Returns the position of an input in the input values, or -1 if the
+     * rulebase does not use it.
+     */
+    public int getInputIndex(Input input)
+    {
+        for (int i = 0; i < inputs.length; i++)
+            if (inputs[i] == input)
+                return i;
+        return -1;
+    }
+
+    /**
+     * Returns the position of an output in the results, or -1 if the rulebase
+     * does not use it.
+     */
+    public int getOutputIndex(Output output)
+    {
+        for (int o = 0; o < outputs.length; o++)
+            if (outputs[o] == output)
+                return o;
+        return -1;
+    }
+
+    /**
+     * Returns a new workspace for evaluating this rulebase.
+     */
+    public Workspace createWorkspace()
+    {
+        return new Workspace(this);
+    }
+
+    /**
+     * Evaluates the rulebase for the given input values, using the workspace of
+     * the current thread. The Input objects of the rulebase are not updated.
+     * @param inputValues The value of each input, in the order of getInputs().
+     * @param typeReductionType The type of type reducer to be used: 0-Center
+     * Of Sets, 1-Centroid.
+     * @param results The array receiving the type-reduced and defuzzified value
+     * of each output, in the order of getOutputs().
+     */
+    public void evaluate(double[] inputValues, int typeReductionType, double[] results)
+    {
+        evaluate(inputValues, typeReductionType, results, workspaces.get());
+    }
+
+    /**
+     * Evaluates the rulebase for the given input values, using the given
+     * workspace. The Input objects of the rulebase are not updated.
+     * @param inputValues The value of each input, in the order of getInputs().
+     * @param typeReductionType The type of type reducer to be used: 0-Center
+     * Of Sets, 1-Centroid.
+     * @param results The array receiving the type-reduced and defuzzified value
+     * of each output, in the order of getOutputs().
+     * @param workspace A workspace created by this rulebase.
+     */
+    public void evaluate(double[] inputValues, int typeReductionType, double[] results, Workspace workspace)
+    {
+        if (workspace.rulebase != this)
+            throw new BadParameterException("The workspace was not created by this rulebase.");
+        if (typeReductionType != 0 && typeReductionType != 1)
+            throw new BadParameterException("The IT2 evaluate() method only supports center of "
+                    + "sets (0) and centroid (1) type reduction.");
+        for (int i = 0; i < inputs.length; i++)
+        {
+            double x = inputValues[i];
+            if (!(x >= domainLefts[i] && x <= domainRights[i]))
+                throw new BadParameterException("The input value " + x + " was rejected "
+                        + "as it is outside of the domain for this input: "
+                        + "[" + domainLefts[i] + ", " + domainRights[i] + "].");
+        }
+
+        double[] lowerMemberships = workspace.lowerMemberships, upperMemberships = workspace.upperMemberships;
+        for (int t = 0; t < terms; t++)
+        {
+            Tuple membership = termMFs[t].getFS(inputValues[termInputs[t]]);
+            lowerMemberships[t] = membership.getLeft();
+            upperMemberships[t] = membership.getRight();
+        }
+
+        //same operations as IT2_Rule.getFStrength() for singleton inputs
+        for (int r = 0; r < rules; r++)
+        {
+            double lower = 1.0, upper = 1.0;
+            if (implicationMethod == PRODUCT)
+            {
+                for (int i = ruleTermOffsets[r]; i < ruleTermOffsets[r + 1]; i++)
+                {
+                    lower = lower * lowerMemberships[ruleTerms[i]];
+                    upper = upper * upperMemberships[ruleTerms[i]];
+                }
+            }
+            else
+            {
+                for (int i = ruleTermOffsets[r]; i < ruleTermOffsets[r + 1]; i++)
+                {
+                    lower = Math.min(lower, lowerMemberships[ruleTerms[i]]);
+                    upper = Math.min(upper, upperMemberships[ruleTerms[i]]);
+                }
+            }
+            workspace.lowerFStrengths[r] = lower;
+            workspace.upperFStrengths[r] = upper;
+        }
+
+        if (typeReductionType == 0)
+        {
+            for (int o = 0; o < outputs.length; o++)
+                results[o] = doCOSTypeReduction(workspace, o);
+        }
+        else
+            doReductionCentroid(workspace, results);
+    }
+
+    /**
+     * Center-of-sets type reduction of an output, using the same operations as
+     * IT2_Rulebase.doCOSTypeReduction().
+     * @return The average of the type-reduced interval, 0 if no rule fired.
+     */
+    private double doCOSTypeReduction(Workspace workspace, int o)
+    {
+        //DO RIGHT
+        int fired = collectFiredConsequents(workspace, rightOrders[o], rightEndpoints[o]);
+        if (fired == 0)
+            return 0.0;    //by convention, return 0 if no rule was fired
+        double[] endpoints = workspace.endpoints;
+        double[] lowerStrengths = workspace.lowerStrengths, upperStrengths = workspace.upperStrengths;
+        double[] fir = workspace.weights;
+        boolean stopFlag = false;
+        int R = 0;
+        int L = 0;
+
+        for (int i = 0; i < fired; i++)
+            fir[i] = (lowerStrengths[i] + upperStrengths[i]) / 2.0;
+        double yr = weightedSigma(fir, endpoints, fired);
+        double yDash = yr;
+        double yDashDash;
+        while (!stopFlag)
+        {
+            for (int i = 0; i < fired - 1; i++)
+            {
+                if (endpoints[i] <= yDash && yDash <= endpoints[i + 1])
+                {
+                    R = i;
+                    break;
+                }
+            }
+            for (int i = 0; i <= R; i++)
+                fir[i] = lowerStrengths[i];
+            for (int i = R + 1; i < fired; i++)
+                fir[i] = upperStrengths[i];
+
+            //fix problem when only one rule fires and f_lower =0
+            if (fired == 1 & fir[0] == 0) fir[0] = 0.00001;
+
+            yr = weightedSigma(fir, endpoints, fired);
+            yDashDash = yr;
+            if (Math.abs(yDash - yDashDash) < 0.000000001)
+                stopFlag = true;
+            else
+                yDash = yDashDash;
+        }
+
+        //DO LEFT
+        collectFiredConsequents(workspace, leftOrders[o], leftEndpoints[o]);
+        stopFlag = false;
+        for (int i = 0; i < fired; i++)
+            fir[i] = (lowerStrengths[i] + upperStrengths[i]) / 2.0;
+        double yl = weightedSigma(fir, endpoints, fired);
+        yDash = yl;
+        compute_yl:
+        while (!stopFlag)
+        {
+            for (int i = 0; i <= fired - 2; i++)
+            {
+                if (endpoints[i] <= yDash && yDash <= endpoints[i + 1])
+                {
+                    L = i;
+                    break;
+                }
+            }
+            for (int i = 0; i <= L; i++)
+                fir[i] = upperStrengths[i];
+            for (int i = L + 1; i < fired; i++)
+                fir[i] = lowerStrengths[i];
+
+            yl = weightedSigma(fir, endpoints, fired);
+            if (Double.isNaN(yl))
+            {
+                yl = 0;
+                break compute_yl;
+            }
+            yDashDash = yl;
+            if (Math.abs(yDash) - Math.abs(yDashDash) < 0.000000001)
+                stopFlag = true;
+            else
+                yDash = yDashDash;
+        }
+        return (yl + yr) / 2.0;
+    }
+
+    /**
+     * Copies the fired consequents of an output, in the given order, into the
+     * buffers of the workspace.
+     * @return The number of fired consequents.
+     */
+    private int collectFiredConsequents(Workspace workspace, int[] order, double[] orderedEndpoints)
+    {
+        int fired = 0;
+        for (int i = 0; i < order.length; i++)
+        {
+            int r = consequentRules[order[i]];
+            if (workspace.upperFStrengths[r] > 0.0)
+            {
+                workspace.endpoints[fired] = orderedEndpoints[i];
+                workspace.lowerStrengths[fired] = workspace.lowerFStrengths[r];
+                workspace.upperStrengths[fired] = workspace.upperFStrengths[r];
+                fired++;
+            }
+        }
+        return fired;
+    }
+
+    private static double weightedSigma(double[] w, double[] y, int length)
+    {
+        double numerator = 0.0, denominator = 0.0;
+        for (int i = 0; i < length; i++) numerator += (w[i] * y[i]);
+        for (int i = 0; i < length; i++) denominator += w[i];
+
+        if (denominator == 0.0)
+            return 0.0;
+        else
+            return (numerator / denominator);
+    }
+
+    /**
+     * Centroid type reduction. The overall output set of an output is the
+     * union of the intersections of the firing interval of each fired rule with
+     * its consequent, as built by IT2_Rulebase.doReductionCentroid(); its lower
+     * and upper memberships are computed here once per discretization point,
+     * with the same operations as those set classes, and given to the centroid
+     * engine as arrays.
+     */
+    private void doReductionCentroid(Workspace workspace, double[] results)
+    {
+        double[] lowerFStrengths = workspace.lowerFStrengths, upperFStrengths = workspace.upperFStrengths;
+        //same check of the firing intervals as IntervalT2MF_Cylinder
+        for (int r = 0; r < rules; r++)
+        {
+            if (upperFStrengths[r] > 0.0 && lowerFStrengths[r] > upperFStrengths[r]
+                    && ruleConsequentOffsets[r] < ruleConsequentOffsets[r + 1])
+            {
+                if (lowerFStrengths[r] - upperFStrengths[r] < 0.000001)    //account for floating point errors
+                    lowerFStrengths[r] = upperFStrengths[r];
+                else
+                    throw new BadParameterException("Lower firing strength (" + lowerFStrengths[r]
+                            + ") should not be higher than Upper firing strength (" + upperFStrengths[r] + ").");
+            }
+        }
+
+        IntervalT2Engine_Centroid iT2EC = workspace.centroidEngine;
+        for (int o = 0; o < outputs.length; o++)
+        {
+            //the support of the overall output set is the union of those of the fired consequents
+            int fired = 0, firedConsequent = -1;
+            double left = 0.0, right = 0.0;
+            for (int c = 0; c < consequents.length; c++)
+            {
+                if (consequentOutputs[c] != o || !(upperFStrengths[consequentRules[c]] > 0.0))
+                    continue;
+                Tuple support = consequentSets[c].getSupport();
+                if (fired == 0)
+                {
+                    left = support.getLeft();
+                    right = support.getRight();
+                    firedConsequent = c;
+                }
+                else
+                {
+                    left = Math.min(left, support.getLeft());
+                    right = Math.max(right, support.getRight());
+                }
+                fired++;
+            }
+            if (fired == 0)
+            {
+                results[o] = Double.NaN;    //the centroid of no set is (NaN, NaN)
+                continue;
+            }
+
+            int n = outputs[o].getDiscretisationLevel();
+            iT2EC.setPrimaryDiscretizationLevel(n);
+            double[] lower = workspace.getOutputMemberships(n, false), upper = workspace.getOutputMemberships(n, true);
+            if (right != left)
+            {
+                double step = (right - left) / (n - 1);
+                for (int i = 0; i < n; i++)
+                {
+                    double x = i * step + left;
+                    if (fired == 1)
+                    {
+                        //IntervalT2MF_Intersection.getFS() of the firing interval and the consequent
+                        int r = consequentRules[firedConsequent];
+                        Tuple fs = consequentSets[firedConsequent].getFS(x);
+                        lower[i] = Math.min(Math.min(1.0, lowerFStrengths[r]), fs.getLeft());
+                        upper[i] = Math.min(Math.min(1.0, upperFStrengths[r]), fs.getRight());
+                        continue;
+                    }
+                    //IntervalT2MF_Union of the intersections, through their lower and upper sets
+                    boolean first = true;
+                    for (int c = 0; c < consequents.length; c++)
+                    {
+                        int r = consequentRules[c];
+                        if (consequentOutputs[c] != o || !(upperFStrengths[r] > 0.0))
+                            continue;
+                        double l = Math.min(lowerFStrengths[r], consequentLowerSets[c].getFS(x));
+                        double u = Math.min(upperFStrengths[r], consequentUpperSets[c].getFS(x));
+                        if (first)
+                        {
+                            lower[i] = l;
+                            upper[i] = u;
+                            first = false;
+                        }
+                        else
+                        {
+                            lower[i] = Math.max(lower[i], l);
+                            upper[i] = Math.max(upper[i], u);
+                        }
+                    }
+                }
+            }
+            results[o] = iT2EC.getCentroid(left, right, lower, upper).getAverage();
+        }
+    }
+}
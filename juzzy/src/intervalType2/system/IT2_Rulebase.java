@@ -25,6 +25,7 @@ public class IT2_Rulebase
     private final byte CENTROID = 1;
 //    private byte inferenceMethod = 0;  //not used ATM
     private byte implicationMethod = 1;
+    private byte centroidAlgorithm = IntervalT2Engine_Centroid.KARNIKMENDEL;
     
     private final byte PRODUCT = 0;
     private final byte MINIMUM = 1;        
@@ -444,6 +445,7 @@ public class IT2_Rulebase
         
         //Create Centroid Engine and get centroid of overall set for each output:
         IntervalT2Engine_Centroid iT2EC = new IntervalT2Engine_Centroid();
+        iT2EC.setCentroidAlgorithm(centroidAlgorithm);
         TreeMap<Output, Tuple> returnValue = new TreeMap();
         iO = outputs.iterator();
         while(iO.hasNext())
@@ -602,6 +604,32 @@ public class IT2_Rulebase
         else
             throw new BadParameterException("Only product (0) and minimum (1) implication is currentlyt supported.");
     }    
+
+    /**
+     * Returns the algorithm used for centroid type reduction.
+     * @return IntervalT2Engine_Centroid.KARNIKMENDEL (0) or
+     * IntervalT2Engine_Centroid.ENHANCEDKARNIKMENDEL (1)
+     */
+    public byte getCentroidAlgorithm()
+    {
+        return centroidAlgorithm;
+    }
+
+    /**
+     * Sets the algorithm used for centroid type reduction. The enhanced Karnik
+     * Mendel procedure needs fewer operations per iteration and fewer iterations,
+     * but its results may differ slightly from those of the default Karnik Mendel
+     * procedure, which stops within 0.001 of the solution.
+     * @param centroidAlgorithm IntervalT2Engine_Centroid.KARNIKMENDEL (0) or
+     * IntervalT2Engine_Centroid.ENHANCEDKARNIKMENDEL (1).
+     */
+    public void setCentroidAlgorithm(byte centroidAlgorithm)
+    {
+        if(centroidAlgorithm != IntervalT2Engine_Centroid.KARNIKMENDEL
+                && centroidAlgorithm != IntervalT2Engine_Centroid.ENHANCEDKARNIKMENDEL)
+            throw new BadParameterException("Only Karnik Mendel (0) and enhanced Karnik Mendel (1) centroids are currently supported.");
+        this.centroidAlgorithm = centroidAlgorithm;
+    }
     
     @Override
     public String toString()
@@ -16,12 +16,16 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintWriter;
 import javax.imageio.ImageIO;
 import javax.swing.ImageIcon;
 import javax.swing.JFrame;
 import org.math.plot.Plot2DPanel;
 import org.math.plot.Plot3DPanel;
+import org.math.plot.PlotPanel;
+import org.math.plot.plots.Plot;
 import type1.sets.T1MF_Interface;
 import type1.sets.T1MF_Trapezoidal;
 
@@ -30,12 +34,39 @@ import type1.sets.T1MF_Trapezoidal;
  * Implementation based on JMathPlotter: http://code.google.com/p/jmathplot
  * First use the plotMF function to specify the content to be plotted.
  * Then use show() to actually plot the content and show it in a frame.
+ * When an output directory is set, show() writes the plot to a PNG and a CSV
+ * file in that directory instead, without opening any window, which also works
+ * on machines without a display (java.awt.headless=true).
  * @author chwagn
  */
 public class JMathPlotter {
     Container plot = null;
     String title = "";
     private Font legendFont, axisFont, axisLightFont;   //axisLightFont refers to subdivisions on axis
+
+    //the size of the images written by show() when an output directory is set
+    private static final int IMAGE_WIDTH = 600, IMAGE_HEIGHT = 600;
+    private static File outputDirectory = null;
+
+    /**
+     * Makes show() write the plots to the given directory instead of showing
+     * them in a frame. Each plot is written to a PNG image and a CSV file of its
+     * data, named after the title of the plot.
+     * @param directory The output directory, or null to show the plots in frames again.
+     */
+    public static synchronized void setOutputDirectory(File directory)
+    {
+        outputDirectory = directory;
+    }
+
+    /**
+     * Returns the directory the plots are written to by show(), or null if they
+     * are shown in frames.
+     */
+    public static synchronized File getOutputDirectory()
+    {
+        return outputDirectory;
+    }
     
     public JMathPlotter()
     {
@@ -147,6 +178,12 @@ public class JMathPlotter {
     }
     public void toGraphicFile( File f) throws IOException {
         Plot2DPanel p = ((Plot2DPanel)plot);
+        //the panel can only create an image once it is shown
+        if(!p.isDisplayable())
+        {
+            toGraphicFile(f, IMAGE_WIDTH, IMAGE_HEIGHT);
+            return;
+        }
         //p.toGraphicFile(f);
         // otherwise toolbar appears
         p.plotToolBar.setVisible(false);
@@ -172,6 +209,80 @@ public class JMathPlotter {
         }
     }
     
+    /**
+     * Writes the plot to a PNG image of the given size without showing it, so
+     * that no window is needed.
+     * @param f The image file.
+     * @param width The width of the image in pixels.
+     * @param height The height of the image in pixels.
+     */
+    public void toGraphicFile(File f, int width, int height) throws IOException
+    {
+        PlotPanel p = (PlotPanel)plot;
+        // otherwise toolbar appears
+        p.plotToolBar.setVisible(false);
+        p.setSize(width, height);
+        layout(p);
+        //the projection is otherwise only updated by the resize event, which
+        //may not have been handled yet
+        p.plotCanvas.resetBase();
+
+        BufferedImage bufferedImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = bufferedImage.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        p.printAll(g);
+        g.dispose();
+
+        // make it reappear
+        p.plotToolBar.setVisible(true);
+        ImageIO.write(bufferedImage, "PNG", f);
+    }
+
+    /**
+     * Lays out a component and its children, which is otherwise only done when
+     * it is shown.
+     */
+    private static void layout(Component c)
+    {
+        c.doLayout();
+        if(c instanceof Container)
+            for(Component child : ((Container)c).getComponents())
+                layout(child);
+    }
+
+    /**
+     * Writes the data of the plot to a CSV file, one line per point with the
+     * name of the line or surface it belongs to followed by its coordinates.
+     * @param f The CSV file.
+     */
+    public void toCSVFile(File f) throws IOException
+    {
+        PrintWriter writer = new PrintWriter(new FileWriter(f));
+        try
+        {
+            boolean threeDimensional = plot instanceof Plot3DPanel;
+            writer.println(threeDimensional ? "plot,x,y,z" : "plot,x,y");
+            for(Plot p : ((PlotPanel)plot).getPlots())
+            {
+                String name = "\""+p.getName().replace("\"", "\"\"")+"\"";
+                for(double[] point : p.getData())
+                {
+                    writer.print(name);
+                    for(int i=0;i<point.length;i++)
+                        writer.print(","+point[i]);
+                    writer.println();
+                }
+            }
+        }
+        finally
+        {
+            writer.close();
+        }
+        if(writer.checkError())
+            throw new IOException("Could not write "+f);
+    }
+
     public void plotMF(String plotName, IntervalT2MF_Interface set, int xDisc, JFrame frame, boolean addExtraEndpoints)
     {
         double[] x = discretize(set.getSupport(),xDisc);
@@ -591,6 +702,21 @@ public class JMathPlotter {
     }
     public void show()
     {
+        File directory = getOutputDirectory();
+        if(directory != null)
+        {
+            String name = title.replaceAll("[^A-Za-z0-9_.-]+", "_");
+            try
+            {
+                toGraphicFile(new File(directory, name+".png"), IMAGE_WIDTH, IMAGE_HEIGHT);
+                toCSVFile(new File(directory, name+".csv"));
+            }
+            catch(IOException ex)
+            {
+                throw new RuntimeException("Could not write the plot "+title+" to "+directory, ex);
+            }
+            return;
+        }
         JFrame frame = new JFrame(title);
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setSize(600, 600);
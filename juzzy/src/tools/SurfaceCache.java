@@ -0,0 +1,359 @@
+/*
+ * SurfaceCache.java
+ *
+ * Precomputed control surface of a fuzzy system with one to three inputs.
+ */
+package tools;
+
+import generalType2zSlices.system.GenT2z_Rulebase;
+import generic.BadParameterException;
+import generic.Input;
+import generic.Output;
+import generic.Tuple;
+import intervalType2.system.IT2_Rulebase;
+import type1.system.T1_Rulebase;
+
+/**
+ * A lookup table of the control surface of a fuzzy system with one to three
+ * inputs. The system is sampled once on a regular grid over the domains of its
+ * inputs, and queries are answered by linear, bilinear or trilinear
+ * interpolation between the grid points, i.e. a few array reads instead of a
+ * full inference.
+ * When an error bound is given, the grid is refined (the number of points per
+ * input going from n to 2n-1, which keeps the previous samples) until the
+ * interpolation error is within the bound. The error is measured at the centre
+ * of every grid cell, which is where it is usually the largest; it is an
+ * estimate, not a guarantee for every point of the domain.
+ * A cache is read-only once built and can be queried by several threads.
+ */
+public class SurfaceCache
+{
+    /**
+     * The function sampled by a cache, i.e. one output of a fuzzy system.
+     */
+    public interface Function
+    {
+        /**
+         * Returns the value of the function for the given input values.
+         */
+        public double evaluate(double[] x);
+    }
+
+    private final int dimensions;
+    private final double[] lefts, rights, steps;
+    private int points;
+    private double[] values;
+    private double maxError = Double.NaN;
+
+    /**
+     * Builds a cache on a grid of the given number of points per input, without
+     * checking the interpolation error.
+     * @param function The function to sample.
+     * @param domains The domain of each input (1 to 3 inputs).
+     * @param points The number of grid points per input, at least 2.
+     */
+    public SurfaceCache(Function function, Tuple[] domains, int points)
+    {
+        this(function, domains, points, Double.POSITIVE_INFINITY, points);
+    }
+
+    /**
+     * Builds a cache whose interpolation error is within a bound.
+     * @param function The function to sample.
+     * @param domains The domain of each input (1 to 3 inputs).
+     * @param points The initial number of grid points per input, at least 2.
+     * @param errorBound The maximum interpolation error.
+     * @param maxPoints The maximum number of grid points per input.
+     * @throws BadParameterException if the error bound is not reached with
+     * maxPoints points per input.
+     */
+    public SurfaceCache(Function function, Tuple[] domains, int points, double errorBound, int maxPoints)
+    {
+        if(domains.length < 1 || domains.length > 3)
+            throw new BadParameterException("The surface cache supports 1 to 3 inputs, not "+domains.length+".");
+        if(points < 2)
+            throw new BadParameterException("The surface cache needs at least 2 points per input.");
+        dimensions = domains.length;
+        lefts = new double[dimensions];
+        rights = new double[dimensions];
+        steps = new double[dimensions];
+        for(int d=0;d<dimensions;d++)
+        {
+            lefts[d] = domains[d].getLeft();
+            rights[d] = domains[d].getRight();
+        }
+
+        sample(function, points, null, 0);
+        if(errorBound == Double.POSITIVE_INFINITY)
+            return;
+        maxError = measureError(function);
+        while(maxError > errorBound)
+        {
+            int refinedPoints = 2 * this.points - 1;
+            if(refinedPoints > maxPoints)
+                throw new BadParameterException("The interpolation error is "+maxError+" with "+this.points
+                        +" points per input, which is above the bound of "+errorBound+".");
+            sample(function, refinedPoints, values, this.points);
+            maxError = measureError(function);
+        }
+    }
+
+    /**
+     * Returns a function evaluating an output of a type-1 rulebase.
+     * @param inputs The inputs of the rulebase, in the order of the cache inputs.
+     * @param defuzzificationType 0-Height Defuzzification, 1-Centroid Defuzzification.
+     */
+    public static Function forRulebase(final T1_Rulebase rulebase, final Input[] inputs, final Output output,
+            final int defuzzificationType)
+    {
+        return new Function()
+        {
+            @Override
+            public double evaluate(double[] x)
+            {
+                for(int i=0;i<inputs.length;i++)
+                    inputs[i].setInput(x[i]);
+                return rulebase.evaluate(defuzzificationType).get(output);
+            }
+        };
+    }
+
+    /**
+     * Returns a function evaluating an output of an interval type-2 rulebase.
+     * @param inputs The inputs of the rulebase, in the order of the cache inputs.
+     * @param typeReductionType 0-Center Of Sets, 1-Centroid.
+     */
+    public static Function forRulebase(final IT2_Rulebase rulebase, final Input[] inputs, final Output output,
+            final int typeReductionType)
+    {
+        return new Function()
+        {
+            @Override
+            public double evaluate(double[] x)
+            {
+                for(int i=0;i<inputs.length;i++)
+                    inputs[i].setInput(x[i]);
+                return rulebase.evaluate(typeReductionType).get(output);
+            }
+        };
+    }
+
+    /**
+     * Returns a function evaluating an output of a zSlices based general type-2
+     * rulebase.
+     * @param inputs The inputs of the rulebase, in the order of the cache inputs.
+     * @param typeReductionType 0-Center Of Sets, 1-Centroid.
+     */
+    public static Function forRulebase(final GenT2z_Rulebase rulebase, final Input[] inputs, final Output output,
+            final int typeReductionType)
+    {
+        return new Function()
+        {
+            @Override
+            public double evaluate(double[] x)
+            {
+                for(int i=0;i<inputs.length;i++)
+                    inputs[i].setInput(x[i]);
+                return rulebase.evaluate(typeReductionType).get(output);
+            }
+        };
+    }
+
+    /**
+     * Returns the domains of the given inputs.
+     */
+    public static Tuple[] getDomains(Input[] inputs)
+    {
+        Tuple[] domains = new Tuple[inputs.length];
+        for(int i=0;i<inputs.length;i++)
+            domains[i] = inputs[i].getDomain();
+        return domains;
+    }
+
+    /**
+     * Samples the function on a grid, reusing the samples of the previous grid
+     * when the new one is its refinement.
+     * @param previousValues The samples of the previous grid, or null.
+     * @param previousPoints The number of points per input of the previous grid.
+     */
+    private void sample(Function function, int points, double[] previousValues, int previousPoints)
+    {
+        int size = 1;
+        for(int d=0;d<dimensions;d++)
+        {
+            steps[d] = (rights[d]-lefts[d])/(points-1.0);
+            size *= points;
+        }
+        double[] newValues = new double[size];
+        double[] x = new double[dimensions];
+        int[] index = new int[dimensions];
+        for(int i=0;i<size;i++)
+        {
+            int rest = i;
+            boolean previous = previousValues != null;
+            int previousIndex = 0;
+            for(int d=dimensions-1;d>=0;d--)
+            {
+                index[d] = rest % points;
+                rest /= points;
+                previous &= index[d] % 2 == 0;
+            }
+            if(previous)
+            {
+                for(int d=0;d<dimensions;d++)
+                    previousIndex = previousIndex * previousPoints + index[d] / 2;
+                newValues[i] = previousValues[previousIndex];
+            }
+            else
+            {
+                for(int d=0;d<dimensions;d++)
+                    x[d] = getCoordinate(d, index[d], points);
+                newValues[i] = function.evaluate(x);
+            }
+        }
+        this.points = points;
+        this.values = newValues;
+    }
+
+    /**
+     * Returns the coordinate of a grid point, using the exact domain bounds for
+     * the first and last points.
+     */
+    private double getCoordinate(int d, int index, int points)
+    {
+        if(index == points-1)
+            return rights[d];
+        return lefts[d]+index*(rights[d]-lefts[d])/(points-1.0);
+    }
+
+    /**
+     * Returns the largest difference between the function and its interpolation
+     * at the centres of the grid cells. A NaN on only one side counts as an
+     * infinite error.
+     */
+    private double measureError(Function function)
+    {
+        int cells = 1;
+        for(int d=0;d<dimensions;d++)
+            cells *= points-1;
+        double[] x = new double[dimensions];
+        double error = 0.0;
+        for(int i=0;i<cells;i++)
+        {
+            int rest = i;
+            for(int d=dimensions-1;d>=0;d--)
+            {
+                x[d] = lefts[d]+((rest % (points-1))+0.5)*steps[d];
+                rest /= points-1;
+            }
+            double exact = function.evaluate(x);
+            double interpolated = getValue(x);
+            if(Double.isNaN(exact) && Double.isNaN(interpolated))
+                continue;
+            if(Double.isNaN(exact) || Double.isNaN(interpolated))
+                return Double.POSITIVE_INFINITY;
+            error = Math.max(error, Math.abs(exact-interpolated));
+        }
+        return error;
+    }
+
+    /**
+     * Returns the interpolated value of a one input system.
+     */
+    public double getValue(double x)
+    {
+        checkDimensions(1);
+        int i = getCell(0, x);
+        double t = getOffset(0, x, i);
+        return values[i]+t*(values[i+1]-values[i]);
+    }
+
+    /**
+     * Returns the interpolated value of a two input system.
+     */
+    public double getValue(double x, double y)
+    {
+        checkDimensions(2);
+        int i = getCell(0, x), j = getCell(1, y);
+        double t = getOffset(0, x, i), u = getOffset(1, y, j);
+        int p = i*points+j;
+        double v0 = values[p]+u*(values[p+1]-values[p]);
+        double v1 = values[p+points]+u*(values[p+points+1]-values[p+points]);
+        return v0+t*(v1-v0);
+    }
+
+    /**
+     * Returns the interpolated value of a three input system.
+     */
+    public double getValue(double x, double y, double z)
+    {
+        checkDimensions(3);
+        int i = getCell(0, x), j = getCell(1, y), k = getCell(2, z);
+        double t = getOffset(0, x, i), u = getOffset(1, y, j), w = getOffset(2, z, k);
+        int plane = points*points;
+        int p = i*plane+j*points+k;
+        double v00 = values[p]+w*(values[p+1]-values[p]);
+        double v01 = values[p+points]+w*(values[p+points+1]-values[p+points]);
+        double v10 = values[p+plane]+w*(values[p+plane+1]-values[p+plane]);
+        double v11 = values[p+plane+points]+w*(values[p+plane+points+1]-values[p+plane+points]);
+        double v0 = v00+u*(v01-v00);
+        double v1 = v10+u*(v11-v10);
+        return v0+t*(v1-v0);
+    }
+
+    /**
+     * Returns the interpolated value for the given input values.
+     */
+    public double getValue(double[] x)
+    {
+        if(x.length == 1)
+            return getValue(x[0]);
+        if(x.length == 2)
+            return getValue(x[0], x[1]);
+        return getValue(x[0], x[1], x[2]);
+    }
+
+    /**
+     * Returns the number of grid points per input.
+     */
+    public int getPoints()
+    {
+        return points;
+    }
+
+    /**
+     * Returns the largest interpolation error measured at the cell centres, or
+     * NaN if no error bound was given.
+     */
+    public double getMaxError()
+    {
+        return maxError;
+    }
+
+    private void checkDimensions(int queried)
+    {
+        if(queried != dimensions)
+            throw new BadParameterException("The surface cache has "+dimensions+" inputs, not "+queried+".");
+    }
+
+    /**
+     * Returns the index of the cell containing a value along an input.
+     */
+    private int getCell(int d, double x)
+    {
+        if(!(x>=lefts[d] && x<=rights[d]))
+            throw new BadParameterException("The input value "+x+" was rejected "
+                    + "as it is outside of the domain for this input: "
+                    + "["+lefts[d]+", "+rights[d]+"].");
+        int cell = (int)((x-lefts[d])/steps[d]);
+        return Math.min(cell, points-2);
+    }
+
+    /**
+     * Returns the position of a value within its cell, from 0 to 1.
+     */
+    private double getOffset(int d, double x, int cell)
+    {
+        return (x-getCoordinate(d, cell, points))/steps[d];
+    }
+}
@@ -0,0 +1,568 @@
+/*
+ * T1_CompiledRulebase.java
+ *
+ * Compiled, allocation-free form of a T1_Rulebase.
+ */
+
+package type1.system;
+
+import generic.BadParameterException;
+import generic.Input;
+import generic.Output;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import type1.sets.T1MF_Gaussian;
+import type1.sets.T1MF_Interface;
+import type1.sets.T1MF_Singleton;
+import type1.sets.T1MF_Trapezoidal;
+import type1.sets.T1MF_Triangular;
+
+/**
+ * A type-1 rulebase compiled into flat primitive arrays, evaluated without
+ * allocating objects or looking up maps.
+ * Each distinct pair of input and antecedent membership function becomes a term,
+ * whose membership is computed once per evaluation; the rules keep the indexes
+ * of their terms, and the consequents keep their peak and their membership at
+ * each discretisation of their output. The results are the same as those of
+ * T1_Rulebase.evaluate() for both height (0) and centroid (1) defuzzification.
+ * The rulebase is compiled as it is when the constructor is called: later
+ * changes to its rules, membership functions, methods or output discretisations
+ * are not reflected.
+ * Only singleton inputs are supported. A compiled rulebase is immutable and
+ * does not update its Input objects, so it can be shared by several threads:
+ * the buffers used during an evaluation are kept in a Workspace, either given
+ * by the caller or, by default, one per thread.
+ */
+public class T1_CompiledRulebase
+{
+    private static final byte PRODUCT = 0;
+    private static final byte MINIMUM = 1;
+
+    //the membership function types evaluated inline; others are called through the interface
+    private static final byte OTHER = 0;
+    private static final byte TRAPEZOIDAL = 1;
+    private static final byte TRIANGULAR = 2;
+    private static final byte GAUSSIAN = 3;
+    private static final byte SINGLETON = 4;
+
+    private static final int PARAMETERS = 6;   //number of parameters kept per term
+
+    private final byte implicationMethod;
+    private final byte inferenceMethod;
+
+    private final Input[] inputs;
+    private final double[] domainLefts, domainRights;
+    private final Output[] outputs;
+    private final double[][] discretizations;
+
+    //terms: pairs of input and antecedent membership function
+    private final int[] termInputs;
+    private final byte[] termTypes;
+    private final double[] termParameters;
+    private final boolean[] termLeftShoulders, termRightShoulders;
+    private final T1MF_Interface[] termMFs;
+
+    //rules: the terms of rule r are ruleTerms[ruleTermOffsets[r]..ruleTermOffsets[r+1]-1],
+    //its consequents are ruleConsequentOffsets[r]..ruleConsequentOffsets[r+1]-1
+    private final int[] ruleTermOffsets;
+    private final int[] ruleTerms;
+    private final int[] ruleConsequentOffsets;
+    private final int[] consequentOutputs;
+    private final double[] consequentPeaks;
+    private final double[][] consequentMemberships;
+
+    private final int terms, rules;
+
+    //the workspace of each thread, used when none is given to evaluate()
+    private final ThreadLocal<Workspace> workspaces = new ThreadLocal<Workspace>()
+    {
+        @Override
+        protected Workspace initialValue()
+        {
+            return createWorkspace();
+        }
+    };
+
+    /**
+     * The buffers used while evaluating a compiled rulebase. A workspace can only
+     * be used with the rulebase that created it, by one thread at a time.
+     */
+    public static final class Workspace
+    {
+        private final T1_CompiledRulebase rulebase;
+        private final double[] memberships;
+        private final double[] fStrengths;
+        private final double[] numerators, denominators;
+        private final double[][] outputSetBuffers;
+        private final double[] inputValues, results;
+
+        private Workspace(T1_CompiledRulebase rulebase)
+        {
+            this.rulebase = rulebase;
+            inputValues = new double[rulebase.inputs.length];
+            results = new double[rulebase.outputs.length];
+            memberships = new double[rulebase.terms];
+            fStrengths = new double[rulebase.rules];
+            numerators = new double[rulebase.outputs.length];
+            denominators = new double[rulebase.outputs.length];
+            outputSetBuffers = new double[rulebase.outputs.length][];
+            for (int o = 0; o < outputSetBuffers.length; o++)
+                outputSetBuffers[o] = new double[rulebase.discretizations[o].length];
+        }
+
+        /**
+         * Returns a buffer for the input values of an evaluation, one per input
+         * in the order of getInputs(), so that callers do not allocate one.
+         */
+        public double[] getInputValues()
+        {
+            return inputValues;
+        }
+
+        /**
+         * Returns a buffer for the results of an evaluation, one per output in
+         * the order of getOutputs().
+         */
+        public double[] getResults()
+        {
+            return results;
+        }
+    }
+
+    /**
+     * Compiles a rulebase.
+     * @param rulebase The rulebase, whose inputs must all be singletons.
+     */
+    public T1_CompiledRulebase(T1_Rulebase rulebase)
+    {
+        implicationMethod = rulebase.getImplicationMethod().equals("product") ? PRODUCT : MINIMUM;
+        inferenceMethod = rulebase.getInferenceMethod().equals("product") ? PRODUCT : MINIMUM;
+
+        List<Input> inputList = new ArrayList<Input>();
+        HashMap<Input, Integer> inputIndexes = new HashMap<Input, Integer>();
+        List<Output> outputList = new ArrayList<Output>();
+        HashMap<Output, Integer> outputIndexes = new HashMap<Output, Integer>();
+        List<T1_Antecedent> termList = new ArrayList<T1_Antecedent>();
+        List<Integer> termInputList = new ArrayList<Integer>();
+        List<T1_Consequent> consequentList = new ArrayList<T1_Consequent>();
+
+        rules = rulebase.getNumberOfRules();
+        ruleTermOffsets = new int[rules + 1];
+        ruleConsequentOffsets = new int[rules + 1];
+        List<Integer> ruleTermList = new ArrayList<Integer>();
+
+        for (int r = 0; r < rules; r++)
+        {
+            T1_Rule rule = rulebase.getRule(r);
+            for (T1_Antecedent antecedent : rule.getAntecedents())
+            {
+                Input input = antecedent.getInput();
+                if (!(input.getInputMF() instanceof T1MF_Singleton))
+                    throw new BadParameterException("Only singleton inputs are supported by the "
+                            + "compiled rulebase, but input " + input.getName() + " is not.");
+                Integer inputIndex = inputIndexes.get(input);
+                if (inputIndex == null)
+                {
+                    inputIndex = inputList.size();
+                    inputList.add(input);
+                    inputIndexes.put(input, inputIndex);
+                }
+                int term = 0;
+                while (term < termList.size() && (termInputList.get(term) != inputIndex.intValue()
+                        || termList.get(term).getMF() != antecedent.getMF()))
+                    term++;
+                if (term == termList.size())
+                {
+                    termList.add(antecedent);
+                    termInputList.add(inputIndex);
+                }
+                ruleTermList.add(term);
+            }
+            ruleTermOffsets[r + 1] = ruleTermList.size();
+
+            //same consequent order as T1_Rulebase, although each output is updated independently
+            Iterator<T1_Consequent> it = rule.getConsequentsIterator();
+            while (it.hasNext())
+            {
+                T1_Consequent consequent = it.next();
+                if (!outputIndexes.containsKey(consequent.getOutput()))
+                {
+                    outputIndexes.put(consequent.getOutput(), outputList.size());
+                    outputList.add(consequent.getOutput());
+                }
+                consequentList.add(consequent);
+            }
+            ruleConsequentOffsets[r + 1] = consequentList.size();
+        }
+
+        inputs = inputList.toArray(new Input[inputList.size()]);
+        domainLefts = new double[inputs.length];
+        domainRights = new double[inputs.length];
+        for (int i = 0; i < inputs.length; i++)
+        {
+            domainLefts[i] = inputs[i].getDomain().getLeft();
+            domainRights[i] = inputs[i].getDomain().getRight();
+        }
+
+        outputs = outputList.toArray(new Output[outputList.size()]);
+        discretizations = new double[outputs.length][];
+        for (int o = 0; o < outputs.length; o++)
+            discretizations[o] = outputs[o].getDiscretizations().clone();
+
+        terms = termList.size();
+        termInputs = new int[terms];
+        termTypes = new byte[terms];
+        termParameters = new double[terms * PARAMETERS];
+        termLeftShoulders = new boolean[terms];
+        termRightShoulders = new boolean[terms];
+        termMFs = new T1MF_Interface[terms];
+        for (int t = 0; t < terms; t++)
+        {
+            termInputs[t] = termInputList.get(t);
+            compileTerm(t, termList.get(t).getMF());
+        }
+
+        ruleTerms = new int[ruleTermList.size()];
+        for (int i = 0; i < ruleTerms.length; i++)
+            ruleTerms[i] = ruleTermList.get(i);
+
+        consequentOutputs = new int[consequentList.size()];
+        consequentPeaks = new double[consequentList.size()];
+        consequentMemberships = new double[consequentList.size()][];
+        for (int c = 0; c < consequentOutputs.length; c++)
+        {
+            T1_Consequent consequent = consequentList.get(c);
+            int o = outputIndexes.get(consequent.getOutput());
+            consequentOutputs[c] = o;
+            consequentPeaks[c] = consequent.getMF().getPeak();
+            consequentMemberships[c] = new double[discretizations[o].length];
+            for (int i = 0; i < discretizations[o].length; i++)
+                consequentMemberships[c][i] = consequent.getMF().getFS(discretizations[o][i]);
+        }
+    }
+
+    /**
+     * Stores the parameters of a term's membership function.
+     * @param t The term.
+     * @param mF The membership function.
+     */
+    private void compileTerm(int t, T1MF_Interface mF)
+    {
+        int p = t * PARAMETERS;
+        termMFs[t] = mF;
+        termLeftShoulders[t] = mF.isLeftShoulder();
+        termRightShoulders[t] = mF.isRightShoulder();
+        //subclasses may override getFS(), so only the exact classes are evaluated inline
+        if (mF.getClass() == T1MF_Trapezoidal.class)
+        {
+            T1MF_Trapezoidal trapezoid = (T1MF_Trapezoidal) mF;
+            termTypes[t] = TRAPEZOIDAL;
+            termParameters[p] = trapezoid.getA();
+            termParameters[p + 1] = trapezoid.getB();
+            termParameters[p + 2] = trapezoid.getC();
+            termParameters[p + 3] = trapezoid.getD();
+            termParameters[p + 4] = trapezoid.getyLevels()[0];
+            termParameters[p + 5] = trapezoid.getyLevels()[1];
+        }
+        else if (mF.getClass() == T1MF_Triangular.class)
+        {
+            T1MF_Triangular triangle = (T1MF_Triangular) mF;
+            termTypes[t] = TRIANGULAR;
+            termParameters[p] = triangle.getStart();
+            termParameters[p + 1] = triangle.getPeak();
+            termParameters[p + 2] = triangle.getEnd();
+        }
+        else if (mF.getClass() == T1MF_Gaussian.class)
+        {
+            T1MF_Gaussian gaussian = (T1MF_Gaussian) mF;
+            termTypes[t] = GAUSSIAN;
+            termParameters[p] = gaussian.getMean();
+            termParameters[p + 1] = gaussian.getSpread();
+            termParameters[p + 2] = gaussian.getSupport().getLeft();
+            termParameters[p + 3] = gaussian.getSupport().getRight();
+        }
+        else if (mF.getClass() == T1MF_Singleton.class)
+        {
+            termTypes[t] = SINGLETON;
+            termParameters[p] = ((T1MF_Singleton) mF).getValue();
+        }
+        else
+        {
+            termTypes[t] = OTHER;
+        }
+    }
+
+    /**
+     * Returns the inputs of the rulebase, in the order in which their values are
+     * passed to evaluate().
+     */
+    public Input[] getInputs()
+    {
+        return inputs.clone();
+    }
+
+    /**
+     * Returns the outputs of the rulebase, in the order in which their values are
+     * returned by evaluate().
+     */
+    public Output[] getOutputs()
+    {
+        return outputs.clone();
+    }
+
+    /**
+     * Returns the position of an input in the input values, or -1 if the
+     * rulebase does not use it.
+     */
+    public int getInputIndex(Input input)
+    {
+        for (int i = 0; i < inputs.length; i++)
+            if (inputs[i] == input)
+                return i;
+        return -1;
+    }
+
+    /**
+     * Returns the position of an output in the results, or -1 if the rulebase
+     * does not use it.
+     */
+    public int getOutputIndex(Output output)
+    {
+        for (int o = 0; o < outputs.length; o++)
+            if (outputs[o] == output)
+                return o;
+        return -1;
+    }
+
+    /**
+     * Returns a new workspace for evaluating this rulebase.
+     */
+    public Workspace createWorkspace()
+    {
+        return new Workspace(this);
+    }
+
+    /**
+     * Returns the workspace of the current thread, the one used by
+     * evaluate() when no workspace is given.
+     */
+    public Workspace getWorkspace()
+    {
+        return workspaces.get();
+    }
+
+    /**
+     * Evaluates the rulebase for the given input values, using the workspace of
+     * the current thread. The Input objects of the rulebase are not updated.
+     * @param inputValues The value of each input, in the order of getInputs().
+     * @param defuzzificationType The type of defuzzifier to be used: 0-Height
+     * Defuzzification, 1-Centroid Defuzzification.
+     * @param results The array receiving the value of each output, in the order
+     * of getOutputs().
+     */
+    public void evaluate(double[] inputValues, int defuzzificationType, double[] results)
+    {
+        evaluate(inputValues, defuzzificationType, results, workspaces.get());
+    }
+
+    /**
+     * Evaluates the rulebase for the given input values, using the given
+     * workspace. The Input objects of the rulebase are not updated.
+     * @param inputValues The value of each input, in the order of getInputs().
+     * @param defuzzificationType The type of defuzzifier to be used: 0-Height
+     * Defuzzification, 1-Centroid Defuzzification.
+     * @param results The array receiving the value of each output, in the order
+     * of getOutputs().
+     * @param workspace A workspace created by this rulebase.
+     */
+    public void evaluate(double[] inputValues, int defuzzificationType, double[] results, Workspace workspace)
+    {
+        if (workspace.rulebase != this)
+            throw new BadParameterException("The workspace was not created by this rulebase.");
+        if (defuzzificationType != 0 && defuzzificationType != 1)
+            throw new BadParameterException("The T1 evaluate() method only supports height "
+                    + "defuzzification (0) and centroid defuzzification (1).");
+        for (int i = 0; i < inputs.length; i++)
+        {
+            double x = inputValues[i];
+            if (!(x >= domainLefts[i] && x <= domainRights[i]))
+                throw new BadParameterException("The input value " + x + " was rejected "
+                        + "as it is outside of the domain for this input: "
+                        + "[" + domainLefts[i] + ", " + domainRights[i] + "].");
+        }
+
+        double[] memberships = workspace.memberships;
+        double[] fStrengths = workspace.fStrengths;
+        for (int t = 0; t < terms; t++)
+            memberships[t] = getMembership(t, inputValues[termInputs[t]]);
+
+        for (int r = 0; r < rules; r++)
+        {
+            double fStrength = 1.0;
+            if (implicationMethod == PRODUCT)
+            {
+                for (int i = ruleTermOffsets[r]; i < ruleTermOffsets[r + 1]; i++)
+                    fStrength *= memberships[ruleTerms[i]];
+            }
+            else
+            {
+                for (int i = ruleTermOffsets[r]; i < ruleTermOffsets[r + 1]; i++)
+                    fStrength = Math.min(fStrength, memberships[ruleTerms[i]]);
+            }
+            fStrengths[r] = fStrength;
+        }
+
+        if (defuzzificationType == 0)
+            heightDefuzzification(workspace, results);
+        else
+            centroidDefuzzification(workspace, results);
+    }
+
+    /**
+     * Height defuzzification, accumulating the rules in the same order as
+     * T1_Rulebase.heightDefuzzification().
+     */
+    private void heightDefuzzification(Workspace workspace, double[] results)
+    {
+        double[] fStrengths = workspace.fStrengths;
+        double[] numerators = workspace.numerators, denominators = workspace.denominators;
+        for (int o = 0; o < outputs.length; o++)
+        {
+            numerators[o] = 0.0;
+            denominators[o] = 0.0;
+        }
+        for (int r = 0; r < rules; r++)
+        {
+            for (int c = ruleConsequentOffsets[r]; c < ruleConsequentOffsets[r + 1]; c++)
+            {
+                int o = consequentOutputs[c];
+                numerators[o] = numerators[o] + fStrengths[r] * consequentPeaks[c];
+                denominators[o] = denominators[o] + fStrengths[r];
+            }
+        }
+        for (int o = 0; o < outputs.length; o++)
+            results[o] = numerators[o] / denominators[o];
+    }
+
+    /**
+     * Centroid defuzzification, using the same operations as
+     * T1_Rulebase.centroidDefuzzification().
+     */
+    private void centroidDefuzzification(Workspace workspace, double[] results)
+    {
+        double[] fStrengths = workspace.fStrengths;
+        double[][] outputSetBuffers = workspace.outputSetBuffers;
+        for (int o = 0; o < outputs.length; o++)
+        {
+            double[] buffer = outputSetBuffers[o];
+            for (int i = 0; i < buffer.length; i++)
+                buffer[i] = 0.0;
+        }
+        for (int r = 0; r < rules; r++)
+        {
+            double fStrength = fStrengths[r];
+            for (int c = ruleConsequentOffsets[r]; c < ruleConsequentOffsets[r + 1]; c++)
+            {
+                double[] buffer = outputSetBuffers[consequentOutputs[c]];
+                double[] consequentMembership = consequentMemberships[c];
+                if (inferenceMethod == PRODUCT)
+                {
+                    for (int i = 0; i < buffer.length; i++)
+                        buffer[i] = Math.max(buffer[i], fStrength * consequentMembership[i]);
+                }
+                else
+                {
+                    for (int i = 0; i < buffer.length; i++)
+                        buffer[i] = Math.max(buffer[i], Math.min(fStrength, consequentMembership[i]));
+                }
+            }
+        }
+        for (int o = 0; o < outputs.length; o++)
+        {
+            double[] buffer = outputSetBuffers[o];
+            double[] discretization = discretizations[o];
+            double numerator = 0.0, denominator = 0.0;
+            for (int i = 0; i < buffer.length; i++)
+            {
+                numerator += discretization[i] * buffer[i];
+                denominator += buffer[i];
+            }
+            results[o] = numerator / denominator;
+        }
+    }
+
+    /**
+     * Returns the membership of a value in a term, computed as the getFS() method
+     * of the term's membership function does.
+     */
+    private double getMembership(int t, double x)
+    {
+        int p = t * PARAMETERS;
+        switch (termTypes[t])
+        {
+            case TRAPEZOIDAL:
+            {
+                double a = termParameters[p], b = termParameters[p + 1];
+                double c = termParameters[p + 2], d = termParameters[p + 3];
+                double y0 = termParameters[p + 4], y1 = termParameters[p + 5];
+                if (termLeftShoulders[t] && x <= c) return 1.0;
+                if (termRightShoulders[t] && x >= b) return 1.0;
+                double output;
+                if (x < b && x > a)
+                {
+                    output = y0 * (x - a) / (b - a);
+                }
+                else if (x >= b && x <= c)
+                {
+                    if (y0 == y1)
+                        output = y0;
+                    else
+                        output = (y1 * x - y0 * x - y1 * b + y0 * b) / (c - b) + y0;
+                    if (output < 0) output = 0;
+                }
+                else if (x > c && x < d)
+                {
+                    output = y1 * (d - x) / (d - c);
+                }
+                else
+                {
+                    output = 0.0;
+                }
+                if (Math.abs(1 - output) < 0.000001) output = 1.0;
+                if (Math.abs(output) < 0.000001) output = 0.0;
+                return output;
+            }
+            case TRIANGULAR:
+            {
+                double start = termParameters[p], peak = termParameters[p + 1], end = termParameters[p + 2];
+                if (termLeftShoulders[t] && x <= peak) return 1.0;
+                if (termRightShoulders[t] && x >= peak) return 1.0;
+                if (x < peak && x > start)
+                    return (x - start) / (peak - start);
+                else if (x == peak)
+                    return 1.0;
+                else if (x > peak && x < end)
+                    return (end - x) / (end - peak);
+                else
+                    return 0.0;
+            }
+            case GAUSSIAN:
+            {
+                double mean = termParameters[p], spread = termParameters[p + 1];
+                if (x >= termParameters[p + 2] && x <= termParameters[p + 3])
+                {
+                    if (termLeftShoulders[t] && x <= mean) return 1.0;
+                    if (termRightShoulders[t] && x >= mean) return 1.0;
+                    return Math.exp(-0.5 * Math.pow(((x - mean) / spread), 2));
+                }
+                return 0.0;
+            }
+            case SINGLETON:
+                return x == termParameters[p] ? 1.0 : 0.0;
+            default:
+                return termMFs[t].getFS(x);
+        }
+    }
+}